@@ -0,0 +1,820 @@
+package io.github.freshsupasulley.lwjobs.codegen;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Generates request and event classes from the obs-websocket protocol description (protocol.json, as published in the obs-websocket repository).
+ * <p>
+ * Every non-deprecated request becomes an {@code OBSRequest} subclass named after its request type with a Request suffix, and every non-deprecated
+ * event becomes a lazy {@code OBSEvent} subclass with an Event suffix (unless it already ends with Event). Both get a streaming parser that reads fields straight from the message with a
+ * switch on the field name, and a tree parser for data that arrives already parsed (batches, MessagePack). Nothing is looked up by reflection.
+ * </p>
+ * <p>
+ * Run by the generateProtocol Gradle task with the path of protocol.json and the directory to write the sources to. The directory is emptied first.
+ * </p>
+ */
+public final class ProtocolGenerator {
+	
+	static final String PACKAGE = "io.github.freshsupasulley.lwjobs.protocol";
+	
+	// Fits the rest of the codebase
+	private static final int WIDTH = 150;
+	
+	// Methods of OBSRequest and OBSEvent that a generated getter or setter can't take over
+	private static final Set<String> RESERVED = Set.of("getRequestType", "getCode", "getDefaultTimeout", "isIdempotent", "isStreaming", "applyJSON", "accept", "getEventType", "getEventSubscription", "isLazy", "getClass", "hashCode", "toString", "equals", "wait", "notify", "notifyAll");
+	
+	// Number fields are doubles unless their name says otherwise. Only the media cursor is in milliseconds, transitionCursor goes from 0.0 to 1.0
+	private static final String[] INT_SUFFIXES = {"Id", "Index", "Width", "Height", "Quality", "Count", "Numerator", "Denominator", "Version", "Offset"};
+	private static final String[] LONG_SUFFIXES = {"Bytes", "Frames", "Millis", "Duration", "mediaCursor", "CursorOffset", "Messages"};
+	
+	private final Path output;
+	private int requests, events;
+	
+	private ProtocolGenerator(Path output)
+	{
+		this.output = output;
+	}
+	
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length != 2)
+		{
+			System.err.println("Usage: ProtocolGenerator <protocol.json> <output directory>");
+			System.exit(1);
+		}
+		
+		JsonObject protocol;
+		
+		try(Reader reader = Files.newBufferedReader(Path.of(args[0]), StandardCharsets.UTF_8)) {
+			protocol = JsonParser.parseReader(reader).getAsJsonObject();
+		}
+		
+		Path output = Path.of(args[1]);
+		Path directory = output.resolve(PACKAGE.replace('.', '/'));
+		clean(output);
+		Files.createDirectories(directory);
+		
+		ProtocolGenerator generator = new ProtocolGenerator(directory);
+		
+		for(JsonElement element : protocol.getAsJsonArray("requests"))
+		{
+			generator.request(element.getAsJsonObject());
+		}
+		
+		for(JsonElement element : protocol.getAsJsonArray("events"))
+		{
+			generator.event(element.getAsJsonObject());
+		}
+		
+		generator.write("ProtocolValues", ValuesTemplate.SOURCE);
+		System.out.println("Generated " + generator.requests + " requests and " + generator.events + " events in " + directory);
+	}
+	
+	private static void clean(Path output) throws IOException
+	{
+		if(!Files.exists(output))
+		{
+			return;
+		}
+		
+		try(Stream<Path> paths = Files.walk(output)) {
+			for(Path path : paths.sorted(Comparator.reverseOrder()).toList())
+			{
+				Files.delete(path);
+			}
+		}
+	}
+	
+	private void write(String className, String source) throws IOException
+	{
+		Files.writeString(output.resolve(className + ".java"), source, StandardCharsets.UTF_8);
+	}
+	
+	private void request(JsonObject request) throws IOException
+	{
+		if(request.get("deprecated").getAsBoolean())
+		{
+			return;
+		}
+		
+		String requestType = request.get("requestType").getAsString();
+		String className = requestType + "Request";
+		List<Field> parameters = fields(request, "requestFields");
+		List<Field> response = fields(request, "responseFields");
+		
+		// A response field can come back under the same name as a parameter
+		Set<String> names = new HashSet<String>();
+		parameters.forEach(field -> names.add(field.javaName));
+		
+		for(Field field : response)
+		{
+			if(!names.add(field.javaName))
+			{
+				field.javaName = "response" + capitalize(field.javaName);
+			}
+		}
+		
+		List<Field> required = parameters.stream().filter(field -> !field.optional).toList();
+		List<Field> optional = parameters.stream().filter(field -> field.optional).toList();
+		
+		Source source = new Source("io.github.freshsupasulley.lwjobs.requests.OBSRequest");
+		source.javadoc(0, request.get("description").getAsString(), "@see <a href=\"https://github.com/obsproject/obs-websocket/blob/master/docs/generated/protocol.md#" + requestType.toLowerCase() + "\">" + requestType + "</a>");
+		source.line(0, "public class " + className + " extends OBSRequest {");
+		
+		if(!parameters.isEmpty() || !response.isEmpty())
+		{
+			source.blank(1);
+		}
+		
+		for(Field field : required)
+		{
+			source.line(1, "private final " + field.type.javaType + " " + field.javaName + ";");
+		}
+		
+		for(Field field : optional)
+		{
+			source.line(1, "private " + field.type.boxedType + " " + field.javaName + ";");
+		}
+		
+		if(!parameters.isEmpty() && !response.isEmpty())
+		{
+			source.blank(1);
+		}
+		
+		for(Field field : response)
+		{
+			source.line(1, "private " + field.storedType() + " " + field.javaName + ";");
+		}
+		
+		// Constructor takes the required parameters, optional ones are set by name
+		List<String> docs = new ArrayList<String>();
+		StringBuilder signature = new StringBuilder();
+		int width = required.stream().mapToInt(field -> field.javaName.length()).max().orElse(0);
+		
+		for(Field field : required)
+		{
+			docs.add("@param " + pad(field.javaName, width) + " " + field.description);
+			signature.append(signature.isEmpty() ? "" : ", ").append(field.type.javaType).append(' ').append(field.javaName);
+		}
+		
+		// Otherwise the default constructor does
+		if(!required.isEmpty())
+		{
+			source.blank(1);
+			source.tags(1, docs);
+			source.line(1, "public " + className + "(" + signature + ")");
+			source.line(1, "{");
+			
+			for(Field field : required)
+			{
+				source.line(2, "this." + field.javaName + " = " + field.javaName + ";");
+			}
+			
+			source.line(1, "}");
+		}
+		
+		for(Field field : optional)
+		{
+			String setter = RESERVED.contains(field.javaName) ? field.javaName + "Value" : field.javaName;
+			source.blank(1);
+			source.tags(1, List.of("@param " + field.javaName + " " + field.description + (field.behavior == null ? "" : " (if not set: " + field.behavior + ")"), "@return this, for chaining"));
+			source.line(1, "public " + className + " " + setter + "(" + field.type.boxedType + " " + field.javaName + ")");
+			source.line(1, "{");
+			source.line(2, "this." + field.javaName + " = " + field.javaName + ";");
+			source.line(2, "return this;");
+			source.line(1, "}");
+		}
+		
+		getters(source, response, false);
+		
+		source.override(1, "public String getRequestType()", "return \"" + requestType + "\";");
+		
+		// Reads are safe to send twice and share with identical requests
+		if(requestType.startsWith("Get"))
+		{
+			source.override(1, "public boolean isIdempotent()", "return true;");
+		}
+		
+		source.override(1, "public boolean isStreaming()", "return true;");
+		
+		if(!parameters.isEmpty())
+		{
+			source.blank(1);
+			source.line(1, "@Override");
+			source.line(1, "public void applyJSON(JsonObject json)");
+			source.line(1, "{");
+			
+			for(Field field : required)
+			{
+				source.line(2, field.type.write("json", field.name, field.javaName) + ";");
+			}
+			
+			for(Field field : optional)
+			{
+				if(!required.isEmpty() || field != optional.get(0))
+				{
+					source.blank(2);
+				}
+				
+				source.line(2, "if(" + field.javaName + " != null)");
+				source.line(2, "{");
+				source.line(3, field.type.write("json", field.name, field.javaName) + ";");
+				source.line(2, "}");
+			}
+			
+			source.line(1, "}");
+		}
+		
+		parsers(source, response, "parseResponse", "readResponse", "responseData");
+		source.line(0, "}");
+		
+		write(className, source.toString());
+		requests++;
+	}
+	
+	private void event(JsonObject event) throws IOException
+	{
+		if(event.get("deprecated").getAsBoolean())
+		{
+			return;
+		}
+		
+		String eventType = event.get("eventType").getAsString();
+		String className = eventType.endsWith("Event") ? eventType : eventType + "Event";
+		List<Field> data = fields(event, "dataFields");
+		
+		Source source = new Source("io.github.freshsupasulley.lwjobs.events.EventSubscription", "io.github.freshsupasulley.lwjobs.events.OBSEvent");
+		source.javadoc(0, event.get("description").getAsString(), "@see <a href=\"https://github.com/obsproject/obs-websocket/blob/master/docs/generated/protocol.md#" + eventType.toLowerCase() + "\">" + eventType + "</a>");
+		source.line(0, "public class " + className + " extends OBSEvent {");
+		
+		if(!data.isEmpty())
+		{
+			source.blank(1);
+		}
+		
+		for(Field field : data)
+		{
+			source.line(1, "private " + field.storedType() + " " + field.javaName + ";");
+		}
+		
+		getters(source, data, true);
+		
+		source.override(1, "public String getEventType()", "return \"" + eventType + "\";");
+		source.override(1, "public EventSubscription getEventSubscription()", "return EventSubscription." + constant(event.get("eventSubscription").getAsString()) + ";");
+		source.override(1, "protected boolean isLazy()", "return true;");
+		source.override(1, "protected boolean isStreaming()", "return true;");
+		
+		parsers(source, data, "parseResponse", "readEvent", "eventData");
+		source.line(0, "}");
+		
+		write(className, source.toString());
+		events++;
+	}
+	
+	private static void getters(Source source, List<Field> fields, boolean lazy)
+	{
+		for(Field field : fields)
+		{
+			String name = (field.type == Type.BOOLEAN ? "is" : "get") + capitalize(field.name);
+			
+			if(RESERVED.contains(name))
+			{
+				name += "Value";
+			}
+			
+			source.blank(1);
+			source.tags(1, List.of("@return " + field.description));
+			source.line(1, "public " + field.storedType() + " " + name + "()");
+			source.line(1, "{");
+			
+			if(lazy)
+			{
+				source.line(2, "ensureParsed();");
+			}
+			
+			source.line(2, "return " + field.javaName + ";");
+			source.line(1, "}");
+		}
+	}
+	
+	private static void parsers(Source source, List<Field> fields, String tree, String stream, String data)
+	{
+		source.blank(1);
+		source.line(1, "@Override");
+		source.line(1, "protected void " + tree + "(JsonObject " + data + ")");
+		
+		if(fields.isEmpty())
+		{
+			source.line(1, "{}");
+		}
+		else
+		{
+			source.line(1, "{");
+			source.line(2, "if(" + data + " == null)");
+			source.line(2, "{");
+			source.line(3, "return;");
+			source.line(2, "}");
+			source.blank(2);
+			
+			for(Field field : fields)
+			{
+				source.line(2, "this." + field.javaName + " = " + field.get(data) + ";");
+			}
+			
+			source.line(1, "}");
+		}
+		
+		source.blank(1);
+		source.line(1, "@Override");
+		source.line(1, "protected void " + stream + "(JsonReader " + data + ") throws IOException");
+		source.line(1, "{");
+		
+		if(fields.isEmpty())
+		{
+			source.line(2, data + ".skipValue();");
+			source.line(1, "}");
+			return;
+		}
+		
+		source.line(2, data + ".beginObject();");
+		source.blank(2);
+		source.line(2, "while(" + data + ".hasNext())");
+		source.line(2, "{");
+		source.line(3, "switch(" + data + ".nextName())");
+		source.line(3, "{");
+		
+		for(Field field : fields)
+		{
+			source.line(4, "case \"" + field.name + "\":");
+			source.line(4, "{");
+			source.line(5, "this." + field.javaName + " = " + field.read(data) + ";");
+			source.line(5, "break;");
+			source.line(4, "}");
+		}
+		
+		source.line(4, "default:");
+		source.line(4, "{");
+		source.line(5, data + ".skipValue();");
+		source.line(5, "break;");
+		source.line(4, "}");
+		source.line(3, "}");
+		source.line(2, "}");
+		source.blank(2);
+		source.line(2, data + ".endObject();");
+		source.line(1, "}");
+	}
+	
+	private static List<Field> fields(JsonObject entry, String member)
+	{
+		List<Field> fields = new ArrayList<Field>();
+		
+		for(JsonElement element : entry.getAsJsonArray(member))
+		{
+			JsonObject object = element.getAsJsonObject();
+			String name = object.get("valueName").getAsString();
+			
+			// Members of an object field (like keyModifiers.shift), which are set through the object itself
+			if(name.contains("."))
+			{
+				continue;
+			}
+			
+			String description = object.get("valueDescription").getAsString();
+			boolean optional = object.has("valueOptional") && object.get("valueOptional").getAsBoolean();
+			JsonElement behavior = object.get("valueOptionalBehavior");
+			
+			Field field = new Field(name, Type.of(object.get("valueType").getAsString(), name), Source.inline(description), optional);
+			field.behavior = behavior == null || behavior.isJsonNull() ? null : Source.inline(behavior.getAsString());
+			
+			// Documented as sometimes null, so primitives would lose that
+			field.nullable = description.contains("`null`");
+			fields.add(field);
+		}
+		
+		return fields;
+	}
+	
+	/**
+	 * @param subscription name in protocol.json (ex. SceneItems)
+	 * @return name of the EventSubscription constant (ex. SCENE_ITEMS)
+	 */
+	static String constant(String subscription)
+	{
+		StringBuilder constant = new StringBuilder();
+		
+		for(int i = 0; i < subscription.length(); i++)
+		{
+			char c = subscription.charAt(i);
+			
+			if(i > 0 && Character.isUpperCase(c))
+			{
+				constant.append('_');
+			}
+			
+			constant.append(Character.toUpperCase(c));
+		}
+		
+		return constant.toString();
+	}
+	
+	private static String capitalize(String name)
+	{
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+	
+	private static String pad(String text, int width)
+	{
+		return text + " ".repeat(width - text.length());
+	}
+	
+	private static boolean endsWithAny(String name, String[] suffixes)
+	{
+		for(String suffix : suffixes)
+		{
+			if(name.endsWith(suffix))
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Java types a protocol value type maps to, and how each one is read and written.
+	 */
+	enum Type {
+		
+		STRING("String", "String", "String"),
+		BOOLEAN("boolean", "Boolean", "Boolean"),
+		INT("int", "Integer", "Int"),
+		LONG("long", "Long", "Long"),
+		DOUBLE("double", "Double", "Double"),
+		OBJECT("JsonObject", "JsonObject", "Object"),
+		ANY("JsonElement", "JsonElement", "Element"),
+		STRING_ARRAY("String[]", "String[]", "StringArray"),
+		NUMBER_ARRAY("double[]", "double[]", "DoubleArray"),
+		OBJECT_ARRAY("JsonObject[]", "JsonObject[]", "ObjectArray");
+		
+		final String javaType, boxedType, helper;
+		
+		private Type(String javaType, String boxedType, String helper)
+		{
+			this.javaType = javaType;
+			this.boxedType = boxedType;
+			this.helper = helper;
+		}
+		
+		boolean isPrimitive()
+		{
+			return !javaType.equals(boxedType);
+		}
+		
+		String write(String json, String name, String value)
+		{
+			switch(this)
+			{
+				case OBJECT:
+				case ANY:
+				{
+					return json + ".add(\"" + name + "\", " + value + ")";
+				}
+				case STRING_ARRAY:
+				case NUMBER_ARRAY:
+				case OBJECT_ARRAY:
+				{
+					return json + ".add(\"" + name + "\", ProtocolValues.toArray(" + value + "))";
+				}
+				default:
+				{
+					return json + ".addProperty(\"" + name + "\", " + value + ")";
+				}
+			}
+		}
+		
+		static Type of(String valueType, String name)
+		{
+			switch(valueType)
+			{
+				case "String":
+				{
+					return STRING;
+				}
+				case "Boolean":
+				{
+					return BOOLEAN;
+				}
+				case "Number":
+				{
+					// Longs first, since mediaCursorOffset also ends with Offset
+					if(endsWithAny(name, LONG_SUFFIXES))
+					{
+						return LONG;
+					}
+					
+					return endsWithAny(name, INT_SUFFIXES) ? INT : DOUBLE;
+				}
+				case "Object":
+				{
+					return OBJECT;
+				}
+				case "Array<String>":
+				{
+					return STRING_ARRAY;
+				}
+				case "Array<Number>":
+				{
+					return NUMBER_ARRAY;
+				}
+				case "Array<Object>":
+				{
+					return OBJECT_ARRAY;
+				}
+				default:
+				{
+					// Any, and arrays of anything else
+					return ANY;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * A request parameter, response field or event field.
+	 */
+	static final class Field {
+		
+		final String name, description;
+		final Type type;
+		final boolean optional;
+		String javaName, behavior;
+		boolean nullable;
+		
+		Field(String name, Type type, String description, boolean optional)
+		{
+			this.name = name;
+			this.javaName = name;
+			this.type = type;
+			this.description = description;
+			this.optional = optional;
+		}
+		
+		String storedType()
+		{
+			return nullable ? type.boxedType : type.javaType;
+		}
+		
+		// Boxed fields keep null, primitive ones read it as zero or false
+		private String helper()
+		{
+			return type.helper + (nullable && type.isPrimitive() ? "OrNull" : "");
+		}
+		
+		String get(String data)
+		{
+			return "ProtocolValues.get" + helper() + "(" + data + ", \"" + name + "\")";
+		}
+		
+		String read(String data)
+		{
+			return "ProtocolValues.read" + helper() + "(" + data + ")";
+		}
+	}
+	
+	/**
+	 * Builds the text of one source file.
+	 */
+	static final class Source {
+		
+		// Imported only if the body uses them
+		private static final List<String> OPTIONAL_IMPORTS = List.of("com.google.gson.JsonElement", "com.google.gson.JsonObject", "com.google.gson.stream.JsonReader");
+		
+		private final StringBuilder text = new StringBuilder();
+		private final List<String> imports;
+		
+		/**
+		 * @param imports classes always imported (ex. the superclass)
+		 */
+		Source(String... imports)
+		{
+			this.imports = List.of(imports);
+		}
+		
+		void line(int indent, String line)
+		{
+			text.append("\t".repeat(indent)).append(line).append('\n');
+		}
+		
+		void blank(int indent)
+		{
+			text.append("\t".repeat(indent)).append('\n');
+		}
+		
+		void override(int indent, String signature, String body)
+		{
+			blank(indent);
+			line(indent, "@Override");
+			line(indent, signature);
+			line(indent, "{");
+			line(indent + 1, body);
+			line(indent, "}");
+		}
+		
+		void tags(int indent, List<String> tags)
+		{
+			line(indent, "/**");
+			
+			for(String tag : tags)
+			{
+				wrap(indent, tag);
+			}
+			
+			line(indent, " */");
+		}
+		
+		/**
+		 * Writes a description as javadoc. The first paragraph is the summary, the rest become {@code <p>} paragraphs.
+		 */
+		void javadoc(int indent, String description, String see)
+		{
+			line(indent, "/**");
+			String[] paragraphs = description.strip().split("\n\n");
+			
+			for(int i = 0; i < paragraphs.length; i++)
+			{
+				List<String> items = new ArrayList<String>();
+				StringBuilder paragraph = new StringBuilder();
+				
+				for(String part : paragraphs[i].split("\n"))
+				{
+					if(part.startsWith("- "))
+					{
+						items.add(inline(part.substring(2)));
+					}
+					else
+					{
+						paragraph.append(paragraph.isEmpty() ? "" : " ").append(inline(part));
+					}
+				}
+				
+				if(i > 0 || !items.isEmpty())
+				{
+					line(indent, " * <p>");
+				}
+				
+				if(!paragraph.isEmpty())
+				{
+					wrap(indent, paragraph.toString());
+				}
+				
+				for(String item : items)
+				{
+					wrap(indent, "- " + item + "<br>");
+				}
+				
+				if(i > 0 || !items.isEmpty())
+				{
+					line(indent, " * </p>");
+				}
+			}
+			
+			line(indent, " * ");
+			wrap(indent, see);
+			line(indent, " */");
+		}
+		
+		private void wrap(int indent, String text)
+		{
+			int limit = WIDTH - indent * 4 - 3;
+			StringBuilder current = new StringBuilder();
+			
+			for(String word : text.split(" "))
+			{
+				if(!current.isEmpty() && current.length() + 1 + word.length() > limit)
+				{
+					line(indent, " * " + current);
+					current.setLength(0);
+				}
+				
+				current.append(current.isEmpty() ? "" : " ").append(word);
+			}
+			
+			line(indent, " * " + current);
+		}
+		
+		/**
+		 * Escapes a description for javadoc, with `code` spans written as {@code <code>} tags.
+		 */
+		static String inline(String description)
+		{
+			StringBuilder escaped = new StringBuilder();
+			boolean code = false;
+			
+			for(int i = 0; i < description.length(); i++)
+			{
+				char c = description.charAt(i);
+				
+				switch(c)
+				{
+					case '`':
+					{
+						escaped.append(code ? "</code>" : "<code>");
+						code = !code;
+						break;
+					}
+					case '<':
+					{
+						escaped.append("&lt;");
+						break;
+					}
+					case '>':
+					{
+						escaped.append("&gt;");
+						break;
+					}
+					case '&':
+					{
+						escaped.append("&amp;");
+						break;
+					}
+					case '@':
+					{
+						escaped.append("&#64;");
+						break;
+					}
+					case '*':
+					{
+						// Keeps */ from ending the comment
+						escaped.append("&#42;");
+						break;
+					}
+					case '\\':
+					{
+						// javac reads a backslash followed by a u as a unicode escape even inside comments, and Windows paths in the examples have them
+						escaped.append("&#92;");
+						break;
+					}
+					case '\n':
+					{
+						escaped.append(' ');
+						break;
+					}
+					default:
+					{
+						escaped.append(c);
+						break;
+					}
+				}
+			}
+			
+			if(code)
+			{
+				escaped.append("</code>");
+			}
+			
+			return escaped.toString().strip();
+		}
+		
+		@Override
+		public String toString()
+		{
+			String body = text.toString();
+			List<String> imports = new ArrayList<String>(this.imports);
+			
+			for(String name : OPTIONAL_IMPORTS)
+			{
+				if(body.matches("(?s).*\\b" + name.substring(name.lastIndexOf('.') + 1) + "\\b.*"))
+				{
+					imports.add(name);
+				}
+			}
+			
+			imports.sort(null);
+			StringBuilder source = new StringBuilder("// Generated by ProtocolGenerator from protocol.json. Do not edit.\n");
+			source.append("package ").append(PACKAGE).append(";\n\n");
+			
+			for(String name : imports)
+			{
+				source.append("import ").append(name).append(";\n");
+			}
+			
+			// Every class has a streaming parser
+			source.append("\nimport java.io.IOException;\n\n");
+			return source.append(body).toString();
+		}
+	}
+}
@@ -0,0 +1,334 @@
+package io.github.freshsupasulley.lwjobs.codegen;
+
+/**
+ * Source of ProtocolValues, the helper every generated class reads and writes its fields through. Kept in one place instead of repeating the same
+ * null checks in every generated parser.
+ */
+final class ValuesTemplate {
+	
+	static final String SOURCE = """
+			// Generated by ProtocolGenerator from protocol.json. Do not edit.
+			package %s;
+			
+			import com.google.gson.JsonArray;
+			import com.google.gson.JsonElement;
+			import com.google.gson.JsonObject;
+			import com.google.gson.JsonParser;
+			import com.google.gson.stream.JsonReader;
+			import com.google.gson.stream.JsonToken;
+			
+			import java.io.IOException;
+			import java.util.ArrayList;
+			import java.util.Arrays;
+			import java.util.List;
+			
+			/**
+			 * Reads fields of generated requests and events from a stream or an already parsed object, and writes arrays back out.
+			 * <p>
+			 * Missing and null values read as null for objects and boxed numbers, and as zero or false for primitives.
+			 * </p>
+			 */
+			final class ProtocolValues {
+			\t
+			\tprivate ProtocolValues() {}
+			\t
+			\tprivate static boolean nextNull(JsonReader reader) throws IOException
+			\t{
+			\t\tif(reader.peek() == JsonToken.NULL)
+			\t\t{
+			\t\t\treader.nextNull();
+			\t\t\treturn true;
+			\t\t}
+			\t\t
+			\t\treturn false;
+			\t}
+			\t
+			\tstatic String readString(JsonReader reader) throws IOException
+			\t{
+			\t\treturn nextNull(reader) ? null : reader.nextString();
+			\t}
+			\t
+			\tstatic boolean readBoolean(JsonReader reader) throws IOException
+			\t{
+			\t\treturn !nextNull(reader) && reader.nextBoolean();
+			\t}
+			\t
+			\tstatic Boolean readBooleanOrNull(JsonReader reader) throws IOException
+			\t{
+			\t\treturn nextNull(reader) ? null : reader.nextBoolean();
+			\t}
+			\t
+			\tstatic int readInt(JsonReader reader) throws IOException
+			\t{
+			\t\treturn nextNull(reader) ? 0 : reader.nextInt();
+			\t}
+			\t
+			\tstatic Integer readIntOrNull(JsonReader reader) throws IOException
+			\t{
+			\t\treturn nextNull(reader) ? null : reader.nextInt();
+			\t}
+			\t
+			\tstatic long readLong(JsonReader reader) throws IOException
+			\t{
+			\t\treturn nextNull(reader) ? 0 : reader.nextLong();
+			\t}
+			\t
+			\tstatic Long readLongOrNull(JsonReader reader) throws IOException
+			\t{
+			\t\treturn nextNull(reader) ? null : reader.nextLong();
+			\t}
+			\t
+			\tstatic double readDouble(JsonReader reader) throws IOException
+			\t{
+			\t\treturn nextNull(reader) ? 0 : reader.nextDouble();
+			\t}
+			\t
+			\tstatic Double readDoubleOrNull(JsonReader reader) throws IOException
+			\t{
+			\t\treturn nextNull(reader) ? null : reader.nextDouble();
+			\t}
+			\t
+			\tstatic JsonElement readElement(JsonReader reader) throws IOException
+			\t{
+			\t\treturn JsonParser.parseReader(reader);
+			\t}
+			\t
+			\tstatic JsonObject readObject(JsonReader reader) throws IOException
+			\t{
+			\t\treturn nextNull(reader) ? null : JsonParser.parseReader(reader).getAsJsonObject();
+			\t}
+			\t
+			\tstatic String[] readStringArray(JsonReader reader) throws IOException
+			\t{
+			\t\tif(nextNull(reader))
+			\t\t{
+			\t\t\treturn null;
+			\t\t}
+			\t\t
+			\t\tList<String> values = new ArrayList<String>();
+			\t\treader.beginArray();
+			\t\t
+			\t\twhile(reader.hasNext())
+			\t\t{
+			\t\t\tvalues.add(readString(reader));
+			\t\t}
+			\t\t
+			\t\treader.endArray();
+			\t\treturn values.toArray(new String[0]);
+			\t}
+			\t
+			\tstatic double[] readDoubleArray(JsonReader reader) throws IOException
+			\t{
+			\t\tif(nextNull(reader))
+			\t\t{
+			\t\t\treturn null;
+			\t\t}
+			\t\t
+			\t\tdouble[] values = new double[8];
+			\t\tint size = 0;
+			\t\treader.beginArray();
+			\t\t
+			\t\twhile(reader.hasNext())
+			\t\t{
+			\t\t\tif(size == values.length)
+			\t\t\t{
+			\t\t\t\tvalues = Arrays.copyOf(values, size * 2);
+			\t\t\t}
+			\t\t\t
+			\t\t\tvalues[size++] = readDouble(reader);
+			\t\t}
+			\t\t
+			\t\treader.endArray();
+			\t\treturn Arrays.copyOf(values, size);
+			\t}
+			\t
+			\tstatic JsonObject[] readObjectArray(JsonReader reader) throws IOException
+			\t{
+			\t\tif(nextNull(reader))
+			\t\t{
+			\t\t\treturn null;
+			\t\t}
+			\t\t
+			\t\tList<JsonObject> values = new ArrayList<JsonObject>();
+			\t\treader.beginArray();
+			\t\t
+			\t\twhile(reader.hasNext())
+			\t\t{
+			\t\t\tvalues.add(readObject(reader));
+			\t\t}
+			\t\t
+			\t\treader.endArray();
+			\t\treturn values.toArray(new JsonObject[0]);
+			\t}
+			\t
+			\tprivate static JsonElement get(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = object.get(name);
+			\t\treturn element == null || element.isJsonNull() ? null : element;
+			\t}
+			\t
+			\tstatic String getString(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = get(object, name);
+			\t\treturn element == null ? null : element.getAsString();
+			\t}
+			\t
+			\tstatic boolean getBoolean(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = get(object, name);
+			\t\treturn element != null && element.getAsBoolean();
+			\t}
+			\t
+			\tstatic Boolean getBooleanOrNull(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = get(object, name);
+			\t\treturn element == null ? null : element.getAsBoolean();
+			\t}
+			\t
+			\tstatic int getInt(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = get(object, name);
+			\t\treturn element == null ? 0 : element.getAsInt();
+			\t}
+			\t
+			\tstatic Integer getIntOrNull(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = get(object, name);
+			\t\treturn element == null ? null : element.getAsInt();
+			\t}
+			\t
+			\tstatic long getLong(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = get(object, name);
+			\t\treturn element == null ? 0 : element.getAsLong();
+			\t}
+			\t
+			\tstatic Long getLongOrNull(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = get(object, name);
+			\t\treturn element == null ? null : element.getAsLong();
+			\t}
+			\t
+			\tstatic double getDouble(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = get(object, name);
+			\t\treturn element == null ? 0 : element.getAsDouble();
+			\t}
+			\t
+			\tstatic Double getDoubleOrNull(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = get(object, name);
+			\t\treturn element == null ? null : element.getAsDouble();
+			\t}
+			\t
+			\tstatic JsonElement getElement(JsonObject object, String name)
+			\t{
+			\t\treturn object.get(name);
+			\t}
+			\t
+			\tstatic JsonObject getObject(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = get(object, name);
+			\t\treturn element == null ? null : element.getAsJsonObject();
+			\t}
+			\t
+			\tstatic String[] getStringArray(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = get(object, name);
+			\t\t
+			\t\tif(element == null)
+			\t\t{
+			\t\t\treturn null;
+			\t\t}
+			\t\t
+			\t\tJsonArray array = element.getAsJsonArray();
+			\t\tString[] values = new String[array.size()];
+			\t\t
+			\t\tfor(int i = 0; i < values.length; i++)
+			\t\t{
+			\t\t\tvalues[i] = array.get(i).isJsonNull() ? null : array.get(i).getAsString();
+			\t\t}
+			\t\t
+			\t\treturn values;
+			\t}
+			\t
+			\tstatic double[] getDoubleArray(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = get(object, name);
+			\t\t
+			\t\tif(element == null)
+			\t\t{
+			\t\t\treturn null;
+			\t\t}
+			\t\t
+			\t\tJsonArray array = element.getAsJsonArray();
+			\t\tdouble[] values = new double[array.size()];
+			\t\t
+			\t\tfor(int i = 0; i < values.length; i++)
+			\t\t{
+			\t\t\tvalues[i] = array.get(i).isJsonNull() ? 0 : array.get(i).getAsDouble();
+			\t\t}
+			\t\t
+			\t\treturn values;
+			\t}
+			\t
+			\tstatic JsonObject[] getObjectArray(JsonObject object, String name)
+			\t{
+			\t\tJsonElement element = get(object, name);
+			\t\t
+			\t\tif(element == null)
+			\t\t{
+			\t\t\treturn null;
+			\t\t}
+			\t\t
+			\t\tJsonArray array = element.getAsJsonArray();
+			\t\tJsonObject[] values = new JsonObject[array.size()];
+			\t\t
+			\t\tfor(int i = 0; i < values.length; i++)
+			\t\t{
+			\t\t\tvalues[i] = array.get(i).isJsonNull() ? null : array.get(i).getAsJsonObject();
+			\t\t}
+			\t\t
+			\t\treturn values;
+			\t}
+			\t
+			\tstatic JsonArray toArray(String[] values)
+			\t{
+			\t\tJsonArray array = new JsonArray(values.length);
+			\t\t
+			\t\tfor(String value : values)
+			\t\t{
+			\t\t\tarray.add(value);
+			\t\t}
+			\t\t
+			\t\treturn array;
+			\t}
+			\t
+			\tstatic JsonArray toArray(double[] values)
+			\t{
+			\t\tJsonArray array = new JsonArray(values.length);
+			\t\t
+			\t\tfor(double value : values)
+			\t\t{
+			\t\t\tarray.add(value);
+			\t\t}
+			\t\t
+			\t\treturn array;
+			\t}
+			\t
+			\tstatic JsonArray toArray(JsonObject[] values)
+			\t{
+			\t\tJsonArray array = new JsonArray(values.length);
+			\t\t
+			\t\tfor(JsonObject value : values)
+			\t\t{
+			\t\t\tarray.add(value);
+			\t\t}
+			\t\t
+			\t\treturn array;
+			\t}
+			}
+			""".formatted(ProtocolGenerator.PACKAGE);
+	
+	private ValuesTemplate() {}
+}
@@ -0,0 +1,84 @@
+package io.github.freshsupasulley.lwjobs;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares routing inbound messages by building a full JSON tree (the old path) against the streaming {@link Envelope}.
+ * <p>
+ * The "discarded" benchmarks model events nobody listens to, where only the routing fields are needed.
+ * The "consumed" benchmarks model events and responses whose payload is handed to a listener or request.
+ * The "filtered" benchmark models an event whose listener filters it out by one of its raw fields.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvelopeBenchmark {
+	
+	@Param({"event-scene-item-enable-state-changed", "event-input-volume-meters", "response-get-scene-list", "response-set-scene-item-enabled"})
+	public String payload;
+	
+	private String message;
+	private String payloadField;
+	
+	@Setup
+	public void setup()
+	{
+		message = Payloads.load(payload);
+		payloadField = payload.startsWith("event") ? "eventData" : "responseData";
+	}
+	
+	@Benchmark
+	public Object treeDiscarded()
+	{
+		JsonObject values = JsonParser.parseString(message).getAsJsonObject();
+		JsonObject data = values.get("d").getAsJsonObject();
+		values.get("op").getAsInt();
+		return data.has("eventType") ? data.get("eventType").getAsString() : data.get("requestId").getAsString();
+	}
+	
+	@Benchmark
+	public Object streamingDiscarded()
+	{
+		Envelope envelope = Envelope.read(message);
+		return envelope.getEventType() != null ? envelope.getEventType() : envelope.getRequestId();
+	}
+	
+	@Benchmark
+	public Object treeConsumed()
+	{
+		JsonObject values = JsonParser.parseString(message).getAsJsonObject();
+		JsonObject data = values.get("d").getAsJsonObject();
+		values.get("op").getAsInt();
+		return data.has(payloadField) ? data.get(payloadField).getAsJsonObject() : null;
+	}
+	
+	@Benchmark
+	public Object streamingConsumed()
+	{
+		return Envelope.read(message).getObject(payloadField);
+	}
+	
+	@Benchmark
+	public Object streamingFiltered()
+	{
+		return "Other".equals(Envelope.read(message).getString("sceneName"));
+	}
+}
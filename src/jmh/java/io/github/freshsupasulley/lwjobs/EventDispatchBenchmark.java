@@ -0,0 +1,89 @@
+package io.github.freshsupasulley.lwjobs;
+
+import io.github.freshsupasulley.lwjobs.events.EventDelivery;
+import io.github.freshsupasulley.lwjobs.impl.CurrentProgramSceneChangedEvent;
+import io.github.freshsupasulley.lwjobs.impl.SceneItemEnableStateChangedEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures delivering a recorded event from the raw message to inline listeners, through the transport listener, the controller's routing and
+ * {@link io.github.freshsupasulley.lwjobs.events.OBSEventCallback OBSEventCallback}.
+ * <p>
+ * "heard" has every listener read the event. "filtered" has every listener turn the event down by one of its raw fields, and "unheard" is an
+ * event type nobody listens to. Listeners are inline so the benchmark thread does all the work, instead of piling it up on callback threads.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatchBenchmark {
+	
+	@Param({"1", "8"})
+	public int listeners;
+	
+	private LoopbackTransport transport;
+	private OBSController controller;
+	private String heard, filtered, unheard;
+	private Blackhole blackhole;
+	
+	@Setup(Level.Trial)
+	public void setup(Blackhole blackhole) throws Exception
+	{
+		this.blackhole = blackhole;
+		heard = Payloads.load("event-scene-item-enable-state-changed");
+		filtered = Payloads.load("event-current-program-scene-changed");
+		unheard = Payloads.load("event-input-volume-meters");
+		
+		transport = new LoopbackTransport();
+		controller = new OBSController(transport).useMetrics(false);
+		controller.connect("ws://loopback");
+		
+		for(int i = 0; i < listeners; i++)
+		{
+			controller.addListener(SceneItemEnableStateChangedEvent::new, EventDelivery.INLINE, null, event -> this.blackhole.consume(event.getSceneItemId()));
+			controller.addListener(CurrentProgramSceneChangedEvent::new, EventDelivery.INLINE, fields -> "Nowhere".equals(fields.getString("sceneName")), event -> this.blackhole.consume(event));
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		controller.disconnect();
+	}
+	
+	@Benchmark
+	public void heard()
+	{
+		transport.emit(heard);
+	}
+	
+	@Benchmark
+	public void filtered()
+	{
+		transport.emit(filtered);
+	}
+	
+	@Benchmark
+	public void unheard()
+	{
+		transport.emit(unheard);
+	}
+}
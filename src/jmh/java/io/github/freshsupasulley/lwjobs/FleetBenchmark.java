@@ -0,0 +1,118 @@
+package io.github.freshsupasulley.lwjobs;
+
+import io.github.freshsupasulley.lwjobs.impl.GetVersionRequest;
+import io.github.freshsupasulley.lwjobs.transport.JettyTransport;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Measures threads and memory per connected OBS instance, with every node sharing one Jetty client or each starting its own.
+ * <p>
+ * Every node connects to the same OBS, which accepts many clients, so one OBS is enough. Like {@link TransportBenchmark}, each mode should be
+ * measured in a fresh JVM:
+ * </p>
+ * 
+ * <pre>
+ * ./gradlew fleetBenchmark -Pnodes=50 -Pshared=true -Paddress=ws://localhost:4455
+ * ./gradlew fleetBenchmark -Pnodes=50 -Pshared=false -Paddress=ws://localhost:4455
+ * </pre>
+ */
+public class FleetBenchmark {
+	
+	public static void main(String[] args) throws Exception
+	{
+		int nodes = Integer.getInteger("nodes", 50);
+		boolean shared = Boolean.parseBoolean(System.getProperty("shared", "true"));
+		String address = System.getProperty("address", "ws://localhost:4455");
+		String password = System.getProperty("password");
+		int broadcasts = Integer.getInteger("broadcasts", 200);
+		
+		System.gc();
+		long baselineRss = rss();
+		long baselineHeap = heap();
+		int baselineThreads = Thread.activeCount();
+		
+		long start = System.nanoTime();
+		OBSFleet fleet = shared ? new OBSFleet() : new OBSFleet(JettyTransport::new);
+		List<CompletableFuture<FleetNode>> connected = new ArrayList<CompletableFuture<FleetNode>>();
+		
+		for(int i = 0; i < nodes; i++)
+		{
+			connected.add(fleet.add("node-" + i, address, password));
+		}
+		
+		CompletableFuture.allOf(connected.toArray(new CompletableFuture<?>[0])).join();
+		long connectNanos = System.nanoTime() - start;
+		
+		// Warm up before measuring latency
+		for(int i = 0; i < broadcasts / 10; i++)
+		{
+			fleet.broadcast(GetVersionRequest::new).join();
+		}
+		
+		long[] latencies = new long[broadcasts];
+		
+		for(int i = 0; i < broadcasts; i++)
+		{
+			long sent = System.nanoTime();
+			BroadcastResult<GetVersionRequest> result = fleet.broadcast(GetVersionRequest::new).join();
+			latencies[i] = System.nanoTime() - sent;
+			
+			if(!result.isAllSucceeded())
+			{
+				throw new IllegalStateException("Broadcast failed: " + result);
+			}
+		}
+		
+		Arrays.sort(latencies);
+		System.gc();
+		
+		int threads = Thread.activeCount() - baselineThreads;
+		long rss = rss() - baselineRss;
+		long heap = heap() - baselineHeap;
+		
+		System.out.println("Mode:               " + (shared ? "shared client" : "client per node"));
+		System.out.println("Nodes:              " + nodes);
+		System.out.printf("Connect all:        %.2f ms%n", connectNanos / 1e6);
+		System.out.printf("Threads added:      %d (%.2f per node)%n", threads, (double) threads / nodes);
+		System.out.printf("RSS added:          %d KiB (%d KiB per node)%n", rss / 1024, rss / 1024 / nodes);
+		System.out.printf("Heap added:         %d KiB (%d KiB per node)%n", heap / 1024, heap / 1024 / nodes);
+		System.out.printf("Broadcast p50:      %.1f us%n", latencies[broadcasts / 2] / 1e3);
+		System.out.printf("Broadcast p99:      %.1f us%n", latencies[(int) (broadcasts * 0.99)] / 1e3);
+		
+		fleet.close();
+		System.exit(0);
+	}
+	
+	private static long heap()
+	{
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+	
+	/**
+	 * @return resident set size in bytes (Linux only), or 0 if unavailable
+	 */
+	private static long rss()
+	{
+		try {
+			for(String line : Files.readAllLines(Path.of("/proc/self/status")))
+			{
+				if(line.startsWith("VmRSS:"))
+				{
+					return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+				}
+			}
+		} catch(IOException | NumberFormatException e) {
+			// Not on Linux
+		}
+		
+		return 0;
+	}
+}
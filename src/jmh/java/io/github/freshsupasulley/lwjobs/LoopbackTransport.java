@@ -0,0 +1,161 @@
+package io.github.freshsupasulley.lwjobs;
+
+import io.github.freshsupasulley.lwjobs.transport.OBSTransport;
+import io.github.freshsupasulley.lwjobs.transport.OBSTransportListener;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-memory stand-in for OBS, so benchmarks measure the controller instead of the network.
+ * <p>
+ * Requests are answered on the thread that writes them, with the recorded response of their type (see {@link Payloads}) and the request ID
+ * swapped in. Types without a recording get a bare success. Only JSON text is supported.
+ * </p>
+ */
+final class LoopbackTransport implements OBSTransport {
+	
+	private static final String HELLO = "{\"op\":0,\"d\":{\"obsWebSocketVersion\":\"5.5.2\",\"rpcVersion\":1}}";
+	private static final String IDENTIFIED = "{\"op\":2,\"d\":{\"negotiatedRpcVersion\":1}}";
+	
+	// Recorded responses cut around their request ID
+	private final Map<String, String[]> responses = new HashMap<String, String[]>();
+	private volatile OBSTransportListener listener;
+	
+	LoopbackTransport()
+	{
+		record("response-get-scene-list");
+		record("response-get-version");
+		record("response-set-scene-item-enabled");
+	}
+	
+	private void record(String payload)
+	{
+		String message = Payloads.load(payload);
+		String requestType = field(message, "requestType");
+		String requestID = "\"requestId\":\"" + field(message, "requestId") + "\"";
+		int at = message.indexOf(requestID);
+		responses.put(requestType, new String[] {message.substring(0, at + 13), message.substring(at + requestID.length() - 1)});
+	}
+	
+	/**
+	 * @return value of the first string field with the name, without parsing the message
+	 */
+	private static String field(CharSequence message, String name)
+	{
+		String text = message.toString();
+		String key = "\"" + name + "\":\"";
+		int start = text.indexOf(key);
+		
+		if(start == -1)
+		{
+			return null;
+		}
+		
+		start += key.length();
+		return text.substring(start, text.indexOf('"', start));
+	}
+	
+	/**
+	 * Delivers a message as if OBS sent it, such as a recorded event.
+	 * 
+	 * @param message the message
+	 */
+	void emit(String message)
+	{
+		listener.onText(message);
+	}
+	
+	@Override
+	public CompletableFuture<Void> connect(URI address, String subprotocol, OBSTransportListener listener)
+	{
+		this.listener = listener;
+		listener.onOpen();
+		
+		// Like OBS, say hello once the socket is open
+		Thread.ofVirtual().start(() -> listener.onText(HELLO));
+		return CompletableFuture.completedFuture(null);
+	}
+	
+	@Override
+	public CompletableFuture<Void> sendText(String message)
+	{
+		OBSTransportListener listener = this.listener;
+		
+		if(listener == null)
+		{
+			return CompletableFuture.failedFuture(new IOException("Not connected"));
+		}
+		
+		// Op is always the first field the controller writes
+		char op = message.charAt(message.indexOf("\"op\":") + 5);
+		
+		switch(op)
+		{
+			// Identify
+			case '1':
+			{
+				listener.onText(IDENTIFIED);
+				break;
+			}
+			// Request
+			case '6':
+			{
+				String requestType = field(message, "requestType");
+				String requestID = field(message, "requestId");
+				String[] response = responses.get(requestType);
+				
+				if(response != null)
+				{
+					listener.onText(response[0] + requestID + response[1]);
+				}
+				else
+				{
+					listener.onText("{\"op\":7,\"d\":{\"requestType\":\"" + requestType + "\",\"requestId\":\"" + requestID + "\",\"requestStatus\":{\"code\":100,\"result\":true}}}");
+				}
+				
+				break;
+			}
+			default:
+			{
+				break;
+			}
+		}
+		
+		return CompletableFuture.completedFuture(null);
+	}
+	
+	@Override
+	public CompletableFuture<Void> sendBinary(ByteBuffer message)
+	{
+		return CompletableFuture.failedFuture(new UnsupportedOperationException("Loopback only speaks JSON"));
+	}
+	
+	@Override
+	public boolean isOpen()
+	{
+		return listener != null;
+	}
+	
+	@Override
+	public void close()
+	{
+		OBSTransportListener listener = this.listener;
+		this.listener = null;
+		
+		if(listener != null)
+		{
+			listener.onClose(1000, "Closed");
+		}
+	}
+	
+	@Override
+	public void shutdown()
+	{
+		close();
+	}
+}
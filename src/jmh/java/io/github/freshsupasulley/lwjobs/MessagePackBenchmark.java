@@ -0,0 +1,74 @@
+package io.github.freshsupasulley.lwjobs;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON and MessagePack wire encodings on recorded messages.
+ * <p>
+ * Run with <code>./gradlew jmh</code>. Message sizes for both encodings are printed during setup.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessagePackBenchmark {
+	
+	@Param({"event-scene-item-enable-state-changed", "event-input-volume-meters", "response-get-scene-list"})
+	public String payload;
+	
+	private String json;
+	private byte[] messagePack;
+	private JsonObject tree;
+	
+	@Setup
+	public void setup()
+	{
+		json = Payloads.load(payload);
+		tree = JsonParser.parseString(json).getAsJsonObject();
+		messagePack = MessagePackCodec.encode(tree);
+		
+		System.out.println(payload + ": JSON " + json.getBytes(StandardCharsets.UTF_8).length + " bytes, MessagePack " + messagePack.length + " bytes");
+	}
+	
+	@Benchmark
+	public JsonObject decodeJson()
+	{
+		return JsonParser.parseString(json).getAsJsonObject();
+	}
+	
+	@Benchmark
+	public JsonObject decodeMessagePack()
+	{
+		return MessagePackCodec.decode(messagePack, 0, messagePack.length);
+	}
+	
+	@Benchmark
+	public String encodeJson()
+	{
+		return tree.toString();
+	}
+	
+	@Benchmark
+	public byte[] encodeMessagePack()
+	{
+		return MessagePackCodec.encode(tree);
+	}
+}
@@ -0,0 +1,24 @@
+package io.github.freshsupasulley.lwjobs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads recorded OBS WebSocket messages from src/jmh/resources/payloads.
+ */
+final class Payloads {
+	
+	private Payloads() {}
+	
+	static String load(String name)
+	{
+		try(InputStream in = Payloads.class.getResourceAsStream("/payloads/" + name + ".json")) {
+			if(in == null) throw new IllegalArgumentException("No recorded payload named " + name);
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8).strip();
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
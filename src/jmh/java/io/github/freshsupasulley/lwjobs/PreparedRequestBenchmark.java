@@ -0,0 +1,86 @@
+package io.github.freshsupasulley.lwjobs;
+
+import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.impl.SetSceneItemEnabled;
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+import io.github.freshsupasulley.lwjobs.transport.JdkTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serializing a request from scratch on every send (the normal path) against a {@link PreparedRequest}.
+ * <p>
+ * Only the serialization is measured, not the send. Run with <code>./gradlew jmh</code> and compare <code>gc.alloc.rate.norm</code> for the bytes
+ * allocated per send.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreparedRequestBenchmark {
+	
+	private static final String REQUEST_ID = "5f0c1bde-2c3a-4d1e-9b57-0a9e0a6f1c11";
+	
+	private PreparedRequest<SetSceneItemEnabled> prepared;
+	private final Object[] values = {false};
+	
+	@Setup
+	public void setup()
+	{
+		prepared = new OBSController(new JdkTransport()).prepare(() -> new SetSceneItemEnabled("Gameplay", 7, true), "sceneItemEnabled");
+	}
+	
+	// Same as OBSController#createRequest
+	private JsonObject createRequest(OBSRequest request)
+	{
+		JsonObject dataObject = new JsonObject();
+		dataObject.addProperty("requestType", request.getRequestType());
+		dataObject.addProperty("requestId", REQUEST_ID);
+		
+		JsonObject requestData = new JsonObject();
+		dataObject.add("requestData", requestData);
+		request.applyJSON(requestData);
+		
+		JsonObject json = new JsonObject();
+		json.addProperty("op", 6);
+		json.add("d", dataObject);
+		return json;
+	}
+	
+	@Benchmark
+	public String buildText()
+	{
+		return createRequest(new SetSceneItemEnabled("Gameplay", 7, false)).toString();
+	}
+	
+	@Benchmark
+	public String preparedText()
+	{
+		return prepared.writeText(REQUEST_ID, values);
+	}
+	
+	@Benchmark
+	public byte[] buildMessagePack()
+	{
+		return MessagePackCodec.encode(createRequest(new SetSceneItemEnabled("Gameplay", 7, false)));
+	}
+	
+	@Benchmark
+	public byte[] preparedMessagePack()
+	{
+		return prepared.writeBinary(REQUEST_ID, values);
+	}
+}
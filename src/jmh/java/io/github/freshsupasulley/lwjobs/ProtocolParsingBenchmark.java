@@ -0,0 +1,135 @@
+package io.github.freshsupasulley.lwjobs;
+
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import io.github.freshsupasulley.lwjobs.protocol.GetSceneListRequest;
+import io.github.freshsupasulley.lwjobs.protocol.GetVersionRequest;
+import io.github.freshsupasulley.lwjobs.protocol.SceneItemEnableStateChangedEvent;
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a recorded message into a hand-written class from the impl package against the classes generated from protocol.json.
+ * <p>
+ * "handwritten" and "generatedTree" both parse the data into a JsonObject first, which is what batches and MessagePack still do. "generatedStream"
+ * reads the fields straight from the message, which is what the controller does for a generated request or event read from a text message.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolParsingBenchmark {
+	
+	@Param({"response-get-scene-list", "response-get-version", "event-scene-item-enable-state-changed"})
+	public String payload;
+	
+	private String message;
+	private Decoder handwritten, generatedTree, generatedStream;
+	
+	@Setup
+	public void setup()
+	{
+		message = Payloads.load(payload);
+		
+		switch(payload)
+		{
+			case "response-get-scene-list":
+			{
+				handwritten = envelope -> accept(new io.github.freshsupasulley.lwjobs.impl.GetSceneListRequest(), envelope);
+				generatedTree = envelope -> accept(new GetSceneListRequest(), envelope);
+				generatedStream = envelope -> read(new GetSceneListRequest(), envelope);
+				break;
+			}
+			case "response-get-version":
+			{
+				handwritten = envelope -> accept(new io.github.freshsupasulley.lwjobs.impl.GetVersionRequest(), envelope);
+				generatedTree = envelope -> accept(new GetVersionRequest(), envelope);
+				generatedStream = envelope -> read(new GetVersionRequest(), envelope);
+				break;
+			}
+			default:
+			{
+				handwritten = envelope -> new HandwrittenEvent().parse(envelope.getObject("eventData"));
+				generatedTree = envelope -> new GeneratedEvent().parse(envelope.getObject("eventData"));
+				generatedStream = envelope -> new GeneratedEvent().read(envelope.readerAt("eventData"));
+				break;
+			}
+		}
+	}
+	
+	private static Object accept(OBSRequest request, Envelope envelope)
+	{
+		request.accept(envelope.getCode(), envelope.getObject("responseData"));
+		return request;
+	}
+	
+	private static Object read(OBSRequest request, Envelope envelope) throws IOException
+	{
+		request.accept(envelope.getCode(), envelope.readerAt("responseData"));
+		return request;
+	}
+	
+	@Benchmark
+	public Object handwritten() throws IOException
+	{
+		return handwritten.decode(Envelope.read(message));
+	}
+	
+	@Benchmark
+	public Object generatedTree() throws IOException
+	{
+		return generatedTree.decode(Envelope.read(message));
+	}
+	
+	@Benchmark
+	public Object generatedStream() throws IOException
+	{
+		return generatedStream.decode(Envelope.read(message));
+	}
+	
+	private interface Decoder {
+		
+		Object decode(Envelope envelope) throws IOException;
+	}
+	
+	// The event parsers are protected, these expose them
+	private static final class HandwrittenEvent extends io.github.freshsupasulley.lwjobs.impl.SceneItemEnableStateChangedEvent {
+		
+		private Object parse(JsonObject eventData)
+		{
+			parseResponse(eventData);
+			return this;
+		}
+	}
+	
+	private static final class GeneratedEvent extends SceneItemEnableStateChangedEvent {
+		
+		private Object parse(JsonObject eventData)
+		{
+			parseResponse(eventData);
+			return this;
+		}
+		
+		private Object read(JsonReader eventData) throws IOException
+		{
+			readEvent(eventData);
+			return this;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package io.github.freshsupasulley.lwjobs;
+
+import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.impl.GetSceneListRequest;
+import io.github.freshsupasulley.lwjobs.impl.GetVersionRequest;
+import io.github.freshsupasulley.lwjobs.impl.SetSceneItemEnabled;
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures filling a request from a recorded response through {@link OBSRequest#accept(int, JsonObject)}.
+ * <p>
+ * "accept" only measures the request's own parsing, from an already parsed responseData. "readAndAccept" also reads the raw message the way the
+ * controller does, which is what a response costs end to end before callbacks run.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParsingBenchmark {
+	
+	@Param({"response-get-scene-list", "response-get-version", "response-set-scene-item-enabled"})
+	public String payload;
+	
+	private String message;
+	private JsonObject responseData;
+	private Supplier<OBSRequest> factory;
+	
+	@Setup
+	public void setup()
+	{
+		message = Payloads.load(payload);
+		responseData = Envelope.read(message).getObject("responseData");
+		
+		factory = switch(payload) {
+			case "response-get-scene-list" -> GetSceneListRequest::new;
+			case "response-get-version" -> GetVersionRequest::new;
+			default -> () -> new SetSceneItemEnabled("Gameplay", 7, true);
+		};
+	}
+	
+	@Benchmark
+	public OBSRequest accept()
+	{
+		OBSRequest request = factory.get();
+		request.accept(100, responseData);
+		return request;
+	}
+	
+	@Benchmark
+	public OBSRequest readAndAccept()
+	{
+		Envelope envelope = Envelope.read(message);
+		OBSRequest request = factory.get();
+		request.accept(envelope.getCode(), envelope.getObject("responseData"));
+		return request;
+	}
+}
@@ -0,0 +1,82 @@
+package io.github.freshsupasulley.lwjobs;
+
+import io.github.freshsupasulley.lwjobs.impl.GetSceneListRequest;
+import io.github.freshsupasulley.lwjobs.impl.SetSceneItemEnabled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a whole request from building it to its callback, against {@link LoopbackTransport} so the numbers are the controller's own overhead:
+ * serializing, the pending table, the outbound queue, routing the response and parsing it.
+ * <p>
+ * "toggle" and "sceneList" send one request at a time and wait for it, with a small and a large recorded response. "burst" submits
+ * {@value #BURST} requests before waiting on any of them, which is what a script firing off many changes at once looks like.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundTripBenchmark {
+	
+	static final int BURST = 64;
+	
+	private OBSController controller;
+	private boolean enabled;
+	
+	@Setup(Level.Trial)
+	public void setup() throws Exception
+	{
+		controller = new OBSController(new LoopbackTransport()).useMetrics(false);
+		controller.connect("ws://loopback");
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		controller.disconnect();
+	}
+	
+	@Benchmark
+	public Object toggle()
+	{
+		enabled = !enabled;
+		return controller.build(new SetSceneItemEnabled("Gameplay", 7, enabled)).complete();
+	}
+	
+	@Benchmark
+	public Object sceneList()
+	{
+		return controller.build(new GetSceneListRequest()).complete();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BURST)
+	public Object burst()
+	{
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[BURST];
+		
+		for(int i = 0; i < BURST; i++)
+		{
+			futures[i] = controller.build(new SetSceneItemEnabled("Gameplay", 7, (i & 1) == 0)).submit();
+		}
+		
+		return CompletableFuture.allOf(futures).join();
+	}
+}
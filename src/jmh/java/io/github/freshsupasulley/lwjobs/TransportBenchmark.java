@@ -0,0 +1,96 @@
+package io.github.freshsupasulley.lwjobs;
+
+import io.github.freshsupasulley.lwjobs.impl.GetVersionRequest;
+import io.github.freshsupasulley.lwjobs.transport.JdkTransport;
+import io.github.freshsupasulley.lwjobs.transport.JettyTransport;
+import io.github.freshsupasulley.lwjobs.transport.OBSTransport;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Compares transports on connect time, memory, threads and request latency against a running OBS.
+ * <p>
+ * Each transport should be measured in a fresh JVM, so this runs one transport per invocation:
+ * </p>
+ * 
+ * <pre>
+ * ./gradlew transportBenchmark -Ptransport=jetty -Paddress=ws://localhost:4455
+ * ./gradlew transportBenchmark -Ptransport=jdk -Paddress=ws://localhost:4455
+ * </pre>
+ */
+public class TransportBenchmark {
+	
+	public static void main(String[] args) throws Exception
+	{
+		String transportName = System.getProperty("transport", "jetty");
+		String address = System.getProperty("address", "ws://localhost:4455");
+		String password = System.getProperty("password");
+		int requests = Integer.getInteger("requests", 2000);
+		
+		long baselineRss = rss();
+		int baselineThreads = Thread.activeCount();
+		
+		long start = System.nanoTime();
+		OBSTransport transport = switch(transportName) {
+			case "jetty" -> new JettyTransport();
+			case "jdk" -> JdkTransport.withVirtualThreads();
+			default -> throw new IllegalArgumentException("Unknown transport " + transportName + " (expected jetty or jdk)");
+		};
+		OBSController controller = new OBSController(transport).connect(address, password);
+		long connectNanos = System.nanoTime() - start;
+		
+		// Warm up before measuring latency
+		for(int i = 0; i < requests / 10; i++)
+		{
+			controller.build(new GetVersionRequest()).complete();
+		}
+		
+		long[] latencies = new long[requests];
+		
+		for(int i = 0; i < requests; i++)
+		{
+			long sent = System.nanoTime();
+			controller.build(new GetVersionRequest()).complete();
+			latencies[i] = System.nanoTime() - sent;
+		}
+		
+		Arrays.sort(latencies);
+		System.gc();
+		
+		System.out.println("Transport:       " + transportName);
+		System.out.printf("Connect time:    %.2f ms%n", connectNanos / 1e6);
+		System.out.println("Threads added:   " + (Thread.activeCount() - baselineThreads));
+		System.out.println("RSS added:       " + (rss() - baselineRss) / 1024 + " KiB");
+		System.out.println("Heap used:       " + ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1024 + " KiB");
+		System.out.printf("Latency p50:     %.1f us%n", latencies[requests / 2] / 1e3);
+		System.out.printf("Latency p99:     %.1f us%n", latencies[(int) (requests * 0.99)] / 1e3);
+		System.out.printf("Latency max:     %.1f us%n", latencies[requests - 1] / 1e3);
+		
+		controller.disconnect();
+		System.exit(0);
+	}
+	
+	/**
+	 * @return resident set size in bytes (Linux only), or 0 if unavailable
+	 */
+	private static long rss()
+	{
+		try {
+			for(String line : Files.readAllLines(Path.of("/proc/self/status")))
+			{
+				if(line.startsWith("VmRSS:"))
+				{
+					return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+				}
+			}
+		} catch(IOException | NumberFormatException e) {
+			// Not on Linux
+		}
+		
+		return 0;
+	}
+}
@@ -0,0 +1,278 @@
+package io.github.freshsupasulley.lwjobs;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.github.freshsupasulley.lwjobs.events.EventSubscription;
+import io.github.freshsupasulley.lwjobs.impl.GetSceneListRequest;
+import io.github.freshsupasulley.lwjobs.impl.GetVersionRequest;
+import io.github.freshsupasulley.lwjobs.impl.SceneItemEnableStateChangedEvent;
+import io.github.freshsupasulley.lwjobs.impl.SetSceneItemEnabled;
+import io.github.freshsupasulley.lwjobs.mock.MockOBSServer;
+import io.github.freshsupasulley.lwjobs.mock.MockResponse;
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Soak and throughput test of a controller under a steady mix of requests and events, meant to run for minutes or hours.
+ * <p>
+ * Worker threads send requests through {@link OBSRequestBuilder#queue(java.util.function.Consumer, java.util.function.Consumer) queue()},
+ * {@link OBSRequestBuilder#submit() submit()} and {@link OBSRequestBuilder#complete() complete()} in the given mix, while events stream in. Every
+ * interval prints throughput, latency percentiles from sending to the callback, pending requests, heap, allocation rate and GC, so growth over time
+ * shows up as a trend. By default it runs against a {@link MockOBSServer} in the same JVM, which also toggles scene items. Against a real OBS, only
+ * reads are sent.
+ * </p>
+ * 
+ * <pre>
+ * ./gradlew loadTest -Pthreads=16 -Prate=5000 -Pduration=3600 -Pmix=queue:1,submit:2,complete:1
+ * ./gradlew loadTest -Paddress=ws://10.0.0.5:4455 -Ppassword=secret -Prate=200
+ * </pre>
+ */
+public class LoadGenerator {
+	
+	private enum Style {
+		QUEUE, SUBMIT, COMPLETE
+	}
+	
+	private static final JsonObject SCENE_LIST = JsonParser.parseString("{\"currentProgramSceneName\":\"Live\",\"scenes\":[{\"sceneIndex\":0,\"sceneName\":\"Live\"},{\"sceneIndex\":1,\"sceneName\":\"BRB\"}]}").getAsJsonObject();
+	
+	private static final LatencyHistogram total = new LatencyHistogram();
+	private static final AtomicReference<LatencyHistogram> interval = new AtomicReference<LatencyHistogram>(new LatencyHistogram());
+	private static final LongAdder succeeded = new LongAdder();
+	private static final LongAdder failed = new LongAdder();
+	private static final LongAdder events = new LongAdder();
+	
+	private static volatile boolean running = true;
+	
+	public static void main(String[] args) throws Exception
+	{
+		String address = System.getProperty("address");
+		String password = System.getProperty("password");
+		int threads = Integer.getInteger("threads", 8);
+		double rate = Double.parseDouble(System.getProperty("rate", "0"));
+		long duration = Long.getLong("duration", 60);
+		int reportEvery = Integer.getInteger("interval", 5);
+		int maxOutstanding = Integer.getInteger("outstanding", 1000);
+		double eventRate = Double.parseDouble(System.getProperty("events", "200"));
+		long latency = Long.getLong("latency", 0);
+		Style[] mix = parseMix(System.getProperty("mix", "queue:1,submit:2,complete:1"));
+		
+		MockOBSServer server = null;
+		
+		if(address == null)
+		{
+			server = new MockOBSServer().latency(0, latency, TimeUnit.MILLISECONDS).start();
+			server.handle("GetSceneList", requestData -> MockResponse.success(SCENE_LIST));
+			server.handle("SetSceneItemEnabled", requestData -> MockResponse.success());
+			address = server.getAddress();
+			password = null;
+		}
+		
+		boolean writes = server != null;
+		OBSController controller = new OBSController().connect(address, password);
+		controller.addListener(SceneItemEnableStateChangedEvent::new, event -> events.increment());
+		
+		if(server != null && eventRate > 0)
+		{
+			JsonObject eventData = new JsonObject();
+			eventData.addProperty("sceneName", "Live");
+			eventData.addProperty("sceneItemId", 7);
+			eventData.addProperty("sceneItemEnabled", true);
+			server.emitAtRate("SceneItemEnableStateChanged", EventSubscription.SCENE_ITEMS, () -> eventData, eventRate);
+		}
+		
+		System.out.printf("Load test against %s: %d threads, %s, mix %s, up to %d outstanding, %ds%n", address, threads, rate > 0 ? rate + " req/s" : "unthrottled", System.getProperty("mix", "queue:1,submit:2,complete:1"), maxOutstanding, duration);
+		
+		Semaphore outstanding = new Semaphore(maxOutstanding);
+		Thread[] workers = new Thread[threads];
+		long perThreadNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * threads / rate) : 0;
+		
+		for(int i = 0; i < threads; i++)
+		{
+			workers[i] = new Thread(() -> work(controller, mix, writes, outstanding, perThreadNanos), "load-" + i);
+			workers[i].start();
+		}
+		
+		report(controller, duration, reportEvery);
+		
+		// Stop sending, then let everything outstanding finish so leftovers show up as pending
+		running = false;
+		
+		for(Thread worker : workers)
+		{
+			worker.join();
+		}
+		
+		boolean drained = outstanding.tryAcquire(maxOutstanding, 30, TimeUnit.SECONDS);
+		LatencySnapshot latencies = total.snapshot();
+		
+		System.out.println();
+		System.out.printf("Requests: %d succeeded, %d failed, %.0f req/s overall%n", succeeded.sum(), failed.sum(), (succeeded.sum() + failed.sum()) / (double) duration);
+		System.out.println("Latency: " + latencies);
+		System.out.println("Pending after draining: " + controller.getMetrics().getPendingRequests() + (drained ? "" : " (timed out waiting for answers)"));
+		
+		controller.disconnect();
+		
+		if(server != null)
+		{
+			server.close();
+		}
+		
+		System.exit(0);
+	}
+	
+	private static Style[] parseMix(String mix)
+	{
+		List<Style> styles = new ArrayList<Style>();
+		
+		for(String part : mix.split(","))
+		{
+			String[] weighted = part.trim().split(":");
+			Style style = Style.valueOf(weighted[0].trim().toUpperCase());
+			int weight = weighted.length > 1 ? Integer.parseInt(weighted[1].trim()) : 1;
+			
+			for(int i = 0; i < weight; i++)
+			{
+				styles.add(style);
+			}
+		}
+		
+		if(styles.isEmpty())
+		{
+			throw new IllegalArgumentException("Mix has no styles: " + mix);
+		}
+		
+		return styles.toArray(new Style[0]);
+	}
+	
+	private static void work(OBSController controller, Style[] mix, boolean writes, Semaphore outstanding, long periodNanos)
+	{
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long next = System.nanoTime();
+		
+		while(running)
+		{
+			if(periodNanos > 0)
+			{
+				next += periodNanos;
+				long wait = next - System.nanoTime();
+				
+				if(wait > 0)
+				{
+					LockSupport.parkNanos(wait);
+				}
+			}
+			
+			try {
+				if(!outstanding.tryAcquire(100, TimeUnit.MILLISECONDS))
+				{
+					continue;
+				}
+			} catch(InterruptedException e) {
+				return;
+			}
+			
+			OBSRequest request = switch(random.nextInt(writes ? 3 : 2)) {
+				case 0 -> new GetVersionRequest();
+				case 1 -> new GetSceneListRequest();
+				default -> new SetSceneItemEnabled("Live", 7, random.nextBoolean());
+			};
+			
+			long start = System.nanoTime();
+			OBSRequestBuilder<OBSRequest> builder = controller.build(request);
+			
+			// Anything thrown before the request is on its way (like losing the connection, or a full outbound queue) still counts, and gives the
+			// permit back so the sender doesn't run out
+			try {
+				switch(mix[random.nextInt(mix.length)])
+				{
+					case QUEUE:
+					{
+						builder.queue(response -> done(start, true, outstanding), e -> done(start, false, outstanding));
+						break;
+					}
+					case SUBMIT:
+					{
+						builder.submit().whenComplete((response, e) -> done(start, e == null, outstanding));
+						break;
+					}
+					case COMPLETE:
+					{
+						builder.complete();
+						done(start, true, outstanding);
+						break;
+					}
+				}
+			} catch(RuntimeException e) {
+				done(start, false, outstanding);
+			}
+		}
+	}
+	
+	private static void done(long start, boolean success, Semaphore outstanding)
+	{
+		long nanos = System.nanoTime() - start;
+		total.record(nanos);
+		interval.get().record(nanos);
+		(success ? succeeded : failed).increment();
+		outstanding.release();
+	}
+	
+	private static void report(OBSController controller, long duration, int reportEvery) throws InterruptedException
+	{
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long start = System.nanoTime();
+		long last = start, lastRequests = 0, lastEvents = 0, lastAllocated = threads.getTotalThreadAllocatedBytes(), lastGCs = 0, lastGCMillis = 0;
+		long maxHeap = 0;
+		
+		System.out.println("  time     req/s      p50      p99     p999      max  events/s  pending  heap MB  alloc MB/s  GCs (ms)");
+		
+		while(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(duration))
+		{
+			Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(reportEvery), TimeUnit.NANOSECONDS.toMillis(start + TimeUnit.SECONDS.toNanos(duration) - System.nanoTime()) + 1));
+			
+			long now = System.nanoTime();
+			double seconds = (now - last) / 1e9;
+			last = now;
+			
+			LatencySnapshot latencies = interval.getAndSet(new LatencyHistogram()).snapshot();
+			long requests = succeeded.sum() + failed.sum();
+			long received = events.sum();
+			long allocated = threads.getTotalThreadAllocatedBytes();
+			long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+			long gcs = 0, gcMillis = 0;
+			
+			for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			{
+				gcs += Math.max(0, gc.getCollectionCount());
+				gcMillis += Math.max(0, gc.getCollectionTime());
+			}
+			
+			maxHeap = Math.max(maxHeap, heap);
+			
+			System.out.printf("%5ds  %8.0f  %s  %s  %s  %s  %8.0f  %7d  %7d  %10.1f  %3d (%d)%n", TimeUnit.NANOSECONDS.toSeconds(now - start), (requests - lastRequests) / seconds, millis(latencies.getP50Nanos()), millis(latencies.getP99Nanos()), millis(latencies.getP999Nanos()), millis(latencies.getMaxNanos()), (received - lastEvents) / seconds, controller.getMetrics().getPendingRequests(), heap >> 20, (allocated - lastAllocated) / seconds / (1 << 20), gcs - lastGCs, gcMillis - lastGCMillis);
+			
+			lastRequests = requests;
+			lastEvents = received;
+			lastAllocated = allocated;
+			lastGCs = gcs;
+			lastGCMillis = gcMillis;
+		}
+		
+		System.out.println("Max heap used: " + (maxHeap >> 20) + " MB");
+	}
+	
+	private static String millis(long nanos)
+	{
+		return String.format("%5.2fms", nanos / 1e6);
+	}
+}
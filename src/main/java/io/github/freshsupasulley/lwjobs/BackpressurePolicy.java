@@ -0,0 +1,24 @@
+package io.github.freshsupasulley.lwjobs;
+
+/**
+ * What happens when a message is sent while the outbound queue is full.
+ * 
+ * @see OBSController#useBackpressure(long, BackpressurePolicy)
+ */
+public enum BackpressurePolicy {
+	
+	/**
+	 * Blocks the sending thread until there's room in the queue. Fails the request if there's still no room after 5 seconds. This is the default.
+	 */
+	BLOCK,
+	
+	/**
+	 * Fails the request right away.
+	 */
+	FAIL_FAST,
+	
+	/**
+	 * Fails the oldest requests that haven't been written yet to make room.
+	 */
+	DROP_OLDEST
+}
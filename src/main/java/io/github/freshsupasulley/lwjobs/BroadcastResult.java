@@ -0,0 +1,54 @@
+package io.github.freshsupasulley.lwjobs;
+
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Answers to a request sent to every node of an {@link OBSFleet}, keyed by node name in the order the nodes were added.
+ * 
+ * @param <T> type of the request
+ * @see OBSFleet#broadcast(java.util.function.Supplier)
+ */
+public final class BroadcastResult<T extends OBSRequest> {
+	
+	private final Map<String, T> succeeded;
+	private final Map<String, FailedRequestException> failed;
+	
+	BroadcastResult(Map<String, T> succeeded, Map<String, FailedRequestException> failed)
+	{
+		this.succeeded = Collections.unmodifiableMap(succeeded);
+		this.failed = Collections.unmodifiableMap(failed);
+	}
+	
+	/**
+	 * @return completed requests of the nodes that succeeded
+	 */
+	public Map<String, T> getSucceeded()
+	{
+		return succeeded;
+	}
+	
+	/**
+	 * @return why the request failed on each node it failed on, including nodes that weren't connected
+	 */
+	public Map<String, FailedRequestException> getFailed()
+	{
+		return failed;
+	}
+	
+	/**
+	 * @return true if the request succeeded on every node
+	 */
+	public boolean isAllSucceeded()
+	{
+		return failed.isEmpty();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return succeeded.size() + " succeeded, " + failed.size() + " failed" + (failed.isEmpty() ? "" : " " + failed);
+	}
+}
@@ -1,18 +1,59 @@
 package io.github.freshsupasulley.lwjobs;
 
+import java.util.concurrent.Executor;
+
 /**
  * Ripped from JDA (<a href="https://github.com/discord-jda/JDA/blob/master/src/main/java/net/dv8tion/jda/internal/requests/CallbackContext.java">here</a>)
  * <p>Prevents callbacks from deadlocking the controller.</p>
+ * <p>
+ * Request callbacks run one at a time on the lane of their request chain. Requests sent from inside a callback join the same lane, so their
+ * callbacks can't run until the current one returns. Blocking on them there would never finish, which is why blocking calls check this context.
+ * </p>
+ * <p>
+ * Event listeners only enter it when delivered inline, since they hold up the thread reading responses. Listeners on other threads can block.
+ * </p>
  */
 public class CallbackContext implements AutoCloseable {
 	
 	private static final ThreadLocal<Boolean> callback = ThreadLocal.withInitial(() -> false);
-	private static final CallbackContext instance = new CallbackContext();
+	private static final ThreadLocal<Executor> lane = new ThreadLocal<Executor>();
+	
+	// What this thread was in before entering, put back on close since contexts can be nested (ex. a callback run inline from another)
+	private final boolean previousCallback;
+	private final Executor previousLane;
+	
+	private CallbackContext()
+	{
+		this.previousCallback = callback.get();
+		this.previousLane = lane.get();
+	}
 	
 	public static CallbackContext getInstance()
 	{
+		CallbackContext context = new CallbackContext();
 		callback.set(true);
-		return instance;
+		return context;
+	}
+	
+	/**
+	 * Enters the context of a request callback.
+	 * 
+	 * @param lane lane the callback runs on, which requests sent from the callback join
+	 * @return the context, to be closed once the callback returns
+	 */
+	static CallbackContext getInstance(Executor lane)
+	{
+		CallbackContext context = getInstance();
+		CallbackContext.lane.set(lane);
+		return context;
+	}
+	
+	/**
+	 * @return lane of the request callback running on this thread, or null outside of one
+	 */
+	static Executor getLane()
+	{
+		return lane.get();
 	}
 	
 	public static boolean isCallbackContext()
@@ -23,6 +64,15 @@ public class CallbackContext implements AutoCloseable {
 	@Override
 	public void close()
 	{
-		callback.set(false);
+		callback.set(previousCallback);
+		
+		if(previousLane == null)
+		{
+			lane.remove();
+		}
+		else
+		{
+			lane.set(previousLane);
+		}
 	}
 }
@@ -0,0 +1,193 @@
+package io.github.freshsupasulley.lwjobs;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One request on the wire shared by identical idempotent requests sent while it was waiting for an answer.
+ * <p>
+ * The requests that ride along are never sent themselves. When OBS answers, each of them gets the same response and fires its own callbacks on its
+ * own lane. A request that times out or is cancelled just drops off, and the shared request is forgotten once none are left. Once the shared request
+ * is answered, new requests start a new one.
+ * </p>
+ */
+final class CoalescedRequest extends OBSBuiltRequest<OBSRequest> {
+	
+	private final String key;
+	private final JsonObject requestData;
+	
+	// Everything of the message before the request ID, which is the only part that changes
+	private final String textPrefix;
+	private final List<OBSBuiltRequest<?>> attached = new ArrayList<OBSBuiltRequest<?>>();
+	private boolean closed;
+	
+	/**
+	 * @param controller  controller coalescing the requests
+	 * @param key         what identical requests have in common
+	 * @param first       the request that started it
+	 * @param requestData parameters of the request
+	 * @param serialized  requestData as JSON
+	 */
+	CoalescedRequest(OBSController controller, String key, OBSBuiltRequest<?> first, JsonObject requestData, String serialized)
+	{
+		super(first.request, null, null, first.inFlightPolicy);
+		this.controller = controller;
+		this.key = key;
+		this.requestData = requestData;
+		this.textPrefix = "{\"op\":6,\"d\":{\"requestType\":" + new JsonPrimitive(first.request.getRequestType()) + ",\"requestData\":" + serialized + ",\"requestId\":\"";
+		this.priority = first.priority;
+		
+		// Every request riding along times out on its own, and this one is dropped once they're all gone
+		this.timeout = 0;
+		attach(first);
+	}
+	
+	/**
+	 * @return what identical requests have in common
+	 */
+	String getKey()
+	{
+		return key;
+	}
+	
+	/**
+	 * @return parameters of the request, built when it was compared with other reads
+	 */
+	JsonObject getRequestData()
+	{
+		return requestData;
+	}
+	
+	/**
+	 * Writes the message as JSON, reusing the request data serialized when it was compared with other reads.
+	 * 
+	 * @param requestID ID of the request, which never needs escaping
+	 * @return the message
+	 */
+	String writeText(String requestID)
+	{
+		return textPrefix + requestID + "\"}}";
+	}
+	
+	/**
+	 * Rides a request along with this one.
+	 * 
+	 * @param request the request
+	 * @return false if this one was already answered, so the request has to be sent some other way
+	 */
+	synchronized boolean attach(OBSBuiltRequest<?> request)
+	{
+		if(closed)
+		{
+			return false;
+		}
+		
+		request.carrier = this;
+		attached.add(request);
+		return true;
+	}
+	
+	/**
+	 * Drops a request that timed out or was cancelled.
+	 * 
+	 * @param request the request
+	 * @return true if it was still waiting on this one
+	 */
+	boolean detach(OBSBuiltRequest<?> request)
+	{
+		synchronized(this)
+		{
+			if(closed || !attached.remove(request))
+			{
+				return false;
+			}
+			
+			if(!attached.isEmpty())
+			{
+				return true;
+			}
+			
+			closed = true;
+		}
+		
+		// Nobody's waiting on the answer anymore
+		controller.endCoalescing(this);
+		controller.forget(this);
+		return true;
+	}
+	
+	/**
+	 * Stops taking new requests.
+	 * 
+	 * @return every request riding along
+	 */
+	private List<OBSBuiltRequest<?>> close()
+	{
+		controller.endCoalescing(this);
+		
+		synchronized(this)
+		{
+			closed = true;
+			return attached;
+		}
+	}
+	
+	@Override
+	void fireSuccess(int code, Envelope envelope)
+	{
+		if(!fire())
+		{
+			return;
+		}
+		
+		List<OBSBuiltRequest<?>> requests = close();
+		
+		// Nothing rode along, so the request can read the message itself
+		if(requests.size() == 1)
+		{
+			requests.get(0).fireSuccess(code, envelope);
+			return;
+		}
+		
+		// Every request riding along fills its own object from the same response, so it's parsed once up front
+		JsonObject responseData = envelope.getObject("responseData");
+		
+		for(OBSBuiltRequest<?> request : requests)
+		{
+			request.fireSuccess(code, responseData);
+		}
+	}
+	
+	@Override
+	protected void fireSuccess(int code, JsonObject requestData)
+	{
+		if(!fire())
+		{
+			return;
+		}
+		
+		// Each request parses the response into its own object
+		for(OBSBuiltRequest<?> request : close())
+		{
+			request.fireSuccess(code, requestData);
+		}
+	}
+	
+	@Override
+	protected void fireFailure(int code, String comment, String rawResponse)
+	{
+		if(!fire())
+		{
+			return;
+		}
+		
+		for(OBSBuiltRequest<?> request : close())
+		{
+			request.fireFailure(code, comment, rawResponse);
+		}
+	}
+}
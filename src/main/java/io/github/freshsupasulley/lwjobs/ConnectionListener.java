@@ -0,0 +1,17 @@
+package io.github.freshsupasulley.lwjobs;
+
+/**
+ * Internal hook into the controller's connection state, for helpers that keep their own state in sync with OBS.
+ */
+interface ConnectionListener {
+	
+	/**
+	 * Called once the handshake with OBS is done, including after reconnecting. Requests can be sent from here.
+	 */
+	void onIdentified();
+	
+	/**
+	 * Called when the connection to OBS is lost. Anything learned from events may be out of date until {@link #onIdentified()}.
+	 */
+	void onConnectionLost();
+}
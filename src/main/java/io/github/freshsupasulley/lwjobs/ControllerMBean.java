@@ -0,0 +1,118 @@
+package io.github.freshsupasulley.lwjobs;
+
+import java.util.Map;
+
+/**
+ * Reads a controller's metrics for JMX. Each attribute takes its own snapshot, since JMX clients read attributes one at a time anyway.
+ */
+final class ControllerMBean implements OBSControllerMXBean {
+	
+	private final OBSController controller;
+	
+	ControllerMBean(OBSController controller)
+	{
+		this.controller = controller;
+	}
+	
+	@Override
+	public boolean isIdentified()
+	{
+		return controller.isIdentified();
+	}
+	
+	@Override
+	public long getRequestsSent()
+	{
+		return controller.getMetrics().getRequestsSent();
+	}
+	
+	@Override
+	public long getResponsesSucceeded()
+	{
+		return controller.getMetrics().getResponsesSucceeded();
+	}
+	
+	@Override
+	public long getResponsesFailed()
+	{
+		return controller.getMetrics().getResponsesFailed();
+	}
+	
+	@Override
+	public int getPendingRequests()
+	{
+		return controller.getMetrics().getPendingRequests();
+	}
+	
+	@Override
+	public int getInFlightRequests()
+	{
+		return controller.getMetrics().getInFlightRequests();
+	}
+	
+	@Override
+	public int getQueuedRequests()
+	{
+		return controller.getMetrics().getQueuedRequests();
+	}
+	
+	@Override
+	public int getOutboundQueueDepth()
+	{
+		return controller.getOutboundQueueDepth();
+	}
+	
+	@Override
+	public long getOutboundPendingBytes()
+	{
+		return controller.getOutboundPendingBytes();
+	}
+	
+	@Override
+	public long getBytesIn()
+	{
+		return controller.getMetrics().getBytesIn();
+	}
+	
+	@Override
+	public long getBytesOut()
+	{
+		return controller.getMetrics().getBytesOut();
+	}
+	
+	@Override
+	public long getFramesIn()
+	{
+		return controller.getMetrics().getFramesIn();
+	}
+	
+	@Override
+	public long getFramesOut()
+	{
+		return controller.getMetrics().getFramesOut();
+	}
+	
+	@Override
+	public Map<String, LatencySnapshot> getRequestLatency()
+	{
+		return controller.getMetrics().getRequestLatency();
+	}
+	
+	@Override
+	public Map<String, Long> getEvents()
+	{
+		return controller.getMetrics().getEvents();
+	}
+	
+	@Override
+	public LatencySnapshot getCallbackTime()
+	{
+		return controller.getMetrics().getCallbackTime();
+	}
+	
+	@Override
+	public void resetMetrics()
+	{
+		controller.resetMetrics();
+	}
+}
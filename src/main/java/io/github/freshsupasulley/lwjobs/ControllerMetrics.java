@@ -0,0 +1,166 @@
+package io.github.freshsupasulley.lwjobs;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms a controller updates as it works, read through {@link MetricsSnapshot}.
+ * <p>
+ * Everything is a {@link LongAdder} or a {@link LatencyHistogram}, so recording never locks. Maps keyed by request or event type only lock the
+ * first time a type is seen.
+ * </p>
+ */
+final class ControllerMetrics {
+	
+	volatile boolean enabled = true;
+	
+	private volatile State state = new State();
+	
+	/**
+	 * A request was written to the outbound queue.
+	 */
+	void requestSent()
+	{
+		if(enabled)
+		{
+			state.requestsSent.increment();
+		}
+	}
+	
+	/**
+	 * OBS answered a request.
+	 * 
+	 * @param requestType type of the request
+	 * @param nanos       time from sending to the response
+	 * @param success     true if OBS said it succeeded
+	 */
+	void response(String requestType, long nanos, boolean success)
+	{
+		if(!enabled)
+		{
+			return;
+		}
+		
+		State state = this.state;
+		(success ? state.responsesSucceeded : state.responsesFailed).increment();
+		
+		LatencyHistogram histogram = state.latency.get(requestType);
+		
+		if(histogram == null)
+		{
+			histogram = state.latency.computeIfAbsent(requestType, type -> new LatencyHistogram());
+		}
+		
+		histogram.record(nanos);
+	}
+	
+	/**
+	 * @param eventType type of an event OBS sent, whether or not anything listens to it
+	 */
+	void event(String eventType)
+	{
+		if(!enabled)
+		{
+			return;
+		}
+		
+		// get first, since computeIfAbsent can lock even when the key is there
+		Map<String, LongAdder> events = state.events;
+		LongAdder count = events.get(eventType);
+		
+		if(count == null)
+		{
+			count = events.computeIfAbsent(eventType, type -> new LongAdder());
+		}
+		
+		count.increment();
+	}
+	
+	/**
+	 * @param nanos how long a request or event callback ran
+	 */
+	void callback(long nanos)
+	{
+		if(enabled)
+		{
+			state.callbacks.record(nanos);
+		}
+	}
+	
+	/**
+	 * @param bytes size of a message that arrived, counting text by characters
+	 */
+	void inbound(int bytes)
+	{
+		if(enabled)
+		{
+			State state = this.state;
+			state.framesIn.increment();
+			state.bytesIn.add(bytes);
+		}
+	}
+	
+	/**
+	 * @param bytes size of a message that was written, counting text by characters
+	 */
+	void outbound(long bytes)
+	{
+		if(enabled)
+		{
+			State state = this.state;
+			state.framesOut.increment();
+			state.bytesOut.add(bytes);
+		}
+	}
+	
+	/**
+	 * Starts everything over from zero.
+	 */
+	void reset()
+	{
+		state = new State();
+	}
+	
+	/**
+	 * Reads every counter, along with the controller's gauges.
+	 * 
+	 * @param pending         requests and batches waiting for an answer
+	 * @param queued          requests held back by the rate or in-flight limits
+	 * @param outboundDepth   messages waiting to be written
+	 * @param outboundPending bytes waiting to be written
+	 * @return the snapshot
+	 */
+	MetricsSnapshot snapshot(int pending, int queued, int outboundDepth, long outboundPending)
+	{
+		// Read from one state, so a reset halfway through doesn't mix old and new counts
+		State state = this.state;
+		
+		Map<String, LatencySnapshot> latency = new TreeMap<String, LatencySnapshot>();
+		state.latency.forEach((type, histogram) -> latency.put(type, histogram.snapshot()));
+		
+		Map<String, Long> events = new TreeMap<String, Long>();
+		state.events.forEach((type, count) -> events.put(type, count.sum()));
+		
+		return new MetricsSnapshot(System.nanoTime(), state.start, state.requestsSent.sum(), state.responsesSucceeded.sum(), state.responsesFailed.sum(), pending, queued, outboundDepth, outboundPending, state.bytesIn.sum(), state.bytesOut.sum(), state.framesIn.sum(), state.framesOut.sum(), latency, events, state.callbacks.snapshot());
+	}
+	
+	/**
+	 * Everything counted since the last reset, replaced whole so a reset never mixes old and new counts.
+	 */
+	private static final class State {
+		
+		private final long start = System.nanoTime();
+		private final LongAdder requestsSent = new LongAdder();
+		private final LongAdder responsesSucceeded = new LongAdder();
+		private final LongAdder responsesFailed = new LongAdder();
+		private final LongAdder bytesIn = new LongAdder();
+		private final LongAdder bytesOut = new LongAdder();
+		private final LongAdder framesIn = new LongAdder();
+		private final LongAdder framesOut = new LongAdder();
+		private final Map<String, LatencyHistogram> latency = new ConcurrentHashMap<String, LatencyHistogram>();
+		private final Map<String, LongAdder> events = new ConcurrentHashMap<String, LongAdder>();
+		private final LatencyHistogram callbacks = new LatencyHistogram();
+	}
+}
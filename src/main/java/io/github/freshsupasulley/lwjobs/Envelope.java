@@ -0,0 +1,527 @@
+package io.github.freshsupasulley.lwjobs;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.github.freshsupasulley.lwjobs.events.EventData;
+import io.github.freshsupasulley.lwjobs.events.EventFields;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A message received from the WebSocket.
+ * <p>
+ * Text messages are read in two passes. The first pass only picks out the fields needed to route the message (op, eventType, requestId and requestStatus)
+ * and skips over everything else without building it. Payloads like eventData or responseData are only parsed if something asks for them,
+ * so events nobody listens to are never turned into JSON objects.
+ * </p>
+ * <p>
+ * OBS sorts its keys, so payloads usually come before the fields that say what they are. That's why the payload can't be parsed during the first pass.
+ * </p>
+ * <p>
+ * The message may be a buffer the transport reuses for the next message, so an envelope is only valid while the message is being handled.
+ * </p>
+ */
+final class Envelope implements EventFields {
+	
+	private CharSequence message;
+	private JsonObject tree;
+	
+	// Scalar fields of eventData, read on demand for event filters
+	private Map<String, String> eventFields;
+	private LazyObject lazy;
+	
+	private int op = -1;
+	private String eventType, requestId, requestType, comment;
+	private boolean result;
+	private int code;
+	
+	private Envelope(CharSequence message, JsonObject tree)
+	{
+		this.message = message;
+		this.tree = tree;
+	}
+	
+	/**
+	 * Reads the routing fields of a text message.
+	 * 
+	 * @param message the message
+	 * @return envelope of the message
+	 */
+	static Envelope read(CharSequence message)
+	{
+		Envelope envelope = new Envelope(message, null);
+		
+		try(JsonReader reader = new JsonReader(reader(message))) {
+			reader.beginObject();
+			
+			while(reader.hasNext())
+			{
+				switch(reader.nextName())
+				{
+					case "op":
+						envelope.op = reader.nextInt();
+						break;
+					case "d":
+						envelope.readData(reader);
+						break;
+					default:
+						reader.skipValue();
+						break;
+				}
+			}
+		} catch(IOException e) {
+			throw new UncheckedIOException("Malformed message: " + message, e);
+		}
+		
+		return envelope;
+	}
+	
+	/**
+	 * Wraps a message that's already been parsed, like one decoded from MessagePack.
+	 * 
+	 * @param values the message
+	 * @return envelope of the message
+	 */
+	static Envelope of(JsonObject values)
+	{
+		Envelope envelope = new Envelope(null, values);
+		envelope.op = values.get("op").getAsInt();
+		
+		JsonObject data = values.get("d").getAsJsonObject();
+		envelope.eventType = getString(data, "eventType");
+		envelope.requestId = getString(data, "requestId");
+		envelope.requestType = getString(data, "requestType");
+		
+		if(data.has("requestStatus"))
+		{
+			JsonObject requestStatus = data.get("requestStatus").getAsJsonObject();
+			envelope.result = requestStatus.get("result").getAsBoolean();
+			envelope.code = requestStatus.get("code").getAsInt();
+			envelope.comment = getString(requestStatus, "comment");
+		}
+		
+		return envelope;
+	}
+	
+	private static Reader reader(CharSequence message)
+	{
+		return message instanceof String ? new StringReader((String) message) : new CharSequenceReader(message);
+	}
+	
+	private static String getString(JsonObject object, String name)
+	{
+		JsonElement element = object.get(name);
+		return element == null || element.isJsonNull() ? null : element.getAsString();
+	}
+	
+	private void readData(JsonReader reader) throws IOException
+	{
+		reader.beginObject();
+		
+		while(reader.hasNext())
+		{
+			switch(reader.nextName())
+			{
+				case "eventType":
+					eventType = nextString(reader);
+					break;
+				case "requestId":
+					requestId = nextString(reader);
+					break;
+				case "requestType":
+					requestType = nextString(reader);
+					break;
+				case "requestStatus":
+				{
+					reader.beginObject();
+					
+					while(reader.hasNext())
+					{
+						switch(reader.nextName())
+						{
+							case "result":
+								result = reader.nextBoolean();
+								break;
+							case "code":
+								code = reader.nextInt();
+								break;
+							case "comment":
+								comment = nextString(reader);
+								break;
+							default:
+								reader.skipValue();
+								break;
+						}
+					}
+					
+					reader.endObject();
+					break;
+				}
+				// Payloads are skipped until someone asks for them
+				default:
+					reader.skipValue();
+					break;
+			}
+		}
+		
+		reader.endObject();
+	}
+	
+	private static String nextString(JsonReader reader) throws IOException
+	{
+		if(reader.peek() == JsonToken.NULL)
+		{
+			reader.nextNull();
+			return null;
+		}
+		
+		return reader.nextString();
+	}
+	
+	/**
+	 * Parses one object out of the message's data, skipping everything around it.
+	 * 
+	 * @param field name of the field in "d" (ex. eventData)
+	 * @return the object, or null if the message doesn't have it
+	 */
+	JsonObject getObject(String field)
+	{
+		if(tree != null)
+		{
+			JsonElement element = tree.get("d").getAsJsonObject().get(field);
+			return element == null || element.isJsonNull() ? null : element.getAsJsonObject();
+		}
+		
+		JsonReader reader = readerAt(field);
+		return reader == null ? null : JsonParser.parseReader(reader).getAsJsonObject();
+	}
+	
+	/**
+	 * Opens a new reader over the message, positioned at one object of its data. Used by requests and events that read their data themselves
+	 * instead of from a parsed object.
+	 * 
+	 * @param field name of the field in "d" (ex. responseData)
+	 * @return reader positioned at the object, or null if the message was already parsed or doesn't have the object
+	 */
+	JsonReader readerAt(String field)
+	{
+		if(message == null)
+		{
+			return null;
+		}
+		
+		JsonReader reader = new JsonReader(reader(message));
+		
+		try {
+			reader.beginObject();
+			
+			while(reader.hasNext())
+			{
+				if(!reader.nextName().equals("d"))
+				{
+					reader.skipValue();
+					continue;
+				}
+				
+				reader.beginObject();
+				
+				while(reader.hasNext())
+				{
+					if(!reader.nextName().equals(field))
+					{
+						reader.skipValue();
+						continue;
+					}
+					
+					return reader.peek() == JsonToken.BEGIN_OBJECT ? reader : null;
+				}
+				
+				return null;
+			}
+			
+			return null;
+		} catch(IOException e) {
+			throw new UncheckedIOException("Malformed message: " + message, e);
+		}
+	}
+	
+	/**
+	 * Defers {@link #getObject(String)} until the object is actually needed. Call {@link #release()} once the message has been handled.
+	 * 
+	 * @param field name of the field in "d" (ex. eventData)
+	 * @return supplier of the object, which parses it at most once
+	 */
+	Supplier<JsonObject> lazyObject(String field)
+	{
+		return lazy = new LazyObject(field);
+	}
+	
+	/**
+	 * Notes that a lazy event kept the lazy object, and may only read it after the message has been handled.
+	 */
+	void holdLazy()
+	{
+		if(lazy != null)
+		{
+			lazy.held = true;
+		}
+	}
+	
+	/**
+	 * Called once the message has been handled. If a lazy event is still holding a lazy object that hasn't been parsed, the message is copied out of
+	 * the transport's buffer so it can still be parsed later.
+	 */
+	void release()
+	{
+		// Everyone else is done with it by now, whether they parsed it or read it straight from the message
+		if(lazy != null && lazy.held && !lazy.parsed)
+		{
+			detach();
+		}
+	}
+	
+	/**
+	 * Copies the message out of the transport's buffer, so the envelope can still be read after the message has been handled.
+	 */
+	void detach()
+	{
+		if(message != null && !(message instanceof String))
+		{
+			message = message.toString();
+		}
+	}
+	
+	@Override
+	public String getString(String field)
+	{
+		if(tree != null)
+		{
+			JsonObject eventData = getObject("eventData");
+			JsonElement element = eventData == null ? null : eventData.get(field);
+			return element == null || !element.isJsonPrimitive() ? null : element.getAsString();
+		}
+		
+		if(eventFields == null)
+		{
+			eventFields = readEventFields();
+		}
+		
+		return eventFields.get(field);
+	}
+	
+	/**
+	 * Reads the scalar fields of eventData, skipping nested objects and arrays without building them.
+	 * 
+	 * @return map of field names to their raw text
+	 */
+	private Map<String, String> readEventFields()
+	{
+		Map<String, String> fields = new HashMap<String, String>();
+		
+		try(JsonReader reader = new JsonReader(reader(message))) {
+			reader.beginObject();
+			
+			while(reader.hasNext())
+			{
+				if(!reader.nextName().equals("d"))
+				{
+					reader.skipValue();
+					continue;
+				}
+				
+				reader.beginObject();
+				
+				while(reader.hasNext())
+				{
+					if(!reader.nextName().equals("eventData") || reader.peek() != JsonToken.BEGIN_OBJECT)
+					{
+						reader.skipValue();
+						continue;
+					}
+					
+					reader.beginObject();
+					
+					while(reader.hasNext())
+					{
+						String name = reader.nextName();
+						
+						switch(reader.peek())
+						{
+							case STRING:
+							case NUMBER:
+							{
+								// nextString also returns numbers exactly as they were written
+								fields.put(name, reader.nextString());
+								break;
+							}
+							case BOOLEAN:
+							{
+								fields.put(name, String.valueOf(reader.nextBoolean()));
+								break;
+							}
+							default:
+							{
+								reader.skipValue();
+								break;
+							}
+						}
+					}
+					
+					return fields;
+				}
+				
+				return fields;
+			}
+			
+			return fields;
+		} catch(IOException e) {
+			throw new UncheckedIOException("Malformed message: " + message, e);
+		}
+	}
+	
+	/**
+	 * Parses all of the message's data. Only meant for rare messages like Hello, where everything is needed anyway.
+	 * 
+	 * @return the "d" object
+	 */
+	JsonObject getData()
+	{
+		if(tree == null)
+		{
+			tree = JsonParser.parseReader(reader(message)).getAsJsonObject();
+		}
+		
+		return tree.get("d").getAsJsonObject();
+	}
+	
+	/**
+	 * @return the raw message, for logging and error reporting
+	 */
+	String getRaw()
+	{
+		return message != null ? message.toString() : tree.toString();
+	}
+	
+	int getOp()
+	{
+		return op;
+	}
+	
+	String getEventType()
+	{
+		return eventType;
+	}
+	
+	String getRequestId()
+	{
+		return requestId;
+	}
+	
+	String getRequestType()
+	{
+		return requestType;
+	}
+	
+	boolean getResult()
+	{
+		return result;
+	}
+	
+	int getCode()
+	{
+		return code;
+	}
+	
+	/**
+	 * @return possibly null comment from the requestStatus
+	 */
+	String getComment()
+	{
+		return comment;
+	}
+	
+	/**
+	 * Parses an object out of the message the first time it's asked for, or hands out readers over it to events that read it themselves.
+	 */
+	private final class LazyObject implements EventData {
+		
+		private final String field;
+		private volatile boolean parsed, held;
+		private JsonObject value;
+		
+		private LazyObject(String field)
+		{
+			this.field = field;
+		}
+		
+		@Override
+		public synchronized JsonObject get()
+		{
+			if(!parsed)
+			{
+				value = getObject(field);
+				parsed = true;
+			}
+			
+			return value;
+		}
+		
+		@Override
+		public JsonReader reader()
+		{
+			return readerAt(field);
+		}
+	}
+	
+	/**
+	 * Reads a reused buffer without copying it into a string first.
+	 */
+	private static final class CharSequenceReader extends Reader {
+		
+		private final CharSequence chars;
+		private int position;
+		
+		private CharSequenceReader(CharSequence chars)
+		{
+			this.chars = chars;
+		}
+		
+		@Override
+		public int read(char[] buffer, int offset, int length)
+		{
+			if(position >= chars.length())
+			{
+				return -1;
+			}
+			
+			int count = Math.min(length, chars.length() - position);
+			
+			if(chars instanceof StringBuilder)
+			{
+				((StringBuilder) chars).getChars(position, position + count, buffer, offset);
+			}
+			else
+			{
+				for(int i = 0; i < count; i++)
+				{
+					buffer[offset + i] = chars.charAt(position + i);
+				}
+			}
+			
+			position += count;
+			return count;
+		}
+		
+		@Override
+		public void close() {}
+	}
+}
@@ -0,0 +1,190 @@
+package io.github.freshsupasulley.lwjobs;
+
+import io.github.freshsupasulley.lwjobs.impl.GetVersionRequest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One OBS instance in an {@link OBSFleet}, with its own controller and health.
+ */
+public final class FleetNode {
+	
+	private final String name, address, password;
+	private final OBSController controller;
+	private final ConnectionListener connectionListener = new ConnectionListener() {
+		
+		@Override
+		public void onIdentified()
+		{
+			health = NodeHealth.UP;
+			lastError = null;
+		}
+		
+		@Override
+		public void onConnectionLost()
+		{
+			health = NodeHealth.DOWN;
+		}
+	};
+	
+	private volatile NodeHealth health = NodeHealth.CONNECTING;
+	private volatile String lastError;
+	private volatile long roundTripNanos = -1;
+	
+	// Set while a connect attempt is running, so the health check doesn't start another
+	private final AtomicBoolean connecting = new AtomicBoolean();
+	
+	FleetNode(String name, String address, String password, OBSController controller)
+	{
+		this.name = name;
+		this.address = address;
+		this.password = password;
+		this.controller = controller;
+		controller.addConnectionListener(connectionListener);
+	}
+	
+	/**
+	 * Connects in the background, unless an attempt is already running.
+	 * 
+	 * @return future completed once connected, or completed exceptionally if the attempt failed or one was already running
+	 */
+	CompletableFuture<FleetNode> connect()
+	{
+		CompletableFuture<FleetNode> future = new CompletableFuture<FleetNode>();
+		
+		if(!connecting.compareAndSet(false, true))
+		{
+			future.completeExceptionally(new IllegalStateException(name + " is already connecting"));
+			return future;
+		}
+		
+		health = NodeHealth.CONNECTING;
+		
+		// Every node's handshake runs at once, without a thread waiting on each
+		controller.connectAsync(address, password).whenComplete((connected, t) -> {
+			connecting.set(false);
+			
+			if(t == null)
+			{
+				future.complete(this);
+				return;
+			}
+			
+			health = NodeHealth.DOWN;
+			lastError = t.getMessage();
+			future.completeExceptionally(t);
+		});
+		
+		return future;
+	}
+	
+	/**
+	 * Sends a health check, connecting first if the node is down and nothing else is trying to.
+	 * 
+	 * @param timeout how long to wait for an answer in milliseconds
+	 */
+	void check(long timeout)
+	{
+		if(!controller.isIdentified())
+		{
+			if(!controller.isReconnecting())
+			{
+				connect();
+			}
+			
+			return;
+		}
+		
+		long sent = System.nanoTime();
+		
+		// With a failure callback, the future completes with null when OBS says no
+		controller.build(new GetVersionRequest()).timeout(timeout, TimeUnit.MILLISECONDS).onFailure(failure -> degrade(failure.getComment())).submit().whenComplete((response, t) -> {
+			if(response != null)
+			{
+				roundTripNanos = System.nanoTime() - sent;
+				health = NodeHealth.UP;
+				lastError = null;
+			}
+			else if(t != null)
+			{
+				degrade(t.getMessage());
+			}
+		});
+	}
+	
+	private void degrade(String error)
+	{
+		// Lost the connection in the meantime, which the listener already dealt with
+		if(controller.isIdentified())
+		{
+			health = NodeHealth.DEGRADED;
+			lastError = error;
+		}
+	}
+	
+	/**
+	 * Disconnects for good.
+	 */
+	void close()
+	{
+		controller.removeConnectionListener(connectionListener);
+		controller.disconnect();
+		health = NodeHealth.DOWN;
+	}
+	
+	/**
+	 * @return name the node was added with
+	 */
+	public String getName()
+	{
+		return name;
+	}
+	
+	/**
+	 * @return address of the node's OBS WebSocket
+	 */
+	public String getAddress()
+	{
+		return address;
+	}
+	
+	/**
+	 * @return controller connected to this node, for sending requests to it alone
+	 */
+	public OBSController getController()
+	{
+		return controller;
+	}
+	
+	/**
+	 * @return how the node is doing
+	 */
+	public NodeHealth getHealth()
+	{
+		return health;
+	}
+	
+	/**
+	 * @return why the last connect attempt or health check failed, or null if the node has been fine since
+	 */
+	public String getLastError()
+	{
+		return lastError;
+	}
+	
+	/**
+	 * @return round trip of the last successful health check in nanoseconds, or -1 if there hasn't been one
+	 */
+	public long getRoundTripNanos()
+	{
+		return roundTripNanos;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return name + " (" + address + ") " + health + (lastError != null ? ": " + lastError : "");
+	}
+}
@@ -0,0 +1,20 @@
+package io.github.freshsupasulley.lwjobs;
+
+/**
+ * What happens to a request that hasn't been answered when the connection to OBS is lost.
+ * 
+ * @see OBSRequestBuilder#onDisconnect(InFlightPolicy)
+ */
+public enum InFlightPolicy {
+	
+	/**
+	 * Fails the request right away. This is the default.
+	 */
+	FAIL,
+	
+	/**
+	 * Holds the request and sends it again once the controller reconnects. Only use this for requests that are safe to run twice,
+	 * as OBS might have executed it before the connection dropped. Fails if the controller gives up reconnecting.
+	 */
+	RESEND
+}
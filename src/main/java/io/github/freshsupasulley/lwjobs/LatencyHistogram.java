@@ -0,0 +1,86 @@
+package io.github.freshsupasulley.lwjobs;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds.
+ * <p>
+ * Each power of two is split into 8 buckets, so recorded values are kept within 12.5% and the whole range of a long fits in a few hundred buckets.
+ * Recording is a couple of atomic adds and never allocates.
+ * </p>
+ */
+final class LatencyHistogram {
+	
+	// Buckets per power of two, as a power of two
+	static final int SUB_BITS = 3;
+	static final int SUB_BUCKETS = 1 << SUB_BITS;
+	static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * @param nanos a duration, negative values count as 0
+	 */
+	void record(long nanos)
+	{
+		nanos = Math.max(0, nanos);
+		counts.incrementAndGet(bucketOf(nanos));
+		count.increment();
+		total.add(nanos);
+		
+		long current;
+		
+		while(nanos > (current = max.get()) && !max.compareAndSet(current, nanos));
+	}
+	
+	static int bucketOf(long value)
+	{
+		if(value < SUB_BUCKETS)
+		{
+			return (int) value;
+		}
+		
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+	
+	/**
+	 * @param bucket a bucket
+	 * @return highest value that falls in the bucket
+	 */
+	static long highestOf(int bucket)
+	{
+		if(bucket < SUB_BUCKETS)
+		{
+			return bucket;
+		}
+		
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		int sub = bucket % SUB_BUCKETS;
+		long lowest = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+		return lowest + (1L << (exponent - SUB_BITS)) - 1;
+	}
+	
+	/**
+	 * Copies the histogram. Values recorded while copying may be only partly included.
+	 * 
+	 * @return copy of the histogram so far
+	 */
+	LatencySnapshot snapshot()
+	{
+		long[] buckets = new long[BUCKETS];
+		
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			buckets[i] = counts.get(i);
+		}
+		
+		return new LatencySnapshot(buckets, count.sum(), total.sum(), max.get());
+	}
+}
@@ -0,0 +1,119 @@
+package io.github.freshsupasulley.lwjobs;
+
+/**
+ * Distribution of durations (request round trips or callback run times) at the moment it was taken. Percentiles are accurate to within 12.5%.
+ * 
+ * @see MetricsSnapshot
+ */
+public final class LatencySnapshot {
+	
+	static final LatencySnapshot EMPTY = new LatencySnapshot(new long[LatencyHistogram.BUCKETS], 0, 0, 0);
+	
+	private final long[] buckets;
+	private final long count, totalNanos, maxNanos;
+	
+	LatencySnapshot(long[] buckets, long count, long totalNanos, long maxNanos)
+	{
+		this.buckets = buckets;
+		this.count = count;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+	}
+	
+	/**
+	 * @return number of durations recorded
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+	
+	/**
+	 * @return average duration in nanoseconds, or 0 if none were recorded
+	 */
+	public long getMeanNanos()
+	{
+		return count == 0 ? 0 : totalNanos / count;
+	}
+	
+	/**
+	 * @return longest duration in nanoseconds
+	 */
+	public long getMaxNanos()
+	{
+		return maxNanos;
+	}
+	
+	/**
+	 * @param percentile between 0 and 100 (ex. 99.9)
+	 * @return duration in nanoseconds that the given percent of recorded durations didn't exceed, or 0 if none were recorded
+	 */
+	public long getPercentileNanos(double percentile)
+	{
+		long total = 0;
+		
+		for(long bucket : buckets)
+		{
+			total += bucket;
+		}
+		
+		if(total == 0)
+		{
+			return 0;
+		}
+		
+		long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+		long seen = 0;
+		
+		for(int i = 0; i < buckets.length; i++)
+		{
+			seen += buckets[i];
+			
+			if(seen >= rank)
+			{
+				// Never report more than was actually recorded
+				return Math.min(LatencyHistogram.highestOf(i), maxNanos);
+			}
+		}
+		
+		return maxNanos;
+	}
+	
+	/**
+	 * @return median duration in nanoseconds
+	 */
+	public long getP50Nanos()
+	{
+		return getPercentileNanos(50);
+	}
+	
+	/**
+	 * @return 90th percentile duration in nanoseconds
+	 */
+	public long getP90Nanos()
+	{
+		return getPercentileNanos(90);
+	}
+	
+	/**
+	 * @return 99th percentile duration in nanoseconds
+	 */
+	public long getP99Nanos()
+	{
+		return getPercentileNanos(99);
+	}
+	
+	/**
+	 * @return 99.9th percentile duration in nanoseconds
+	 */
+	public long getP999Nanos()
+	{
+		return getPercentileNanos(99.9);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus", count, getMeanNanos() / 1e3, getP50Nanos() / 1e3, getP99Nanos() / 1e3, maxNanos / 1e3);
+	}
+}
@@ -0,0 +1,177 @@
+package io.github.freshsupasulley.lwjobs;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessagePacker;
+import org.msgpack.core.MessageUnpacker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Converts messages between JSON objects and MessagePack, as used by the <code>obswebsocket.msgpack</code> subprotocol.
+ * <p>
+ * Messages are decoded into the same JSON objects the text protocol produces, so requests and events parse the same way regardless of the encoding.
+ * </p>
+ */
+final class MessagePackCodec {
+	
+	/**
+	 * Name of the subprotocol that tells OBS to talk in MessagePack.
+	 */
+	static final String SUBPROTOCOL = "obswebsocket.msgpack";
+	
+	private MessagePackCodec() {}
+	
+	/**
+	 * Encodes a JSON object (or any other JSON value) as MessagePack.
+	 * 
+	 * @param json JSON value
+	 * @return encoded bytes
+	 */
+	static byte[] encode(JsonElement json)
+	{
+		try(MessageBufferPacker packer = MessagePack.newDefaultBufferPacker()) {
+			pack(packer, json);
+			return packer.toByteArray();
+		} catch(IOException e) {
+			throw new UncheckedIOException("Failed to encode message", e);
+		}
+	}
+	
+	/**
+	 * Decodes a MessagePack message into a JSON object.
+	 * 
+	 * @param payload raw bytes
+	 * @param offset  offset of the message in the payload
+	 * @param length  length of the message
+	 * @return decoded JSON object
+	 */
+	static JsonObject decode(byte[] payload, int offset, int length)
+	{
+		try(MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(payload, offset, length)) {
+			return unpack(unpacker).getAsJsonObject();
+		} catch(IOException e) {
+			throw new UncheckedIOException("Failed to decode message", e);
+		}
+	}
+	
+	private static void pack(MessagePacker packer, JsonElement element) throws IOException
+	{
+		if(element == null || element.isJsonNull())
+		{
+			packer.packNil();
+		}
+		else if(element.isJsonObject())
+		{
+			JsonObject object = element.getAsJsonObject();
+			packer.packMapHeader(object.size());
+			
+			for(Map.Entry<String, JsonElement> entry : object.entrySet())
+			{
+				packer.packString(entry.getKey());
+				pack(packer, entry.getValue());
+			}
+		}
+		else if(element.isJsonArray())
+		{
+			JsonArray array = element.getAsJsonArray();
+			packer.packArrayHeader(array.size());
+			
+			for(JsonElement child : array)
+			{
+				pack(packer, child);
+			}
+		}
+		else
+		{
+			JsonPrimitive primitive = element.getAsJsonPrimitive();
+			
+			if(primitive.isBoolean())
+			{
+				packer.packBoolean(primitive.getAsBoolean());
+			}
+			else if(primitive.isString())
+			{
+				packer.packString(primitive.getAsString());
+			}
+			else
+			{
+				// Keep whole numbers as integers so OBS doesn't receive 1.0 where it expects 1
+				double value = primitive.getAsDouble();
+				
+				if(value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 0x1p53)
+				{
+					packer.packLong(primitive.getAsLong());
+				}
+				else
+				{
+					packer.packDouble(value);
+				}
+			}
+		}
+	}
+	
+	private static JsonElement unpack(MessageUnpacker unpacker) throws IOException
+	{
+		switch(unpacker.getNextFormat().getValueType())
+		{
+			case MAP:
+			{
+				int size = unpacker.unpackMapHeader();
+				JsonObject object = new JsonObject();
+				
+				for(int i = 0; i < size; i++)
+				{
+					String key = unpacker.unpackString();
+					object.add(key, unpack(unpacker));
+				}
+				
+				return object;
+			}
+			case ARRAY:
+			{
+				int size = unpacker.unpackArrayHeader();
+				JsonArray array = new JsonArray(size);
+				
+				for(int i = 0; i < size; i++)
+				{
+					array.add(unpack(unpacker));
+				}
+				
+				return array;
+			}
+			case STRING:
+				return new JsonPrimitive(unpacker.unpackString());
+			case INTEGER:
+				return new JsonPrimitive(unpacker.unpackLong());
+			case FLOAT:
+				return new JsonPrimitive(unpacker.unpackDouble());
+			case BOOLEAN:
+				return new JsonPrimitive(unpacker.unpackBoolean());
+			case BINARY:
+			{
+				// JSON has no binary type, so OBS never sends this in practice. Mirror what a JSON client would receive
+				byte[] data = unpacker.readPayload(unpacker.unpackBinaryHeader());
+				return new JsonPrimitive(Base64.getEncoder().encodeToString(data));
+			}
+			case NIL:
+			{
+				unpacker.unpackNil();
+				return JsonNull.INSTANCE;
+			}
+			default:
+			{
+				unpacker.skipValue();
+				return JsonNull.INSTANCE;
+			}
+		}
+	}
+}
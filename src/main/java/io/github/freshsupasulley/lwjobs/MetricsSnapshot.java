@@ -0,0 +1,235 @@
+package io.github.freshsupasulley.lwjobs;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * What a controller has done since it was created or its metrics were last reset, and what it's waiting on right now.
+ * <p>
+ * Counters only go up, so rates come from comparing two snapshots:
+ * </p>
+ * 
+ * <pre>
+ * MetricsSnapshot before = controller.getMetrics();
+ * Thread.sleep(10_000);
+ * MetricsSnapshot after = controller.getMetrics();
+ * 
+ * System.out.println(after.getResponseRate(before) + " responses/s, p99 " + after.getRequestLatency("SetSceneItemEnabled").getP99Nanos() + "ns");
+ * </pre>
+ * 
+ * @see OBSController#getMetrics()
+ */
+public final class MetricsSnapshot {
+	
+	private final long takenAt, countingSince;
+	private final long requestsSent, responsesSucceeded, responsesFailed;
+	private final int pendingRequests, queuedRequests, outboundQueueDepth;
+	private final long outboundPendingBytes;
+	private final long bytesIn, bytesOut, framesIn, framesOut;
+	private final Map<String, LatencySnapshot> requestLatency;
+	private final Map<String, Long> events;
+	private final LatencySnapshot callbackTime;
+	
+	MetricsSnapshot(long takenAt, long countingSince, long requestsSent, long responsesSucceeded, long responsesFailed, int pendingRequests, int queuedRequests, int outboundQueueDepth, long outboundPendingBytes, long bytesIn, long bytesOut, long framesIn, long framesOut, Map<String, LatencySnapshot> requestLatency, Map<String, Long> events, LatencySnapshot callbackTime)
+	{
+		this.takenAt = takenAt;
+		this.countingSince = countingSince;
+		this.requestsSent = requestsSent;
+		this.responsesSucceeded = responsesSucceeded;
+		this.responsesFailed = responsesFailed;
+		this.pendingRequests = pendingRequests;
+		this.queuedRequests = queuedRequests;
+		this.outboundQueueDepth = outboundQueueDepth;
+		this.outboundPendingBytes = outboundPendingBytes;
+		this.bytesIn = bytesIn;
+		this.bytesOut = bytesOut;
+		this.framesIn = framesIn;
+		this.framesOut = framesOut;
+		this.requestLatency = Collections.unmodifiableMap(requestLatency);
+		this.events = Collections.unmodifiableMap(events);
+		this.callbackTime = callbackTime;
+	}
+	
+	/**
+	 * @return when the snapshot was taken, from {@link System#nanoTime()}
+	 */
+	public long getTakenAtNanos()
+	{
+		return takenAt;
+	}
+	
+	/**
+	 * @return nanoseconds counted over, since the controller was created or its metrics were reset
+	 */
+	public long getElapsedNanos()
+	{
+		return takenAt - countingSince;
+	}
+	
+	/**
+	 * @return requests sent to OBS, counting a request that was coalesced with others once
+	 */
+	public long getRequestsSent()
+	{
+		return requestsSent;
+	}
+	
+	/**
+	 * @return responses where OBS said the request succeeded
+	 */
+	public long getResponsesSucceeded()
+	{
+		return responsesSucceeded;
+	}
+	
+	/**
+	 * @return responses where OBS said the request failed. Requests that failed on our end (like timeouts) aren't answered, so they don't count
+	 */
+	public long getResponsesFailed()
+	{
+		return responsesFailed;
+	}
+	
+	/**
+	 * @return requests and batches waiting for an answer, including ones held back by the rate or in-flight limits
+	 */
+	public int getPendingRequests()
+	{
+		return pendingRequests;
+	}
+	
+	/**
+	 * @return requests held back by the rate or in-flight limits
+	 */
+	public int getQueuedRequests()
+	{
+		return queuedRequests;
+	}
+	
+	/**
+	 * @return requests and batches sent and waiting for an answer
+	 */
+	public int getInFlightRequests()
+	{
+		return Math.max(0, pendingRequests - queuedRequests);
+	}
+	
+	/**
+	 * @return messages waiting to be written to the WebSocket
+	 */
+	public int getOutboundQueueDepth()
+	{
+		return outboundQueueDepth;
+	}
+	
+	/**
+	 * @return bytes waiting to be written to the WebSocket
+	 */
+	public long getOutboundPendingBytes()
+	{
+		return outboundPendingBytes;
+	}
+	
+	/**
+	 * @return size of every message received, counting text messages by characters
+	 */
+	public long getBytesIn()
+	{
+		return bytesIn;
+	}
+	
+	/**
+	 * @return size of every message written, counting text messages by characters
+	 */
+	public long getBytesOut()
+	{
+		return bytesOut;
+	}
+	
+	/**
+	 * @return messages received
+	 */
+	public long getFramesIn()
+	{
+		return framesIn;
+	}
+	
+	/**
+	 * @return messages written
+	 */
+	public long getFramesOut()
+	{
+		return framesOut;
+	}
+	
+	/**
+	 * @return round trips from writing a request to its response, by request type. Requests in a batch count the batch's round trip
+	 */
+	public Map<String, LatencySnapshot> getRequestLatency()
+	{
+		return requestLatency;
+	}
+	
+	/**
+	 * @param requestType type of the request (ex. "GetVersion")
+	 * @return round trips of that request type, empty if none were answered
+	 */
+	public LatencySnapshot getRequestLatency(String requestType)
+	{
+		return requestLatency.getOrDefault(requestType, LatencySnapshot.EMPTY);
+	}
+	
+	/**
+	 * @return events received by type, including ones nothing listens to
+	 */
+	public Map<String, Long> getEvents()
+	{
+		return events;
+	}
+	
+	/**
+	 * @return how long request and event callbacks ran
+	 */
+	public LatencySnapshot getCallbackTime()
+	{
+		return callbackTime;
+	}
+	
+	/**
+	 * @param earlier an earlier snapshot of the same controller
+	 * @return responses per second between the two snapshots
+	 */
+	public double getResponseRate(MetricsSnapshot earlier)
+	{
+		return rate(responsesSucceeded + responsesFailed, earlier.responsesSucceeded + earlier.responsesFailed, earlier);
+	}
+	
+	/**
+	 * @param eventType type of the event (ex. "SceneItemEnableStateChanged")
+	 * @param earlier   an earlier snapshot of the same controller
+	 * @return events of that type per second between the two snapshots
+	 */
+	public double getEventRate(String eventType, MetricsSnapshot earlier)
+	{
+		return rate(events.getOrDefault(eventType, 0L), earlier.events.getOrDefault(eventType, 0L), earlier);
+	}
+	
+	private double rate(long now, long then, MetricsSnapshot earlier)
+	{
+		// Reset in between, so the earlier counts don't apply
+		if(earlier.countingSince != countingSince)
+		{
+			then = 0;
+			earlier = null;
+		}
+		
+		long nanos = takenAt - (earlier != null ? earlier.takenAt : countingSince);
+		return nanos <= 0 ? 0 : (now - then) * 1e9 / nanos;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "sent=" + requestsSent + " succeeded=" + responsesSucceeded + " failed=" + responsesFailed + " pending=" + pendingRequests + " queued=" + queuedRequests + " outbound=" + outboundQueueDepth + " in=" + framesIn + "/" + bytesIn + "B out=" + framesOut + "/" + bytesOut + "B latency=" + requestLatency + " callbacks=" + callbackTime;
+	}
+}
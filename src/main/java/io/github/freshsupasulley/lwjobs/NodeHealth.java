@@ -0,0 +1,29 @@
+package io.github.freshsupasulley.lwjobs;
+
+/**
+ * How an OBS instance in an {@link OBSFleet} is doing.
+ * 
+ * @see FleetNode#getHealth()
+ */
+public enum NodeHealth {
+	
+	/**
+	 * Connecting for the first time, or again after a failed attempt.
+	 */
+	CONNECTING,
+	
+	/**
+	 * Connected, and answering health checks if they're on.
+	 */
+	UP,
+	
+	/**
+	 * Connected, but the last health check failed or timed out.
+	 */
+	DEGRADED,
+	
+	/**
+	 * Not connected. The controller's reconnect policy or the fleet's health check may be trying again.
+	 */
+	DOWN
+}
@@ -0,0 +1,175 @@
+package io.github.freshsupasulley.lwjobs;
+
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Used for building request batches. All requests in a batch are sent to OBS in a single message and answered in a single response.
+ * <p>
+ * Each request keeps its own success and failure callbacks. Call {@link #queue()} to send the batch, or call {@link #complete()} to wait for the batch to finish.
+ * </p>
+ * 
+ * <pre>
+ * controller.batch()
+ * 	.add(new SetSceneItemEnabled("gameplay", 1, true))
+ * 	.add(new SetSceneItemEnabled("gameplay", 2, false))
+ * 	.add(controller.build(new GetSceneListRequest()).onSuccess(list -&gt; System.out.println(list.getCurrentScene())))
+ * 	.executionType(RequestBatchExecutionType.SERIAL_FRAME)
+ * 	.queue();
+ * </pre>
+ * 
+ * @see OBSController#batch()
+ */
+public class OBSBatchBuilder {
+	
+	private final OBSController controller;
+	private final List<OBSBuiltRequest<? extends OBSRequest>> requests;
+	
+	private RequestBatchExecutionType executionType = RequestBatchExecutionType.SERIAL_REALTIME;
+	private boolean haltOnFailure;
+	private long timeout = -1;
+	
+	protected OBSBatchBuilder(OBSController controller)
+	{
+		this.controller = controller;
+		this.requests = new ArrayList<OBSBuiltRequest<? extends OBSRequest>>();
+	}
+	
+	/**
+	 * Adds a request to the batch without any callbacks.
+	 * 
+	 * @param <T>     {@link OBSRequest} subclass
+	 * @param request a newly created OBSRequest subclass
+	 * @return this, for chaining
+	 */
+	public <T extends OBSRequest> OBSBatchBuilder add(T request)
+	{
+		return add(request, null, null);
+	}
+	
+	/**
+	 * Adds a request to the batch with success and failure callbacks.
+	 * 
+	 * @param <T>       {@link OBSRequest} subclass
+	 * @param request   a newly created OBSRequest subclass
+	 * @param onSuccess consumer to fire if successful
+	 * @param onFailed  consumer to fire if unsuccessful
+	 * @return this, for chaining
+	 */
+	public <T extends OBSRequest> OBSBatchBuilder add(T request, Consumer<T> onSuccess, Consumer<FailedRequestException> onFailed)
+	{
+		requests.add(new OBSBuiltRequest<T>(request, onSuccess, onFailed));
+		return this;
+	}
+	
+	/**
+	 * Adds an already built request to the batch, keeping the callbacks attached to it. The builder should not be queued on its own afterwards.
+	 * 
+	 * @param <T>     {@link OBSRequest} subclass
+	 * @param builder request builder from {@link OBSController#build(OBSRequest)}
+	 * @return this, for chaining
+	 */
+	public <T extends OBSRequest> OBSBatchBuilder add(OBSRequestBuilder<T> builder)
+	{
+		requests.add(builder.createBuiltRequest());
+		return this;
+	}
+	
+	/**
+	 * Sets how OBS should execute the requests in this batch. Defaults to {@link RequestBatchExecutionType#SERIAL_REALTIME}.
+	 * 
+	 * @param executionType execution type
+	 * @return this, for chaining
+	 */
+	public OBSBatchBuilder executionType(RequestBatchExecutionType executionType)
+	{
+		this.executionType = executionType;
+		return this;
+	}
+	
+	/**
+	 * Sets whether OBS should stop processing the batch once a request fails. Requests that were never executed fire their failure callbacks. Defaults to false.
+	 * <p>
+	 * Has no effect with {@link RequestBatchExecutionType#PARALLEL}.
+	 * </p>
+	 * 
+	 * @param haltOnFailure true to stop at the first failure
+	 * @return this, for chaining
+	 */
+	public OBSBatchBuilder haltOnFailure(boolean haltOnFailure)
+	{
+		this.haltOnFailure = haltOnFailure;
+		return this;
+	}
+	
+	/**
+	 * Sets how long to wait for OBS to answer the whole batch before every request in it fails. Defaults to the longest
+	 * {@link OBSRequest#getDefaultTimeout() default timeout} of the requests in the batch.
+	 * <p>
+	 * Zero or less waits forever, including in {@link #complete()}.
+	 * </p>
+	 * 
+	 * @param timeout time to wait
+	 * @param unit    unit of the timeout
+	 * @return this, for chaining
+	 */
+	public OBSBatchBuilder timeout(long timeout, TimeUnit unit)
+	{
+		this.timeout = Math.max(0, unit.toMillis(timeout));
+		return this;
+	}
+	
+	/**
+	 * Sends the batch to the WebSocket. Callbacks of each request are fired when the batch response is received.
+	 */
+	public void queue()
+	{
+		submit();
+	}
+	
+	/**
+	 * Waits for the batch to finish and returns the completed requests in the order they were added.
+	 * <p>
+	 * You cannot call this method in success callbacks, as it can cause a deadlock.
+	 * </p>
+	 * 
+	 * @return list of completed requests, where requests that failed are null
+	 */
+	public List<OBSRequest> complete()
+	{
+		if(CallbackContext.isCallbackContext())
+		{
+			throw new IllegalStateException("Cannot call complete() in callbacks, as it can cause a deadlock. Use non-blocking functions like queue()");
+		}
+		
+		// Times out on its own (see timeout())
+		return submit().join();
+	}
+	
+	/**
+	 * Sends the batch and returns a {@link CompletableFuture} object for asynchronous logic. Each contained request still completes individually.
+	 * 
+	 * @return CompletableFuture object completed with the requests in the order they were added (null if failed)
+	 */
+	public CompletableFuture<List<OBSRequest>> submit()
+	{
+		if(requests.isEmpty())
+		{
+			throw new IllegalStateException("Add at least one request to the batch before sending it");
+		}
+		
+		OBSBuiltBatch batch = new OBSBuiltBatch(new ArrayList<OBSBuiltRequest<? extends OBSRequest>>(requests), executionType, haltOnFailure);
+		
+		if(timeout >= 0)
+		{
+			batch.timeout = timeout;
+		}
+		
+		return controller.sendBatch(batch);
+	}
+}
@@ -0,0 +1,194 @@
+package io.github.freshsupasulley.lwjobs;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+import io.github.freshsupasulley.lwjobs.requests.SceneItemNameRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A request batch that was sent (or is about to be sent) to the WebSocket. Completes once OBS answers with the results of every request.
+ * <p>
+ * The completed list holds each request in the order it was added. Requests that failed are null.
+ * </p>
+ */
+public class OBSBuiltBatch extends CompletableFuture<List<OBSRequest>> {
+	
+	protected final List<OBSBuiltRequest<? extends OBSRequest>> requests;
+	protected final RequestBatchExecutionType executionType;
+	protected final boolean haltOnFailure;
+	
+	// Assigned by the controller when sent
+	private Map<String, OBSBuiltRequest<? extends OBSRequest>> requestIDs;
+	OBSController controller;
+	long batchID;
+	TimerWheel.Timeout<Object> deadline;
+	long sentAt;
+	protected long timeout;
+	
+	// Shared with every request in the batch, so the batch completes after all of their callbacks ran
+	Executor lane;
+	
+	protected OBSBuiltBatch(List<OBSBuiltRequest<? extends OBSRequest>> requests, RequestBatchExecutionType executionType, boolean haltOnFailure)
+	{
+		this.requests = requests;
+		this.executionType = executionType;
+		this.haltOnFailure = haltOnFailure;
+		this.requestIDs = new LinkedHashMap<String, OBSBuiltRequest<? extends OBSRequest>>();
+		
+		// Wait as long as the slowest request would on its own
+		for(OBSBuiltRequest<? extends OBSRequest> request : requests)
+		{
+			if(request.timeout <= 0)
+			{
+				timeout = 0;
+				break;
+			}
+			
+			timeout = Math.max(timeout, request.timeout);
+		}
+	}
+	
+	/**
+	 * Cancels the batch and every request in it. A response that arrives later is ignored.
+	 * 
+	 * @param mayInterruptIfRunning has no effect
+	 * @return true if the batch was cancelled, false if it had already completed
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning)
+	{
+		if(controller != null)
+		{
+			controller.forget(this);
+		}
+		
+		if(deadline != null)
+		{
+			deadline.cancel();
+		}
+		
+		for(OBSBuiltRequest<? extends OBSRequest> request : requests)
+		{
+			request.cancel(mayInterruptIfRunning);
+		}
+		
+		return super.cancel(mayInterruptIfRunning);
+	}
+	
+	protected void assignID(String requestID, OBSBuiltRequest<? extends OBSRequest> request)
+	{
+		requestIDs.put(requestID, request);
+	}
+	
+	protected Map<String, OBSBuiltRequest<? extends OBSRequest>> getRequestIDs()
+	{
+		return requestIDs;
+	}
+	
+	/**
+	 * Completes every request in this batch with the results OBS returned, then completes the batch itself.
+	 * 
+	 * @param results     results array of the RequestBatchResponse
+	 * @param rawResponse raw response from the WebSocket
+	 */
+	protected void fireResults(JsonArray results, String rawResponse)
+	{
+		if(deadline != null)
+		{
+			deadline.cancel();
+		}
+		
+		long roundTrip = System.nanoTime() - sentAt;
+		
+		for(JsonElement element : results)
+		{
+			JsonObject result = element.getAsJsonObject();
+			OBSBuiltRequest<?> request = requestIDs.remove(result.get("requestId").getAsString());
+			
+			if(request == null)
+			{
+				OBSController.LOG.debug("Received batch result for unknown request: " + result);
+				continue;
+			}
+			
+			JsonObject requestStatus = result.get("requestStatus").getAsJsonObject();
+			int code = requestStatus.get("code").getAsInt();
+			boolean success = requestStatus.get("result").getAsBoolean();
+			
+			// Every request in the batch took the batch's round trip
+			controller.metrics.response(request.request.getRequestType(), roundTrip, success);
+			
+			if(success)
+			{
+				request.fireSuccess(code, result.has("responseData") ? result.get("responseData").getAsJsonObject() : null);
+			}
+			else
+			{
+				// Members aren't sent by the controller themselves, so the batch forgets IDs that have gone bad for them
+				if(code == 600 && request.request instanceof SceneItemNameRequest)
+				{
+					controller.onSceneItemNotFound((SceneItemNameRequest) request.request);
+				}
+				
+				request.fireFailure(code, requestStatus.has("comment") ? requestStatus.get("comment").getAsString() : "", rawResponse);
+			}
+		}
+		
+		// Anything left over was never executed (haltOnFailure stopped the batch early)
+		fireFailure("Not executed, an earlier request in the batch failed", rawResponse);
+	}
+	
+	/**
+	 * Fails every request in this batch that hasn't been answered yet, then completes the batch itself.
+	 * 
+	 * @param comment     why the requests failed
+	 * @param rawResponse raw response from WebSocket, if any
+	 */
+	protected void fireFailure(String comment, String rawResponse)
+	{
+		if(deadline != null)
+		{
+			deadline.cancel();
+		}
+		
+		for(OBSBuiltRequest<?> request : requests)
+		{
+			if(!request.isFired())
+			{
+				request.fireFailure(0, comment, rawResponse);
+			}
+		}
+		
+		requestIDs.clear();
+		
+		// Queued behind the requests' callbacks on the same lane, so they've all completed by the time this runs
+		Runnable completeBatch = () -> {
+			List<OBSRequest> completed = new ArrayList<OBSRequest>(requests.size());
+			
+			for(OBSBuiltRequest<? extends OBSRequest> request : requests)
+			{
+				completed.add(request.isCompletedExceptionally() ? null : request.getNow(null));
+			}
+			
+			complete(Collections.unmodifiableList(completed));
+		};
+		
+		if(lane == null)
+		{
+			completeBatch.run();
+		}
+		else
+		{
+			lane.execute(completeBatch);
+		}
+	}
+}
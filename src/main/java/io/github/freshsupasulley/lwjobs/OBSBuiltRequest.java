@@ -1,9 +1,13 @@
 package io.github.freshsupasulley.lwjobs;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+import io.github.freshsupasulley.lwjobs.requests.SceneItemNameRequest;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 public class OBSBuiltRequest<T extends OBSRequest> extends CompletableFuture<T> {
@@ -11,17 +15,147 @@ public class OBSBuiltRequest<T extends OBSRequest> extends CompletableFuture<T>
 	protected T request;
 	private Consumer<T> onSuccess;
 	private Consumer<FailedRequestException> onFailed;
+	protected final InFlightPolicy inFlightPolicy;
+	protected long timeout;
+	protected RequestPriority priority = RequestPriority.NORMAL;
+	
+	// Assigned by the controller when sent
+	OBSController controller;
+	long requestID;
+	TimerWheel.Timeout<Object> deadline;
+	
+	// Runs the callbacks, shared by every request in the same chain so they fire in order
+	Executor lane;
+	
+	// When it was last written to the outbound queue, for its round trip
+	long sentAt;
+	
+	// Guarded by the controller's RequestScheduler, except inFlight is also set without the lock when no limits are set
+	long queuedAt;
+	volatile boolean inFlight;
+	
+	// Shared request this one is riding along with, if it was coalesced
+	CoalescedRequest carrier;
+	
+	// Set once the outcome is known, so it's only handed to the lane once
+	private final AtomicBoolean fired = new AtomicBoolean();
 	
 	protected OBSBuiltRequest(T request, Consumer<T> onSuccess, Consumer<FailedRequestException> onFailed)
+	{
+		this(request, onSuccess, onFailed, InFlightPolicy.FAIL);
+	}
+	
+	protected OBSBuiltRequest(T request, Consumer<T> onSuccess, Consumer<FailedRequestException> onFailed, InFlightPolicy inFlightPolicy)
 	{
 		this.request = request;
 		this.onSuccess = onSuccess;
 		this.onFailed = onFailed;
+		this.inFlightPolicy = inFlightPolicy;
+		this.timeout = request.getDefaultTimeout();
 	}
 	
+	/**
+	 * Cancels the request. It's forgotten by the controller, so a response that arrives later is ignored and no callbacks are fired.
+	 * <p>
+	 * OBS may have already executed the request.
+	 * </p>
+	 * 
+	 * @param mayInterruptIfRunning has no effect
+	 * @return true if the request was cancelled, false if it had already completed
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning)
+	{
+		if(controller != null)
+		{
+			controller.forget(this);
+		}
+		
+		return super.cancel(mayInterruptIfRunning);
+	}
+	
+	/**
+	 * Completes the request with the response OBS sent. The response is parsed and the callbacks fired on this request's lane, not the calling
+	 * thread.
+	 * 
+	 * @param code        request status code
+	 * @param requestData responseData of the response, possibly null
+	 */
 	protected void fireSuccess(int code, JsonObject requestData)
 	{
-		request.accept(code, requestData);
+		if(!fire())
+		{
+			return;
+		}
+		
+		run(() -> {
+			// Cancelled while waiting in the lane
+			if(isCancelled())
+			{
+				return;
+			}
+			
+			try {
+				request.accept(code, requestData);
+			} catch(Throwable t) {
+				completeExceptionally(t);
+				return;
+			}
+			
+			succeed();
+		});
+	}
+	
+	/**
+	 * Completes the request with the response message OBS sent. Streaming requests read responseData straight from the message, on the calling
+	 * thread since the transport may reuse the message afterwards. Everything else gets it parsed into a JSON object first.
+	 * 
+	 * @param code     request status code
+	 * @param envelope the response
+	 */
+	void fireSuccess(int code, Envelope envelope)
+	{
+		JsonReader reader = request.isStreaming() ? envelope.readerAt("responseData") : null;
+		
+		if(reader == null)
+		{
+			fireSuccess(code, envelope.getObject("responseData"));
+			return;
+		}
+		
+		if(!fire())
+		{
+			return;
+		}
+		
+		Throwable failure = null;
+		
+		try {
+			request.accept(code, reader);
+		} catch(Throwable t) {
+			failure = t;
+		}
+		
+		Throwable error = failure;
+		
+		run(() -> {
+			if(isCancelled())
+			{
+				return;
+			}
+			
+			if(error != null)
+			{
+				completeExceptionally(error);
+				return;
+			}
+			
+			succeed();
+		});
+	}
+	
+	private void succeed()
+	{
 		complete(request);
 		
 		// If there's also a success callback attached
@@ -31,23 +165,99 @@ public class OBSBuiltRequest<T extends OBSRequest> extends CompletableFuture<T>
 		}
 	}
 	
+	/**
+	 * Fails the request. The callbacks are fired on this request's lane, not the calling thread.
+	 * 
+	 * @param code        request status code, or 0 if the request failed on our end
+	 * @param comment     why the request failed
+	 * @param rawResponse raw response from WebSocket, if any
+	 */
 	protected void fireFailure(int code, String comment, String rawResponse)
 	{
-		FailedRequestException failedRequest = new FailedRequestException(code, comment, rawResponse);
-		OBSController.LOG.debug("Request failed: " + failedRequest);
+		if(!fire())
+		{
+			return;
+		}
 		
-		// If there's a failure callback
-		if(onFailed != null)
+		// The scene item was removed or moved since its ID was looked up
+		if(code == 600 && controller != null && request instanceof SceneItemNameRequest)
 		{
-			complete(null);
-			safeConsume(failedRequest, onFailed);
+			controller.onSceneItemNotFound((SceneItemNameRequest) request);
+		}
+		
+		run(() -> {
+			if(isCancelled())
+			{
+				return;
+			}
+			
+			FailedRequestException failedRequest = new FailedRequestException(code, comment, rawResponse);
+			OBSController.LOG.debug("Request failed: " + failedRequest);
+			
+			// If there's a failure callback
+			if(onFailed != null)
+			{
+				complete(null);
+				safeConsume(failedRequest, onFailed);
+			}
+			// If there's no failure callback attached
+			else
+			{
+				// Throw an error to instead
+				OBSController.LOG.error(request + " failed. ", failedRequest);
+				this.completeExceptionally(failedRequest);
+			}
+		});
+	}
+	
+	/**
+	 * @return true if the outcome of this request is already decided, even if its callbacks haven't run yet
+	 */
+	boolean isFired()
+	{
+		return fired.get();
+	}
+	
+	/**
+	 * Claims the right to decide this request's outcome.
+	 * 
+	 * @return true the first time, false if the request was already fired
+	 */
+	boolean fire()
+	{
+		if(!fired.compareAndSet(false, true))
+		{
+			return false;
+		}
+		
+		cancelDeadline();
+		
+		if(controller != null)
+		{
+			controller.release(this);
+		}
+		
+		return true;
+	}
+	
+	private void run(Runnable task)
+	{
+		// Never sent (or built by hand), there's no lane to hand off to
+		if(lane == null)
+		{
+			task.run();
 		}
-		// If there's no failure callback attached
 		else
 		{
-			// Throw an error to instead
-			OBSController.LOG.error(request + " failed. ", failedRequest);
-			this.completeExceptionally(failedRequest);
+			lane.execute(task);
+		}
+	}
+	
+	private void cancelDeadline()
+	{
+		if(deadline != null)
+		{
+			deadline.cancel();
 		}
 	}
 	
@@ -60,10 +270,17 @@ public class OBSBuiltRequest<T extends OBSRequest> extends CompletableFuture<T>
 	 */
 	private <U> void safeConsume(U object, Consumer<U> consumer)
 	{
-		try (CallbackContext ___ = CallbackContext.getInstance()) {
+		long start = System.nanoTime();
+		
+		try (CallbackContext ___ = CallbackContext.getInstance(lane)) {
 			consumer.accept(object);
 		} catch(Throwable t) {
 			t.printStackTrace();
 		}
+		
+		if(controller != null)
+		{
+			controller.metrics.callback(System.nanoTime() - start);
+		}
 	}
 }
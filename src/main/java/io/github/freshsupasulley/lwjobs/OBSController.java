@@ -1,39 +1,64 @@
 package io.github.freshsupasulley.lwjobs;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import io.github.freshsupasulley.lwjobs.events.EventDelivery;
+import io.github.freshsupasulley.lwjobs.events.EventFields;
+import io.github.freshsupasulley.lwjobs.events.EventRegistration;
 import io.github.freshsupasulley.lwjobs.events.OBSEvent;
 import io.github.freshsupasulley.lwjobs.events.OBSEventCallback;
 import io.github.freshsupasulley.lwjobs.requests.EmptyGetResponse;
 import io.github.freshsupasulley.lwjobs.requests.EmptyRequest;
 import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+import io.github.freshsupasulley.lwjobs.requests.SceneItemNameRequest;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.digest.DigestUtils;
-import org.eclipse.jetty.websocket.api.Session;
+import io.github.freshsupasulley.lwjobs.transport.JettyTransport;
+import io.github.freshsupasulley.lwjobs.transport.OBSTransport;
+import io.github.freshsupasulley.lwjobs.transport.OBSTransportListener;
 import org.eclipse.jetty.websocket.api.WebSocketException;
-import org.eclipse.jetty.websocket.api.WebSocketListener;
-import org.eclipse.jetty.websocket.client.WebSocketClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
 import java.io.IOException;
+import java.lang.reflect.Constructor;
 import java.net.URI;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.ServiceLoader;
-import java.util.UUID;
+import java.util.Set;
+import java.util.TreeMap;
+import java.lang.management.ManagementFactory;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * Handles all OBS WebSocket traffic according to the <a href="https://github.com/obsproject/obs-websocket/blob/master/docs/generated/protocol.md">5.X.X websocket protocol</a>.
  * 
  * @see OBSController#OBSController()
  */
-public class OBSController implements WebSocketListener {
+public class OBSController implements OBSTransportListener {
 	
 	public static final Logger LOG;
 	
@@ -74,19 +99,55 @@ public class OBSController implements WebSocketListener {
 	
 	protected static final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
 	
-	private final WebSocketClient client;
-	private Session session;
+	// Default for running callbacks and event listeners that aren't inline, and for anything else that shouldn't hold up the timer
+	static final Executor callbackThreads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("lwjOBS-callback-", 0).factory());
+	
+	private final OBSTransport transport;
+	private final OutboundQueue outbound;
+	final ControllerMetrics metrics = new ControllerMetrics();
+	private ObjectName mbeanName;
+	private final RequestScheduler scheduler = new RequestScheduler(type -> sendRequest(type, type.requestID), executor);
+	private final TimerWheel<Object> deadlines = new TimerWheel<Object>(executor, this::onDeadline, 10, TimeUnit.MILLISECONDS, 512);
 	
+	private URI address;
 	private int rpcVersion;
 	private String password;
+	private boolean messagePack;
+	private int eventSubscriptions;
+	
+	// Cached authentication secret, only depends on the password and salt
+	private String authSalt, authSecret;
+	
+	// Connection state
+	private ReconnectPolicy reconnectPolicy;
+	private volatile long handshakeTimeout = 5000;
+	private volatile boolean identified, reconnecting, closing;
 	
-	// Request callbacks
-	private Map<String, OBSBuiltRequest<? extends OBSRequest>> callbacks;
-	private Map<String, OBSEventCallback<? extends OBSEvent>> events;
+	// Request callbacks, keyed by request ID
+	private final AtomicLong nextRequestID = new AtomicLong();
+	private PendingTable<OBSBuiltRequest<? extends OBSRequest>> callbacks;
+	private PendingTable<OBSBuiltBatch> batches;
+	private Map<String, OBSEventCallback<? extends OBSEvent>[]> events;
+	
+	// Listeners the library added for itself (ex. caches), which unregisterEvent leaves alone
+	private final Set<OBSEventCallback<?>> internalListeners = ConcurrentHashMap.newKeySet();
+	
+	// Idempotent requests waiting for an answer that identical ones can share, keyed by priority, type and parameters
+	private final Map<String, CoalescedRequest> reads = new ConcurrentHashMap<String, CoalescedRequest>();
+	private volatile boolean coalesceReads;
+	
+	// Requests waiting to be sent again once reconnected, in the order they were first sent
+	private TreeMap<Long, OBSBuiltRequest<? extends OBSRequest>> held;
 	
 	// Event callbacks
 	private CompletableFuture<Void> onConnect;
 	private Consumer<String> onDisconnected = LOG::error;
+	private Runnable onReconnect;
+	private volatile Executor callbackExecutor = callbackThreads;
+	private final List<ConnectionListener> connectionListeners = new CopyOnWriteArrayList<ConnectionListener>();
+	
+	// IDs of scene items that requests named by source
+	private final SceneItemIdCache sceneItemIds = new SceneItemIdCache(this);
 	
 	/**
 	 * Initializes a new controller. Use chained functions to connect to the WebSocket.
@@ -97,201 +158,1549 @@ public class OBSController implements WebSocketListener {
 	 * </pre>
 	 * 
 	 * It's recommended you handle errors thrown by {@link #connect(String, String) connect()} in a try catch block.
+	 * <p>
+	 * Uses Jetty's WebSocket client. See {@link #OBSController(OBSTransport)} to use something else.
+	 * </p>
 	 */
 	public OBSController()
 	{
-		callbacks = new HashMap<String, OBSBuiltRequest<? extends OBSRequest>>();
-		events = new HashMap<String, OBSEventCallback<? extends OBSEvent>>();
-		client = new WebSocketClient();
-		client.setStopTimeout(1000);
+		this(new JettyTransport());
+	}
+	
+	/**
+	 * Initializes a new controller that talks to OBS over the given transport.
+	 * <pre>
+	 * OBSController controller = new OBSController(JdkTransport.withVirtualThreads())
+	 * 	.connect("ws://localhost:4444", "your_password");
+	 * </pre>
+	 * 
+	 * @param transport transport carrying WebSocket messages, such as {@link io.github.freshsupasulley.lwjobs.transport.JdkTransport JdkTransport}
+	 */
+	public OBSController(OBSTransport transport)
+	{
+		this.transport = transport;
+		this.outbound = new OutboundQueue(transport, metrics);
+		callbacks = new PendingTable<OBSBuiltRequest<? extends OBSRequest>>();
+		batches = new PendingTable<OBSBuiltBatch>();
+		held = new TreeMap<Long, OBSBuiltRequest<? extends OBSRequest>>();
+		events = new ConcurrentHashMap<String, OBSEventCallback<? extends OBSEvent>[]>();
+		connectionListeners.add(sceneItemIds);
+	}
+	
+	/**
+	 * Fires a callback if the WebSocket connection is lost.
+	 * 
+	 * @param onDisconnect disconnect callback
+	 * @return this, for chaining
+	 */
+	public OBSController registerDisconnect(Consumer<String> onDisconnect)
+	{
+		LOG.info("Disconnected");
+		this.onDisconnected = onDisconnect;
+		return this;
+	}
+	
+	/**
+	 * Fires a callback once the controller has reconnected to OBS after losing its connection. Requests can be sent again from this point.
+	 * 
+	 * @param onReconnect reconnect callback
+	 * @return this, for chaining
+	 * @see #useReconnectPolicy(ReconnectPolicy)
+	 */
+	public OBSController registerReconnect(Runnable onReconnect)
+	{
+		this.onReconnect = onReconnect;
+		return this;
+	}
+	
+	/**
+	 * Reconnects to OBS automatically if the connection is lost, for example when OBS restarts. By default, the controller stays disconnected.
+	 * <p>
+	 * The handshake is redone with the same password and registered events. Requests that were waiting for a response either fail or are sent again depending on their {@link InFlightPolicy}.
+	 * The disconnect callback is still fired when the connection is lost.
+	 * </p>
+	 * 
+	 * @param reconnectPolicy reconnect policy, or null to never reconnect
+	 * @return this, for chaining
+	 */
+	public OBSController useReconnectPolicy(ReconnectPolicy reconnectPolicy)
+	{
+		this.reconnectPolicy = reconnectPolicy;
+		return this;
+	}
+	
+	/**
+	 * Sets how long a connection attempt can take, from opening the WebSocket until OBS has identified the controller. Applies to
+	 * {@link #connect(String, String) connect()}, {@link #connectAsync(String, String) connectAsync()} and every reconnect attempt. Defaults to 5
+	 * seconds.
+	 * 
+	 * @param timeout max time to connect, or 0 or less to wait forever
+	 * @param unit    unit of the timeout
+	 * @return this, for chaining
+	 */
+	public OBSController useHandshakeTimeout(long timeout, TimeUnit unit)
+	{
+		this.handshakeTimeout = unit.toMillis(timeout);
+		return this;
+	}
+	
+	/**
+	 * Limits how much outgoing data can pile up while waiting to be written. Defaults to 8 MiB with {@link BackpressurePolicy#BLOCK}.
+	 * <p>
+	 * Messages from all threads go through one queue and are written by a single writer. Data counts against the limit from when a request is sent until it's written to the WebSocket.
+	 * </p>
+	 * <p>
+	 * {@link RequestPriority#REALTIME} requests, control messages and requests sent from an inline listener (on the thread reading from the
+	 * WebSocket) are always let through, so they never wait or get rejected.
+	 * </p>
+	 * 
+	 * @param maxPendingBytes max bytes queued or being written
+	 * @param policy          what to do with new requests when the limit is reached
+	 * @return this, for chaining
+	 */
+	public OBSController useBackpressure(long maxPendingBytes, BackpressurePolicy policy)
+	{
+		outbound.setLimit(maxPendingBytes, policy);
+		return this;
+	}
+	
+	/**
+	 * Sets the executor that runs request callbacks and event listeners, so the thread reading from the WebSocket only decodes messages and hands
+	 * them off. Defaults to a new virtual thread per task.
+	 * <p>
+	 * Callbacks of one request chain never run at the same time and fire in the order their responses arrived. A chain starts with a request sent
+	 * from outside any callback, and every request sent from inside one of its callbacks joins it. Separate chains run in parallel.
+	 * </p>
+	 * <p>
+	 * Use <code>Runnable::run</code> to run everything on the reading thread instead.
+	 * </p>
+	 * 
+	 * @param callbackExecutor the executor
+	 * @return this, for chaining
+	 */
+	public OBSController useCallbackExecutor(Executor callbackExecutor)
+	{
+		this.callbackExecutor = Objects.requireNonNull(callbackExecutor, "callbackExecutor");
+		return this;
+	}
+	
+	// Looks up the executor on every task, so lanes made earlier pick up a new one
+	private void executeCallback(Runnable task)
+	{
+		callbackExecutor.execute(task);
+	}
+	
+	/**
+	 * @return a lane for the callbacks of a request, the current one if called from inside a callback
+	 */
+	private Executor laneOf()
+	{
+		Executor lane = CallbackContext.getLane();
+		return lane != null ? lane : new SerialExecutor(this::executeCallback);
+	}
+	
+	/**
+	 * @return number of messages waiting to be written to the WebSocket
+	 */
+	public int getOutboundQueueDepth()
+	{
+		return outbound.getDepth();
+	}
+	
+	/**
+	 * @return bytes waiting to be written to the WebSocket, or being written
+	 */
+	public long getOutboundPendingBytes()
+	{
+		return outbound.getPendingBytes();
+	}
+	
+	/**
+	 * Limits how fast requests of one priority are sent, with a token bucket. Requests over the limit wait their turn instead of failing. No
+	 * priority is limited by default.
+	 * <p>
+	 * Each priority has its own limit, so a priority that's used up its budget doesn't hold up the others.
+	 * </p>
+	 * 
+	 * @param priority          the priority
+	 * @param requestsPerSecond requests sent per second on average, or 0 to remove the limit
+	 * @param burst             requests that can be sent back to back after a quiet period
+	 * @return this, for chaining
+	 * @see OBSRequestBuilder#priority(RequestPriority)
+	 */
+	public OBSController useRateLimit(RequestPriority priority, double requestsPerSecond, int burst)
+	{
+		scheduler.setRateLimit(priority, requestsPerSecond, burst);
+		return this;
+	}
+	
+	/**
+	 * Limits how many requests can be waiting for an answer from OBS at once. Requests over the limit wait their turn, higher priorities first.
+	 * {@link RequestPriority#REALTIME} requests skip the limit, but still count toward it. There's no limit by default.
+	 * <p>
+	 * Batches aren't limited.
+	 * </p>
+	 * 
+	 * @param maxInFlight max requests waiting for an answer, or 0 for no limit
+	 * @return this, for chaining
+	 */
+	public OBSController useMaxInFlight(int maxInFlight)
+	{
+		scheduler.setMaxInFlight(maxInFlight);
+		return this;
+	}
+	
+	/**
+	 * Sends identical idempotent requests (see {@link OBSRequest#isIdempotent()}) only once if they're sent while one is still waiting for an
+	 * answer. Every caller still gets its own request object and callbacks, filled in from the shared response. Off by default.
+	 * <p>
+	 * Requests are identical if they have the same type, parameters and priority. Sending any request that isn't idempotent stops later reads from
+	 * sharing an answer with reads sent before it, so a read never misses a change made before it was sent. Changes made in OBS itself are a different
+	 * story: a read sent after an event can share the answer of a read sent before it, and see the state from before the event.
+	 * </p>
+	 * 
+	 * @param coalesceReads true to share answers between identical reads, false to send every request
+	 * @return this, for chaining
+	 */
+	public OBSController useReadCoalescing(boolean coalesceReads)
+	{
+		this.coalesceReads = coalesceReads;
+		return this;
+	}
+	
+	/**
+	 * Gets how long requests of one priority waited on the rate and in-flight limits before being sent.
+	 * 
+	 * @param priority the priority
+	 * @return wait times so far
+	 */
+	public PriorityStats getPriorityStats(RequestPriority priority)
+	{
+		return scheduler.getStats(priority);
+	}
+	
+	/**
+	 * Gets what the controller has done since it was created (or since {@link #resetMetrics()}): round trips by request type, callback run times,
+	 * messages and bytes in and out, events by type, and how many requests are waiting right now.
+	 * <p>
+	 * Recording is a few atomic adds per message, so metrics are always on unless turned off with {@link #useMetrics(boolean)}. Taking a snapshot
+	 * copies every histogram, so don't call this for every request.
+	 * </p>
+	 * 
+	 * @return snapshot of the metrics
+	 */
+	public MetricsSnapshot getMetrics()
+	{
+		return metrics.snapshot(callbacks.size() + batches.size(), scheduler.getQueued(), outbound.getDepth(), outbound.getPendingBytes());
+	}
+	
+	/**
+	 * Starts every counter and histogram over from zero, for example at the start of a show.
+	 */
+	public void resetMetrics()
+	{
+		metrics.reset();
+	}
+	
+	/**
+	 * Turns metrics on or off. On by default.
+	 * 
+	 * @param enabled false to stop recording metrics. What was recorded so far is kept
+	 * @return this, for chaining
+	 */
+	public OBSController useMetrics(boolean enabled)
+	{
+		metrics.enabled = enabled;
+		return this;
+	}
+	
+	/**
+	 * Makes this controller's metrics readable through JMX, as <code>io.github.freshsupasulley.lwjobs:type=OBSController,name=&lt;name&gt;</code>.
+	 * Replaces any registration this controller already had.
+	 * 
+	 * @param name name to tell this controller apart from others in the same JVM
+	 * @return this, for chaining
+	 * @throws IllegalStateException if the name is taken or JMX refused the bean
+	 * @see OBSControllerMXBean
+	 */
+	public synchronized OBSController registerMBean(String name)
+	{
+		unregisterMBean();
+		
+		try {
+			ObjectName objectName = new ObjectName("io.github.freshsupasulley.lwjobs:type=OBSController,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(new ControllerMBean(this), OBSControllerMXBean.class, true), objectName);
+			mbeanName = objectName;
+		} catch(JMException e) {
+			throw new IllegalStateException("Failed to register MBean " + name, e);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Removes this controller from JMX, if it was registered.
+	 */
+	public synchronized void unregisterMBean()
+	{
+		if(mbeanName == null)
+		{
+			return;
+		}
+		
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+		} catch(JMException e) {
+			LOG.debug("Failed to unregister MBean " + mbeanName, e);
+		}
+		
+		mbeanName = null;
+	}
+	
+	/**
+	 * Talks to OBS in MessagePack instead of JSON, using the <code>obswebsocket.msgpack</code> subprotocol. Must be set before connecting.
+	 * <p>
+	 * MessagePack messages are smaller and cheaper to parse than JSON, which adds up with lots of events. Requests and events are parsed the same way regardless.
+	 * </p>
+	 * 
+	 * @param messagePack true to use MessagePack, false to use JSON (default)
+	 * @return this, for chaining
+	 */
+	public OBSController useMessagePack(boolean messagePack)
+	{
+		this.messagePack = messagePack;
+		return this;
+	}
+	
+	/**
+	 * Registers a callback to be fired when an OBS event is received. Any number of callbacks can be registered for the same event.
+	 * <p>
+	 * OBS is only asked to send the categories of events that are registered (see {@link OBSEvent#getEventSubscription()}). If already connected, the subscriptions are updated right away.
+	 * </p>
+	 * <p>
+	 * Each occurrence is delivered in a new instance of the event's class, made with its no-argument constructor, one at a time on the callback
+	 * executor ({@link EventDelivery#ORDERED}). Events without one (like anonymous classes) reuse the given instance instead, so they're delivered
+	 * {@link EventDelivery#INLINE}. Use {@link #addListener(Supplier, EventDelivery, Predicate, Consumer)} for more control.
+	 * </p>
+	 * 
+	 * @param <T>      subclass of {@link OBSEvent}
+	 * @param event    the event
+	 * @param consumer consumer to be fired when event is received
+	 * @return this, for chaining
+	 */
+	public <T extends OBSEvent> OBSController registerEvent(T event, Consumer<T> consumer)
+	{
+		return registerEvent(event, null, consumer);
+	}
+	
+	/**
+	 * Registers a callback to be fired when an OBS event is received and its raw fields pass a filter.
+	 * <p>
+	 * The filter is checked against the raw message before anything is parsed, so filtered out events cost next to nothing. This is useful for
+	 * high-rate events where only a few occurrences matter, like one scene's items.
+	 * </p>
+	 * 
+	 * <pre>
+	 * controller.registerEvent(new RecordStateChangedEvent(), fields -&gt; "OBS_WEBSOCKET_OUTPUT_STOPPED".equals(fields.getString("outputState")), event -&gt; {...});
+	 * </pre>
+	 * 
+	 * @param <T>      subclass of {@link OBSEvent}
+	 * @param event    the event
+	 * @param filter   possibly null filter on the top-level scalar fields of eventData
+	 * @param consumer consumer to be fired when an event passes the filter
+	 * @return this, for chaining
+	 */
+	public <T extends OBSEvent> OBSController registerEvent(T event, Predicate<EventFields> filter, Consumer<T> consumer)
+	{
+		Supplier<T> factory = factoryOf(event);
+		
+		// A shared instance can't be handed to another thread while the next occurrence is written into it
+		if(factory == null)
+		{
+			addListener(() -> event, EventDelivery.INLINE, filter, consumer);
+		}
+		else
+		{
+			addListener(factory, EventDelivery.ORDERED, filter, consumer);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Adds a listener of an OBS event, and returns a handle that removes it again.
+	 * <p>
+	 * The factory is called for every occurrence, so each delivery gets its own event object. The delivery decides which thread the consumer runs on.
+	 * </p>
+	 * 
+	 * <pre>
+	 * EventRegistration registration = controller.addListener(CurrentProgramSceneChangedEvent::new, EventDelivery.ORDERED, null, event -&gt; {...});
+	 * registration.unregister();
+	 * </pre>
+	 * 
+	 * @param <T>      subclass of {@link OBSEvent}
+	 * @param factory  creates the event, usually its constructor
+	 * @param delivery which thread the consumer runs on
+	 * @param filter   possibly null filter on the top-level scalar fields of eventData
+	 * @param consumer consumer to be fired when an event passes the filter
+	 * @return handle that removes the listener
+	 */
+	public <T extends OBSEvent> EventRegistration addListener(Supplier<T> factory, EventDelivery delivery, Predicate<EventFields> filter, Consumer<T> consumer)
+	{
+		return addListener(createListener(factory, delivery, filter, consumer));
+	}
+	
+	/**
+	 * Adds a listener the library needs for itself, like the invalidation of cached scene item IDs. Unlike the listeners users add, it isn't removed by
+	 * {@link #unregisterEvent(String)}, only by its handle.
+	 * 
+	 * @param <T>      subclass of {@link OBSEvent}
+	 * @param factory  creates the event, usually its constructor
+	 * @param delivery which thread the consumer runs on
+	 * @param filter   possibly null filter on the top-level scalar fields of eventData
+	 * @param consumer consumer to be fired when an event passes the filter
+	 * @return handle that removes the listener
+	 */
+	<T extends OBSEvent> EventRegistration addInternalListener(Supplier<T> factory, EventDelivery delivery, Predicate<EventFields> filter, Consumer<T> consumer)
+	{
+		OBSEventCallback<T> callback = createListener(factory, delivery, filter, consumer);
+		
+		// Marked before it's reachable, so an unregisterEvent running at the same time can't take it
+		internalListeners.add(callback);
+		return addListener(callback);
+	}
+	
+	private <T extends OBSEvent> OBSEventCallback<T> createListener(Supplier<T> factory, EventDelivery delivery, Predicate<EventFields> filter, Consumer<T> consumer)
+	{
+		Executor executor;
+		
+		switch(delivery)
+		{
+			case ORDERED:
+			{
+				executor = new SerialExecutor(this::executeCallback);
+				break;
+			}
+			case VIRTUAL_THREAD:
+			{
+				executor = this::executeCallback;
+				break;
+			}
+			default:
+			{
+				executor = null;
+				break;
+			}
+		}
+		
+		// Timed here, since the callback doesn't know about the controller
+		Consumer<T> timed = event -> {
+			long start = System.nanoTime();
+			
+			try {
+				consumer.accept(event);
+			} finally {
+				metrics.callback(System.nanoTime() - start);
+			}
+		};
+		
+		return new OBSEventCallback<T>(factory, filter, timed, executor);
+	}
+	
+	/**
+	 * Adds a listener of an OBS event that gets its events one at a time on the callback executor.
+	 * 
+	 * @param <T>      subclass of {@link OBSEvent}
+	 * @param factory  creates the event, usually its constructor
+	 * @param consumer consumer to be fired when an event is received
+	 * @return handle that removes the listener
+	 * @see #addListener(Supplier, EventDelivery, Predicate, Consumer)
+	 */
+	public <T extends OBSEvent> EventRegistration addListener(Supplier<T> factory, Consumer<T> consumer)
+	{
+		return addListener(factory, EventDelivery.ORDERED, null, consumer);
+	}
+	
+	private EventRegistration addListener(OBSEventCallback<?> callback)
+	{
+		// Listeners are kept in arrays that are replaced on every change, so delivering events never has to lock or copy
+		events.merge(callback.getEventType(), new OBSEventCallback<?>[] {callback}, (current, added) -> {
+			OBSEventCallback<?>[] listeners = Arrays.copyOf(current, current.length + 1);
+			listeners[current.length] = callback;
+			return listeners;
+		});
+		
+		updateEventSubscriptions();
+		return () -> removeListener(callback);
+	}
+	
+	private void removeListener(OBSEventCallback<?> callback)
+	{
+		boolean[] removed = new boolean[1];
+		
+		events.computeIfPresent(callback.getEventType(), (eventType, current) -> {
+			for(int i = 0; i < current.length; i++)
+			{
+				if(current[i] == callback)
+				{
+					removed[0] = true;
+					
+					OBSEventCallback<?>[] listeners = new OBSEventCallback<?>[current.length - 1];
+					System.arraycopy(current, 0, listeners, 0, i);
+					System.arraycopy(current, i + 1, listeners, i, current.length - i - 1);
+					return listeners.length == 0 ? null : listeners;
+				}
+			}
+			
+			return current;
+		});
+		
+		internalListeners.remove(callback);
+		
+		if(removed[0])
+		{
+			updateEventSubscriptions();
+		}
+	}
+	
+	/**
+	 * Makes a factory that creates new instances of an event's class.
+	 * 
+	 * @param <T>   subclass of {@link OBSEvent}
+	 * @param event the event
+	 * @return factory of events, or null if the class can't be instantiated
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends OBSEvent> Supplier<T> factoryOf(T event)
+	{
+		try {
+			Constructor<T> constructor = (Constructor<T>) event.getClass().getDeclaredConstructor();
+			constructor.setAccessible(true);
+			
+			return () -> {
+				try {
+					return constructor.newInstance();
+				} catch(ReflectiveOperationException e) {
+					throw new IllegalStateException("Failed to create " + event.getClass().getName(), e);
+				}
+			};
+		} catch(NoSuchMethodException | RuntimeException e) {
+			LOG.debug(event.getClass().getName() + " has no usable no-argument constructor, reusing the registered instance for every occurrence");
+			return null;
+		}
+	}
+	
+	/**
+	 * Removes every callback registered for an event type. If no other registered event needs its category, OBS stops sending it.
+	 * <p>
+	 * Listeners the library keeps for itself (like those of {@link OBSStateCache}) stay registered.
+	 * </p>
+	 * 
+	 * @param eventType type of the event (ex. "CurrentProgramSceneChanged")
+	 * @return this, for chaining
+	 */
+	public OBSController unregisterEvent(String eventType)
+	{
+		boolean[] removed = new boolean[1];
+		
+		events.computeIfPresent(eventType, (type, current) -> {
+			OBSEventCallback<?>[] listeners = Arrays.stream(current).filter(internalListeners::contains).toArray(OBSEventCallback<?>[]::new);
+			removed[0] = listeners.length != current.length;
+			return listeners.length == 0 ? null : listeners;
+		});
+		
+		if(removed[0])
+		{
+			updateEventSubscriptions();
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Removes every callback registered for an event. If no other registered event needs its category, OBS stops sending it.
+	 * 
+	 * @param event the event
+	 * @return this, for chaining
+	 */
+	public OBSController unregisterEvent(OBSEvent event)
+	{
+		return unregisterEvent(event.getEventType());
+	}
+	
+	/**
+	 * @return bitmask of the event categories the registered events need
+	 */
+	private int computeEventSubscriptions()
+	{
+		int mask = 0;
+		
+		for(OBSEventCallback<?>[] listeners : events.values())
+		{
+			for(OBSEventCallback<?> callback : listeners)
+			{
+				mask |= callback.getEventSubscription().getMask();
+			}
+		}
+		
+		return mask;
+	}
+	
+	/**
+	 * Sends a Reidentify to OBS if the registered events need a different set of categories than what was last requested.
+	 */
+	private void updateEventSubscriptions()
+	{
+		int mask;
+		
+		synchronized(this)
+		{
+			mask = computeEventSubscriptions();
+			
+			// Identify will pick up the new subscriptions if we aren't connected yet
+			if(mask == eventSubscriptions || !identified)
+			{
+				eventSubscriptions = mask;
+				return;
+			}
+			
+			eventSubscriptions = mask;
+		}
+		
+		LOG.debug("Updating event subscriptions to " + mask);
+		
+		// Reidentify
+		JsonObject json = new JsonObject();
+		json.addProperty("op", 3);
+		
+		JsonObject d = new JsonObject();
+		d.addProperty("eventSubscriptions", mask);
+		json.add("d", d);
+		
+		// Control messages skip the queue and the byte limit, or the subscriptions could silently never change
+		send(json, true, null);
+	}
+	
+	/**
+	 * Attempts to connect to the OBS WebSocket. Holds the thread until complete.
+	 * <p>
+	 * If successful, you can start sending requests to OBS. Throws an error if unsuccessful.
+	 * </p>
+	 * 
+	 * @param address URI address (ex. ws://localhost:4444)
+	 * @param password password for authentication, if required
+	 * @return this, for chaining
+	 * @throws WebSocketException if an error occurred connecting
+	 * @see #connectAsync(String, String)
+	 */
+	public OBSController connect(String address, String password) throws WebSocketException
+	{
+		try {
+			return open(address, password).join();
+		} catch(CompletionException e) {
+			throw (WebSocketException) e.getCause();
+		}
+	}
+	
+	/**
+	 * Attempts to connect to the OBS WebSocket without holding the thread. Many controllers can connect at once this way, each one ready as soon as
+	 * OBS identifies it.
+	 * <p>
+	 * The future is completed on a callback thread, never the thread reading from the WebSocket. It fails with a {@link WebSocketException} if the
+	 * connection couldn't be opened, OBS refused the password or the handshake took longer than the {@link #useHandshakeTimeout(long, TimeUnit)
+	 * handshake timeout}.
+	 * </p>
+	 * 
+	 * <pre>
+	 * controller.connectAsync("ws://localhost:4444", "your_password").thenAccept(connected -&gt; {
+	 * 	connected.build(new GetVersionRequest()).queue();
+	 * });
+	 * </pre>
+	 * 
+	 * @param address URI address (ex. ws://localhost:4444)
+	 * @param password password for authentication, if required
+	 * @return future completed with this controller once identified
+	 */
+	public CompletableFuture<OBSController> connectAsync(String address, String password)
+	{
+		CompletableFuture<OBSController> connected = new CompletableFuture<OBSController>();
+		
+		// Whatever the caller chains onto this shouldn't run on the thread reading from the WebSocket
+		open(address, password).whenComplete((controller, t) -> executeCallback(() -> {
+			if(t == null)
+			{
+				connected.complete(controller);
+			}
+			else
+			{
+				connected.completeExceptionally(t);
+			}
+		}));
+		
+		return connected;
+	}
+	
+	/**
+	 * Attempts to connect to the OBS WebSocket without a password, without holding the thread.
+	 * 
+	 * @param address URI address (ex. ws://localhost:4444)
+	 * @return future completed with this controller once identified
+	 * @see #connectAsync(String, String)
+	 */
+	public CompletableFuture<OBSController> connectAsync(String address)
+	{
+		LOG.debug("No password provided");
+		return connectAsync(address, null);
+	}
+	
+	/**
+	 * Starts connecting to the OBS WebSocket.
+	 * 
+	 * @param address URI address
+	 * @param password password for authentication, if required
+	 * @return future completed with this controller once identified, on whatever thread finished the handshake
+	 */
+	private CompletableFuture<OBSController> open(String address, String password)
+	{
+		LOG.info("Attempting to connect to " + address);
+		this.password = password;
+		this.authSalt = null;
+		this.closing = false;
+		
+		CompletableFuture<OBSController> connected = new CompletableFuture<OBSController>();
+		CompletableFuture<Void> handshake;
+		
+		try {
+			this.address = new URI(address);
+			handshake = handshake();
+		} catch(Exception e) {
+			handshake = CompletableFuture.failedFuture(e);
+		}
+		
+		handshake.whenComplete((result, t) -> {
+			if(t == null)
+			{
+				connected.complete(this);
+				return;
+			}
+			
+			LOG.error("Failed to connect to " + address);
+			LOG.debug("Full connection error stacktrace", t);
+			
+			// Reconstructing the error as one class type for convenience
+			// I don't like the potentially endless strings of Caused by...
+			Throwable cause = getTrueCause(t);
+			WebSocketException exception = new WebSocketException(cause.getMessage());
+			exception.setStackTrace(cause.getStackTrace());
+			connected.completeExceptionally(exception);
+		});
+		
+		return connected;
+	}
+	
+	/**
+	 * Opens a new WebSocket connection. The handshake continues in {@link #onText(CharSequence)} and completes {@link #onConnect}.
+	 * 
+	 * @return future completed once identified, or completed exceptionally if the connection failed or the handshake timed out
+	 */
+	private CompletableFuture<Void> handshake()
+	{
+		CompletableFuture<Void> handshake = new CompletableFuture<Void>();
+		onConnect = handshake;
+		long timeout = handshakeTimeout;
+		
+		if(timeout > 0)
+		{
+			ScheduledFuture<?> timer = executor.schedule(() -> handshake.completeExceptionally(new TimeoutException("OBS didn't finish the handshake within " + timeout + "ms")), timeout, TimeUnit.MILLISECONDS);
+			handshake.whenComplete((result, t) -> timer.cancel(false));
+		}
+		
+		try {
+			transport.connect(address, messagePack ? MessagePackCodec.SUBPROTOCOL : "obswebsocket.json", this).whenComplete((result, t) -> {
+				if(t != null)
+				{
+					handshake.completeExceptionally(t);
+				}
+			});
+		} catch(Throwable t) {
+			handshake.completeExceptionally(t);
+		}
+		
+		return handshake.whenComplete((result, t) -> {
+			// Don't leave a half-open connection behind if the handshake failed or timed out
+			if(t != null && transport.isOpen())
+			{
+				transport.close();
+			}
+		});
+	}
+	
+	private void scheduleReconnect(int attempt)
+	{
+		long delay = reconnectPolicy.getDelay(attempt);
+		LOG.info("Reconnecting to " + address + " in " + delay + "ms (attempt " + attempt + ")");
+		executor.schedule(() -> reconnect(attempt), delay, TimeUnit.MILLISECONDS);
+	}
+	
+	private void reconnect(int attempt)
+	{
+		if(closing)
+		{
+			return;
+		}
+		
+		// Doesn't hold up the timer while connecting
+		handshake().whenComplete((result, t) -> {
+			if(t == null || closing)
+			{
+				return;
+			}
+			
+			LOG.debug("Reconnect attempt " + attempt + " failed", t);
+			
+			if(attempt >= reconnectPolicy.getMaxAttempts())
+			{
+				LOG.error("Giving up reconnecting to " + address + " after " + attempt + " attempts");
+				reconnecting = false;
+				failHeld("Gave up reconnecting to OBS");
+				return;
+			}
+			
+			scheduleReconnect(attempt + 1);
+		});
+	}
+	
+	private Throwable getTrueCause(Throwable t)
+	{
+		Throwable cause = t.getCause();
+		if(cause == null) return t;
+		return getTrueCause(cause);
+	}
+	
+	/**
+	 * Attempts to connect to the OBS WebSocket without a password. Holds the thread until complete.
+	 * <p>
+	 * If successful, you can start sending requests to OBS. Throws an error if unsuccessful.
+	 * </p>
+	 * 
+	 * @param address URI address (ex. ws://localhost:4444)
+	 * @return this, for chaining
+	 * @throws WebSocketException if an error occurred connecting
+	 */
+	public OBSController connect(String address) throws WebSocketException
+	{
+		LOG.debug("No password provided");
+		return connect(address, null);
+	}
+	
+	/**
+	 * Disconnects from the WebSocket.
+	 */
+	public void disconnect()
+	{
+		LOG.debug("Disconnect command received");
+		closing = true;
+		reconnecting = false;
+		failHeld("Disconnected from OBS");
+		
+		transport.shutdown();
+	}
+	
+	/**
+	 * Builds an OBS request. <b>This does <u>NOT</u> fire the request.</b>
+	 * 
+	 * <p><b>Example:</b></p>
+	 * 
+	 * <pre>
+	 * controller.build(new GetVersionRequest()).queue((response) -> {
+	 * 	System.out.println(response.getOBSVersion());
+	 * }, (failure) -> {
+	 * 	System.err.println("Failed to get OBS version");
+	 * });
+	 * </pre>
+	 * 
+	 * Adding a success callback allows you to access information returned from the WebSocket.
+	 * However, some requests don't receive information at all (such as {@link EmptyGetResponse} objects), meaning there's no purpose for a success callback other than confirming the request was successful.
+	 * 
+	 * <p><b>Example without callbacks:</b></p>
+	 * 
+	 * <pre>
+	 * controller.build(new SetCurrentProgramScene("newscene")).queue();
+	 * </pre>
+	 * 
+	 * <p>Furthermore, some OBS requests send nothing and receive nothing in return. This library handles these as {@link EmptyRequest EmptyRequests}. These requests include "StartStream", "ToggleStream", "SaveReplayBuffer", etc.
+	 * Instead of creating classes for each empty request, you can instantiate EmptyRequest and supply it directly as an argument to the build function.</p>
+	 * 
+	 * <p><b>Empty Request Example:</b></p>
+	 * <pre>
+	 * controller.build(new EmptyRequest("StartRecord")).queue();
+	 * </pre>
+	 * 
+	 * <p><b>IMPORTANT:</b> Always finish building with {@link OBSRequestBuilder#queue() queue()} or {@link OBSRequestBuilder#complete() complete()}, or the request won't be sent!</p>
+	 * 
+	 * @param <T>     {@link OBSRequest} subclass
+	 * @param request a newly created OBSRequest subclass
+	 * @return {@link OBSRequestBuilder} object
+	 */
+	public <T extends OBSRequest> OBSRequestBuilder<T> build(T request)
+	{
+		LOG.trace("Building new request: {}", request);
+		
+		if(!isConnectedOrReconnecting())
+		{
+			throw new IllegalStateException("Connect to OBS before building requests");
+		}
+		
+		return new OBSRequestBuilder<T>(this, request);
+	}
+	
+	/**
+	 * Prepares a request that's sent many times with different values. The request is serialized once, and each send only fills in the request ID and
+	 * the named parameters. Doesn't need to be connected yet.
+	 * <p>
+	 * The factory is called once to build the template, then once per send for an object to hold the response. Requests without a response can
+	 * return the same object every time.
+	 * </p>
+	 * 
+	 * <pre>
+	 * PreparedRequest&lt;SetSceneItemEnabled&gt; toggle = controller.prepare(() -&gt; new SetSceneItemEnabled("Gameplay", 7, true), "sceneItemEnabled");
+	 * toggle.queue(false);
+	 * </pre>
+	 * 
+	 * @param <T>        subclass of {@link OBSRequest}
+	 * @param factory    creates the request
+	 * @param parameters names of the fields in requestData that change between sends
+	 * @return {@link PreparedRequest} object
+	 * @throws IllegalArgumentException if the request doesn't have one of the parameters, or names its scene item by source
+	 */
+	public <T extends OBSRequest> PreparedRequest<T> prepare(Supplier<T> factory, String... parameters)
+	{
+		return new PreparedRequest<T>(this, factory, parameters);
+	}
+	
+	/**
+	 * Starts building a request batch. All requests added to the batch are sent in one message (RequestBatch) and answered in one response.
+	 * 
+	 * <p><b>Example:</b></p>
+	 * 
+	 * <pre>
+	 * controller.batch()
+	 * 	.add(new SetSceneItemEnabled("gameplay", 1, true))
+	 * 	.add(new SetCurrentProgramScene("gameplay"))
+	 * 	.queue();
+	 * </pre>
+	 * 
+	 * @return {@link OBSBatchBuilder} object
+	 */
+	public OBSBatchBuilder batch()
+	{
+		LOG.trace("Building new request batch");
+		
+		if(!isConnectedOrReconnecting())
+		{
+			throw new IllegalStateException("Connect to OBS before building requests");
+		}
+		
+		return new OBSBatchBuilder(this);
+	}
+	
+	/**
+	 * @return true if the handshake with OBS is done and requests are sent right away
+	 */
+	public boolean isIdentified()
+	{
+		return identified;
+	}
+	
+	/**
+	 * @return true while waiting to reconnect after the connection was lost
+	 */
+	boolean isReconnecting()
+	{
+		return reconnecting;
+	}
+	
+	void addConnectionListener(ConnectionListener listener)
+	{
+		connectionListeners.add(listener);
+	}
+	
+	void removeConnectionListener(ConnectionListener listener)
+	{
+		connectionListeners.remove(listener);
+	}
+	
+	private boolean isConnectedOrReconnecting()
+	{
+		return onConnect != null && (onConnect.isDone() || reconnecting);
+	}
+	
+	protected <T extends OBSRequest> OBSBuiltRequest<T> sendRequest(OBSBuiltRequest<T> type)
+	{
+		// Scene items named by source need their ID first, which is usually already known
+		CompletableFuture<Void> resolved = resolveSceneItems(Collections.singletonList(type), type.priority);
+		
+		if(resolved != null)
+		{
+			// The callbacks still belong to the caller's chain, even though the request is sent from the lookup's
+			type.controller = this;
+			type.lane = laneOf();
+			
+			resolved.whenComplete((result, t) -> {
+				// Cancelled while looking it up
+				if(type.isDone())
+				{
+					return;
+				}
+				
+				if(t != null)
+				{
+					type.fireFailure(0, sceneItemNotFound(t), null);
+				}
+				else
+				{
+					sendRequest(type);
+				}
+			});
+			
+			return type;
+		}
+		
+		if(type.request.isIdempotent())
+		{
+			// Prepared requests keep their parameters outside the request, so they can't be compared
+			if(coalesceReads && !(type instanceof PreparedRequest.Send))
+			{
+				return coalesce(type);
+			}
+		}
+		// Reads sent after this have to see what it changed
+		else if(!reads.isEmpty())
+		{
+			reads.clear();
+		}
+		
+		return dispatch(type);
+	}
+	
+	/**
+	 * Rides a read along with an identical one that's waiting for an answer, or sends it as the start of a new shared request.
+	 * 
+	 * @param <T>  type of the request
+	 * @param type the request
+	 * @return the request
+	 */
+	private <T extends OBSRequest> OBSBuiltRequest<T> coalesce(OBSBuiltRequest<T> type)
+	{
+		type.controller = this;
+		
+		if(type.lane == null)
+		{
+			type.lane = laneOf();
+		}
+		
+		// Each caller still times out on its own
+		if(type.timeout > 0)
+		{
+			type.deadline = deadlines.schedule(type, type.timeout, TimeUnit.MILLISECONDS);
+		}
+		
+		// Serialized once, both to compare with other reads and to send
+		JsonObject requestData = new JsonObject();
+		type.request.applyJSON(requestData);
+		String serialized = requestData.toString();
+		String key = type.priority.ordinal() + type.request.getRequestType() + serialized;
+		
+		while(true)
+		{
+			CoalescedRequest shared = reads.get(key);
+			
+			if(shared == null)
+			{
+				shared = new CoalescedRequest(this, key, type, requestData, serialized);
+				
+				if(reads.putIfAbsent(key, shared) == null)
+				{
+					dispatch(shared);
+					return type;
+				}
+			}
+			else if(shared.attach(type))
+			{
+				return type;
+			}
+			// Answered in the meantime
+			else
+			{
+				reads.remove(key, shared);
+			}
+		}
+	}
+	
+	/**
+	 * Fills in the IDs of scene items that requests name by source, from the cache where possible.
+	 * 
+	 * @param requests requests that may name scene items
+	 * @param priority priority of any lookups
+	 * @return null if every ID was filled in right away, otherwise a future that completes once the rest are looked up
+	 */
+	private CompletableFuture<Void> resolveSceneItems(List<? extends OBSBuiltRequest<?>> requests, RequestPriority priority)
+	{
+		List<CompletableFuture<Void>> lookups = null;
+		
+		for(OBSBuiltRequest<?> request : requests)
+		{
+			if(!(request.request instanceof SceneItemNameRequest))
+			{
+				continue;
+			}
+			
+			// Looked up on every send, since the ID a reused request was last sent with may be gone by now
+			SceneItemNameRequest named = (SceneItemNameRequest) request.request;
+			Integer id = sceneItemIds.getNow(named);
+			
+			if(id != null)
+			{
+				named.resolve(id);
+				continue;
+			}
+			
+			if(lookups == null)
+			{
+				lookups = new ArrayList<CompletableFuture<Void>>();
+			}
+			
+			lookups.add(sceneItemIds.resolve(named, priority).thenAccept(named::resolve));
+		}
+		
+		return lookups == null ? null : CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0]));
+	}
+	
+	private static String sceneItemNotFound(Throwable t)
+	{
+		Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+		return "Failed to find scene item: " + (cause instanceof FailedRequestException ? ((FailedRequestException) cause).getComment() : cause.getMessage());
+	}
+	
+	/**
+	 * Forgets the cached ID of a request's scene item, after OBS said it doesn't exist.
+	 * 
+	 * @param request the request
+	 */
+	void onSceneItemNotFound(SceneItemNameRequest request)
+	{
+		sceneItemIds.invalidate(request);
+	}
+	
+	/**
+	 * Stops later reads from riding along with a shared request, once it's answered.
+	 * 
+	 * @param shared the shared request
+	 */
+	void endCoalescing(CoalescedRequest shared)
+	{
+		reads.remove(shared.getKey(), shared);
+	}
+	
+	private <T extends OBSRequest> OBSBuiltRequest<T> dispatch(OBSBuiltRequest<T> type)
+	{
+		long requestID = nextRequestID.incrementAndGet();
+		type.controller = this;
+		type.requestID = requestID;
+		
+		if(type.lane == null)
+		{
+			type.lane = laneOf();
+		}
+		
+		if(type.timeout > 0)
+		{
+			type.deadline = deadlines.schedule(type, type.timeout, TimeUnit.MILLISECONDS);
+		}
+		
+		callbacks.put(requestID, type);
+		
+		// Checked after adding it, so if the connection is lost in between, onConnectionLost is guaranteed to see the request
+		if(!identified)
+		{
+			// If it's already gone, onConnectionLost took care of it
+			if(callbacks.remove(requestID) != null)
+			{
+				holdOrFail(type, requestID);
+			}
+			
+			return type;
+		}
+		
+		scheduler.submit(type);
+		return type;
+	}
+	
+	/**
+	 * Removes a request from everything that's waiting on OBS, so it's never completed by a response.
+	 * 
+	 * @param type the request
+	 * @return true if it was removed, false if it had already been answered or failed
+	 */
+	boolean forget(OBSBuiltRequest<?> type)
+	{
+		if(type.carrier != null)
+		{
+			return type.carrier.detach(type);
+		}
+		
+		release(type);
+		
+		if(callbacks.remove(type.requestID) != null)
+		{
+			return true;
+		}
+		
+		synchronized(this)
+		{
+			return held.remove(type.requestID) != null;
+		}
+	}
+	
+	/**
+	 * Lets another request take this one's place under the in-flight limit.
+	 * 
+	 * @param type a request that was answered, failed or given up on
+	 */
+	void release(OBSBuiltRequest<?> type)
+	{
+		scheduler.release(type);
+	}
+	
+	/**
+	 * Removes a batch from everything that's waiting on OBS, so it's never completed by a response.
+	 * 
+	 * @param batch the batch
+	 * @return true if it was removed, false if it had already been answered or failed
+	 */
+	boolean forget(OBSBuiltBatch batch)
+	{
+		return batches.remove(batch.batchID) != null;
+	}
+	
+	/**
+	 * Fails a request or batch whose deadline passed before OBS answered.
+	 * 
+	 * @param expired an {@link OBSBuiltRequest} or {@link OBSBuiltBatch}
+	 */
+	private void onDeadline(Object expired)
+	{
+		if(expired instanceof OBSBuiltBatch)
+		{
+			OBSBuiltBatch batch = (OBSBuiltBatch) expired;
+			
+			if(forget(batch))
+			{
+				batch.fireFailure("Timed out after " + batch.timeout + "ms waiting for OBS", null);
+			}
+		}
+		else
+		{
+			OBSBuiltRequest<?> type = (OBSBuiltRequest<?>) expired;
+			
+			if(forget(type))
+			{
+				type.fireFailure(0, "Timed out after " + type.timeout + "ms waiting for OBS", null);
+			}
+		}
+	}
+	
+	/**
+	 * Deals with a request that was sent while not identified.
+	 * 
+	 * @param type      the request
+	 * @param requestID its ID
+	 */
+	private void holdOrFail(OBSBuiltRequest<?> type, long requestID)
+	{
+		boolean send;
+		
+		synchronized(this)
+		{
+			// Identified just now, so it can go out after all
+			if(identified)
+			{
+				callbacks.put(requestID, type);
+				send = true;
+			}
+			// Hold onto it until we're back
+			else if(reconnecting && type.inFlightPolicy == InFlightPolicy.RESEND)
+			{
+				LOG.debug("Holding " + type.request.getRequestType() + " until reconnected");
+				held.put(requestID, type);
+				return;
+			}
+			else
+			{
+				send = false;
+			}
+		}
+		
+		if(send)
+		{
+			scheduler.submit(type);
+		}
+		else
+		{
+			type.fireFailure(0, "Not connected to OBS", null);
+		}
+	}
+	
+	private void sendRequest(OBSBuiltRequest<?> type, long requestID)
+	{
+		Consumer<Throwable> onFailure = cause -> {
+			OBSBuiltRequest<?> failed = callbacks.remove(requestID);
+			
+			if(failed != null)
+			{
+				failed.fireFailure(0, "Failed to send request: " + cause.getMessage(), null);
+			}
+		};
+		
+		boolean urgent = type.priority == RequestPriority.REALTIME;
+		type.sentAt = System.nanoTime();
+		metrics.requestSent();
+		
+		// Prepared requests are already serialized, they only need the blanks filled in
+		if(type instanceof PreparedRequest.Send)
+		{
+			PreparedRequest.Send<?> send = (PreparedRequest.Send<?>) type;
+			send.prepared.offer(outbound, messagePack, urgent, encodeRequestID(requestID), send.values, onFailure);
+		}
+		// Shared reads serialized their data to compare it, so it's reused instead of built again
+		else if(type instanceof CoalescedRequest)
+		{
+			CoalescedRequest shared = (CoalescedRequest) type;
+			
+			if(messagePack)
+			{
+				send(createRequest(createRequestData(shared.request.getRequestType(), shared.getRequestData(), encodeRequestID(requestID))), urgent, onFailure);
+			}
+			else
+			{
+				String message = shared.writeText(encodeRequestID(requestID));
+				LOG.trace("OUTBOUND: {}", message);
+				outbound.offer(message, urgent, onFailure);
+			}
+		}
+		else
+		{
+			send(createRequest(createRequestData(type.request, encodeRequestID(requestID))), urgent, onFailure);
+		}
+	}
+	
+	private JsonObject createRequest(JsonObject requestData)
+	{
+		// Always use opCode 6 for requests
+		JsonObject json = new JsonObject();
+		json.addProperty("op", 6);
+		json.add("d", requestData);
+		return json;
+	}
+	
+	protected OBSBuiltBatch sendBatch(OBSBuiltBatch batch)
+	{
+		// Same as sendRequest, the whole batch waits for any scene items it names
+		CompletableFuture<Void> resolved = resolveSceneItems(batch.requests, RequestPriority.NORMAL);
+		
+		if(resolved != null)
+		{
+			batch.controller = this;
+			batch.lane = laneOf();
+			
+			resolved.whenComplete((result, t) -> {
+				if(batch.isDone())
+				{
+					return;
+				}
+				
+				if(t != null)
+				{
+					batch.fireFailure(sceneItemNotFound(t), null);
+				}
+				else
+				{
+					sendBatch(batch);
+				}
+			});
+			
+			return batch;
+		}
+		
+		// Batches can change things too
+		reads.clear();
+		
+		long batchID = nextRequestID.incrementAndGet();
+		JsonObject json = createBatch(batch, encodeRequestID(batchID));
+		batch.controller = this;
+		batch.batchID = batchID;
+		
+		if(batch.lane == null)
+		{
+			batch.lane = laneOf();
+		}
+		
+		for(OBSBuiltRequest<? extends OBSRequest> request : batch.requests)
+		{
+			request.lane = batch.lane;
+		}
+		
+		if(batch.timeout > 0)
+		{
+			batch.deadline = deadlines.schedule(batch, batch.timeout, TimeUnit.MILLISECONDS);
+		}
+		
+		batches.put(batchID, batch);
+		
+		// Same as sendRequest, if it's already gone then onConnectionLost failed it
+		if(!identified)
+		{
+			if(batches.remove(batchID) != null)
+			{
+				batch.fireFailure("Not connected to OBS", null);
+			}
+			
+			return batch;
+		}
+		
+		batch.sentAt = System.nanoTime();
+		metrics.requestSent();
+		
+		send(json, cause -> {
+			OBSBuiltBatch failed = batches.remove(batchID);
+			
+			if(failed != null)
+			{
+				failed.fireFailure("Failed to send request batch: " + cause.getMessage(), null);
+			}
+		});
+		
+		return batch;
 	}
 	
-	/**
-	 * Fires a callback if the WebSocket connection is lost.
-	 * 
-	 * @param onDisconnect disconnect callback
-	 * @return this, for chaining
-	 */
-	public OBSController registerDisconnect(Consumer<String> onDisconnect)
+	private JsonObject createBatch(OBSBuiltBatch batch, String batchID)
 	{
-		LOG.info("Disconnected");
-		this.onDisconnected = onDisconnect;
-		return this;
+		// opCode 8 for request batches
+		JsonObject json = new JsonObject();
+		json.addProperty("op", 8);
+		
+		// Data
+		JsonObject dataObject = new JsonObject();
+		json.add("d", dataObject);
+		dataObject.addProperty("requestId", batchID);
+		dataObject.addProperty("haltOnFailure", batch.haltOnFailure);
+		dataObject.addProperty("executionType", batch.executionType.getCode());
+		
+		JsonArray requests = new JsonArray();
+		dataObject.add("requests", requests);
+		
+		for(OBSBuiltRequest<? extends OBSRequest> request : batch.requests)
+		{
+			// Request IDs inside a batch only need to be unique to the batch, but this keeps them clear of everything else
+			String requestID = encodeRequestID(nextRequestID.incrementAndGet());
+			batch.assignID(requestID, request);
+			requests.add(createRequestData(request.request, requestID));
+		}
+		
+		return json;
 	}
 	
 	/**
-	 * Registers a callback to be fired when an OBS event is received.
+	 * Queues a message to be sent to the WebSocket in the negotiated encoding.
 	 * 
-	 * @param <T>      subclass of {@link OBSEvent}
-	 * @param event    the event
-	 * @param consumer consumer to be fired when event is received
-	 * @return this, for chaining
+	 * @param json      message to send
+	 * @param onFailure fired if the message couldn't be sent, can be null
 	 */
-	public <T extends OBSEvent> OBSController registerEvent(T event, Consumer<T> consumer)
+	private void send(JsonObject json, Consumer<Throwable> onFailure)
 	{
-		events.put(event.getEventType(), new OBSEventCallback<T>(event, consumer));
-		return this;
+		send(json, false, onFailure);
 	}
 	
 	/**
-	 * Attempts to connect to the OBS WebSocket. Holds the thread until complete.
-	 * <p>
-	 * If successful, you can start sending requests to OBS. Throws an error if unsuccessful.
-	 * </p>
+	 * Queues a message to be sent to the WebSocket in the negotiated encoding.
 	 * 
-	 * @param address URI address (ex. ws://localhost:4444)
-	 * @param password password for authentication, if required
-	 * @return this, for chaining
-	 * @throws WebSocketException if an error occurred connecting
+	 * @param json      message to send
+	 * @param urgent    true to write it ahead of messages that aren't urgent
+	 * @param onFailure fired if the message couldn't be sent, can be null
 	 */
-	public OBSController connect(String address, String password) throws WebSocketException
+	private void send(JsonObject json, boolean urgent, Consumer<Throwable> onFailure)
 	{
-		LOG.info("Attempting to connect to " + address);
-		this.password = password;
-		onConnect = new CompletableFuture<>();
-		
-		WebSocketListener listener = this;
+		LOG.trace("OUTBOUND: {}", json);
 		
-		try {
-			try {
-				client.start();
-				client.connect(listener, new URI(address)).get();
-			} catch(Exception e) {
-				LOG.trace("Completing onConnect exceptionally", e);
-				onConnect.completeExceptionally(e);
-			}
-			
-			// Wait a certain amount of time before giving up
-			onConnect.get(5, TimeUnit.SECONDS);
-		} catch(Exception e) {
-			LOG.error("Failed to connect to " + address);
-			LOG.debug("Full connection error stacktrace", e);
-			// Reconstructing the error as one class type for convenience
-			// I don't like the potentially endless strings of Caused by...
-			Throwable cause = getTrueCause(e);
-			WebSocketException exception = new WebSocketException(cause.getMessage());
-		    exception.setStackTrace(cause.getStackTrace());
-			throw exception;
+		if(messagePack)
+		{
+			outbound.offer(ByteBuffer.wrap(MessagePackCodec.encode(json)), urgent, onFailure);
+		}
+		else
+		{
+			outbound.offer(json.toString(), urgent, onFailure);
 		}
-		
-		return this;
-	}
-	
-	private Throwable getTrueCause(Throwable t)
-	{
-		Throwable cause = t.getCause();
-		if(cause == null) return t;
-		return getTrueCause(cause);
 	}
 	
 	/**
-	 * Attempts to connect to the OBS WebSocket without a password. Holds the thread until complete.
-	 * <p>
-	 * If successful, you can start sending requests to OBS. Throws an error if unsuccessful.
-	 * </p>
+	 * Request IDs come from a counter, so they're unique for the life of the controller (reconnects included). They're sent in base 36 to keep
+	 * messages short.
 	 * 
-	 * @param address URI address (ex. ws://localhost:4444)
-	 * @return this, for chaining
-	 * @throws WebSocketException if an error occurred connecting
+	 * @param requestID numeric request ID
+	 * @return request ID as sent to OBS
 	 */
-	public OBSController connect(String address) throws WebSocketException
+	private static String encodeRequestID(long requestID)
 	{
-		LOG.debug("No password provided");
-		return connect(address, null);
+		return Long.toString(requestID, 36);
 	}
 	
 	/**
-	 * Disconnects from the WebSocket.
+	 * @param requestID request ID as received from OBS
+	 * @return numeric request ID, or -1 if it isn't one of ours
 	 */
-	public void disconnect()
+	private static long decodeRequestID(String requestID)
 	{
-		LOG.debug("Disconnect command received");
+		if(requestID == null)
+		{
+			return -1;
+		}
 		
 		try {
-			client.stop();
-		} catch(Exception e) {
-			e.printStackTrace();
+			return Long.parseLong(requestID, 36);
+		} catch(NumberFormatException e) {
+			return -1;
 		}
 	}
 	
 	/**
-	 * Builds an OBS request. <b>This does <u>NOT</u> fire the request.</b>
-	 * 
-	 * <p><b>Example:</b></p>
-	 * 
-	 * <pre>
-	 * controller.build(new GetVersionRequest()).queue((response) -> {
-	 * 	System.out.println(response.getOBSVersion());
-	 * }, (failure) -> {
-	 * 	System.err.println("Failed to get OBS version");
-	 * });
-	 * </pre>
-	 * 
-	 * Adding a success callback allows you to access information returned from the WebSocket.
-	 * However, some requests don't receive information at all (such as {@link EmptyGetResponse} objects), meaning there's no purpose for a success callback other than confirming the request was successful.
-	 * 
-	 * <p><b>Example without callbacks:</b></p>
-	 * 
-	 * <pre>
-	 * controller.build(new SetCurrentProgramScene("newscene")).queue();
-	 * </pre>
+	 * Creates the data of a request, as sent in opCode 6 or inside of an opCode 8 batch.
 	 * 
-	 * <p>Furthermore, some OBS requests send nothing and receive nothing in return. This library handles these as {@link EmptyRequest EmptyRequests}. These requests include "StartStream", "ToggleStream", "SaveReplayBuffer", etc.
-	 * Instead of creating classes for each empty request, you can instantiate EmptyRequest and supply it directly as an argument to the build function.</p>
-	 * 
-	 * <p><b>Empty Request Example:</b></p>
-	 * <pre>
-	 * controller.build(new EmptyRequest("StartRecord")).queue();
-	 * </pre>
-	 * 
-	 * <p><b>IMPORTANT:</b> Always finish building with {@link OBSRequestBuilder#queue() queue()} or {@link OBSRequestBuilder#complete() complete()}, or the request won't be sent!</p>
-	 * 
-	 * @param <T>     {@link OBSRequest} subclass
-	 * @param request a newly created OBSRequest subclass
-	 * @return {@link OBSRequestBuilder} object
+	 * @param request   the request
+	 * @param requestID unique ID of the request
+	 * @return request data JSON object
 	 */
-	public <T extends OBSRequest> OBSRequestBuilder<T> build(T request)
+	private JsonObject createRequestData(OBSRequest request, String requestID)
 	{
-		LOG.trace("Building new request: " + request);
-		
-		if(!onConnect.isDone())
-		{
-			throw new IllegalStateException("Connect to OBS before building requests");
-		}
-		
-		return new OBSRequestBuilder<T>(this, request);
+		JsonObject requestData = new JsonObject();
+		request.applyJSON(requestData);
+		return createRequestData(request.getRequestType(), requestData, requestID);
 	}
 	
-	protected <T extends OBSRequest> OBSBuiltRequest<T> sendRequest(OBSBuiltRequest<T> type)
+	/**
+	 * Creates the data of a request from parameters that were already built.
+	 * 
+	 * @param requestType type of the request
+	 * @param requestData parameters of the request
+	 * @param requestID   unique ID of the request
+	 * @return request data JSON object
+	 */
+	private static JsonObject createRequestData(String requestType, JsonObject requestData, String requestID)
 	{
-		T request = type.request;
-		
-		// Generate unique requestID
-		// 1 in a billion chance using UUIDs will ever produce duplication problems but this makes me feel better
-		String requestID = UUID.randomUUID().toString();
-		while(callbacks.containsKey(requestID))
-		{
-			requestID = UUID.randomUUID().toString();
-		}
-		
-		// Always use opCode 6 for requests
-		JsonObject json = new JsonObject();
-		json.addProperty("op", 6);
-		
-		// Data
 		JsonObject dataObject = new JsonObject();
-		json.add("d", dataObject);
-		dataObject.addProperty("requestType", request.getRequestType());
+		dataObject.addProperty("requestType", requestType);
 		dataObject.addProperty("requestId", requestID);
-		
-		JsonObject requestData = new JsonObject();
 		dataObject.add("requestData", requestData);
-		request.applyJSON(requestData);
-		
-		callbacks.put(requestID, type);
-		session.getRemote().sendStringByFuture(json.toString());
-		LOG.trace("OUTBOUND: " + json.toString());
-		return type;
+		return dataObject;
 	}
 	
 	// EmptyRequest commands, included for convenience and as examples
@@ -302,26 +1711,46 @@ public class OBSController implements WebSocketListener {
 	public OBSRequestBuilder<EmptyRequest> stopStreaming() { return build(new EmptyRequest("StopStream")); }
 	
 	@Override
-	public void onWebSocketConnect(Session session)
+	public void onOpen()
 	{
-		this.session = session;
 		LOG.info("Connected to OBS WS");
 	}
 	
 	@Override
-	public void onWebSocketText(String message)
+	public void onText(CharSequence message)
 	{
-		LOG.trace("INBOUND: " + message);
-		
-		JsonObject values = JsonParser.parseString(message).getAsJsonObject();
-		JsonObject data = values.get("d").getAsJsonObject();
-		int opCode = values.get("op").getAsInt();
+		metrics.inbound(message.length());
+		LOG.trace("INBOUND: {}", message);
+		OutboundQueue.reading(() -> onMessage(Envelope.read(message)));
+	}
+	
+	@Override
+	public void onBinary(byte[] payload, int offset, int len)
+	{
+		metrics.inbound(len);
+		JsonObject values = MessagePackCodec.decode(payload, offset, len);
+		LOG.trace("INBOUND: {}", values);
+		OutboundQueue.reading(() -> onMessage(Envelope.of(values)));
+	}
+	
+	/**
+	 * Handles a message from the WebSocket, whether it arrived as JSON or MessagePack.
+	 * <p>
+	 * Payloads are only parsed when something needs them. Events without a listener are dropped without ever parsing their data.
+	 * </p>
+	 * 
+	 * @param envelope the message
+	 */
+	private void onMessage(Envelope envelope)
+	{
+		int opCode = envelope.getOp();
 		
 		switch(opCode)
 		{
 			// Hello
 			case 0:
 			{
+				JsonObject data = envelope.getData();
 				rpcVersion = data.get("rpcVersion").getAsInt();
 				LOG.debug("Version " + data.get("obsWebSocketVersion").getAsString() + " - RPC: " + rpcVersion);
 				
@@ -332,6 +1761,13 @@ public class OBSController implements WebSocketListener {
 				d.addProperty("rpcVersion", 1);
 				json.add("d", d);
 				
+				// Only ask for the events we have listeners for
+				synchronized(this)
+				{
+					eventSubscriptions = computeEventSubscriptions();
+					d.addProperty("eventSubscriptions", eventSubscriptions);
+				}
+				
 				// If authentication is required
 				if(data.has("authentication"))
 				{
@@ -347,7 +1783,15 @@ public class OBSController implements WebSocketListener {
 					String salt = map.get("salt").getAsString();
 					
 					LOG.debug("Authentication is required");
-					String secret = Base64.encodeBase64String(DigestUtils.sha256(password + salt));
+					
+					// The secret only changes with the password or salt, so reconnects can skip hashing it again
+					if(!salt.equals(authSalt))
+					{
+						authSecret = Base64.encodeBase64String(DigestUtils.sha256(password + salt));
+						authSalt = salt;
+					}
+					
+					String secret = authSecret;
 					
 					d.addProperty("authentication", Base64.encodeBase64String(DigestUtils.sha256(secret + challenge)));
 				}
@@ -357,64 +1801,251 @@ public class OBSController implements WebSocketListener {
 					LOG.debug("No authentication required");
 				}
 				
-				session.getRemote().sendStringByFuture(json.toString());
+				// Control messages skip the queue and the byte limit
+				send(json, true, null);
 				break;
 			}
 			// Identified
 			case 2:
 			{
-				rpcVersion = data.get("negotiatedRpcVersion").getAsInt();
-				onConnect.complete(null);
+				rpcVersion = envelope.getData().get("negotiatedRpcVersion").getAsInt();
+				onIdentified();
 				break;
 			}
 			// Events
 			case 5:
 			{
-				JsonObject eventData = data.get("eventData").getAsJsonObject();
-				OBSEventCallback<?> callback = events.get(data.get("eventType").toString());
+				metrics.event(envelope.getEventType());
+				OBSEventCallback<?>[] listeners = events.get(envelope.getEventType());
+				
+				// Nobody's listening, don't bother parsing it
+				if(listeners == null)
+				{
+					break;
+				}
 				
-				if(callback != null)
+				// Shared by every listener, so the data is parsed at most once
+				Supplier<JsonObject> eventData = null;
+				
+				for(OBSEventCallback<?> callback : listeners)
 				{
+					// The filter doesn't want it
+					if(!callback.test(envelope))
+					{
+						continue;
+					}
+					
+					if(eventData == null)
+					{
+						eventData = envelope.lazyObject("eventData");
+					}
+					
+					// Other events are parsed here before being handed over, only lazy ones read the message later
+					if(callback.isLazy())
+					{
+						// Listeners on other threads may parse it after the transport reuses its buffer
+						if(callback.isAsync())
+						{
+							envelope.detach();
+						}
+						else
+						{
+							envelope.holdLazy();
+						}
+					}
+					
 					callback.accept(eventData);
 				}
 				
+				// Same goes for lazy events kept by inline listeners, unless another listener already parsed the data for them
+				envelope.release();
 				break;
 			}
 			// Responses
 			case 7:
 			{
-				JsonObject requestStatus = data.get("requestStatus").getAsJsonObject();
-				int code = requestStatus.get("code").getAsInt();
-				String comment = requestStatus.has("comment") ? requestStatus.get("comment").getAsString() : "";
+				int code = envelope.getCode();
+				String comment = envelope.getComment() != null ? envelope.getComment() : "";
 				
 				// Get callback that was waiting for a response
-				OBSBuiltRequest<?> callback = callbacks.remove(data.get("requestId").getAsString());
-				boolean success = requestStatus.get("result").getAsBoolean();
+				OBSBuiltRequest<?> callback = callbacks.remove(decodeRequestID(envelope.getRequestId()));
+				
+				// Already failed on our end (ex. dropped from the outbound queue)
+				if(callback == null)
+				{
+					LOG.debug("Received response for unknown request - " + envelope.getRequestId());
+					break;
+				}
+				
+				boolean success = envelope.getResult();
+				metrics.response(callback.request.getRequestType(), System.nanoTime() - callback.sentAt, success);
 				
 				// If unsuccessful
 				if(!success)
 				{
 					// Failure
-					callback.fireFailure(code, comment, message);
+					callback.fireFailure(code, comment, envelope.getRaw());
 				}
 				// Successful
 				else
 				{
-					callback.fireSuccess(code, data.has("responseData") ? data.get("responseData").getAsJsonObject() : null);
+					callback.fireSuccess(code, envelope);
 				}
 				
 				break;
 			}
+			// Batch responses
+			case 9:
+			{
+				OBSBuiltBatch batch = batches.remove(decodeRequestID(envelope.getRequestId()));
+				
+				if(batch == null)
+				{
+					LOG.debug("Received response for unknown batch - " + envelope.getRequestId());
+					break;
+				}
+				
+				batch.fireResults(envelope.getData().get("results").getAsJsonArray(), envelope.getRaw());
+				break;
+			}
 			default:
 			{
-				LOG.debug("Unhandled OpCode " + opCode + " - " + message);
+				LOG.debug("Unhandled OpCode " + opCode + " - " + envelope.getRaw());
 				break;
 			}
 		}
 	}
 	
+	private void onIdentified()
+	{
+		boolean reconnected = reconnecting;
+		Map<Long, OBSBuiltRequest<? extends OBSRequest>> resend;
+		
+		synchronized(this)
+		{
+			resend = new TreeMap<Long, OBSBuiltRequest<? extends OBSRequest>>(held);
+			held.clear();
+			
+			for(Map.Entry<Long, OBSBuiltRequest<? extends OBSRequest>> entry : resend.entrySet())
+			{
+				callbacks.put(entry.getKey(), entry.getValue());
+			}
+			
+			identified = true;
+			reconnecting = false;
+		}
+		
+		// Send everything that was held while disconnected, in the order it was sent
+		for(OBSBuiltRequest<? extends OBSRequest> request : resend.values())
+		{
+			scheduler.submit(request);
+		}
+		
+		onConnect.complete(null);
+		
+		// After completing onConnect, so listeners can build requests
+		for(ConnectionListener listener : connectionListeners)
+		{
+			try {
+				listener.onIdentified();
+			} catch(Throwable t) {
+				LOG.error("Connection listener failed", t);
+			}
+		}
+		
+		if(reconnected)
+		{
+			LOG.info("Reconnected to OBS WS");
+			
+			if(onReconnect != null)
+			{
+				executeCallback(() -> {
+					try(CallbackContext ___ = CallbackContext.getInstance()) {
+						onReconnect.run();
+					} catch(Throwable t) {
+						t.printStackTrace();
+					}
+				});
+			}
+		}
+	}
+	
+	/**
+	 * Deals with requests that were waiting for a response when the connection was lost.
+	 * 
+	 * @param canResend true if requests can be held until reconnected
+	 */
+	private void onConnectionLost(boolean canResend)
+	{
+		List<OBSBuiltRequest<? extends OBSRequest>> failed = new ArrayList<OBSBuiltRequest<? extends OBSRequest>>();
+		List<OBSBuiltBatch> failedBatches = new ArrayList<OBSBuiltBatch>();
+		
+		synchronized(this)
+		{
+			// Cleared before draining so senders that race with this see it and take care of their own request
+			identified = false;
+			
+			// Everything queued is also in callbacks, and gets failed or held below
+			scheduler.clear();
+			
+			callbacks.drain((requestID, request) -> {
+				if(canResend && request.inFlightPolicy == InFlightPolicy.RESEND)
+				{
+					release(request);
+					held.put(requestID, request);
+				}
+				else
+				{
+					failed.add(request);
+				}
+			});
+			
+			batches.drain((batchID, batch) -> failedBatches.add(batch));
+		}
+		
+		for(OBSBuiltRequest<?> request : failed)
+		{
+			request.fireFailure(0, "Disconnected from OBS", null);
+		}
+		
+		for(OBSBuiltBatch batch : failedBatches)
+		{
+			batch.fireFailure("Disconnected from OBS", null);
+		}
+		
+		for(ConnectionListener listener : connectionListeners)
+		{
+			try {
+				listener.onConnectionLost();
+			} catch(Throwable t) {
+				LOG.error("Connection listener failed", t);
+			}
+		}
+	}
+	
+	/**
+	 * Fails every request that was held for a reconnect.
+	 * 
+	 * @param comment why the requests failed
+	 */
+	private void failHeld(String comment)
+	{
+		List<OBSBuiltRequest<? extends OBSRequest>> failed;
+		
+		synchronized(this)
+		{
+			failed = new ArrayList<OBSBuiltRequest<? extends OBSRequest>>(held.values());
+			held.clear();
+		}
+		
+		for(OBSBuiltRequest<?> request : failed)
+		{
+			request.fireFailure(0, comment, null);
+		}
+	}
+	
 	@Override
-	public void onWebSocketClose(int statusCode, String reason)
+	public void onClose(int statusCode, String reason)
 	{
 		LOG.info("WebSocket closed: (" + statusCode + ") " + reason);
 		
@@ -432,14 +2063,29 @@ public class OBSController implements WebSocketListener {
 			
 			onConnect.completeExceptionally(new IOException(error + ": (" + statusCode + ") - " + reason));
 		}
+		// Closed after a failed handshake, which whoever was connecting already dealt with
+		else if(onConnect.isCompletedExceptionally() && !identified)
+		{
+			return;
+		}
 		else
 		{
-			onDisconnected.accept("Disconnected from OBS WebSocket: (" + statusCode + ") - " + reason);
+			boolean reconnect = !closing && reconnectPolicy != null;
+			reconnecting = reconnect;
+			outbound.clear();
+			onConnectionLost(reconnect);
+			String message = "Disconnected from OBS WebSocket: (" + statusCode + ") - " + reason;
+			executeCallback(() -> onDisconnected.accept(message));
+			
+			if(reconnect)
+			{
+				scheduleReconnect(1);
+			}
 		}
 	}
 	
 	@Override
-	public void onWebSocketError(Throwable cause)
+	public void onError(Throwable cause)
 	{
 		LOG.trace("WebSocket error received", cause);
 		
@@ -452,7 +2098,4 @@ public class OBSController implements WebSocketListener {
 			LOG.error("WebSocket error", cause);
 		}
 	}
-	
-	@Override
-	public void onWebSocketBinary(byte[] payload, int offset, int len) {}
 }
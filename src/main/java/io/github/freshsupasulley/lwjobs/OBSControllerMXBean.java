@@ -0,0 +1,53 @@
+package io.github.freshsupasulley.lwjobs;
+
+import java.util.Map;
+
+/**
+ * Metrics of an {@link OBSController} as seen through JMX, for JConsole, VisualVM or an exporter like the Prometheus JMX agent. Registered with
+ * {@link OBSController#registerMBean(String)}.
+ * <p>
+ * Each attribute reads the live value. See {@link MetricsSnapshot} for what each one means.
+ * </p>
+ */
+public interface OBSControllerMXBean {
+	
+	/**
+	 * @return true if the handshake with OBS is done
+	 */
+	boolean isIdentified();
+	
+	long getRequestsSent();
+	
+	long getResponsesSucceeded();
+	
+	long getResponsesFailed();
+	
+	int getPendingRequests();
+	
+	int getInFlightRequests();
+	
+	int getQueuedRequests();
+	
+	int getOutboundQueueDepth();
+	
+	long getOutboundPendingBytes();
+	
+	long getBytesIn();
+	
+	long getBytesOut();
+	
+	long getFramesIn();
+	
+	long getFramesOut();
+	
+	Map<String, LatencySnapshot> getRequestLatency();
+	
+	Map<String, Long> getEvents();
+	
+	LatencySnapshot getCallbackTime();
+	
+	/**
+	 * Starts every counter and histogram over from zero.
+	 */
+	void resetMetrics();
+}
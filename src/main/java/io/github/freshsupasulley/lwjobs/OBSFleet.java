@@ -0,0 +1,332 @@
+package io.github.freshsupasulley.lwjobs;
+
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+import io.github.freshsupasulley.lwjobs.transport.JettyTransport;
+import io.github.freshsupasulley.lwjobs.transport.OBSTransport;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Many OBS instances managed together, sharing one WebSocket client and its threads.
+ * <p>
+ * Each node still has its own {@link OBSController}, but by default they all connect through one Jetty client instead of starting a thread pool
+ * each, and share the controller's timer and callback threads. Nodes connect in the background and are tracked by {@link NodeHealth}. With health
+ * checks on, nodes that are down are connected again and the rest are pinged.
+ * </p>
+ * 
+ * <p><b>Example:</b></p>
+ * 
+ * <pre>
+ * OBSFleet fleet = new OBSFleet().useHealthCheck(5, TimeUnit.SECONDS);
+ * fleet.add("booth-1", "ws://10.0.0.11:4455", "password");
+ * fleet.add("booth-2", "ws://10.0.0.12:4455", "password");
+ * 
+ * fleet.broadcast(() -&gt; new EmptyRequest("StartRecord")).thenAccept(result -&gt; System.out.println(result));
+ * </pre>
+ */
+public class OBSFleet implements AutoCloseable {
+	
+	private final Supplier<OBSTransport> transports;
+	private final WebSocketClient sharedClient;
+	private final Map<String, FleetNode> nodes = new ConcurrentHashMap<String, FleetNode>();
+	
+	// Guarded by this. Nodes in the order they were added
+	private final List<FleetNode> order = new ArrayList<FleetNode>();
+	
+	private volatile Consumer<OBSController> configurer = controller -> {};
+	private ScheduledFuture<?> healthCheck;
+	private volatile boolean closed;
+	
+	/**
+	 * Creates a fleet whose nodes share one Jetty client.
+	 */
+	public OBSFleet()
+	{
+		this.sharedClient = JettyTransport.newClient();
+		this.transports = () -> new JettyTransport(sharedClient);
+	}
+	
+	/**
+	 * Creates a fleet whose nodes use transports from the factory. Share a client between them to save threads, for example
+	 * <code>() -&gt; new JdkTransport(httpClient)</code>.
+	 * 
+	 * @param transports creates a transport for each node
+	 */
+	public OBSFleet(Supplier<OBSTransport> transports)
+	{
+		this.sharedClient = null;
+		this.transports = transports;
+	}
+	
+	/**
+	 * Sets up the controller of every node added after this, before it connects. Use it for reconnect policies, rate limits, events and the like.
+	 * 
+	 * @param configurer called with each new controller
+	 * @return this, for chaining
+	 */
+	public OBSFleet configure(Consumer<OBSController> configurer)
+	{
+		this.configurer = Objects.requireNonNull(configurer, "configurer");
+		return this;
+	}
+	
+	/**
+	 * Checks on every node periodically. Nodes that are connected get a GetVersion request, and are {@link NodeHealth#DEGRADED} if it isn't answered
+	 * within the interval. Nodes that are down and not already reconnecting are connected again. Off by default.
+	 * 
+	 * @param interval time between checks, or 0 to turn them off
+	 * @param unit     unit of the interval
+	 * @return this, for chaining
+	 */
+	public synchronized OBSFleet useHealthCheck(long interval, TimeUnit unit)
+	{
+		if(healthCheck != null)
+		{
+			healthCheck.cancel(false);
+			healthCheck = null;
+		}
+		
+		if(interval > 0 && !closed)
+		{
+			long timeout = Math.max(1, unit.toMillis(interval));
+			healthCheck = OBSController.executor.scheduleAtFixedRate(() -> checkAll(timeout), interval, interval, unit);
+		}
+		
+		return this;
+	}
+	
+	private void checkAll(long timeout)
+	{
+		// Sending and connecting can wait on the outbound queue or the transport, which would hold up every controller's timer
+		for(FleetNode node : getNodes())
+		{
+			OBSController.callbackThreads.execute(() -> {
+				try {
+					node.check(timeout);
+				} catch(Throwable t) {
+					OBSController.LOG.error("Health check of " + node.getName() + " failed", t);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Adds an OBS instance and starts connecting to it in the background.
+	 * 
+	 * @param name     unique name of the node
+	 * @param address  URI address (ex. ws://localhost:4455)
+	 * @param password password for authentication, or null if not required
+	 * @return future completed with the node once it's connected. If the first attempt fails, the node stays in the fleet as
+	 *         {@link NodeHealth#DOWN}
+	 * @throws IllegalArgumentException if a node with the name was already added
+	 */
+	public CompletableFuture<FleetNode> add(String name, String address, String password)
+	{
+		if(closed)
+		{
+			throw new IllegalStateException("Fleet is closed");
+		}
+		
+		// Checked before anything is built or configured, and again below in case another thread adds the same name meanwhile
+		if(nodes.containsKey(name))
+		{
+			throw new IllegalArgumentException("A node named " + name + " was already added");
+		}
+		
+		OBSController controller = new OBSController(transports.get());
+		configurer.accept(controller);
+		
+		FleetNode node = new FleetNode(name, address, password, controller);
+		
+		if(nodes.putIfAbsent(name, node) != null)
+		{
+			throw new IllegalArgumentException("A node named " + name + " was already added");
+		}
+		
+		synchronized(this)
+		{
+			order.add(node);
+		}
+		
+		return node.connect();
+	}
+	
+	/**
+	 * Disconnects from a node and removes it from the fleet.
+	 * 
+	 * @param name name of the node
+	 * @return true if the node was in the fleet
+	 */
+	public boolean remove(String name)
+	{
+		FleetNode node = nodes.remove(name);
+		
+		if(node == null)
+		{
+			return false;
+		}
+		
+		synchronized(this)
+		{
+			order.remove(node);
+		}
+		
+		node.close();
+		return true;
+	}
+	
+	/**
+	 * @param name name of the node
+	 * @return the node, or null if there's no node with the name
+	 */
+	public FleetNode getNode(String name)
+	{
+		return nodes.get(name);
+	}
+	
+	/**
+	 * @return every node, in the order they were added
+	 */
+	public synchronized List<FleetNode> getNodes()
+	{
+		return new ArrayList<FleetNode>(order);
+	}
+	
+	/**
+	 * @param health a health
+	 * @return number of nodes with that health right now
+	 */
+	public int count(NodeHealth health)
+	{
+		int count = 0;
+		
+		for(FleetNode node : getNodes())
+		{
+			if(node.getHealth() == health)
+			{
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Sends a request to every node at once, and collects the answers. Nodes that aren't connected fail right away instead of holding up the rest.
+	 * <p>
+	 * The factory is called once per node, since each node fills in its own request.
+	 * </p>
+	 * 
+	 * <pre>
+	 * BroadcastResult&lt;EmptyRequest&gt; result = fleet.broadcast(() -&gt; new EmptyRequest("StartRecord")).join();
+	 * result.getFailed().forEach((node, failure) -&gt; System.err.println(node + " didn't start recording: " + failure.getComment()));
+	 * </pre>
+	 * 
+	 * @param <T>     {@link OBSRequest} subclass
+	 * @param factory creates the request for each node
+	 * @return future completed once every node answered or failed. Never completes exceptionally
+	 */
+	public <T extends OBSRequest> CompletableFuture<BroadcastResult<T>> broadcast(Supplier<T> factory)
+	{
+		List<FleetNode> nodes = getNodes();
+		List<CompletableFuture<T>> answers = new ArrayList<CompletableFuture<T>>(nodes.size());
+		Map<String, FailedRequestException> failures = new ConcurrentHashMap<String, FailedRequestException>();
+		
+		for(FleetNode node : nodes)
+		{
+			OBSController controller = node.getController();
+			
+			if(!controller.isIdentified())
+			{
+				failures.put(node.getName(), new FailedRequestException(0, "Not connected to OBS", null));
+				answers.add(CompletableFuture.completedFuture(null));
+				continue;
+			}
+			
+			CompletableFuture<T> answer = new CompletableFuture<T>();
+			answers.add(answer);
+			
+			try {
+				// The request's own future completes before its failure callback runs, so the answer is only completed once the failure is recorded
+				controller.build(factory.get()).onFailure(failure -> {
+					failures.put(node.getName(), failure);
+					answer.complete(null);
+				}).submit().whenComplete((response, t) -> {
+					if(response != null)
+					{
+						answer.complete(response);
+					}
+					// Failed without reaching the callback, like a response that couldn't be parsed
+					else if(t != null)
+					{
+						Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+						failures.putIfAbsent(node.getName(), cause instanceof FailedRequestException ? (FailedRequestException) cause : new FailedRequestException(0, cause.toString(), null));
+						answer.complete(null);
+					}
+				});
+			} catch(IllegalStateException e) {
+				// Lost the connection since checking
+				failures.put(node.getName(), new FailedRequestException(0, e.getMessage(), null));
+				answer.complete(null);
+			}
+		}
+		
+		return CompletableFuture.allOf(answers.toArray(new CompletableFuture<?>[0])).handle((result, t) -> {
+			Map<String, T> succeeded = new LinkedHashMap<String, T>();
+			Map<String, FailedRequestException> failed = new LinkedHashMap<String, FailedRequestException>();
+			
+			for(int i = 0; i < nodes.size(); i++)
+			{
+				String name = nodes.get(i).getName();
+				T answer = answers.get(i).getNow(null);
+				
+				if(answer != null && !failures.containsKey(name))
+				{
+					succeeded.put(name, answer);
+				}
+				else
+				{
+					failed.put(name, failures.getOrDefault(name, new FailedRequestException(0, "Cancelled", null)));
+				}
+			}
+			
+			return new BroadcastResult<T>(succeeded, failed);
+		});
+	}
+	
+	/**
+	 * Disconnects from every node and stops the shared client.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		useHealthCheck(0, TimeUnit.SECONDS);
+		
+		for(FleetNode node : getNodes())
+		{
+			remove(node.getName());
+		}
+		
+		if(sharedClient != null)
+		{
+			try {
+				sharedClient.stop();
+			} catch(Exception e) {
+				OBSController.LOG.error("Failed to stop WebSocket client", e);
+			}
+		}
+	}
+}
@@ -5,7 +5,6 @@ import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 /**
@@ -24,11 +23,15 @@ public class OBSRequestBuilder<T extends OBSRequest> {
 	
 	private Consumer<T> onSuccess;
 	private Consumer<FailedRequestException> onFailed;
+	private InFlightPolicy inFlightPolicy = InFlightPolicy.FAIL;
+	private long timeout;
+	private RequestPriority priority = RequestPriority.NORMAL;
 	
 	protected OBSRequestBuilder(OBSController controller, T request)
 	{
 		this.controller = controller;
 		this.request = request;
+		this.timeout = request.getDefaultTimeout();
 	}
 	
 	/**
@@ -53,6 +56,49 @@ public class OBSRequestBuilder<T extends OBSRequest> {
 		return this;
 	}
 	
+	/**
+	 * Sets what happens to this request if the connection to OBS is lost before it's answered. Defaults to {@link InFlightPolicy#FAIL}.
+	 * 
+	 * @param inFlightPolicy in-flight policy
+	 * @see OBSController#useReconnectPolicy(ReconnectPolicy)
+	 */
+	public OBSRequestBuilder<T> onDisconnect(InFlightPolicy inFlightPolicy)
+	{
+		this.inFlightPolicy = inFlightPolicy;
+		return this;
+	}
+	
+	/**
+	 * Sets how long to wait for OBS to answer before the request fails. Defaults to {@link OBSRequest#getDefaultTimeout()}.
+	 * <p>
+	 * Zero or less waits forever, including in {@link #complete()}.
+	 * </p>
+	 * 
+	 * @param timeout time to wait
+	 * @param unit    unit of the timeout
+	 */
+	public OBSRequestBuilder<T> timeout(long timeout, TimeUnit unit)
+	{
+		this.timeout = unit.toMillis(timeout);
+		return this;
+	}
+	
+	/**
+	 * Sets how urgently this request goes out. Defaults to {@link RequestPriority#NORMAL}.
+	 * <p>
+	 * Higher priorities are sent ahead of lower ones that are waiting on a rate limit or the in-flight limit, so polling in the background can't delay
+	 * something like a scene switch.
+	 * </p>
+	 * 
+	 * @param priority the priority
+	 * @see OBSController#useRateLimit(RequestPriority, double, int)
+	 */
+	public OBSRequestBuilder<T> priority(RequestPriority priority)
+	{
+		this.priority = priority;
+		return this;
+	}
+	
 	/**
 	 * Adds success and failure callbacks, then sends the request.
 	 * 
@@ -95,7 +141,7 @@ public class OBSRequestBuilder<T extends OBSRequest> {
 	 */
 	public void queue()
 	{
-		controller.sendRequest(new OBSBuiltRequest<>(request, onSuccess, onFailed));
+		controller.sendRequest(createBuiltRequest());
 	}
 	
 	/**
@@ -115,13 +161,12 @@ public class OBSRequestBuilder<T extends OBSRequest> {
 		}
 		
 		try {
-			return submit().orTimeout(5, TimeUnit.SECONDS).join();
+			// Times out on its own (see timeout())
+			return submit().join();
 		} catch(CompletionException e) {
 			// CompletionExceptions hold the exception that caused it in the cause
 			Throwable cause = e.getCause();
 			if(cause instanceof FailedRequestException) throw (FailedRequestException) cause;
-			// Give some more info
-			if(cause instanceof TimeoutException) OBSController.LOG.error("Request was timed out");
 			throw e;
 		}
 	}
@@ -133,6 +178,14 @@ public class OBSRequestBuilder<T extends OBSRequest> {
 	 */
 	public CompletableFuture<T> submit()
 	{
-		return controller.sendRequest(new OBSBuiltRequest<>(request, onSuccess, onFailed));
+		return controller.sendRequest(createBuiltRequest());
+	}
+	
+	protected OBSBuiltRequest<T> createBuiltRequest()
+	{
+		OBSBuiltRequest<T> built = new OBSBuiltRequest<>(request, onSuccess, onFailed, inFlightPolicy);
+		built.timeout = timeout;
+		built.priority = priority;
+		return built;
 	}
 }
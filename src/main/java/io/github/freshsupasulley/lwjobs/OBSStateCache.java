@@ -0,0 +1,545 @@
+package io.github.freshsupasulley.lwjobs;
+
+import io.github.freshsupasulley.lwjobs.events.EventDelivery;
+import io.github.freshsupasulley.lwjobs.events.EventRegistration;
+import io.github.freshsupasulley.lwjobs.impl.CurrentProgramSceneChangedEvent;
+import io.github.freshsupasulley.lwjobs.impl.GetRecordStatusRequest;
+import io.github.freshsupasulley.lwjobs.impl.GetSceneItemListRequest;
+import io.github.freshsupasulley.lwjobs.impl.GetSceneListRequest;
+import io.github.freshsupasulley.lwjobs.impl.GetStreamStatusRequest;
+import io.github.freshsupasulley.lwjobs.impl.GetSceneItemEnabledRequest;
+import io.github.freshsupasulley.lwjobs.impl.RecordStateChangedEvent;
+import io.github.freshsupasulley.lwjobs.impl.SceneItemCreatedEvent;
+import io.github.freshsupasulley.lwjobs.impl.SceneItemEnableStateChangedEvent;
+import io.github.freshsupasulley.lwjobs.impl.SceneItemRemovedEvent;
+import io.github.freshsupasulley.lwjobs.impl.SceneListChangedEvent;
+import io.github.freshsupasulley.lwjobs.impl.SceneNameChangedEvent;
+import io.github.freshsupasulley.lwjobs.impl.StreamStateChangedEvent;
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A local copy of OBS's state that keeps itself up to date from events, so reads don't need a round trip.
+ * <p>
+ * The cache asks OBS for everything it tracks once connected (and again after every reconnect), then applies events as they arrive. Reads only
+ * look at fields in memory and never block, so they're cheap enough to call thousands of times a second.
+ * </p>
+ * <p>
+ * Events can be missed while disconnected, so check {@link #getConsistency()} before trusting what's read. Events that arrive during a sync win
+ * over the sync's answers, since they're newer.
+ * </p>
+ * 
+ * <p><b>Example:</b></p>
+ * 
+ * <pre>
+ * OBSStateCache cache = new OBSStateCache(controller);
+ * cache.whenSynced().join();
+ * 
+ * if(cache.isLive() &amp;&amp; "Gameplay".equals(cache.getCurrentScene())) {...}
+ * </pre>
+ */
+public class OBSStateCache implements AutoCloseable {
+	
+	/**
+	 * How far the cache can be trusted.
+	 */
+	public enum Consistency {
+		
+		/**
+		 * Asking OBS for the current state. Values may be from before the connection was lost, or missing.
+		 */
+		SYNCING,
+		
+		/**
+		 * Synced and following events. Values are as current as the last event received.
+		 */
+		LIVE,
+		
+		/**
+		 * Not connected, or the last sync failed. Values are from the last time the cache was live and may be out of date.
+		 */
+		STALE
+	}
+	
+	private final OBSController controller;
+	private final List<EventRegistration> registrations = new ArrayList<EventRegistration>();
+	private final ConnectionListener connectionListener = new ConnectionListener() {
+		
+		@Override
+		public void onIdentified()
+		{
+			sync();
+		}
+		
+		@Override
+		public void onConnectionLost()
+		{
+			markStale("Lost the connection to OBS");
+		}
+	};
+	
+	// Read without locking, replaced whole on every change
+	private volatile String currentScene;
+	private volatile List<String> scenes = Collections.emptyList();
+	private volatile boolean recording, streaming;
+	private final Map<String, Map<Integer, Boolean>> sceneItems = new ConcurrentHashMap<String, Map<Integer, Boolean>>();
+	
+	private volatile Consistency consistency = Consistency.STALE;
+	private volatile long version, updatedAt = System.nanoTime();
+	private volatile CompletableFuture<Void> synced = new CompletableFuture<Void>();
+	
+	// Guarded by this. Which parts events changed since the current sync started, so the sync's older answers don't overwrite them
+	private int generation;
+	private boolean sceneChanged, scenesChanged, recordChanged, streamChanged;
+	private final Set<String> itemsChanged = new HashSet<String>();
+	
+	// Guarded by this. Items created since the cache last heard of them, whose enabled state is being asked for
+	private final Set<String> itemsCreated = new HashSet<String>();
+	
+	/**
+	 * Creates a cache of the controller's OBS state. It syncs right away if the controller is connected, or once it connects.
+	 * 
+	 * @param controller the controller
+	 */
+	public OBSStateCache(OBSController controller)
+	{
+		this.controller = controller;
+		
+		// Inline so changes are applied in the order OBS sent them, before anything else is read
+		registrations.add(controller.addInternalListener(CurrentProgramSceneChangedEvent::new, EventDelivery.INLINE, null, this::onSceneChanged));
+		registrations.add(controller.addInternalListener(SceneListChangedEvent::new, EventDelivery.INLINE, null, this::onSceneListChanged));
+		registrations.add(controller.addInternalListener(SceneNameChangedEvent::new, EventDelivery.INLINE, null, this::onSceneNameChanged));
+		registrations.add(controller.addInternalListener(RecordStateChangedEvent::new, EventDelivery.INLINE, null, this::onRecordStateChanged));
+		registrations.add(controller.addInternalListener(StreamStateChangedEvent::new, EventDelivery.INLINE, null, this::onStreamStateChanged));
+		registrations.add(controller.addInternalListener(SceneItemEnableStateChangedEvent::new, EventDelivery.INLINE, null, this::onSceneItemEnableStateChanged));
+		registrations.add(controller.addInternalListener(SceneItemCreatedEvent::new, EventDelivery.INLINE, null, this::onSceneItemCreated));
+		registrations.add(controller.addInternalListener(SceneItemRemovedEvent::new, EventDelivery.INLINE, null, this::onSceneItemRemoved));
+		
+		controller.addConnectionListener(connectionListener);
+		
+		if(controller.isIdentified())
+		{
+			sync();
+		}
+	}
+	
+	/**
+	 * @return name of the current program scene, or null if it isn't known yet
+	 */
+	public String getCurrentScene()
+	{
+		return currentScene;
+	}
+	
+	/**
+	 * @return names of every scene, in the same order as {@link GetSceneListRequest#getScenes()}
+	 */
+	public List<String> getScenes()
+	{
+		return scenes;
+	}
+	
+	/**
+	 * @return true if OBS is recording
+	 */
+	public boolean isRecording()
+	{
+		return recording;
+	}
+	
+	/**
+	 * @return true if OBS is streaming
+	 */
+	public boolean isStreaming()
+	{
+		return streaming;
+	}
+	
+	/**
+	 * @param sceneName   name of the scene the item is in
+	 * @param sceneItemId numeric ID of the scene item
+	 * @return whether the scene item is enabled, or null if the cache doesn't know the item (or it was just created and OBS hasn't said yet)
+	 */
+	public Boolean isSceneItemEnabled(String sceneName, int sceneItemId)
+	{
+		Map<Integer, Boolean> items = sceneItems.get(sceneName);
+		return items == null ? null : items.get(sceneItemId);
+	}
+	
+	/**
+	 * @return how far the cache can be trusted right now
+	 */
+	public Consistency getConsistency()
+	{
+		return consistency;
+	}
+	
+	/**
+	 * @return true if the cache is synced and following events
+	 */
+	public boolean isLive()
+	{
+		return consistency == Consistency.LIVE;
+	}
+	
+	/**
+	 * @return number of changes applied so far, useful to tell whether anything changed between two reads
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+	
+	/**
+	 * @return nanoseconds since the cache last changed
+	 */
+	public long getNanosSinceUpdate()
+	{
+		return System.nanoTime() - updatedAt;
+	}
+	
+	/**
+	 * @return completes once the current (or next) sync is done, or fails if it fails or is dropped because the connection was lost or the cache closed
+	 */
+	public CompletableFuture<Void> whenSynced()
+	{
+		return synced;
+	}
+	
+	/**
+	 * Asks OBS for everything again, in case the cache missed something. Happens on its own after every reconnect.
+	 * 
+	 * @return completes once synced
+	 */
+	public CompletableFuture<Void> resync()
+	{
+		return sync();
+	}
+	
+	/**
+	 * Stops following events. The cache keeps its last values but goes {@link Consistency#STALE}.
+	 */
+	@Override
+	public void close()
+	{
+		controller.removeConnectionListener(connectionListener);
+		registrations.forEach(EventRegistration::unregister);
+		markStale("The state cache was closed");
+	}
+	
+	private CompletableFuture<Void> sync()
+	{
+		int generation;
+		CompletableFuture<Void> synced;
+		
+		synchronized(this)
+		{
+			generation = ++this.generation;
+			sceneChanged = scenesChanged = recordChanged = streamChanged = false;
+			itemsChanged.clear();
+			consistency = Consistency.SYNCING;
+			
+			// Anyone waiting on a sync that's being replaced gets this one instead
+			synced = this.synced.isDone() ? new CompletableFuture<Void>() : this.synced;
+			this.synced = synced;
+		}
+		
+		GetSceneListRequest sceneList = new GetSceneListRequest();
+		GetRecordStatusRequest record = new GetRecordStatusRequest();
+		GetStreamStatusRequest stream = new GetStreamStatusRequest();
+		
+		controller.batch().add(sceneList).add(record).add(stream).submit().thenCompose(results -> {
+			checkResults(results);
+			
+			synchronized(this)
+			{
+				if(generation == this.generation)
+				{
+					if(!sceneChanged) currentScene = sceneList.getCurrentScene();
+					if(!scenesChanged) scenes = List.of(sceneList.getScenes());
+					if(!recordChanged) recording = record.isRecording();
+					if(!streamChanged) streaming = stream.isStreaming();
+					changed();
+				}
+			}
+			
+			return fetchSceneItems(Arrays.asList(sceneList.getScenes()), generation);
+		}).whenComplete((ignored, error) -> {
+			synchronized(this)
+			{
+				if(generation != this.generation)
+				{
+					return;
+				}
+				
+				consistency = error == null ? Consistency.LIVE : Consistency.STALE;
+			}
+			
+			if(error == null)
+			{
+				synced.complete(null);
+			}
+			else
+			{
+				OBSController.LOG.warn("Failed to sync the state cache", error);
+				synced.completeExceptionally(error);
+			}
+		});
+		
+		return synced;
+	}
+	
+	/**
+	 * Asks OBS for the items of some scenes and fills them in.
+	 * 
+	 * @param sceneNames the scenes
+	 * @param generation the sync this is part of, or -1 to only add what isn't known yet
+	 * @return completes once the items are filled in
+	 */
+	private CompletableFuture<Void> fetchSceneItems(List<String> sceneNames, int generation)
+	{
+		if(sceneNames.isEmpty())
+		{
+			return CompletableFuture.completedFuture(null);
+		}
+		
+		OBSBatchBuilder batch = controller.batch();
+		List<GetSceneItemListRequest> requests = new ArrayList<GetSceneItemListRequest>();
+		
+		for(String sceneName : sceneNames)
+		{
+			GetSceneItemListRequest request = new GetSceneItemListRequest(sceneName);
+			requests.add(request);
+			batch.add(request);
+		}
+		
+		return batch.submit().thenAccept(results -> {
+			checkResults(results);
+			
+			synchronized(this)
+			{
+				// Replaced by a newer sync
+				if(generation != -1 && generation != this.generation)
+				{
+					return;
+				}
+				
+				for(int i = 0; i < sceneNames.size(); i++)
+				{
+					String sceneName = sceneNames.get(i);
+					Map<Integer, Boolean> items = sceneItems.computeIfAbsent(sceneName, name -> new ConcurrentHashMap<Integer, Boolean>());
+					
+					for(GetSceneItemListRequest.SceneItem item : requests.get(i).getSceneItems())
+					{
+						// Events since the lookup started are newer, including the item being removed
+						if(itemsChanged.contains(itemKey(sceneName, item.getSceneItemId())))
+						{
+							continue;
+						}
+						
+						if(generation == -1)
+						{
+							items.putIfAbsent(item.getSceneItemId(), item.isSceneItemEnabled());
+						}
+						else
+						{
+							items.put(item.getSceneItemId(), item.isSceneItemEnabled());
+						}
+					}
+				}
+				
+				changed();
+			}
+		});
+	}
+	
+	private static void checkResults(List<OBSRequest> results)
+	{
+		// Failed requests are null
+		if(results.contains(null))
+		{
+			throw new IllegalStateException("OBS failed to answer every request");
+		}
+	}
+	
+	private static String itemKey(String sceneName, int sceneItemId)
+	{
+		return sceneName + '\0' + sceneItemId;
+	}
+	
+	private void markStale(String reason)
+	{
+		CompletableFuture<Void> synced;
+		
+		synchronized(this)
+		{
+			// Any sync in progress is dropped
+			generation++;
+			consistency = Consistency.STALE;
+			synced = this.synced;
+		}
+		
+		// The dropped sync never completes it, so anyone waiting would wait forever. The next sync starts a new one
+		synced.completeExceptionally(new IllegalStateException(reason + " before the state cache synced"));
+	}
+	
+	// Called with the lock held
+	private void changed()
+	{
+		version++;
+		updatedAt = System.nanoTime();
+	}
+	
+	private synchronized void onSceneChanged(CurrentProgramSceneChangedEvent event)
+	{
+		currentScene = event.getSceneName();
+		sceneChanged = true;
+		changed();
+	}
+	
+	private void onSceneListChanged(SceneListChangedEvent event)
+	{
+		List<String> added = new ArrayList<String>();
+		
+		synchronized(this)
+		{
+			scenes = List.of(event.getScenes());
+			scenesChanged = true;
+			
+			// Forget removed scenes, and look up the items of new ones
+			sceneItems.keySet().retainAll(scenes);
+			
+			for(String sceneName : scenes)
+			{
+				if(!sceneItems.containsKey(sceneName))
+				{
+					sceneItems.put(sceneName, new ConcurrentHashMap<Integer, Boolean>());
+					added.add(sceneName);
+				}
+			}
+			
+			changed();
+		}
+		
+		fetchSceneItems(added, -1);
+	}
+	
+	private void onSceneNameChanged(SceneNameChangedEvent event)
+	{
+		String oldName = event.getOldSceneName(), newName = event.getSceneName();
+		String prefix = oldName + '\0';
+		boolean resync;
+		
+		synchronized(this)
+		{
+			if(oldName.equals(currentScene))
+			{
+				currentScene = newName;
+				sceneChanged = true;
+			}
+			
+			scenes = scenes.stream().map(name -> name.equals(oldName) ? newName : name).toList();
+			scenesChanged = true;
+			
+			Map<Integer, Boolean> items = sceneItems.remove(oldName);
+			
+			if(items != null)
+			{
+				sceneItems.put(newName, items);
+			}
+			
+			// Answers on their way are for the old name, and would land there
+			resync = consistency == Consistency.SYNCING || itemsCreated.stream().anyMatch(key -> key.startsWith(prefix));
+			changed();
+		}
+		
+		if(resync)
+		{
+			sync();
+		}
+	}
+	
+	private synchronized void onRecordStateChanged(RecordStateChangedEvent event)
+	{
+		recording = event.isOutputActive();
+		recordChanged = true;
+		changed();
+	}
+	
+	private synchronized void onStreamStateChanged(StreamStateChangedEvent event)
+	{
+		streaming = event.isOutputActive();
+		streamChanged = true;
+		changed();
+	}
+	
+	private synchronized void onSceneItemEnableStateChanged(SceneItemEnableStateChangedEvent event)
+	{
+		String key = itemKey(event.getSceneName(), event.getSceneItemId());
+		sceneItems.computeIfAbsent(event.getSceneName(), name -> new ConcurrentHashMap<Integer, Boolean>()).put(event.getSceneItemId(), event.isSceneItemEnabled());
+		itemsChanged.add(key);
+		
+		// Newer than whatever the lookup for a created item answers
+		itemsCreated.remove(key);
+		changed();
+	}
+	
+	private void onSceneItemCreated(SceneItemCreatedEvent event)
+	{
+		String sceneName = event.getSceneName();
+		int sceneItemId = event.getSceneItemId();
+		String key = itemKey(sceneName, sceneItemId);
+		
+		synchronized(this)
+		{
+			// The event doesn't say whether the item is enabled, so it stays unknown until OBS answers
+			itemsChanged.add(key);
+			itemsCreated.add(key);
+		}
+		
+		controller.build(new GetSceneItemEnabledRequest(sceneName, sceneItemId)).submit().whenComplete((request, error) -> {
+			synchronized(this)
+			{
+				// Removed, or changed by an event, while waiting for the answer
+				if(!itemsCreated.remove(key))
+				{
+					return;
+				}
+				
+				if(error != null)
+				{
+					OBSController.LOG.warn("Failed to look up whether scene item {} in {} is enabled", sceneItemId, sceneName, error);
+					return;
+				}
+				
+				sceneItems.computeIfAbsent(sceneName, name -> new ConcurrentHashMap<Integer, Boolean>()).put(sceneItemId, request.isSceneItemEnabled());
+				changed();
+			}
+		});
+	}
+	
+	private synchronized void onSceneItemRemoved(SceneItemRemovedEvent event)
+	{
+		String key = itemKey(event.getSceneName(), event.getSceneItemId());
+		Map<Integer, Boolean> items = sceneItems.get(event.getSceneName());
+		
+		if(items != null)
+		{
+			items.remove(event.getSceneItemId());
+		}
+		
+		// Keeps a sync that started before the removal from adding it back
+		itemsChanged.add(key);
+		itemsCreated.remove(key);
+		changed();
+	}
+}
@@ -0,0 +1,369 @@
+package io.github.freshsupasulley.lwjobs;
+
+import io.github.freshsupasulley.lwjobs.transport.OBSTransport;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Queue of messages waiting to be written to the transport.
+ * <p>
+ * Any thread can add messages, but only one writer drains the queue at a time. The writer writes every queued message back to back and flushes the transport once at the end,
+ * so bursts from many threads don't contend on the transport and get written together. Urgent messages have their own queue, which is always drained first.
+ * </p>
+ * <p>
+ * Messages count against the byte limit from the moment they're queued until the transport finishes writing them. When the limit is reached, the {@link BackpressurePolicy} decides what happens.
+ * Urgent messages and messages sent while the current thread is {@link #reading(Runnable) reading} from the transport are always let in, so
+ * control messages are never dropped and the reader never waits on the writer.
+ * </p>
+ */
+class OutboundQueue {
+	
+	private static final long BLOCK_TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+	
+	// Set while a thread handles a message from the transport
+	private static final ThreadLocal<Boolean> READING = new ThreadLocal<Boolean>();
+	
+	private final OBSTransport transport;
+	private final ControllerMetrics metrics;
+	private final Queue<Frame> queue = new ConcurrentLinkedQueue<Frame>();
+	private final Queue<Frame> urgent = new ConcurrentLinkedQueue<Frame>();
+	private final AtomicBoolean draining = new AtomicBoolean();
+	private final AtomicInteger depth = new AtomicInteger();
+	private final AtomicLong pendingBytes = new AtomicLong();
+	
+	// Threads blocked waiting for room
+	private final Object space = new Object();
+	private final AtomicInteger waiting = new AtomicInteger();
+	
+	private volatile long maxPendingBytes = 8 * 1024 * 1024;
+	private volatile BackpressurePolicy policy = BackpressurePolicy.BLOCK;
+	
+	OutboundQueue(OBSTransport transport, ControllerMetrics metrics)
+	{
+		this.transport = transport;
+		this.metrics = metrics;
+	}
+	
+	void setLimit(long maxPendingBytes, BackpressurePolicy policy)
+	{
+		this.maxPendingBytes = maxPendingBytes;
+		this.policy = policy;
+	}
+	
+	/**
+	 * Runs something that handles a message from the transport. Anything it sends skips the byte limit, since waiting for room would stop the
+	 * messages that free it up from being read.
+	 * 
+	 * @param handler handles the message
+	 */
+	static void reading(Runnable handler)
+	{
+		if(READING.get() != null)
+		{
+			handler.run();
+			return;
+		}
+		
+		READING.set(Boolean.TRUE);
+		
+		try {
+			handler.run();
+		} finally {
+			READING.remove();
+		}
+	}
+	
+	/**
+	 * @return number of messages waiting to be written
+	 */
+	int getDepth()
+	{
+		return depth.get();
+	}
+	
+	/**
+	 * @return bytes queued or being written
+	 */
+	long getPendingBytes()
+	{
+		return pendingBytes.get();
+	}
+	
+	/**
+	 * Queues a text message.
+	 * 
+	 * @param message   the message
+	 * @param onFailure fired if the message is rejected, dropped or fails to write
+	 */
+	void offer(String message, Consumer<Throwable> onFailure)
+	{
+		offer(message, false, onFailure);
+	}
+	
+	/**
+	 * Queues a text message.
+	 * 
+	 * @param message   the message
+	 * @param urgent    true to write it ahead of everything that isn't urgent, regardless of the byte limit
+	 * @param onFailure fired if the message is rejected, dropped or fails to write
+	 */
+	void offer(String message, boolean urgent, Consumer<Throwable> onFailure)
+	{
+		// Close enough to the encoded size without encoding twice
+		offer(new Frame(message, null, message.length(), onFailure), urgent);
+	}
+	
+	/**
+	 * Queues a binary message.
+	 * 
+	 * @param message   the message
+	 * @param onFailure fired if the message is rejected, dropped or fails to write
+	 */
+	void offer(ByteBuffer message, Consumer<Throwable> onFailure)
+	{
+		offer(message, false, onFailure);
+	}
+	
+	/**
+	 * Queues a binary message.
+	 * 
+	 * @param message   the message
+	 * @param urgent    true to write it ahead of everything that isn't urgent, regardless of the byte limit
+	 * @param onFailure fired if the message is rejected, dropped or fails to write
+	 */
+	void offer(ByteBuffer message, boolean urgent, Consumer<Throwable> onFailure)
+	{
+		offer(new Frame(null, message, message.remaining(), onFailure), urgent);
+	}
+	
+	private void offer(Frame frame, boolean urgent)
+	{
+		if(urgent || READING.get() != null)
+		{
+			pendingBytes.addAndGet(frame.size);
+		}
+		else if(!reserve(frame))
+		{
+			return;
+		}
+		
+		(urgent ? this.urgent : queue).add(frame);
+		depth.incrementAndGet();
+		
+		if(draining.compareAndSet(false, true))
+		{
+			Thread.ofVirtual().name("lwjOBS-writer").start(this::drain);
+		}
+	}
+	
+	/**
+	 * Takes room in the queue for a frame, applying the backpressure policy if there isn't any.
+	 * 
+	 * @param frame the frame
+	 * @return true if the frame can be queued
+	 */
+	private boolean reserve(Frame frame)
+	{
+		long deadline = System.nanoTime() + BLOCK_TIMEOUT;
+		
+		while(true)
+		{
+			long pending = pendingBytes.get();
+			
+			// A message bigger than the whole limit still goes through once everything else is out of the way
+			if(pending + frame.size <= maxPendingBytes || pending == 0)
+			{
+				if(pendingBytes.compareAndSet(pending, pending + frame.size))
+				{
+					return true;
+				}
+				
+				continue;
+			}
+			
+			switch(policy)
+			{
+				case FAIL_FAST:
+				{
+					frame.fail(new IllegalStateException("Outbound queue is full (" + pending + " bytes pending)"));
+					return false;
+				}
+				case DROP_OLDEST:
+				{
+					Frame oldest = queue.poll();
+					
+					// Everything left is already being written, so wait for it like BLOCK would
+					if(oldest == null)
+					{
+						if(!await(deadline, frame)) return false;
+						break;
+					}
+					
+					depth.decrementAndGet();
+					release(oldest.size);
+					oldest.fail(new IllegalStateException("Dropped from a full outbound queue"));
+					break;
+				}
+				default:
+				{
+					if(!await(deadline, frame)) return false;
+					break;
+				}
+			}
+		}
+	}
+	
+	private boolean await(long deadline, Frame frame)
+	{
+		long remaining = deadline - System.nanoTime();
+		
+		if(remaining <= 0)
+		{
+			frame.fail(new IllegalStateException("Timed out waiting for room in the outbound queue"));
+			return false;
+		}
+		
+		waiting.incrementAndGet();
+		
+		try {
+			synchronized(space)
+			{
+				// Check again now that we hold the lock, so a release in between isn't missed
+				if(pendingBytes.get() + frame.size > maxPendingBytes)
+				{
+					TimeUnit.NANOSECONDS.timedWait(space, Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(50)));
+				}
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			frame.fail(e);
+			return false;
+		} finally {
+			waiting.decrementAndGet();
+		}
+		
+		return true;
+	}
+	
+	private void release(long size)
+	{
+		pendingBytes.addAndGet(-size);
+		
+		if(waiting.get() > 0)
+		{
+			synchronized(space)
+			{
+				space.notifyAll();
+			}
+		}
+	}
+	
+	/**
+	 * Writes everything in the queue, then flushes. Only one thread runs this at a time.
+	 */
+	private void drain()
+	{
+		do
+		{
+			try {
+				int written = 0;
+				Frame frame;
+				
+				while((frame = poll()) != null)
+				{
+					depth.decrementAndGet();
+					write(frame);
+					written++;
+				}
+				
+				if(written > 0)
+				{
+					transport.flush();
+				}
+			} catch(Throwable t) {
+				OBSController.LOG.error("Outbound writer failed", t);
+			} finally {
+				draining.set(false);
+			}
+		}
+		// Something could have been queued after the last poll but before the flag was cleared
+		while((!urgent.isEmpty() || !queue.isEmpty()) && draining.compareAndSet(false, true));
+	}
+	
+	private Frame poll()
+	{
+		Frame frame = urgent.poll();
+		return frame != null ? frame : queue.poll();
+	}
+	
+	private void write(Frame frame)
+	{
+		CompletableFuture<Void> future;
+		
+		try {
+			future = frame.text != null ? transport.sendText(frame.text) : transport.sendBinary(frame.binary);
+		} catch(Throwable t) {
+			future = CompletableFuture.failedFuture(t);
+		}
+		
+		future.whenComplete((ignored, error) -> {
+			release(frame.size);
+			
+			if(error != null)
+			{
+				OBSController.LOG.debug("Failed to write message", error);
+				frame.fail(error);
+			}
+			else
+			{
+				metrics.outbound(frame.size);
+			}
+		});
+	}
+	
+	/**
+	 * Throws away everything that hasn't been written yet, without failing it. Used when the connection is lost, where the controller deals with the requests itself.
+	 */
+	void clear()
+	{
+		Frame frame;
+		
+		while((frame = poll()) != null)
+		{
+			depth.decrementAndGet();
+			release(frame.size);
+		}
+	}
+	
+	private static class Frame {
+		
+		private final String text;
+		private final ByteBuffer binary;
+		private final long size;
+		private final Consumer<Throwable> onFailure;
+		
+		private Frame(String text, ByteBuffer binary, long size, Consumer<Throwable> onFailure)
+		{
+			this.text = text;
+			this.binary = binary;
+			this.size = size;
+			this.onFailure = onFailure;
+		}
+		
+		private void fail(Throwable cause)
+		{
+			if(onFailure != null)
+			{
+				onFailure.accept(cause);
+			}
+		}
+	}
+}
@@ -0,0 +1,279 @@
+package io.github.freshsupasulley.lwjobs;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Requests waiting for a response, keyed by their numeric request ID.
+ * <p>
+ * Senders and the thread reading responses use this at the same time, so the table is split into stripes that are each locked on their own. Each
+ * stripe is an open addressing hash table of primitive longs, so nothing is boxed or allocated per request (outside of growing).
+ * </p>
+ */
+final class PendingTable<V> {
+	
+	private static final int STRIPES = 16;
+	
+	private final Stripe<V>[] stripes;
+	
+	@SuppressWarnings("unchecked")
+	PendingTable()
+	{
+		stripes = new Stripe[STRIPES];
+		
+		for(int i = 0; i < STRIPES; i++)
+		{
+			stripes[i] = new Stripe<V>();
+		}
+	}
+	
+	static int hash(long key)
+	{
+		// Request IDs are sequential, so spread them out before picking a stripe and slot
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}
+	
+	private Stripe<V> stripe(int hash)
+	{
+		return stripes[hash & (STRIPES - 1)];
+	}
+	
+	/**
+	 * Adds a value, replacing any value already under the key.
+	 * 
+	 * @param key   request ID
+	 * @param value the value
+	 */
+	void put(long key, V value)
+	{
+		int hash = hash(key);
+		Stripe<V> stripe = stripe(hash);
+		
+		synchronized(stripe)
+		{
+			stripe.put(key, hash >>> 4, value);
+		}
+	}
+	
+	/**
+	 * @param key request ID
+	 * @return the value under the key, or null
+	 */
+	V get(long key)
+	{
+		int hash = hash(key);
+		Stripe<V> stripe = stripe(hash);
+		
+		synchronized(stripe)
+		{
+			int slot = stripe.find(key, hash >>> 4);
+			return slot == -1 ? null : stripe.values[slot];
+		}
+	}
+	
+	/**
+	 * @param key request ID
+	 * @return the removed value, or null if nothing was under the key
+	 */
+	V remove(long key)
+	{
+		int hash = hash(key);
+		Stripe<V> stripe = stripe(hash);
+		
+		synchronized(stripe)
+		{
+			return stripe.remove(key, hash >>> 4);
+		}
+	}
+	
+	/**
+	 * @return number of values in the table
+	 */
+	int size()
+	{
+		int size = 0;
+		
+		for(Stripe<V> stripe : stripes)
+		{
+			synchronized(stripe)
+			{
+				size += stripe.size;
+			}
+		}
+		
+		return size;
+	}
+	
+	/**
+	 * @return number of slots allocated across every stripe
+	 */
+	int capacity()
+	{
+		int capacity = 0;
+		
+		for(Stripe<V> stripe : stripes)
+		{
+			synchronized(stripe)
+			{
+				capacity += stripe.values.length;
+			}
+		}
+		
+		return capacity;
+	}
+	
+	/**
+	 * Removes every value, passing each one to the consumer. Values added while draining may or may not be included.
+	 * 
+	 * @param consumer receives each removed key and value
+	 */
+	void drain(BiConsumer<Long, V> consumer)
+	{
+		for(Stripe<V> stripe : stripes)
+		{
+			long[] keys;
+			V[] values;
+			
+			synchronized(stripe)
+			{
+				keys = stripe.keys;
+				values = stripe.values;
+				stripe.clear();
+			}
+			
+			for(int i = 0; i < values.length; i++)
+			{
+				if(values[i] != null)
+				{
+					consumer.accept(keys[i], values[i]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * One lock's worth of the table. Linear probing, with deleted slots filled by shifting later entries back so there are no tombstones.
+	 */
+	private static final class Stripe<V> {
+		
+		private static final int INITIAL_CAPACITY = 16;
+		
+		private long[] keys;
+		private V[] values;
+		private int size;
+		
+		private Stripe()
+		{
+			clear();
+		}
+		
+		@SuppressWarnings("unchecked")
+		private void clear()
+		{
+			keys = new long[INITIAL_CAPACITY];
+			values = (V[]) new Object[INITIAL_CAPACITY];
+			size = 0;
+		}
+		
+		private int find(long key, int hash)
+		{
+			int mask = values.length - 1;
+			
+			for(int slot = hash & mask; values[slot] != null; slot = (slot + 1) & mask)
+			{
+				if(keys[slot] == key)
+				{
+					return slot;
+				}
+			}
+			
+			return -1;
+		}
+		
+		private void put(long key, int hash, V value)
+		{
+			// Keep at most half full so probes stay short
+			if((size + 1) * 2 > values.length)
+			{
+				resize(values.length * 2);
+			}
+			
+			int mask = values.length - 1;
+			int slot = hash & mask;
+			
+			while(values[slot] != null)
+			{
+				if(keys[slot] == key)
+				{
+					values[slot] = value;
+					return;
+				}
+				
+				slot = (slot + 1) & mask;
+			}
+			
+			keys[slot] = key;
+			values[slot] = value;
+			size++;
+		}
+		
+		private V remove(long key, int hash)
+		{
+			int slot = find(key, hash);
+			
+			if(slot == -1)
+			{
+				return null;
+			}
+			
+			V value = values[slot];
+			int mask = values.length - 1;
+			
+			// Shift back anything later in the probe sequence that could have used this slot
+			int empty = slot;
+			
+			for(int next = (slot + 1) & mask; values[next] != null; next = (next + 1) & mask)
+			{
+				int home = (hash(keys[next]) >>> 4) & mask;
+				
+				// Only move it if its home slot isn't between the empty slot and where it is now
+				if(((next - home) & mask) >= ((next - empty) & mask))
+				{
+					keys[empty] = keys[next];
+					values[empty] = values[next];
+					empty = next;
+				}
+			}
+			
+			values[empty] = null;
+			size--;
+			
+			// Shrink back down after a burst
+			if(values.length > INITIAL_CAPACITY && size * 8 < values.length)
+			{
+				resize(values.length / 2);
+			}
+			
+			return value;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private void resize(int capacity)
+		{
+			long[] oldKeys = keys;
+			V[] oldValues = values;
+			
+			keys = new long[capacity];
+			values = (V[]) new Object[capacity];
+			size = 0;
+			
+			for(int i = 0; i < oldValues.length; i++)
+			{
+				if(oldValues[i] != null)
+				{
+					put(oldKeys[i], hash(oldKeys[i]) >>> 4, oldValues[i]);
+				}
+			}
+		}
+	}
+}
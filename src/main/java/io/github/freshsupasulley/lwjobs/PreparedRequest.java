@@ -0,0 +1,443 @@
+package io.github.freshsupasulley.lwjobs;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+import io.github.freshsupasulley.lwjobs.requests.SceneItemNameRequest;
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A request that's serialized once and resent many times with different parameters. Created with {@link OBSController#prepare(Supplier, String...)}.
+ * <p>
+ * The whole message is built and serialized up front, with gaps left for the request ID and the named parameters of requestData. Each send only
+ * writes the saved pieces and the new values into a reused buffer, instead of building JSON objects and serializing them again. This is meant for
+ * requests sent over and over, like toggling a scene item.
+ * </p>
+ * 
+ * <p><b>Example:</b></p>
+ * 
+ * <pre>
+ * PreparedRequest&lt;SetSceneItemEnabled&gt; toggle = controller.prepare(() -&gt; new SetSceneItemEnabled("Gameplay", 7, true), "sceneItemEnabled");
+ * toggle.queue(false);
+ * toggle.queue(true);
+ * </pre>
+ * 
+ * @param <T> type of the request
+ */
+public class PreparedRequest<T extends OBSRequest> {
+	
+	// Stand-ins for the gaps. Serialized like any other string, then cut out
+	private static final String REQUEST_ID = "\u0000lwjOBS-requestId";
+	private static final String PARAMETER = "\u0000lwjOBS-parameter-";
+	
+	private final OBSController controller;
+	private final Supplier<T> factory;
+	private final String requestType;
+	private final int parameters;
+	private volatile RequestPriority priority = RequestPriority.NORMAL;
+	
+	// Pieces of the message between the gaps, and what goes in each gap (-1 for the request ID)
+	private final String[] textPieces;
+	private final int[] textGaps;
+	private final byte[][] binaryPieces;
+	private final int[] binaryGaps;
+	
+	// Reused between sends
+	private final StringBuilder text = new StringBuilder();
+	private final MessageBufferPacker binary = MessagePack.newDefaultBufferPacker();
+	
+	PreparedRequest(OBSController controller, Supplier<T> factory, String... parameters)
+	{
+		this.controller = controller;
+		this.factory = factory;
+		this.parameters = parameters.length;
+		
+		T request = factory.get();
+		this.requestType = request.getRequestType();
+		
+		// The ID would be serialized before it's looked up
+		if(request instanceof SceneItemNameRequest)
+		{
+			throw new IllegalArgumentException("Scene items named by source can't be prepared, prepare " + requestType + " with the scene item's ID instead");
+		}
+		
+		JsonObject requestData = new JsonObject();
+		request.applyJSON(requestData);
+		
+		List<String> markers = new ArrayList<String>();
+		markers.add(REQUEST_ID);
+		
+		for(int i = 0; i < parameters.length; i++)
+		{
+			if(!requestData.has(parameters[i]))
+			{
+				throw new IllegalArgumentException(requestType + " has no parameter named " + parameters[i]);
+			}
+			
+			String marker = PARAMETER + i;
+			requestData.addProperty(parameters[i], marker);
+			markers.add(marker);
+		}
+		
+		// Same shape as OBSController#createRequest
+		JsonObject data = new JsonObject();
+		data.addProperty("requestType", requestType);
+		data.addProperty("requestId", REQUEST_ID);
+		data.add("requestData", requestData);
+		
+		JsonObject json = new JsonObject();
+		json.addProperty("op", 6);
+		json.add("d", data);
+		
+		// Cut the serialized message at every marker
+		String serialized = json.toString();
+		List<String> textPieces = new ArrayList<String>();
+		List<Integer> textGaps = new ArrayList<Integer>();
+		
+		byte[] encoded = MessagePackCodec.encode(json);
+		List<byte[]> binaryPieces = new ArrayList<byte[]>();
+		List<Integer> binaryGaps = new ArrayList<Integer>();
+		
+		int textStart = 0, binaryStart = 0;
+		
+		while(true)
+		{
+			int textNext = -1, binaryNext = -1, textGap = 0, binaryGap = 0;
+			String textMarker = null;
+			byte[] binaryMarker = null;
+			
+			for(int i = 0; i < markers.size(); i++)
+			{
+				String marker = new JsonPrimitive(markers.get(i)).toString();
+				int index = serialized.indexOf(marker, textStart);
+				
+				if(index != -1 && (textNext == -1 || index < textNext))
+				{
+					textNext = index;
+					textGap = i - 1;
+					textMarker = marker;
+				}
+				
+				byte[] packed = MessagePackCodec.encode(new JsonPrimitive(markers.get(i)));
+				index = indexOf(encoded, packed, binaryStart);
+				
+				if(index != -1 && (binaryNext == -1 || index < binaryNext))
+				{
+					binaryNext = index;
+					binaryGap = i - 1;
+					binaryMarker = packed;
+				}
+			}
+			
+			if(textNext == -1)
+			{
+				textPieces.add(serialized.substring(textStart));
+				binaryPieces.add(Arrays.copyOfRange(encoded, binaryStart, encoded.length));
+				break;
+			}
+			
+			textPieces.add(serialized.substring(textStart, textNext));
+			textGaps.add(textGap);
+			textStart = textNext + textMarker.length();
+			
+			binaryPieces.add(Arrays.copyOfRange(encoded, binaryStart, binaryNext));
+			binaryGaps.add(binaryGap);
+			binaryStart = binaryNext + binaryMarker.length;
+		}
+		
+		this.textPieces = textPieces.toArray(new String[0]);
+		this.textGaps = textGaps.stream().mapToInt(Integer::intValue).toArray();
+		this.binaryPieces = binaryPieces.toArray(new byte[0][]);
+		this.binaryGaps = binaryGaps.stream().mapToInt(Integer::intValue).toArray();
+	}
+	
+	private static int indexOf(byte[] array, byte[] target, int from)
+	{
+		outer:
+		for(int i = from; i <= array.length - target.length; i++)
+		{
+			for(int j = 0; j < target.length; j++)
+			{
+				if(array[i + j] != target[j])
+				{
+					continue outer;
+				}
+			}
+			
+			return i;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * @return name of the prepared request
+	 */
+	public String getRequestType()
+	{
+		return requestType;
+	}
+	
+	/**
+	 * Sets how urgently every send of this request goes out. Defaults to {@link RequestPriority#NORMAL}.
+	 * 
+	 * @param priority the priority
+	 * @return this, for chaining
+	 * @see OBSRequestBuilder#priority(RequestPriority)
+	 */
+	public PreparedRequest<T> priority(RequestPriority priority)
+	{
+		this.priority = priority;
+		return this;
+	}
+	
+	/**
+	 * Sends the request with new parameter values. Failures are logged.
+	 * 
+	 * @param values values of the parameters, in the order they were named when preparing
+	 */
+	public void queue(Object... values)
+	{
+		submit(values);
+	}
+	
+	/**
+	 * Sends the request with new parameter values and returns a {@link CompletableFuture} for asynchronous logic.
+	 * <p>
+	 * Each send gets a new request object from the factory to hold the response. Values can be strings, numbers, booleans, {@link JsonElement}s or
+	 * null.
+	 * </p>
+	 * 
+	 * @param values values of the parameters, in the order they were named when preparing
+	 * @return CompletableFuture object
+	 */
+	public CompletableFuture<T> submit(Object... values)
+	{
+		if(values.length != parameters)
+		{
+			throw new IllegalArgumentException(requestType + " was prepared with " + parameters + " parameters but got " + values.length);
+		}
+		
+		Send<T> send = new Send<T>(this, factory.get(), values);
+		send.priority = priority;
+		return controller.sendRequest(send);
+	}
+	
+	/**
+	 * Writes the message with the request ID and values filled in, then queues it.
+	 * 
+	 * @param outbound    queue to send it through
+	 * @param messagePack true to write MessagePack, false for JSON text
+	 * @param urgent      true to write it ahead of everything else queued
+	 * @param requestID   ID of this send
+	 * @param values      parameter values
+	 * @param onFailure   fired if the message couldn't be sent
+	 */
+	void offer(OutboundQueue outbound, boolean messagePack, boolean urgent, String requestID, Object[] values, Consumer<Throwable> onFailure)
+	{
+		if(messagePack)
+		{
+			outbound.offer(ByteBuffer.wrap(writeBinary(requestID, values)), urgent, onFailure);
+		}
+		else
+		{
+			String message = writeText(requestID, values);
+			OBSController.LOG.trace("OUTBOUND: {}", message);
+			outbound.offer(message, urgent, onFailure);
+		}
+	}
+	
+	synchronized String writeText(String requestID, Object[] values)
+	{
+		text.setLength(0);
+		
+		for(int i = 0; i < textGaps.length; i++)
+		{
+			text.append(textPieces[i]);
+			
+			if(textGaps[i] == -1)
+			{
+				appendString(requestID);
+			}
+			else
+			{
+				appendValue(values[textGaps[i]]);
+			}
+		}
+		
+		text.append(textPieces[textGaps.length]);
+		return text.toString();
+	}
+	
+	synchronized byte[] writeBinary(String requestID, Object[] values)
+	{
+		try {
+			binary.clear();
+			
+			for(int i = 0; i < binaryGaps.length; i++)
+			{
+				binary.writePayload(binaryPieces[i]);
+				
+				if(binaryGaps[i] == -1)
+				{
+					binary.packString(requestID);
+				}
+				else
+				{
+					packValue(values[binaryGaps[i]]);
+				}
+			}
+			
+			binary.writePayload(binaryPieces[binaryGaps.length]);
+			return binary.toByteArray();
+		} catch(IOException e) {
+			throw new UncheckedIOException("Failed to encode " + requestType, e);
+		}
+	}
+	
+	private void appendValue(Object value)
+	{
+		if(value == null)
+		{
+			text.append("null");
+		}
+		else if(value instanceof String)
+		{
+			appendString((String) value);
+		}
+		else if(value instanceof Integer)
+		{
+			text.append((int) value);
+		}
+		else if(value instanceof Long)
+		{
+			text.append((long) value);
+		}
+		else if(value instanceof Boolean)
+		{
+			text.append((boolean) value);
+		}
+		else if(value instanceof Number)
+		{
+			text.append(new JsonPrimitive((Number) value));
+		}
+		else if(value instanceof JsonElement)
+		{
+			text.append(value);
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unsupported parameter value: " + value);
+		}
+	}
+	
+	private void appendString(String value)
+	{
+		text.append('"');
+		
+		for(int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			
+			switch(c)
+			{
+				case '"':
+				case '\\':
+				{
+					text.append('\\').append(c);
+					break;
+				}
+				case '\n':
+				{
+					text.append("\\n");
+					break;
+				}
+				case '\r':
+				{
+					text.append("\\r");
+					break;
+				}
+				case '\t':
+				{
+					text.append("\\t");
+					break;
+				}
+				default:
+				{
+					if(c < 0x20)
+					{
+						text.append(String.format("\\u%04x", (int) c));
+					}
+					else
+					{
+						text.append(c);
+					}
+					
+					break;
+				}
+			}
+		}
+		
+		text.append('"');
+	}
+	
+	private void packValue(Object value) throws IOException
+	{
+		if(value == null)
+		{
+			binary.packNil();
+		}
+		else if(value instanceof String)
+		{
+			binary.packString((String) value);
+		}
+		else if(value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+		{
+			binary.packLong(((Number) value).longValue());
+		}
+		else if(value instanceof Boolean)
+		{
+			binary.packBoolean((boolean) value);
+		}
+		else if(value instanceof Number)
+		{
+			binary.writePayload(MessagePackCodec.encode(new JsonPrimitive((Number) value)));
+		}
+		else if(value instanceof JsonElement)
+		{
+			binary.writePayload(MessagePackCodec.encode((JsonElement) value));
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unsupported parameter value: " + value);
+		}
+	}
+	
+	/**
+	 * One send of a prepared request.
+	 */
+	static final class Send<T extends OBSRequest> extends OBSBuiltRequest<T> {
+		
+		final PreparedRequest<T> prepared;
+		final Object[] values;
+		
+		private Send(PreparedRequest<T> prepared, T request, Object[] values)
+		{
+			super(request, null, null);
+			this.prepared = prepared;
+			this.values = values;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package io.github.freshsupasulley.lwjobs;
+
+/**
+ * How long requests of one priority waited before being sent, since the controller was created. Waiting covers rate limits and the in-flight
+ * limit, not the outbound queue.
+ * 
+ * @see OBSController#getPriorityStats(RequestPriority)
+ */
+public final class PriorityStats {
+	
+	private final RequestPriority priority;
+	private final long sent, totalWaitNanos, maxWaitNanos;
+	private final int queued;
+	
+	PriorityStats(RequestPriority priority, long sent, long totalWaitNanos, long maxWaitNanos, int queued)
+	{
+		this.priority = priority;
+		this.sent = sent;
+		this.totalWaitNanos = totalWaitNanos;
+		this.maxWaitNanos = maxWaitNanos;
+		this.queued = queued;
+	}
+	
+	/**
+	 * @return the priority these stats are for
+	 */
+	public RequestPriority getPriority()
+	{
+		return priority;
+	}
+	
+	/**
+	 * @return number of requests sent
+	 */
+	public long getSent()
+	{
+		return sent;
+	}
+	
+	/**
+	 * @return number of requests waiting to be sent right now
+	 */
+	public int getQueued()
+	{
+		return queued;
+	}
+	
+	/**
+	 * @return total time sent requests spent waiting, in nanoseconds
+	 */
+	public long getTotalWaitNanos()
+	{
+		return totalWaitNanos;
+	}
+	
+	/**
+	 * @return average time a sent request spent waiting, in nanoseconds
+	 */
+	public long getAverageWaitNanos()
+	{
+		return sent == 0 ? 0 : totalWaitNanos / sent;
+	}
+	
+	/**
+	 * @return longest time a sent request spent waiting, in nanoseconds
+	 */
+	public long getMaxWaitNanos()
+	{
+		return maxWaitNanos;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return priority + " [sent=" + sent + ", queued=" + queued + ", averageWait=" + getAverageWaitNanos() + "ns, maxWait=" + maxWaitNanos + "ns]";
+	}
+}
@@ -0,0 +1,123 @@
+package io.github.freshsupasulley.lwjobs;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides if and when the controller reconnects after losing its connection to OBS.
+ * <p>
+ * Delays grow exponentially from the initial delay up to the max delay, with random jitter so many controllers don't reconnect in lockstep.
+ * </p>
+ * 
+ * <pre>
+ * new OBSController()
+ * 	.useReconnectPolicy(ReconnectPolicy.exponential().maxAttempts(20))
+ * 	.connect("ws://localhost:4455");
+ * </pre>
+ * 
+ * @see OBSController#useReconnectPolicy(ReconnectPolicy)
+ */
+public class ReconnectPolicy {
+	
+	private long initialDelay = 500, maxDelay = 30_000;
+	private double multiplier = 2, jitter = 0.2;
+	private int maxAttempts = Integer.MAX_VALUE;
+	
+	private ReconnectPolicy() {}
+	
+	/**
+	 * Creates a policy that retries forever, starting at 500ms and doubling up to 30 seconds with 20% jitter.
+	 * 
+	 * @return new reconnect policy
+	 */
+	public static ReconnectPolicy exponential()
+	{
+		return new ReconnectPolicy();
+	}
+	
+	/**
+	 * Sets the delay before the first attempt.
+	 * 
+	 * @param delay delay before the first attempt
+	 * @param unit  the time unit of the delay parameter
+	 * @return this, for chaining
+	 */
+	public ReconnectPolicy initialDelay(long delay, TimeUnit unit)
+	{
+		this.initialDelay = unit.toMillis(delay);
+		return this;
+	}
+	
+	/**
+	 * Sets the longest delay between attempts.
+	 * 
+	 * @param delay max delay between attempts
+	 * @param unit  the time unit of the delay parameter
+	 * @return this, for chaining
+	 */
+	public ReconnectPolicy maxDelay(long delay, TimeUnit unit)
+	{
+		this.maxDelay = unit.toMillis(delay);
+		return this;
+	}
+	
+	/**
+	 * Sets how much the delay grows after each failed attempt.
+	 * 
+	 * @param multiplier growth factor, at least 1
+	 * @return this, for chaining
+	 */
+	public ReconnectPolicy multiplier(double multiplier)
+	{
+		if(multiplier < 1) throw new IllegalArgumentException("Multiplier must be at least 1");
+		this.multiplier = multiplier;
+		return this;
+	}
+	
+	/**
+	 * Sets how much each delay is randomly shortened or lengthened by.
+	 * 
+	 * @param jitter fraction of the delay, between 0 and 1
+	 * @return this, for chaining
+	 */
+	public ReconnectPolicy jitter(double jitter)
+	{
+		if(jitter < 0 || jitter > 1) throw new IllegalArgumentException("Jitter must be between 0 and 1");
+		this.jitter = jitter;
+		return this;
+	}
+	
+	/**
+	 * Sets how many attempts are made before giving up.
+	 * 
+	 * @param maxAttempts max number of attempts
+	 * @return this, for chaining
+	 */
+	public ReconnectPolicy maxAttempts(int maxAttempts)
+	{
+		if(maxAttempts < 1) throw new IllegalArgumentException("Max attempts must be at least 1");
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+	
+	/**
+	 * @return max number of attempts before giving up
+	 */
+	public int getMaxAttempts()
+	{
+		return maxAttempts;
+	}
+	
+	/**
+	 * Calculates how long to wait before an attempt.
+	 * 
+	 * @param attempt attempt number, starting at 1
+	 * @return delay in milliseconds
+	 */
+	public long getDelay(int attempt)
+	{
+		double delay = Math.min(maxDelay, initialDelay * Math.pow(multiplier, attempt - 1));
+		double spread = delay * jitter;
+		return Math.max(0, Math.round(delay + ThreadLocalRandom.current().nextDouble(-spread, spread + Double.MIN_VALUE)));
+	}
+}
@@ -0,0 +1,37 @@
+package io.github.freshsupasulley.lwjobs;
+
+/**
+ * How OBS should execute the requests of a batch. See <a href="https://github.com/obsproject/obs-websocket/blob/master/docs/generated/protocol.md#requestbatchexecutiontype">RequestBatchExecutionType</a>.
+ */
+public enum RequestBatchExecutionType {
+	
+	/**
+	 * Processes all requests serially, as fast as possible.
+	 */
+	SERIAL_REALTIME(0),
+	
+	/**
+	 * Processes all requests serially, in sync with the graphics thread. Useful for synchronizing changes to the frame.
+	 */
+	SERIAL_FRAME(1),
+	
+	/**
+	 * Processes all requests at the same time using a thread pool. The order of the results is not guaranteed.
+	 */
+	PARALLEL(2);
+	
+	private final int code;
+	
+	private RequestBatchExecutionType(int code)
+	{
+		this.code = code;
+	}
+	
+	/**
+	 * @return value sent to the WebSocket as the executionType
+	 */
+	public int getCode()
+	{
+		return code;
+	}
+}
@@ -0,0 +1,26 @@
+package io.github.freshsupasulley.lwjobs;
+
+/**
+ * How urgently a request should go out. Each priority has its own queue and rate limit, and higher priorities are always sent first.
+ * 
+ * @see OBSRequestBuilder#priority(RequestPriority)
+ * @see OBSController#useRateLimit(RequestPriority, double, int)
+ */
+public enum RequestPriority {
+	
+	/**
+	 * Time-critical requests, like switching scenes. Skips the in-flight limit and the outbound byte limit, and is written to the WebSocket ahead of
+	 * everything else.
+	 */
+	REALTIME,
+	
+	/**
+	 * Everyday requests. This is the default.
+	 */
+	NORMAL,
+	
+	/**
+	 * Polling and other requests that can wait, like screenshots. Only sent when nothing of a higher priority is waiting.
+	 */
+	BACKGROUND
+}
@@ -0,0 +1,382 @@
+package io.github.freshsupasulley.lwjobs;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Decides when requests go out, by priority, rate limit and how many are waiting for an answer.
+ * <p>
+ * Each {@link RequestPriority} has its own queue and optional token bucket. Higher priorities are always sent first, and a priority that's out of
+ * tokens doesn't hold up the ones below it. The in-flight limit caps how many requests are sent but not answered yet, except for
+ * {@link RequestPriority#REALTIME} requests, which skip it.
+ * </p>
+ * <p>
+ * Only one thread sends at a time, so requests of one priority go out in the order they were submitted. With no limits set, requests skip the queues
+ * entirely, but are still counted as in flight so a limit set later starts from the real number.
+ * </p>
+ */
+final class RequestScheduler {
+	
+	private static final RequestPriority[] PRIORITIES = RequestPriority.values();
+	
+	private final Consumer<OBSBuiltRequest<?>> sender;
+	private final ScheduledExecutorService timer;
+	private final Lane[] lanes = new Lane[PRIORITIES.length];
+	private final AtomicBoolean sending = new AtomicBoolean();
+	
+	// Guarded by this, queued is also read without the lock
+	private int maxInFlight;
+	private volatile int queued;
+	
+	// Also counted without the lock by requests that skip the queues
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private boolean wakeScheduled;
+	
+	// True once any limit is set, before that everything goes straight out
+	private volatile boolean limited;
+	
+	/**
+	 * @param sender writes a request to the WebSocket
+	 * @param timer  wakes the scheduler up once a rate limit allows more requests
+	 */
+	RequestScheduler(Consumer<OBSBuiltRequest<?>> sender, ScheduledExecutorService timer)
+	{
+		this.sender = sender;
+		this.timer = timer;
+		
+		for(RequestPriority priority : PRIORITIES)
+		{
+			lanes[priority.ordinal()] = new Lane();
+		}
+	}
+	
+	/**
+	 * @param maxInFlight max requests sent but not answered, or 0 for no limit
+	 */
+	void setMaxInFlight(int maxInFlight)
+	{
+		synchronized(this)
+		{
+			this.maxInFlight = Math.max(0, maxInFlight);
+			updateLimited();
+		}
+		
+		// Raising or removing the limit can free up queued requests
+		wake();
+	}
+	
+	/**
+	 * @param priority          the priority
+	 * @param requestsPerSecond requests sent per second on average, or 0 or less for no limit
+	 * @param burst             requests that can be sent at once after being idle
+	 */
+	void setRateLimit(RequestPriority priority, double requestsPerSecond, int burst)
+	{
+		synchronized(this)
+		{
+			lanes[priority.ordinal()].bucket = requestsPerSecond > 0 ? new TokenBucket(requestsPerSecond, Math.max(1, burst)) : null;
+			updateLimited();
+		}
+		
+		wake();
+	}
+	
+	private void updateLimited()
+	{
+		boolean limited = maxInFlight > 0;
+		
+		for(Lane lane : lanes)
+		{
+			limited |= lane.bucket != null;
+		}
+		
+		this.limited = limited;
+	}
+	
+	/**
+	 * Sends a request now or once the limits allow it. The request should already be waiting for a response.
+	 * 
+	 * @param request the request
+	 */
+	void submit(OBSBuiltRequest<?> request)
+	{
+		Lane lane = lanes[request.priority.ordinal()];
+		
+		// Nothing to wait for and nothing queued from when limits were set, so skip the lock
+		if(!limited && queued == 0)
+		{
+			request.inFlight = true;
+			inFlight.incrementAndGet();
+			lane.sent.increment();
+			sender.accept(request);
+			return;
+		}
+		
+		synchronized(this)
+		{
+			request.queuedAt = System.nanoTime();
+			lane.queue.add(request);
+			queued++;
+		}
+		
+		drain();
+	}
+	
+	/**
+	 * Frees up the request's in-flight slot once it's answered, failed or cancelled. Safe to call more than once.
+	 * 
+	 * @param request the request
+	 */
+	void release(OBSBuiltRequest<?> request)
+	{
+		synchronized(this)
+		{
+			if(!request.inFlight)
+			{
+				return;
+			}
+			
+			request.inFlight = false;
+			inFlight.decrementAndGet();
+		}
+		
+		wake();
+	}
+	
+	/**
+	 * Sends whatever the limits allow now, if anything is queued.
+	 */
+	private void wake()
+	{
+		if(queued == 0)
+		{
+			return;
+		}
+		
+		// Usually called while reading a response, which shouldn't wait on sending
+		Thread.ofVirtual().name("lwjOBS-scheduler").start(this::drain);
+	}
+	
+	/**
+	 * Forgets every queued request, without failing them. Used when the connection is lost, where the controller deals with the requests itself.
+	 * Requests already sent keep their in-flight slot until they're released.
+	 */
+	synchronized void clear()
+	{
+		for(Lane lane : lanes)
+		{
+			lane.queue.clear();
+		}
+		
+		queued = 0;
+	}
+	
+	/**
+	 * @return requests sent but not released yet
+	 */
+	int getInFlight()
+	{
+		return inFlight.get();
+	}
+	
+	/**
+	 * @return requests waiting for the limits to allow them
+	 */
+	int getQueued()
+	{
+		return queued;
+	}
+	
+	/**
+	 * @param priority the priority
+	 * @return wait times of the priority so far
+	 */
+	PriorityStats getStats(RequestPriority priority)
+	{
+		Lane lane = lanes[priority.ordinal()];
+		int queued;
+		
+		synchronized(this)
+		{
+			queued = lane.queue.size();
+		}
+		
+		return new PriorityStats(priority, lane.sent.sum(), lane.waitNanos.sum(), lane.maxWaitNanos, queued);
+	}
+	
+	/**
+	 * Sends everything the limits allow right now. Only one thread does this at a time.
+	 */
+	private void drain()
+	{
+		while(sending.compareAndSet(false, true))
+		{
+			try {
+				OBSBuiltRequest<?> request;
+				
+				while((request = next()) != null)
+				{
+					sender.accept(request);
+				}
+			} finally {
+				sending.set(false);
+			}
+			
+			// Something could have become ready after the last check but before the flag was cleared
+			if(!ready())
+			{
+				break;
+			}
+		}
+	}
+	
+	private synchronized boolean ready()
+	{
+		long now = System.nanoTime();
+		
+		for(RequestPriority priority : PRIORITIES)
+		{
+			Lane lane = lanes[priority.ordinal()];
+			
+			if(!lane.queue.isEmpty() && (priority == RequestPriority.REALTIME || maxInFlight == 0 || inFlight.get() < maxInFlight) && (lane.bucket == null || lane.bucket.available(now)))
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * @return the next request that can be sent, or null if the limits don't allow any right now
+	 */
+	private synchronized OBSBuiltRequest<?> next()
+	{
+		long now = System.nanoTime();
+		long wake = Long.MAX_VALUE;
+		
+		for(RequestPriority priority : PRIORITIES)
+		{
+			Lane lane = lanes[priority.ordinal()];
+			OBSBuiltRequest<?> request;
+			
+			while((request = lane.queue.peek()) != null)
+			{
+				// Answered, timed out or cancelled while it was waiting
+				if(request.isFired() || request.isDone())
+				{
+					lane.queue.poll();
+					queued--;
+					continue;
+				}
+				
+				// Lower priorities are over the limit too
+				if(priority != RequestPriority.REALTIME && maxInFlight > 0 && inFlight.get() >= maxInFlight)
+				{
+					return null;
+				}
+				
+				if(lane.bucket != null && !lane.bucket.tryAcquire(now))
+				{
+					wake = Math.min(wake, lane.bucket.nanosUntilAvailable());
+					break;
+				}
+				
+				lane.queue.poll();
+				queued--;
+				
+				request.inFlight = true;
+				inFlight.incrementAndGet();
+				
+				long waited = now - request.queuedAt;
+				lane.sent.increment();
+				lane.waitNanos.add(waited);
+				lane.maxWaitNanos = Math.max(lane.maxWaitNanos, waited);
+				return request;
+			}
+		}
+		
+		if(wake != Long.MAX_VALUE && !wakeScheduled)
+		{
+			wakeScheduled = true;
+			
+			timer.schedule(() -> {
+				synchronized(this)
+				{
+					wakeScheduled = false;
+				}
+				
+				// Sending can block on backpressure, which would hold up the timer
+				Thread.ofVirtual().name("lwjOBS-scheduler").start(this::drain);
+			}, wake, TimeUnit.NANOSECONDS);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Queue and stats of one priority.
+	 */
+	private static final class Lane {
+		
+		private final ArrayDeque<OBSBuiltRequest<?>> queue = new ArrayDeque<OBSBuiltRequest<?>>();
+		private final LongAdder sent = new LongAdder();
+		private final LongAdder waitNanos = new LongAdder();
+		
+		// Guarded by the scheduler
+		private TokenBucket bucket;
+		private volatile long maxWaitNanos;
+	}
+	
+	/**
+	 * Refills at a steady rate up to the burst size, and every request takes a token.
+	 */
+	private static final class TokenBucket {
+		
+		private final double tokensPerNano;
+		private final double burst;
+		private double tokens;
+		private long refilled = System.nanoTime();
+		
+		private TokenBucket(double requestsPerSecond, int burst)
+		{
+			this.tokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+			this.burst = burst;
+			this.tokens = burst;
+		}
+		
+		private void refill(long now)
+		{
+			tokens = Math.min(burst, tokens + (now - refilled) * tokensPerNano);
+			refilled = now;
+		}
+		
+		private boolean available(long now)
+		{
+			refill(now);
+			return tokens >= 1;
+		}
+		
+		private boolean tryAcquire(long now)
+		{
+			if(!available(now))
+			{
+				return false;
+			}
+			
+			tokens--;
+			return true;
+		}
+		
+		// Only valid right after a refill
+		private long nanosUntilAvailable()
+		{
+			return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package io.github.freshsupasulley.lwjobs;
+
+import io.github.freshsupasulley.lwjobs.events.EventDelivery;
+import io.github.freshsupasulley.lwjobs.impl.GetSceneItemIdRequest;
+import io.github.freshsupasulley.lwjobs.impl.SceneItemCreatedEvent;
+import io.github.freshsupasulley.lwjobs.impl.SceneItemRemovedEvent;
+import io.github.freshsupasulley.lwjobs.impl.SceneNameChangedEvent;
+import io.github.freshsupasulley.lwjobs.requests.SceneItemNameRequest;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Numeric IDs of scene items looked up by name, for {@link SceneItemNameRequest}s.
+ * <p>
+ * Lookups of the same item share one GetSceneItemId request, and the answer is kept until an event says it may be wrong: an item showing the source
+ * was added to or removed from the scene (which can change which one a search offset lands on), or the scene was renamed. Everything is forgotten
+ * when the connection is lost, since events could be missed.
+ * </p>
+ */
+final class SceneItemIdCache implements ConnectionListener {
+	
+	private final OBSController controller;
+	
+	// Keyed by scene, source and search offset. Failed lookups are removed so they're tried again
+	private final Map<String, CompletableFuture<Integer>> ids = new ConcurrentHashMap<String, CompletableFuture<Integer>>();
+	
+	// Goes up with every invalidation, so lookups that were waiting while one happened aren't cached
+	private final AtomicLong version = new AtomicLong();
+	private volatile boolean listening;
+	
+	SceneItemIdCache(OBSController controller)
+	{
+		this.controller = controller;
+	}
+	
+	private static String key(String sceneName, String sourceName, int searchOffset)
+	{
+		return prefix(sceneName, sourceName) + searchOffset;
+	}
+	
+	private static String prefix(String sceneName, String sourceName)
+	{
+		return prefix(sceneName) + sourceName + '\0';
+	}
+	
+	private static String prefix(String sceneName)
+	{
+		return sceneName + '\0';
+	}
+	
+	/**
+	 * @param request the request
+	 * @return ID of the request's scene item if it's already known, otherwise null
+	 */
+	Integer getNow(SceneItemNameRequest request)
+	{
+		CompletableFuture<Integer> id = ids.get(key(request.getSceneName(), request.getSourceName(), request.getSearchOffset()));
+		return id != null && id.isDone() && !id.isCompletedExceptionally() ? id.join() : null;
+	}
+	
+	/**
+	 * Looks up the ID of the request's scene item, asking OBS only if no one else already has.
+	 * 
+	 * @param request  the request
+	 * @param priority priority of the lookup, if one is sent
+	 * @return future completed with the ID
+	 */
+	CompletableFuture<Integer> resolve(SceneItemNameRequest request, RequestPriority priority)
+	{
+		listen();
+		
+		String key = key(request.getSceneName(), request.getSourceName(), request.getSearchOffset());
+		long version = this.version.get();
+		CompletableFuture<Integer> created = new CompletableFuture<Integer>();
+		CompletableFuture<Integer> id = ids.putIfAbsent(key, created);
+		
+		if(id != null)
+		{
+			return id;
+		}
+		
+		CompletableFuture<GetSceneItemIdRequest> lookup;
+		
+		try {
+			lookup = controller.build(new GetSceneItemIdRequest(request.getSceneName(), request.getSourceName(), request.getSearchOffset())).priority(priority).submit();
+		} catch(IllegalStateException e) {
+			lookup = CompletableFuture.failedFuture(e);
+		}
+		
+		lookup.whenComplete((response, t) -> {
+			if(t == null)
+			{
+				// The answer may be for an item that's gone since, so only this lookup's requests use it
+				if(version != this.version.get())
+				{
+					ids.remove(key, created);
+				}
+				
+				created.complete(response.getSceneItemId());
+			}
+			else
+			{
+				ids.remove(key, created);
+				created.completeExceptionally(t);
+			}
+		});
+		
+		return created;
+	}
+	
+	/**
+	 * Forgets the ID of the request's scene item, after OBS said it doesn't exist.
+	 * 
+	 * @param request the request
+	 */
+	void invalidate(SceneItemNameRequest request)
+	{
+		invalidate(request.getSceneName(), request.getSourceName());
+	}
+	
+	private void invalidate(String sceneName, String sourceName)
+	{
+		version.incrementAndGet();
+		String prefix = prefix(sceneName, sourceName);
+		ids.keySet().removeIf(key -> key.startsWith(prefix));
+	}
+	
+	private void invalidate(String sceneName)
+	{
+		version.incrementAndGet();
+		String prefix = prefix(sceneName);
+		ids.keySet().removeIf(key -> key.startsWith(prefix));
+	}
+	
+	/**
+	 * Subscribes to the events that invalidate IDs, the first time anything is looked up.
+	 */
+	private void listen()
+	{
+		if(listening)
+		{
+			return;
+		}
+		
+		synchronized(this)
+		{
+			if(listening)
+			{
+				return;
+			}
+			
+			listening = true;
+		}
+		
+		// Inline so nothing is sent with an old ID after the event arrived
+		controller.addInternalListener(SceneItemCreatedEvent::new, EventDelivery.INLINE, null, event -> invalidate(event.getSceneName(), event.getSourceName()));
+		controller.addInternalListener(SceneItemRemovedEvent::new, EventDelivery.INLINE, null, event -> invalidate(event.getSceneName(), event.getSourceName()));
+		controller.addInternalListener(SceneNameChangedEvent::new, EventDelivery.INLINE, null, event -> {
+			invalidate(event.getOldSceneName());
+			invalidate(event.getSceneName());
+		});
+	}
+	
+	@Override
+	public void onIdentified() {}
+	
+	@Override
+	public void onConnectionLost()
+	{
+		version.incrementAndGet();
+		ids.clear();
+	}
+}
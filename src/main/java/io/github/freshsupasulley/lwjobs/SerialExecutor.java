@@ -0,0 +1,62 @@
+package io.github.freshsupasulley.lwjobs;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs tasks one at a time in the order they were submitted, on threads borrowed from another executor.
+ * <p>
+ * Only one task from this executor runs at a time, but different serial executors sharing the same underlying executor don't wait on each other.
+ * </p>
+ */
+final class SerialExecutor implements Executor {
+	
+	private final Executor executor;
+	private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	private final AtomicBoolean running = new AtomicBoolean();
+	
+	SerialExecutor(Executor executor)
+	{
+		this.executor = executor;
+	}
+	
+	@Override
+	public void execute(Runnable task)
+	{
+		tasks.add(task);
+		schedule();
+	}
+	
+	private void schedule()
+	{
+		if(running.compareAndSet(false, true))
+		{
+			executor.execute(this::drain);
+		}
+	}
+	
+	private void drain()
+	{
+		try {
+			Runnable task;
+			
+			while((task = tasks.poll()) != null)
+			{
+				try {
+					task.run();
+				} catch(Throwable t) {
+					OBSController.LOG.error("Callback threw an exception", t);
+				}
+			}
+		} finally {
+			running.set(false);
+			
+			// Something may have been added after the queue looked empty
+			if(!tasks.isEmpty())
+			{
+				schedule();
+			}
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package io.github.freshsupasulley.lwjobs;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Hashed timer wheel that expires request deadlines.
+ * <p>
+ * Time is split into ticks, and each deadline goes into the bucket of the tick it falls on (wrapping around the wheel as many rounds as needed).
+ * Every tick only looks at one bucket, so scheduling and cancelling are constant time and thousands of deadlines cost one periodic task. Deadlines
+ * fire up to one tick late.
+ * </p>
+ * <p>
+ * Any thread can schedule or cancel. New timeouts are handed to the ticking thread through a queue, and cancelled ones are only marked and then
+ * dropped when their bucket comes around, so the buckets themselves are only touched by the ticking thread. The wheel stops ticking while it's empty,
+ * and picks up from the current tick when it starts again instead of catching up on the ticks it slept through.
+ * </p>
+ * 
+ * @param <T> type of the items that expire
+ */
+final class TimerWheel<T> {
+	
+	private final ScheduledExecutorService executor;
+	private final Consumer<T> onExpire;
+	private final long tickNanos;
+	private final Timeout<T>[] buckets;
+	private final int mask;
+	private final LongSupplier clock;
+	private final long start;
+	
+	private final ConcurrentLinkedQueue<Timeout<T>> added = new ConcurrentLinkedQueue<Timeout<T>>();
+	private final AtomicInteger size = new AtomicInteger();
+	private ScheduledFuture<?> ticker;
+	
+	// Set when the ticker starts, so the first tick skips ahead to the current time
+	private volatile boolean restarted;
+	
+	// Only touched by the ticking thread
+	private long tick;
+	
+	/**
+	 * @param executor  runs the ticks and the expiry callbacks
+	 * @param onExpire  called with each item whose deadline passed
+	 * @param tick      length of a tick
+	 * @param unit      unit of the tick
+	 * @param wheelSize number of buckets, rounded up to a power of two
+	 */
+	TimerWheel(ScheduledExecutorService executor, Consumer<T> onExpire, long tick, TimeUnit unit, int wheelSize)
+	{
+		this(executor, onExpire, tick, unit, wheelSize, System::nanoTime);
+	}
+	
+	/**
+	 * @param executor  runs the ticks and the expiry callbacks
+	 * @param onExpire  called with each item whose deadline passed
+	 * @param tick      length of a tick
+	 * @param unit      unit of the tick
+	 * @param wheelSize number of buckets, rounded up to a power of two
+	 * @param clock     source of the current time in nanoseconds
+	 */
+	@SuppressWarnings("unchecked")
+	TimerWheel(ScheduledExecutorService executor, Consumer<T> onExpire, long tick, TimeUnit unit, int wheelSize, LongSupplier clock)
+	{
+		this.executor = executor;
+		this.onExpire = onExpire;
+		this.tickNanos = unit.toNanos(tick);
+		this.clock = clock;
+		this.start = clock.getAsLong();
+		
+		int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+		this.buckets = new Timeout[size];
+		this.mask = size - 1;
+	}
+	
+	/**
+	 * Schedules an item to expire.
+	 * 
+	 * @param item  the item
+	 * @param delay time until it expires
+	 * @param unit  unit of the delay
+	 * @return handle that can cancel the timeout
+	 */
+	Timeout<T> schedule(T item, long delay, TimeUnit unit)
+	{
+		Timeout<T> timeout = new Timeout<T>(item, clock.getAsLong() + unit.toNanos(delay));
+		size.incrementAndGet();
+		added.add(timeout);
+		ensureTicking();
+		return timeout;
+	}
+	
+	private synchronized void ensureTicking()
+	{
+		if(ticker == null)
+		{
+			restarted = true;
+			ticker = executor.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+	
+	/**
+	 * @return number of timeouts that haven't expired or been dropped after cancelling
+	 */
+	int size()
+	{
+		return size.get();
+	}
+	
+	private void tick()
+	{
+		try {
+			long now = clock.getAsLong() - start;
+			
+			// Every bucket was empty while stopped, so there's nothing to catch up on
+			if(restarted)
+			{
+				restarted = false;
+				tick = Math.max(tick, now / tickNanos);
+			}
+			
+			while(tick * tickNanos <= now)
+			{
+				transferAdded();
+				expire(tick);
+				tick++;
+			}
+		} catch(Throwable t) {
+			// Throwing would stop the ticker for good
+			OBSController.LOG.error("Timer wheel tick failed", t);
+		}
+		
+		// Nothing left, stop until something is scheduled. Checked under the lock so a new timeout either sees the ticker or starts a new one
+		synchronized(this)
+		{
+			if(size.get() == 0 && ticker != null)
+			{
+				ticker.cancel(false);
+				ticker = null;
+			}
+		}
+	}
+	
+	/**
+	 * Puts newly scheduled timeouts into their buckets.
+	 */
+	private void transferAdded()
+	{
+		Timeout<T> timeout;
+		
+		while((timeout = added.poll()) != null)
+		{
+			if(timeout.item == null)
+			{
+				size.decrementAndGet();
+				continue;
+			}
+			
+			// Anything already due goes in the current bucket
+			long deadlineTick = Math.max(tick, (timeout.deadline - start + tickNanos - 1) / tickNanos);
+			timeout.rounds = (deadlineTick - tick) / buckets.length;
+			
+			int bucket = (int) (deadlineTick & mask);
+			timeout.next = buckets[bucket];
+			buckets[bucket] = timeout;
+		}
+	}
+	
+	private void expire(long tick)
+	{
+		int bucket = (int) (tick & mask);
+		Timeout<T> previous = null;
+		Timeout<T> timeout = buckets[bucket];
+		
+		while(timeout != null)
+		{
+			Timeout<T> next = timeout.next;
+			T item = timeout.item;
+			
+			if(item == null || timeout.rounds <= 0)
+			{
+				// Unlink it
+				if(previous == null)
+				{
+					buckets[bucket] = next;
+				}
+				else
+				{
+					previous.next = next;
+				}
+				
+				timeout.next = null;
+				size.decrementAndGet();
+				
+				if(item != null && timeout.expire())
+				{
+					onExpire.accept(item);
+				}
+			}
+			else
+			{
+				timeout.rounds--;
+				previous = timeout;
+			}
+			
+			timeout = next;
+		}
+	}
+	
+	/**
+	 * A scheduled timeout.
+	 */
+	static final class Timeout<T> {
+		
+		private volatile T item;
+		private final long deadline;
+		
+		// Only touched by the ticking thread
+		private long rounds;
+		private Timeout<T> next;
+		
+		private Timeout(T item, long deadline)
+		{
+			this.item = item;
+			this.deadline = deadline;
+		}
+		
+		/**
+		 * Cancels the timeout. The item won't expire and is let go right away, and the empty timeout is dropped when its bucket comes around.
+		 */
+		void cancel()
+		{
+			item = null;
+		}
+		
+		private synchronized boolean expire()
+		{
+			if(item == null)
+			{
+				return false;
+			}
+			
+			item = null;
+			return true;
+		}
+	}
+}
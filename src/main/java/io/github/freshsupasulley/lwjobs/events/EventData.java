@@ -0,0 +1,22 @@
+package io.github.freshsupasulley.lwjobs.events;
+
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+
+import java.util.function.Supplier;
+
+/**
+ * The eventData of one occurrence of an event, shared by every listener of it.
+ * <p>
+ * {@link #get()} parses it into a {@link JsonObject} at most once. Events that read their data straight from the message
+ * ({@link OBSEvent#isStreaming()}) use {@link #reader()} instead, which skips building the JsonObject.
+ * </p>
+ */
+public interface EventData extends Supplier<JsonObject> {
+	
+	/**
+	 * @return a new reader positioned at the eventData object, or null if it can't be read from a stream (like a MessagePack message, or an event
+	 *         without data), in which case {@link #get()} has to be used
+	 */
+	JsonReader reader();
+}
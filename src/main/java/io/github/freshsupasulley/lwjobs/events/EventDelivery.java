@@ -0,0 +1,23 @@
+package io.github.freshsupasulley.lwjobs.events;
+
+/**
+ * Which thread an event listener is called on.
+ */
+public enum EventDelivery {
+	
+	/**
+	 * On the thread reading from the WebSocket, before the next message is read. Cheapest, but a slow listener holds up every other message.
+	 * Blocking calls like {@code complete()} throw here, since the response they wait for can't be read until the listener returns.
+	 */
+	INLINE,
+	
+	/**
+	 * On a virtual thread, one occurrence at a time and in the order they arrived. A slow listener only holds up its own events.
+	 */
+	ORDERED,
+	
+	/**
+	 * On a new virtual thread for each occurrence. Occurrences may be handled at the same time and out of order.
+	 */
+	VIRTUAL_THREAD;
+}
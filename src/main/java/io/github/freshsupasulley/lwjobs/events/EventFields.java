@@ -0,0 +1,67 @@
+package io.github.freshsupasulley.lwjobs.events;
+
+/**
+ * The top-level scalar fields of an event's data (strings, numbers and booleans), read straight from the raw message without parsing the rest.
+ * <p>
+ * Used by event filters to throw away events before they are parsed. Nested objects and arrays are skipped and can't be read here.
+ * </p>
+ */
+public interface EventFields {
+	
+	/**
+	 * Gets the raw text of a scalar field, like "Gameplay" for a string or "7" for a number.
+	 * 
+	 * @param field name of the field in eventData (ex. sceneName)
+	 * @return the raw text of the field, or null if it's missing, null or not a scalar
+	 */
+	String getString(String field);
+	
+	/**
+	 * @param field name of the field in eventData
+	 * @return true if the event has a scalar value for this field
+	 */
+	default boolean has(String field)
+	{
+		return getString(field) != null;
+	}
+	
+	/**
+	 * @param field name of the field in eventData
+	 * @return the field as an int
+	 * @throws NumberFormatException if the field is missing or isn't an integer
+	 */
+	default int getInt(String field)
+	{
+		return Integer.parseInt(getString(field));
+	}
+	
+	/**
+	 * @param field name of the field in eventData
+	 * @return the field as a long
+	 * @throws NumberFormatException if the field is missing or isn't an integer
+	 */
+	default long getLong(String field)
+	{
+		return Long.parseLong(getString(field));
+	}
+	
+	/**
+	 * @param field name of the field in eventData
+	 * @return the field as a double
+	 * @throws NumberFormatException if the field isn't a number
+	 * @throws NullPointerException  if the field is missing
+	 */
+	default double getDouble(String field)
+	{
+		return Double.parseDouble(getString(field));
+	}
+	
+	/**
+	 * @param field name of the field in eventData
+	 * @return true if the field is the boolean true, false otherwise (including when it's missing)
+	 */
+	default boolean getBoolean(String field)
+	{
+		return Boolean.parseBoolean(getString(field));
+	}
+}
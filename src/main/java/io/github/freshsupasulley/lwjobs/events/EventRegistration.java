@@ -0,0 +1,13 @@
+package io.github.freshsupasulley.lwjobs.events;
+
+/**
+ * Handle to a registered event listener.
+ */
+@FunctionalInterface
+public interface EventRegistration {
+	
+	/**
+	 * Removes the listener. Other listeners of the same event keep receiving it. Does nothing if already removed.
+	 */
+	void unregister();
+}
@@ -0,0 +1,49 @@
+package io.github.freshsupasulley.lwjobs.events;
+
+/**
+ * Categories of events OBS can be subscribed to. See <a href="https://github.com/obsproject/obs-websocket/blob/master/docs/generated/protocol.md#eventsubscription">EventSubscription</a>.
+ * <p>
+ * The controller only subscribes to the categories of the events that are registered, so OBS doesn't send events nobody is listening to.
+ * High-volume categories are never subscribed to unless an event explicitly asks for them.
+ * </p>
+ */
+public enum EventSubscription {
+	
+	GENERAL(1 << 0),
+	CONFIG(1 << 1),
+	SCENES(1 << 2),
+	INPUTS(1 << 3),
+	TRANSITIONS(1 << 4),
+	FILTERS(1 << 5),
+	OUTPUTS(1 << 6),
+	SCENE_ITEMS(1 << 7),
+	MEDIA_INPUTS(1 << 8),
+	VENDORS(1 << 9),
+	UI(1 << 10),
+	
+	/**
+	 * Every category that isn't high-volume.
+	 */
+	ALL((1 << 11) - 1),
+	
+	// High-volume events
+	INPUT_VOLUME_METERS(1 << 16),
+	INPUT_ACTIVE_STATE_CHANGED(1 << 17),
+	INPUT_SHOW_STATE_CHANGED(1 << 18),
+	SCENE_ITEM_TRANSFORM_CHANGED(1 << 19);
+	
+	private final int mask;
+	
+	private EventSubscription(int mask)
+	{
+		this.mask = mask;
+	}
+	
+	/**
+	 * @return bits of this category, as sent in Identify and Reidentify
+	 */
+	public int getMask()
+	{
+		return mask;
+	}
+}
@@ -1,17 +1,125 @@
 package io.github.freshsupasulley.lwjobs.events;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
 
 /**
  * Generic OBS event.
  */
 public abstract class OBSEvent {
 	
+	// Data that hasn't been parsed yet, only used by lazy events
+	private Supplier<JsonObject> pending;
+	
 	public abstract String getEventType();
 	
+	/**
+	 * The category OBS files this event under. Only categories of registered events are subscribed to.
+	 * <p>
+	 * Defaults to {@link EventSubscription#ALL}, which works for any non high-volume event. Override this to avoid receiving every other low-volume event as well.
+	 * </p>
+	 * 
+	 * @return category of this event
+	 */
+	public EventSubscription getEventSubscription()
+	{
+		return EventSubscription.ALL;
+	}
+	
 	/**
 	 * Parses response data and puts its data into this class.
 	 * @param responseData JSON object
 	 */
 	protected abstract void parseResponse(JsonObject responseData);
+	
+	/**
+	 * Whether this event can read its data straight from the message with {@link #readEvent(JsonReader)}, which skips building a {@link JsonObject}
+	 * first.
+	 * <p>
+	 * Defaults to false. Streaming events still need {@link #parseResponse(JsonObject)} for events that arrive already parsed, like MessagePack.
+	 * </p>
+	 * 
+	 * @return true if {@link #readEvent(JsonReader)} is implemented
+	 */
+	protected boolean isStreaming()
+	{
+		return false;
+	}
+	
+	/**
+	 * Reads event data and puts its data into this class. The reader must be left after the end of the object. Streaming events override this.
+	 * 
+	 * @param eventData reader positioned at the eventData object
+	 * @throws IOException if the event is malformed
+	 */
+	protected void readEvent(JsonReader eventData) throws IOException
+	{
+		throw new UnsupportedOperationException(getEventType() + " can't read its data from a stream");
+	}
+	
+	/**
+	 * Whether this event waits to parse its data until a getter asks for it.
+	 * <p>
+	 * Lazy events must call {@link #ensureParsed()} at the start of every getter. Consumers that only care that the event happened then never pay to parse it.
+	 * Defaults to false, so {@link #parseResponse(JsonObject)} is called before the event reaches its consumer.
+	 * </p>
+	 * 
+	 * @return true if this event is parsed on first access
+	 */
+	protected boolean isLazy()
+	{
+		return false;
+	}
+	
+	/**
+	 * Parses the event's data if it hasn't been parsed yet. Lazy events call this from their getters.
+	 */
+	protected final synchronized void ensureParsed()
+	{
+		if(pending != null)
+		{
+			Supplier<JsonObject> data = pending;
+			pending = null;
+			parse(data);
+		}
+	}
+	
+	private void parse(Supplier<JsonObject> data)
+	{
+		JsonReader reader = isStreaming() && data instanceof EventData ? ((EventData) data).reader() : null;
+		
+		if(reader == null)
+		{
+			parseResponse(data.get());
+			return;
+		}
+		
+		try {
+			readEvent(reader);
+		} catch(IOException e) {
+			throw new UncheckedIOException("Malformed " + getEventType() + " event", e);
+		}
+	}
+	
+	/**
+	 * Hands this event the data of a new occurrence. Lazy events hold onto it until a getter needs it, others parse it right away.
+	 * 
+	 * @param data supplies the eventData object
+	 */
+	synchronized void setData(Supplier<JsonObject> data)
+	{
+		if(isLazy())
+		{
+			pending = data;
+		}
+		else
+		{
+			pending = null;
+			parse(data);
+		}
+	}
 }
@@ -1,18 +1,59 @@
 package io.github.freshsupasulley.lwjobs.events;
 
 import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.CallbackContext;
+import io.github.freshsupasulley.lwjobs.OBSController;
 
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
+/**
+ * A listener of one type of event.
+ * <p>
+ * Every occurrence is delivered in a new event object from the factory, so listeners can keep events around without them changing underneath
+ * them.
+ * </p>
+ */
 public class OBSEventCallback<T extends OBSEvent> {
 	
 	private T event;
+	private Supplier<T> factory;
+	private Predicate<EventFields> filter;
 	private Consumer<T> consumer;
+	private Executor executor;
 	
 	public OBSEventCallback(T event, Consumer<T> consumer)
 	{
-		this.event = event;
+		this(event, null, consumer);
+	}
+	
+	/**
+	 * Creates a listener that's called inline and reuses the given event for every occurrence.
+	 * 
+	 * @param event    the event
+	 * @param filter   possibly null filter on the event's raw fields, checked before the event is parsed
+	 * @param consumer consumer of events that pass the filter
+	 */
+	public OBSEventCallback(T event, Predicate<EventFields> filter, Consumer<T> consumer)
+	{
+		this(() -> event, filter, consumer, null);
+	}
+	
+	/**
+	 * @param factory  creates a new event for every occurrence
+	 * @param filter   possibly null filter on the event's raw fields, checked before the event is parsed
+	 * @param consumer consumer of events that pass the filter
+	 * @param executor runs the consumer, or null to run it on the calling thread
+	 */
+	public OBSEventCallback(Supplier<T> factory, Predicate<EventFields> filter, Consumer<T> consumer, Executor executor)
+	{
+		this.event = factory.get();
+		this.factory = factory;
+		this.filter = filter;
 		this.consumer = consumer;
+		this.executor = executor;
 	}
 	
 	public Consumer<T> getConsumer()
@@ -20,9 +61,81 @@ public class OBSEventCallback<T extends OBSEvent> {
 		return consumer;
 	}
 	
+	/**
+	 * @return type of the event (ex. "CurrentProgramSceneChanged")
+	 */
+	public String getEventType()
+	{
+		return event.getEventType();
+	}
+	
+	public EventSubscription getEventSubscription()
+	{
+		return event.getEventSubscription();
+	}
+	
+	/**
+	 * @return true if the consumer runs on another thread, and may read the event after the message has been handled
+	 */
+	public boolean isAsync()
+	{
+		return executor != null;
+	}
+	
+	/**
+	 * @return true if the event waits to parse its data until the consumer reads it, which may be after the message has been handled
+	 */
+	public boolean isLazy()
+	{
+		return event.isLazy();
+	}
+	
+	/**
+	 * Checks an occurrence of the event against the filter, without parsing it.
+	 * 
+	 * @param fields raw fields of the event
+	 * @return true if the consumer wants this occurrence
+	 */
+	public boolean test(EventFields fields)
+	{
+		return filter == null || filter.test(fields);
+	}
+	
 	public void accept(JsonObject json)
 	{
-		event.parseResponse(json);
-		consumer.accept(event);
+		accept(() -> json);
+	}
+	
+	/**
+	 * Passes an occurrence of the event to the consumer. Lazy events only parse the data if the consumer reads it.
+	 * 
+	 * @param data supplies the eventData object
+	 */
+	public void accept(Supplier<JsonObject> data)
+	{
+		T occurrence = factory.get();
+		occurrence.setData(data);
+		
+		if(executor == null)
+		{
+			// On the reader thread, so waiting there for a response would never see it arrive
+			try(CallbackContext ___ = CallbackContext.getInstance()) {
+				consume(occurrence);
+			}
+		}
+		else
+		{
+			executor.execute(() -> consume(occurrence));
+		}
+	}
+	
+	private void consume(T occurrence)
+	{
+		// A listener throwing shouldn't stop the others
+		try {
+			consumer.accept(occurrence);
+		} catch(Throwable t) {
+			OBSController.LOG.error("Listener of " + getEventType() + " threw an exception", t);
+		}
 	}
 }
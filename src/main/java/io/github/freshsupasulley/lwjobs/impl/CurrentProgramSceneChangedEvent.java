@@ -1,6 +1,7 @@
 package io.github.freshsupasulley.lwjobs.impl;
 
 import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.events.EventSubscription;
 import io.github.freshsupasulley.lwjobs.events.OBSEvent;
 
 public class CurrentProgramSceneChangedEvent extends OBSEvent {
@@ -9,6 +10,7 @@ public class CurrentProgramSceneChangedEvent extends OBSEvent {
 	
 	public String getSceneName()
 	{
+		ensureParsed();
 		return sceneName;
 	}
 	
@@ -18,6 +20,18 @@ public class CurrentProgramSceneChangedEvent extends OBSEvent {
 		return "CurrentProgramSceneChanged";
 	}
 	
+	@Override
+	public EventSubscription getEventSubscription()
+	{
+		return EventSubscription.SCENES;
+	}
+	
+	@Override
+	protected boolean isLazy()
+	{
+		return true;
+	}
+	
 	@Override
 	protected void parseResponse(JsonObject responseData)
 	{
@@ -1,6 +1,7 @@
 package io.github.freshsupasulley.lwjobs.impl;
 
 import io.github.freshsupasulley.lwjobs.events.EmptyEvent;
+import io.github.freshsupasulley.lwjobs.events.EventSubscription;
 
 public class ExitStartedEvent extends EmptyEvent {
 	
@@ -9,4 +10,10 @@ public class ExitStartedEvent extends EmptyEvent {
 	{
 		return "ExitStarted";
 	}
+	
+	@Override
+	public EventSubscription getEventSubscription()
+	{
+		return EventSubscription.GENERAL;
+	}
 }
@@ -30,6 +30,12 @@ public class GetInputSettingsRequest extends OBSRequest {
 		this.inputSettings = responseData.get("inputSettings").getAsJsonObject();
 	}
 	
+	@Override
+	public boolean isIdempotent()
+	{
+		return true;
+	}
+	
 	@Override
 	public String getRequestType()
 	{
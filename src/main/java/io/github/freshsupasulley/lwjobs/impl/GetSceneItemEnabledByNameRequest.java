@@ -0,0 +1,58 @@
+package io.github.freshsupasulley.lwjobs.impl;
+
+import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.requests.SceneItemNameRequest;
+
+public class GetSceneItemEnabledByNameRequest extends SceneItemNameRequest {
+	
+	private boolean sceneItemEnabled;
+	
+	/**
+	 * Gets the enable state of the first scene item showing a source.
+	 * 
+	 * @param sceneName name of the scene the item is in
+	 * @param sourceName name of the source the item shows
+	 */
+	public GetSceneItemEnabledByNameRequest(String sceneName, String sourceName)
+	{
+		this(sceneName, sourceName, 0);
+	}
+	
+	/**
+	 * Gets the enable state of a scene item showing a source.
+	 * 
+	 * @param sceneName name of the scene the item is in
+	 * @param sourceName name of the source the item shows
+	 * @param searchOffset number of matches to skip during search. >= 0 means first forward. -1 means last (top) item
+	 */
+	public GetSceneItemEnabledByNameRequest(String sceneName, String sourceName, int searchOffset)
+	{
+		super(sceneName, sourceName, searchOffset, json -> {});
+	}
+	
+	/**
+	 * @return whether the scene item is enabled
+	 */
+	public boolean isSceneItemEnabled()
+	{
+		return sceneItemEnabled;
+	}
+	
+	@Override
+	public boolean isIdempotent()
+	{
+		return true;
+	}
+	
+	@Override
+	public String getRequestType()
+	{
+		return "GetSceneItemEnabled";
+	}
+	
+	@Override
+	protected void parseResponse(JsonObject responseData)
+	{
+		this.sceneItemEnabled = responseData.get("sceneItemEnabled").getAsBoolean();
+	}
+}
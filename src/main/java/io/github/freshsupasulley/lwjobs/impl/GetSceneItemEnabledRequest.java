@@ -29,6 +29,12 @@ public class GetSceneItemEnabledRequest extends OBSRequest {
 		return sceneItemEnabled;
 	}
 	
+	@Override
+	public boolean isIdempotent()
+	{
+		return true;
+	}
+	
 	@Override
 	public String getRequestType()
 	{
@@ -31,6 +31,12 @@ public class GetSceneItemIdRequest extends OBSRequest {
 		return sceneItemId;
 	}
 	
+	@Override
+	public boolean isIdempotent()
+	{
+		return true;
+	}
+	
 	@Override
 	public String getRequestType()
 	{
@@ -0,0 +1,96 @@
+package io.github.freshsupasulley.lwjobs.impl;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+
+public class GetSceneItemListRequest extends OBSRequest {
+	
+	private SceneItem[] sceneItems;
+	
+	/**
+	 * Gets every item in a scene.
+	 * 
+	 * @param sceneName name of the scene
+	 */
+	public GetSceneItemListRequest(String sceneName)
+	{
+		super(json -> {
+			json.addProperty("sceneName", sceneName);
+		});
+	}
+	
+	/**
+	 * @return items of the scene, from the bottom of the list up
+	 */
+	public SceneItem[] getSceneItems()
+	{
+		return sceneItems;
+	}
+	
+	@Override
+	public boolean isIdempotent()
+	{
+		return true;
+	}
+	
+	@Override
+	public String getRequestType()
+	{
+		return "GetSceneItemList";
+	}
+	
+	@Override
+	protected void parseResponse(JsonObject responseData)
+	{
+		JsonArray items = responseData.get("sceneItems").getAsJsonArray();
+		this.sceneItems = new SceneItem[items.size()];
+		
+		for(int i = 0; i < items.size(); i++)
+		{
+			JsonObject object = items.get(i).getAsJsonObject();
+			this.sceneItems[i] = new SceneItem(object.get("sceneItemId").getAsInt(), object.get("sourceName").getAsString(), object.get("sceneItemEnabled").getAsBoolean());
+		}
+	}
+	
+	/**
+	 * One item in a scene.
+	 */
+	public static class SceneItem {
+		
+		private final int sceneItemId;
+		private final String sourceName;
+		private final boolean sceneItemEnabled;
+		
+		public SceneItem(int sceneItemId, String sourceName, boolean sceneItemEnabled)
+		{
+			this.sceneItemId = sceneItemId;
+			this.sourceName = sourceName;
+			this.sceneItemEnabled = sceneItemEnabled;
+		}
+		
+		/**
+		 * @return numeric ID of the scene item
+		 */
+		public int getSceneItemId()
+		{
+			return sceneItemId;
+		}
+		
+		/**
+		 * @return name of the source the item shows
+		 */
+		public String getSourceName()
+		{
+			return sourceName;
+		}
+		
+		/**
+		 * @return whether the scene item is enabled
+		 */
+		public boolean isSceneItemEnabled()
+		{
+			return sceneItemEnabled;
+		}
+	}
+}
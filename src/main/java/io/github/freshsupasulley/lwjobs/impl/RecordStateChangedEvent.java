@@ -1,6 +1,7 @@
 package io.github.freshsupasulley.lwjobs.impl;
 
 import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.events.EventSubscription;
 import io.github.freshsupasulley.lwjobs.events.OBSEvent;
 
 public class RecordStateChangedEvent extends OBSEvent {
@@ -10,16 +11,19 @@ public class RecordStateChangedEvent extends OBSEvent {
 	
 	public boolean isOutputActive()
 	{
+		ensureParsed();
 		return outputActive;
 	}
 	
 	public String getOutputState()
 	{
+		ensureParsed();
 		return outputState;
 	}
 	
 	public String getOutputPath()
 	{
+		ensureParsed();
 		return outputPath;
 	}
 	
@@ -29,6 +33,18 @@ public class RecordStateChangedEvent extends OBSEvent {
 		return "RecordStateChanged";
 	}
 	
+	@Override
+	public EventSubscription getEventSubscription()
+	{
+		return EventSubscription.OUTPUTS;
+	}
+	
+	@Override
+	protected boolean isLazy()
+	{
+		return true;
+	}
+	
 	@Override
 	protected void parseResponse(JsonObject responseData)
 	{
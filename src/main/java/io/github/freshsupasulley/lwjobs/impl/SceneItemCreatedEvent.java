@@ -0,0 +1,64 @@
+package io.github.freshsupasulley.lwjobs.impl;
+
+import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.events.EventSubscription;
+import io.github.freshsupasulley.lwjobs.events.OBSEvent;
+
+public class SceneItemCreatedEvent extends OBSEvent {
+	
+	private String sceneName, sourceName;
+	private int sceneItemId;
+	
+	/**
+	 * @return name of the scene the item was added to
+	 */
+	public String getSceneName()
+	{
+		ensureParsed();
+		return sceneName;
+	}
+	
+	/**
+	 * @return name of the source the item shows
+	 */
+	public String getSourceName()
+	{
+		ensureParsed();
+		return sourceName;
+	}
+	
+	/**
+	 * @return numeric ID of the scene item
+	 */
+	public int getSceneItemId()
+	{
+		ensureParsed();
+		return sceneItemId;
+	}
+	
+	@Override
+	public String getEventType()
+	{
+		return "SceneItemCreated";
+	}
+	
+	@Override
+	public EventSubscription getEventSubscription()
+	{
+		return EventSubscription.SCENE_ITEMS;
+	}
+	
+	@Override
+	protected boolean isLazy()
+	{
+		return true;
+	}
+	
+	@Override
+	protected void parseResponse(JsonObject responseData)
+	{
+		this.sceneName = responseData.get("sceneName").getAsString();
+		this.sourceName = responseData.get("sourceName").getAsString();
+		this.sceneItemId = responseData.get("sceneItemId").getAsInt();
+	}
+}
@@ -0,0 +1,65 @@
+package io.github.freshsupasulley.lwjobs.impl;
+
+import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.events.EventSubscription;
+import io.github.freshsupasulley.lwjobs.events.OBSEvent;
+
+public class SceneItemEnableStateChangedEvent extends OBSEvent {
+	
+	private String sceneName;
+	private int sceneItemId;
+	private boolean sceneItemEnabled;
+	
+	/**
+	 * @return name of the scene the item is in
+	 */
+	public String getSceneName()
+	{
+		ensureParsed();
+		return sceneName;
+	}
+	
+	/**
+	 * @return numeric ID of the scene item
+	 */
+	public int getSceneItemId()
+	{
+		ensureParsed();
+		return sceneItemId;
+	}
+	
+	/**
+	 * @return whether the scene item is enabled now
+	 */
+	public boolean isSceneItemEnabled()
+	{
+		ensureParsed();
+		return sceneItemEnabled;
+	}
+	
+	@Override
+	public String getEventType()
+	{
+		return "SceneItemEnableStateChanged";
+	}
+	
+	@Override
+	public EventSubscription getEventSubscription()
+	{
+		return EventSubscription.SCENE_ITEMS;
+	}
+	
+	@Override
+	protected boolean isLazy()
+	{
+		return true;
+	}
+	
+	@Override
+	protected void parseResponse(JsonObject responseData)
+	{
+		this.sceneName = responseData.get("sceneName").getAsString();
+		this.sceneItemId = responseData.get("sceneItemId").getAsInt();
+		this.sceneItemEnabled = responseData.get("sceneItemEnabled").getAsBoolean();
+	}
+}
@@ -0,0 +1,53 @@
+package io.github.freshsupasulley.lwjobs.impl;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.events.EventSubscription;
+import io.github.freshsupasulley.lwjobs.events.OBSEvent;
+
+public class SceneListChangedEvent extends OBSEvent {
+	
+	private String[] scenes;
+	
+	/**
+	 * @return names of every scene, in the same order as {@link GetSceneListRequest#getScenes()}
+	 */
+	public String[] getScenes()
+	{
+		ensureParsed();
+		return scenes;
+	}
+	
+	@Override
+	public String getEventType()
+	{
+		return "SceneListChanged";
+	}
+	
+	@Override
+	public EventSubscription getEventSubscription()
+	{
+		return EventSubscription.SCENES;
+	}
+	
+	@Override
+	protected boolean isLazy()
+	{
+		return true;
+	}
+	
+	@Override
+	protected void parseResponse(JsonObject responseData)
+	{
+		// Same as GetSceneListRequest
+		JsonArray scenes = responseData.get("scenes").getAsJsonArray();
+		this.scenes = new String[scenes.size()];
+		
+		for(int i = 0; i < scenes.size(); i++)
+		{
+			JsonObject object = scenes.get(i).getAsJsonObject();
+			int index = object.get("sceneIndex").getAsInt();
+			this.scenes[index] = object.get("sceneName").getAsString();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package io.github.freshsupasulley.lwjobs.impl;
+
+import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.events.EventSubscription;
+import io.github.freshsupasulley.lwjobs.events.OBSEvent;
+
+public class SceneNameChangedEvent extends OBSEvent {
+	
+	private String oldSceneName, sceneName;
+	
+	/**
+	 * @return old name of the scene
+	 */
+	public String getOldSceneName()
+	{
+		ensureParsed();
+		return oldSceneName;
+	}
+	
+	/**
+	 * @return new name of the scene
+	 */
+	public String getSceneName()
+	{
+		ensureParsed();
+		return sceneName;
+	}
+	
+	@Override
+	public String getEventType()
+	{
+		return "SceneNameChanged";
+	}
+	
+	@Override
+	public EventSubscription getEventSubscription()
+	{
+		return EventSubscription.SCENES;
+	}
+	
+	@Override
+	protected boolean isLazy()
+	{
+		return true;
+	}
+	
+	@Override
+	protected void parseResponse(JsonObject responseData)
+	{
+		this.oldSceneName = responseData.get("oldSceneName").getAsString();
+		this.sceneName = responseData.get("sceneName").getAsString();
+	}
+}
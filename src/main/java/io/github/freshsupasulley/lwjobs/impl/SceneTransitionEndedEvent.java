@@ -1,6 +1,7 @@
 package io.github.freshsupasulley.lwjobs.impl;
 
 import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.events.EventSubscription;
 import io.github.freshsupasulley.lwjobs.events.OBSEvent;
 
 public class SceneTransitionEndedEvent extends OBSEvent {
@@ -9,6 +10,7 @@ public class SceneTransitionEndedEvent extends OBSEvent {
 	
 	public String getTransitionName()
 	{
+		ensureParsed();
 		return transitionName;
 	}
 	
@@ -18,6 +20,18 @@ public class SceneTransitionEndedEvent extends OBSEvent {
 		return "SceneTransitionEnded";
 	}
 	
+	@Override
+	public EventSubscription getEventSubscription()
+	{
+		return EventSubscription.TRANSITIONS;
+	}
+	
+	@Override
+	protected boolean isLazy()
+	{
+		return true;
+	}
+	
 	@Override
 	protected void parseResponse(JsonObject responseData)
 	{
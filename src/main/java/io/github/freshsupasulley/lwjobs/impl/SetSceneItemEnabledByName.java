@@ -0,0 +1,43 @@
+package io.github.freshsupasulley.lwjobs.impl;
+
+import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.requests.SceneItemNameRequest;
+
+public class SetSceneItemEnabledByName extends SceneItemNameRequest {
+	
+	/**
+	 * Sets the enable state of the first scene item showing a source.
+	 * 
+	 * @param sceneName name of the scene the item is in
+	 * @param sourceName name of the source the item shows
+	 * @param sceneItemEnabled new enable state of the scene item
+	 */
+	public SetSceneItemEnabledByName(String sceneName, String sourceName, boolean sceneItemEnabled)
+	{
+		this(sceneName, sourceName, 0, sceneItemEnabled);
+	}
+	
+	/**
+	 * Sets the enable state of a scene item showing a source.
+	 * 
+	 * @param sceneName name of the scene the item is in
+	 * @param sourceName name of the source the item shows
+	 * @param searchOffset number of matches to skip during search. >= 0 means first forward. -1 means last (top) item
+	 * @param sceneItemEnabled new enable state of the scene item
+	 */
+	public SetSceneItemEnabledByName(String sceneName, String sourceName, int searchOffset, boolean sceneItemEnabled)
+	{
+		super(sceneName, sourceName, searchOffset, json -> {
+			json.addProperty("sceneItemEnabled", sceneItemEnabled);
+		});
+	}
+	
+	@Override
+	public String getRequestType()
+	{
+		return "SetSceneItemEnabled";
+	}
+	
+	@Override
+	protected void parseResponse(JsonObject responseData) {}
+}
@@ -1,6 +1,7 @@
 package io.github.freshsupasulley.lwjobs.impl;
 
 import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.events.EventSubscription;
 import io.github.freshsupasulley.lwjobs.events.OBSEvent;
 
 public class StreamStateChangedEvent extends OBSEvent {
@@ -10,11 +11,13 @@ public class StreamStateChangedEvent extends OBSEvent {
 	
 	public boolean isOutputActive()
 	{
+		ensureParsed();
 		return outputActive;
 	}
 	
 	public String getOutputState()
 	{
+		ensureParsed();
 		return outputState;
 	}
 	
@@ -24,6 +27,18 @@ public class StreamStateChangedEvent extends OBSEvent {
 		return "StreamStateChanged";
 	}
 	
+	@Override
+	public EventSubscription getEventSubscription()
+	{
+		return EventSubscription.OUTPUTS;
+	}
+	
+	@Override
+	protected boolean isLazy()
+	{
+		return true;
+	}
+	
 	@Override
 	protected void parseResponse(JsonObject responseData)
 	{
@@ -0,0 +1,290 @@
+package io.github.freshsupasulley.lwjobs.mock;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.github.freshsupasulley.lwjobs.OBSController;
+import io.github.freshsupasulley.lwjobs.events.EventSubscription;
+import org.apache.commons.codec.binary.Base64;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketListener;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One client of {@link MockOBSServer}, speaking the server side of the obs-websocket protocol.
+ * <p>
+ * Jetty delivers one message at a time per connection, so the handshake state is only written by the reading thread. Answers can be sent from the
+ * server's scheduler when latency is injected.
+ * </p>
+ */
+final class MockConnection implements WebSocketListener {
+	
+	private static final WriteCallback WRITE_CALLBACK = new WriteCallback() {
+		
+		@Override
+		public void writeFailed(Throwable x)
+		{
+			OBSController.LOG.debug("Mock OBS server failed to send a message", x);
+		}
+		
+		@Override
+		public void writeSuccess()
+		{
+		}
+	};
+	
+	private final MockOBSServer server;
+	private final String challenge;
+	private volatile Session session;
+	private volatile boolean identified;
+	private volatile int eventSubscriptions;
+	
+	MockConnection(MockOBSServer server)
+	{
+		this.server = server;
+		
+		byte[] challenge = new byte[32];
+		ThreadLocalRandom.current().nextBytes(challenge);
+		this.challenge = Base64.encodeBase64String(challenge);
+	}
+	
+	/**
+	 * @return true once the client identified
+	 */
+	boolean isIdentified()
+	{
+		return identified;
+	}
+	
+	/**
+	 * @param subscription category of an event
+	 * @return true if the client identified and asked for events of the category
+	 */
+	boolean isSubscribed(EventSubscription subscription)
+	{
+		return identified && (eventSubscriptions & subscription.getMask()) != 0;
+	}
+	
+	@Override
+	public void onWebSocketConnect(Session session)
+	{
+		this.session = session;
+		server.connected(this);
+		
+		JsonObject hello = new JsonObject();
+		hello.addProperty("obsWebSocketVersion", MockOBSServer.OBS_WEBSOCKET_VERSION);
+		hello.addProperty("rpcVersion", MockOBSServer.RPC_VERSION);
+		
+		String salt = server.getSalt();
+		
+		if(salt != null)
+		{
+			JsonObject authentication = new JsonObject();
+			authentication.addProperty("challenge", challenge);
+			authentication.addProperty("salt", salt);
+			hello.add("authentication", authentication);
+		}
+		
+		send(0, hello);
+	}
+	
+	@Override
+	public void onWebSocketText(String message)
+	{
+		JsonObject json;
+		int op;
+		JsonObject data;
+		
+		try {
+			json = JsonParser.parseString(message).getAsJsonObject();
+			op = json.get("op").getAsInt();
+			data = json.get("d").getAsJsonObject();
+		} catch(RuntimeException e) {
+			close(4002, "Failed to decode message");
+			return;
+		}
+		
+		if(op != 1 && !identified)
+		{
+			close(4007, "Not identified");
+			return;
+		}
+		
+		switch(op)
+		{
+			// Identify
+			case 1:
+			{
+				identify(data);
+				break;
+			}
+			// Reidentify
+			case 3:
+			{
+				if(data.has("eventSubscriptions"))
+				{
+					eventSubscriptions = data.get("eventSubscriptions").getAsInt();
+				}
+				
+				sendIdentified();
+				break;
+			}
+			// Request
+			case 6:
+			{
+				request(data);
+				break;
+			}
+			// Request batch
+			case 8:
+			{
+				batch(data);
+				break;
+			}
+			default:
+			{
+				close(4006, "Unknown op code " + op);
+				break;
+			}
+		}
+	}
+	
+	private void identify(JsonObject data)
+	{
+		if(identified)
+		{
+			close(4008, "Already identified");
+			return;
+		}
+		
+		if(!data.has("rpcVersion") || data.get("rpcVersion").getAsInt() != MockOBSServer.RPC_VERSION)
+		{
+			close(4010, "Unsupported RPC version");
+			return;
+		}
+		
+		String expected = server.expectedAuthentication(challenge);
+		
+		if(expected != null && !(data.has("authentication") && expected.equals(data.get("authentication").getAsString())))
+		{
+			close(4009, "Authentication failed");
+			return;
+		}
+		
+		eventSubscriptions = data.has("eventSubscriptions") ? data.get("eventSubscriptions").getAsInt() : EventSubscription.ALL.getMask();
+		identified = true;
+		sendIdentified();
+	}
+	
+	private void sendIdentified()
+	{
+		JsonObject identified = new JsonObject();
+		identified.addProperty("negotiatedRpcVersion", MockOBSServer.RPC_VERSION);
+		send(2, identified);
+	}
+	
+	private void request(JsonObject data)
+	{
+		String requestType = data.has("requestType") ? data.get("requestType").getAsString() : null;
+		String requestID = data.has("requestId") ? data.get("requestId").getAsString() : null;
+		MockResponse response = server.handle(requestType, data.get("requestData"));
+		
+		server.answer(this, message(7, response.toResult(requestType, requestID)));
+	}
+	
+	private void batch(JsonObject data)
+	{
+		boolean haltOnFailure = data.has("haltOnFailure") && data.get("haltOnFailure").getAsBoolean();
+		JsonArray results = new JsonArray();
+		
+		if(data.has("requests"))
+		{
+			for(JsonElement element : data.get("requests").getAsJsonArray())
+			{
+				JsonObject request = element.getAsJsonObject();
+				String requestType = request.has("requestType") ? request.get("requestType").getAsString() : null;
+				String requestID = request.has("requestId") ? request.get("requestId").getAsString() : null;
+				MockResponse response = server.handle(requestType, request.get("requestData"));
+				
+				results.add(response.toResult(requestType, requestID));
+				
+				if(haltOnFailure && !response.isSuccess())
+				{
+					break;
+				}
+			}
+		}
+		
+		JsonObject response = new JsonObject();
+		response.addProperty("requestId", data.has("requestId") ? data.get("requestId").getAsString() : null);
+		response.add("results", results);
+		server.answer(this, message(9, response));
+	}
+	
+	static String message(int op, JsonObject data)
+	{
+		JsonObject json = new JsonObject();
+		json.addProperty("op", op);
+		json.add("d", data);
+		return json.toString();
+	}
+	
+	private void send(int op, JsonObject data)
+	{
+		send(message(op, data));
+	}
+	
+	/**
+	 * Sends a message without waiting for it to be written. Dropped if the connection is closed.
+	 * 
+	 * @param message the message
+	 */
+	void send(String message)
+	{
+		Session session = this.session;
+		
+		if(session != null && session.isOpen())
+		{
+			session.getRemote().sendString(message, WRITE_CALLBACK);
+		}
+	}
+	
+	/**
+	 * Closes the connection the way OBS would, with a close code and reason.
+	 * 
+	 * @param code   close code, such as 4009 for failed authentication
+	 * @param reason reason sent to the client
+	 */
+	void close(int code, String reason)
+	{
+		Session session = this.session;
+		
+		if(session != null)
+		{
+			session.close(code, reason);
+		}
+	}
+	
+	@Override
+	public void onWebSocketBinary(byte[] payload, int offset, int len)
+	{
+		close(4002, "Only JSON text messages are supported");
+	}
+	
+	@Override
+	public void onWebSocketClose(int statusCode, String reason)
+	{
+		session = null;
+		identified = false;
+		server.disconnected(this);
+	}
+	
+	@Override
+	public void onWebSocketError(Throwable cause)
+	{
+		OBSController.LOG.debug("Mock OBS server connection error", cause);
+	}
+}
@@ -0,0 +1,550 @@
+package io.github.freshsupasulley.lwjobs.mock;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.github.freshsupasulley.lwjobs.OBSController;
+import io.github.freshsupasulley.lwjobs.events.EventSubscription;
+import io.github.freshsupasulley.lwjobs.transport.OBSTransport;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.websocket.server.WebSocketHandler;
+import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A local stand-in for OBS's WebSocket server, for testing controllers without OBS.
+ * <p>
+ * It speaks obs-websocket 5 over JSON text: Hello and Identify (with the salt and challenge authentication when a password is set), Reidentify,
+ * requests and request batches. Requests are answered by scripted {@link MockRequestHandler}s, and events can be sent once or at a steady rate to
+ * every client subscribed to their category. To see how a client copes with a bad connection, answers can be delayed, dropped, or replaced by a
+ * disconnect.
+ * </p>
+ * <p>
+ * Everything runs in the calling process on Jetty's server, so it can be hammered with thousands of requests per second. MessagePack clients are
+ * turned away.
+ * </p>
+ * 
+ * <p><b>Example:</b></p>
+ * 
+ * <pre>
+ * try(MockOBSServer server = new MockOBSServer().password("secret").start()) {
+ * 	server.handle("GetSceneList", data -&gt; MockResponse.success(sceneList));
+ * 	OBSController controller = new OBSController().connect(server.getAddress(), "secret");
+ * 	server.emit("CurrentProgramSceneChanged", EventSubscription.SCENES, eventData);
+ * }
+ * </pre>
+ */
+public class MockOBSServer implements AutoCloseable {
+	
+	static final String OBS_WEBSOCKET_VERSION = "5.5.2";
+	static final int RPC_VERSION = 1;
+	
+	private static final String SUBPROTOCOL = "obswebsocket.json";
+	
+	private final Map<String, MockRequestHandler> handlers = new ConcurrentHashMap<String, MockRequestHandler>();
+	private final Set<MockConnection> connections = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService scheduler;
+	private volatile MockRequestHandler fallback = requestData -> MockResponse.failure(MockResponse.UNKNOWN_REQUEST_TYPE, "Your request type is not valid.");
+	
+	// Null while no password is set
+	private volatile String salt, secret;
+	
+	private volatile long minLatencyNanos, maxLatencyNanos;
+	private volatile double dropRate, disconnectRate;
+	
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final Map<String, LongAdder> requestsByType = new ConcurrentHashMap<String, LongAdder>();
+	
+	private Server server;
+	private ServerConnector connector;
+	
+	/**
+	 * Creates a server with no password that answers GetVersion and fails every other request as unknown, until handlers are added.
+	 */
+	public MockOBSServer()
+	{
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "lwjOBS-mock");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		handle("GetVersion", requestData -> {
+			JsonArray availableRequests = new JsonArray();
+			handlers.keySet().forEach(availableRequests::add);
+			
+			JsonObject version = new JsonObject();
+			version.addProperty("obsVersion", "30.2.0");
+			version.addProperty("obsWebSocketVersion", OBS_WEBSOCKET_VERSION);
+			version.addProperty("rpcVersion", RPC_VERSION);
+			version.add("availableRequests", availableRequests);
+			version.add("supportedImageFormats", new JsonArray());
+			version.addProperty("platform", "mock");
+			version.addProperty("platformDescription", "lwjOBS mock server");
+			return MockResponse.success(version);
+		});
+	}
+	
+	/**
+	 * Requires clients to authenticate with a password. Only applies to clients that connect afterwards.
+	 * 
+	 * @param password the password, or null to not require one
+	 * @return this, for chaining
+	 */
+	public MockOBSServer password(String password)
+	{
+		if(password == null)
+		{
+			salt = null;
+			secret = null;
+			return this;
+		}
+		
+		byte[] salt = new byte[32];
+		ThreadLocalRandom.current().nextBytes(salt);
+		
+		String encoded = Base64.encodeBase64String(salt);
+		this.secret = Base64.encodeBase64String(DigestUtils.sha256(password + encoded));
+		this.salt = encoded;
+		return this;
+	}
+	
+	/**
+	 * Scripts the answer to a type of request, replacing any handler already set for it.
+	 * 
+	 * @param requestType type of the request (ex. GetSceneList)
+	 * @param handler     answers the request
+	 * @return this, for chaining
+	 */
+	public MockOBSServer handle(String requestType, MockRequestHandler handler)
+	{
+		handlers.put(requestType, handler);
+		return this;
+	}
+	
+	/**
+	 * Sets the answer to requests without a handler of their own. By default they fail with {@link MockResponse#UNKNOWN_REQUEST_TYPE}, like OBS does.
+	 * 
+	 * @param fallback answers every unscripted request
+	 * @return this, for chaining
+	 */
+	public MockOBSServer fallback(MockRequestHandler fallback)
+	{
+		this.fallback = fallback;
+		return this;
+	}
+	
+	/**
+	 * Delays every answer by a random time between the two bounds. Answers are sent from a timer, so later requests can overtake earlier ones like they
+	 * can with OBS. No latency by default.
+	 * 
+	 * @param min  shortest delay
+	 * @param max  longest delay
+	 * @param unit unit of the delays
+	 * @return this, for chaining
+	 */
+	public MockOBSServer latency(long min, long max, TimeUnit unit)
+	{
+		if(min < 0 || max < min)
+		{
+			throw new IllegalArgumentException("Latency must be between 0 and max, got " + min + " to " + max);
+		}
+		
+		this.minLatencyNanos = unit.toNanos(min);
+		this.maxLatencyNanos = unit.toNanos(max);
+		return this;
+	}
+	
+	/**
+	 * Never answers some requests, so the client has to time them out. A batch is dropped as a whole.
+	 * 
+	 * @param dropRate chance of dropping each request, from 0 to 1
+	 * @return this, for chaining
+	 */
+	public MockOBSServer dropRate(double dropRate)
+	{
+		this.dropRate = rate(dropRate);
+		return this;
+	}
+	
+	/**
+	 * Closes the connection instead of answering some requests, so the client has to reconnect.
+	 * 
+	 * @param disconnectRate chance of disconnecting on each request, from 0 to 1
+	 * @return this, for chaining
+	 */
+	public MockOBSServer disconnectRate(double disconnectRate)
+	{
+		this.disconnectRate = rate(disconnectRate);
+		return this;
+	}
+	
+	private static double rate(double rate)
+	{
+		if(rate < 0 || rate > 1)
+		{
+			throw new IllegalArgumentException("Rate must be between 0 and 1, got " + rate);
+		}
+		
+		return rate;
+	}
+	
+	/**
+	 * Starts listening on a free port of localhost.
+	 * 
+	 * @return this, for chaining
+	 * @throws IOException if the server couldn't be started
+	 */
+	public MockOBSServer start() throws IOException
+	{
+		return start(0);
+	}
+	
+	/**
+	 * Starts listening on localhost.
+	 * 
+	 * @param port port to listen on, or 0 for any free port
+	 * @return this, for chaining
+	 * @throws IOException if the server couldn't be started
+	 */
+	public synchronized MockOBSServer start(int port) throws IOException
+	{
+		if(server != null)
+		{
+			throw new IllegalStateException("Mock OBS server is already started");
+		}
+		
+		Server server = new Server();
+		server.setStopTimeout(1000);
+		
+		ServerConnector connector = new ServerConnector(server);
+		connector.setHost("localhost");
+		connector.setPort(port);
+		server.addConnector(connector);
+		
+		server.setHandler(new WebSocketHandler() {
+			
+			@Override
+			public void configure(WebSocketServletFactory factory)
+			{
+				factory.getPolicy().setMaxTextMessageSize(OBSTransport.DEFAULT_MAX_MESSAGE_SIZE);
+				
+				factory.setCreator((request, response) -> {
+					// OBS also accepts clients that don't ask for a subprotocol
+					if(request.hasSubProtocol(SUBPROTOCOL))
+					{
+						response.setAcceptedSubProtocol(SUBPROTOCOL);
+					}
+					else if(!request.getSubProtocols().isEmpty())
+					{
+						try {
+							response.sendForbidden("Mock OBS server only speaks " + SUBPROTOCOL);
+						} catch(IOException e) {
+							OBSController.LOG.debug("Failed to turn away a client", e);
+						}
+						
+						return null;
+					}
+					
+					return new MockConnection(MockOBSServer.this);
+				});
+			}
+		});
+		
+		try {
+			server.start();
+		} catch(Exception e) {
+			throw new IOException("Failed to start the mock OBS server on port " + port, e);
+		}
+		
+		this.server = server;
+		this.connector = connector;
+		OBSController.LOG.info("Mock OBS server listening on " + getAddress());
+		return this;
+	}
+	
+	/**
+	 * @return port the server is listening on
+	 */
+	public synchronized int getPort()
+	{
+		if(connector == null)
+		{
+			throw new IllegalStateException("Mock OBS server isn't started");
+		}
+		
+		return connector.getLocalPort();
+	}
+	
+	/**
+	 * @return address to connect to (ex. ws://localhost:4455)
+	 */
+	public String getAddress()
+	{
+		return "ws://localhost:" + getPort();
+	}
+	
+	/**
+	 * Sends an event to every identified client subscribed to its category.
+	 * 
+	 * @param eventType    type of the event (ex. CurrentProgramSceneChanged)
+	 * @param subscription category of the event
+	 * @param eventData    data of the event, or null for none
+	 * @return number of clients it was sent to
+	 */
+	public int emit(String eventType, EventSubscription subscription, JsonObject eventData)
+	{
+		JsonObject data = new JsonObject();
+		data.addProperty("eventType", eventType);
+		data.addProperty("eventIntent", subscription.getMask());
+		
+		if(eventData != null)
+		{
+			data.add("eventData", eventData);
+		}
+		
+		String message = MockConnection.message(5, data);
+		int sent = 0;
+		
+		for(MockConnection connection : connections)
+		{
+			if(connection.isSubscribed(subscription))
+			{
+				connection.send(message);
+				sent++;
+			}
+		}
+		
+		return sent;
+	}
+	
+	/**
+	 * Sends an event at a steady rate until the returned future is cancelled or the server is closed. Rates over a thousand per second are sent in
+	 * bursts every millisecond.
+	 * 
+	 * @param eventType    type of the event (ex. InputVolumeMeters)
+	 * @param subscription category of the event
+	 * @param eventData    called for the data of each event
+	 * @param perSecond    events sent per second
+	 * @return cancel it to stop sending
+	 */
+	public ScheduledFuture<?> emitAtRate(String eventType, EventSubscription subscription, Supplier<JsonObject> eventData, double perSecond)
+	{
+		if(perSecond <= 0)
+		{
+			throw new IllegalArgumentException("Rate must be positive, got " + perSecond);
+		}
+		
+		long period = Math.max(TimeUnit.MILLISECONDS.toNanos(1), (long) (TimeUnit.SECONDS.toNanos(1) / perSecond));
+		double perTick = perSecond * period / TimeUnit.SECONDS.toNanos(1);
+		
+		return scheduler.scheduleAtFixedRate(new Runnable() {
+			
+			// Only touched by the scheduler thread
+			private double owed;
+			
+			@Override
+			public void run()
+			{
+				try {
+					for(owed += perTick; owed >= 1; owed--)
+					{
+						emit(eventType, subscription, eventData.get());
+					}
+				} catch(Throwable t) {
+					// Throwing would stop the schedule for good
+					OBSController.LOG.error("Mock OBS server failed to emit " + eventType, t);
+				}
+			}
+		}, period, period, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Closes every client's connection.
+	 * 
+	 * @param code   close code, such as 1001 for OBS going away
+	 * @param reason reason sent to the clients
+	 */
+	public void disconnectAll(int code, String reason)
+	{
+		for(MockConnection connection : connections)
+		{
+			connection.close(code, reason);
+		}
+	}
+	
+	/**
+	 * @return number of clients connected and identified
+	 */
+	public int getConnectionCount()
+	{
+		int count = 0;
+		
+		for(MockConnection connection : connections)
+		{
+			if(connection.isIdentified())
+			{
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * @return requests received so far, counting each request of a batch
+	 */
+	public long getRequestCount()
+	{
+		return requests.sum();
+	}
+	
+	/**
+	 * @param requestType type of the request
+	 * @return requests of the type received so far
+	 */
+	public long getRequestCount(String requestType)
+	{
+		LongAdder count = requestsByType.get(requestType);
+		return count == null ? 0 : count.sum();
+	}
+	
+	/**
+	 * @return requests and batches that were never answered because of {@link #dropRate(double)}
+	 */
+	public long getDroppedCount()
+	{
+		return dropped.sum();
+	}
+	
+	/**
+	 * Stops the server and closes every connection.
+	 */
+	@Override
+	public synchronized void close()
+	{
+		scheduler.shutdownNow();
+		
+		if(server == null)
+		{
+			return;
+		}
+		
+		try {
+			server.stop();
+		} catch(Exception e) {
+			OBSController.LOG.warn("Failed to stop the mock OBS server", e);
+		}
+		
+		server = null;
+		connector = null;
+		connections.clear();
+	}
+	
+	String getSalt()
+	{
+		return salt;
+	}
+	
+	/**
+	 * @param challenge challenge sent to the client in Hello
+	 * @return the authentication string the client should answer with, or null if no password is set
+	 */
+	String expectedAuthentication(String challenge)
+	{
+		String secret = this.secret;
+		return secret == null ? null : Base64.encodeBase64String(DigestUtils.sha256(secret + challenge));
+	}
+	
+	void connected(MockConnection connection)
+	{
+		connections.add(connection);
+	}
+	
+	void disconnected(MockConnection connection)
+	{
+		connections.remove(connection);
+	}
+	
+	/**
+	 * Runs the handler of a request.
+	 * 
+	 * @param requestType type of the request, or null if it had none
+	 * @param requestData requestData of the request, or null
+	 * @return the answer
+	 */
+	MockResponse handle(String requestType, JsonElement requestData)
+	{
+		if(requestType == null)
+		{
+			return MockResponse.failure(MockResponse.MISSING_REQUEST_TYPE, "Your request is missing a `requestType`");
+		}
+		
+		requests.increment();
+		requestsByType.computeIfAbsent(requestType, type -> new LongAdder()).increment();
+		
+		MockRequestHandler handler = handlers.getOrDefault(requestType, fallback);
+		
+		try {
+			MockResponse response = handler.handle(requestData != null && requestData.isJsonObject() ? requestData.getAsJsonObject() : new JsonObject());
+			return response == null ? MockResponse.success() : response;
+		} catch(RuntimeException e) {
+			OBSController.LOG.debug("Mock handler of " + requestType + " failed", e);
+			return MockResponse.failure(MockResponse.REQUEST_PROCESSING_FAILED, String.valueOf(e.getMessage()));
+		}
+	}
+	
+	/**
+	 * Sends an answer once the injected latency has passed, unless it's dropped or replaced by a disconnect.
+	 * 
+	 * @param connection connection that asked
+	 * @param message    the response or batch response
+	 */
+	void answer(MockConnection connection, String message)
+	{
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		
+		if(dropRate > 0 && random.nextDouble() < dropRate)
+		{
+			dropped.increment();
+			return;
+		}
+		
+		if(disconnectRate > 0 && random.nextDouble() < disconnectRate)
+		{
+			connection.close(1011, "Injected disconnect");
+			return;
+		}
+		
+		long min = minLatencyNanos, max = maxLatencyNanos;
+		long delay = max > min ? random.nextLong(min, max + 1) : min;
+		
+		if(delay == 0)
+		{
+			connection.send(message);
+			return;
+		}
+		
+		try {
+			scheduler.schedule(() -> connection.send(message), delay, TimeUnit.NANOSECONDS);
+		} catch(RejectedExecutionException e) {
+			// Closed
+		}
+	}
+}
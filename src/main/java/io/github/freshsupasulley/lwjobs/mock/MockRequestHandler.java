@@ -0,0 +1,20 @@
+package io.github.freshsupasulley.lwjobs.mock;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Answers one type of request for {@link MockOBSServer}.
+ * <p>
+ * Handlers of one connection run one at a time on the thread that read the request, so they shouldn't block. Throwing fails the request with
+ * {@link MockResponse#REQUEST_PROCESSING_FAILED}.
+ * </p>
+ */
+@FunctionalInterface
+public interface MockRequestHandler {
+	
+	/**
+	 * @param requestData requestData of the request, empty if it had none
+	 * @return the answer, or null for a success with no response data
+	 */
+	MockResponse handle(JsonObject requestData);
+}
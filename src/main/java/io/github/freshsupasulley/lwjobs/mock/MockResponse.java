@@ -0,0 +1,129 @@
+package io.github.freshsupasulley.lwjobs.mock;
+
+import com.google.gson.JsonObject;
+
+/**
+ * How {@link MockOBSServer} answers a request: a status code, an optional comment and optional response data. See
+ * <a href="https://github.com/obsproject/obs-websocket/blob/master/docs/generated/protocol.md#requeststatus">RequestStatus</a> for the codes OBS uses.
+ */
+public final class MockResponse {
+	
+	public static final int SUCCESS = 100;
+	public static final int MISSING_REQUEST_TYPE = 203;
+	public static final int UNKNOWN_REQUEST_TYPE = 204;
+	public static final int RESOURCE_NOT_FOUND = 600;
+	public static final int REQUEST_PROCESSING_FAILED = 702;
+	
+	private static final MockResponse EMPTY = new MockResponse(SUCCESS, null, null);
+	
+	private final int code;
+	private final String comment;
+	private final JsonObject responseData;
+	
+	private MockResponse(int code, String comment, JsonObject responseData)
+	{
+		this.code = code;
+		this.comment = comment;
+		this.responseData = responseData;
+	}
+	
+	/**
+	 * @return a success with no response data
+	 */
+	public static MockResponse success()
+	{
+		return EMPTY;
+	}
+	
+	/**
+	 * @param responseData response data sent back, or null for none
+	 * @return a success
+	 */
+	public static MockResponse success(JsonObject responseData)
+	{
+		return new MockResponse(SUCCESS, null, responseData);
+	}
+	
+	/**
+	 * @param code    status code, such as {@link #RESOURCE_NOT_FOUND}
+	 * @param comment comment explaining the failure, or null
+	 * @return a failure
+	 */
+	public static MockResponse failure(int code, String comment)
+	{
+		if(code == SUCCESS)
+		{
+			throw new IllegalArgumentException("A failure can't have the success code");
+		}
+		
+		return new MockResponse(code, comment, null);
+	}
+	
+	/**
+	 * @return true if the request succeeded
+	 */
+	public boolean isSuccess()
+	{
+		return code == SUCCESS;
+	}
+	
+	/**
+	 * @return status code
+	 */
+	public int getCode()
+	{
+		return code;
+	}
+	
+	/**
+	 * @return comment, or null
+	 */
+	public String getComment()
+	{
+		return comment;
+	}
+	
+	/**
+	 * @return response data, or null
+	 */
+	public JsonObject getResponseData()
+	{
+		return responseData;
+	}
+	
+	/**
+	 * Writes this answer as the result of one request, as found in responses and batch responses.
+	 * 
+	 * @param requestType type of the request
+	 * @param requestID   ID of the request, or null if it had none
+	 * @return the result
+	 */
+	JsonObject toResult(String requestType, String requestID)
+	{
+		JsonObject status = new JsonObject();
+		status.addProperty("result", isSuccess());
+		status.addProperty("code", code);
+		
+		if(comment != null)
+		{
+			status.addProperty("comment", comment);
+		}
+		
+		JsonObject result = new JsonObject();
+		result.addProperty("requestType", requestType);
+		
+		if(requestID != null)
+		{
+			result.addProperty("requestId", requestID);
+		}
+		
+		result.add("requestStatus", status);
+		
+		if(responseData != null)
+		{
+			result.add("responseData", responseData);
+		}
+		
+		return result;
+	}
+}
@@ -9,4 +9,10 @@ public abstract class EmptyGetRequest extends OBSRequest {
 	{
 		super((json) -> {});
 	}
+	
+	@Override
+	public boolean isIdempotent()
+	{
+		return true;
+	}
 }
@@ -1,8 +1,10 @@
 package io.github.freshsupasulley.lwjobs.requests;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import io.github.freshsupasulley.lwjobs.OBSController;
 
+import java.io.IOException;
 import java.util.function.Consumer;
 
 /**
@@ -24,6 +26,14 @@ public abstract class OBSRequest {
 		this.consumer = consumer;
 	}
 	
+	/**
+	 * Instantiates a new OBS request object that writes its own request body by overriding {@link #applyJSON(JsonObject)}.
+	 */
+	protected OBSRequest()
+	{
+		this(json -> {});
+	}
+	
 	/**
 	 * Accepts response data from OBS and fills instance variables.
 	 *
@@ -36,6 +46,20 @@ public abstract class OBSRequest {
 		parseResponse(responseData);
 	}
 	
+	/**
+	 * Accepts response data read straight from the message and fills instance variables. Only used for requests that are {@link #isStreaming()
+	 * streaming}.
+	 * 
+	 * @param code         code
+	 * @param responseData reader positioned at the responseData object
+	 * @throws IOException if the response is malformed
+	 */
+	public void accept(int code, JsonReader responseData) throws IOException
+	{
+		this.code = code;
+		readResponse(responseData);
+	}
+	
 	/**
 	 * Parses response data and puts its data into this class.
 	 *
@@ -43,6 +67,32 @@ public abstract class OBSRequest {
 	 */
 	protected abstract void parseResponse(JsonObject responseData);
 	
+	/**
+	 * Whether this request can read its response straight from the message with {@link #readResponse(JsonReader)}, which skips building a
+	 * {@link JsonObject} first.
+	 * <p>
+	 * Defaults to false. Streaming requests still need {@link #parseResponse(JsonObject)} for responses that arrive already parsed, like batch
+	 * results, MessagePack and reads shared between identical requests.
+	 * </p>
+	 * 
+	 * @return true if {@link #readResponse(JsonReader)} is implemented
+	 */
+	public boolean isStreaming()
+	{
+		return false;
+	}
+	
+	/**
+	 * Reads response data and puts its data into this class. The reader must be left after the end of the object. Streaming requests override this.
+	 * 
+	 * @param responseData reader positioned at the responseData object
+	 * @throws IOException if the response is malformed
+	 */
+	protected void readResponse(JsonReader responseData) throws IOException
+	{
+		throw new UnsupportedOperationException(getRequestType() + " can't read its response from a stream");
+	}
+	
 	/**
 	 * @return name of the request, as accepted by the WebSocket
 	 */
@@ -58,6 +108,35 @@ public abstract class OBSRequest {
 		consumer.accept(json);
 	}
 	
+	/**
+	 * How long to wait for OBS to answer this type of request before failing it. Can be overridden per request with
+	 * {@link io.github.freshsupasulley.lwjobs.OBSRequestBuilder#timeout(long, java.util.concurrent.TimeUnit) OBSRequestBuilder.timeout()}.
+	 * <p>
+	 * Defaults to 5 seconds. Override this for requests OBS takes a while to answer (like saving a screenshot). Zero or less waits forever.
+	 * </p>
+	 * 
+	 * @return timeout in milliseconds
+	 */
+	public long getDefaultTimeout()
+	{
+		return 5000;
+	}
+	
+	/**
+	 * Whether this request only reads from OBS, so sending it twice with the same parameters gives the same answer as sending it once. With read
+	 * coalescing turned on, identical idempotent requests that are waiting for an answer at the same time are sent once and share the response (see
+	 * {@link io.github.freshsupasulley.lwjobs.OBSController#useReadCoalescing(boolean) OBSController.useReadCoalescing()}).
+	 * <p>
+	 * Defaults to false. Override this for read-only requests.
+	 * </p>
+	 * 
+	 * @return true if the request is a read with no side effects
+	 */
+	public boolean isIdempotent()
+	{
+		return false;
+	}
+	
 	/**
 	 * @return successful RequestStatus code (usually 100)
 	 */
@@ -0,0 +1,91 @@
+package io.github.freshsupasulley.lwjobs.requests;
+
+import com.google.gson.JsonObject;
+
+import java.util.function.Consumer;
+
+/**
+ * A request on a scene item that names the item by its source instead of its numeric ID.
+ * <p>
+ * The controller looks the ID up before sending, from a cache that scene item events keep up to date. Only the first request for an item (and the
+ * first one after it's moved or the scene is renamed) costs an extra round trip to look it up.
+ * </p>
+ */
+public abstract class SceneItemNameRequest extends OBSRequest {
+	
+	private final String sceneName, sourceName;
+	private final int searchOffset;
+	private volatile int sceneItemId = -1;
+	
+	/**
+	 * @param sceneName    name of the scene or group the item is in
+	 * @param sourceName   name of the source the item shows
+	 * @param searchOffset number of matches to skip during search. >= 0 means first forward. -1 means last (top) item
+	 * @param consumer     fills in the rest of the request, after sceneName and sceneItemId
+	 */
+	protected SceneItemNameRequest(String sceneName, String sourceName, int searchOffset, Consumer<JsonObject> consumer)
+	{
+		super(consumer);
+		this.sceneName = sceneName;
+		this.sourceName = sourceName;
+		this.searchOffset = searchOffset;
+	}
+	
+	/**
+	 * @return name of the scene or group the item is in
+	 */
+	public String getSceneName()
+	{
+		return sceneName;
+	}
+	
+	/**
+	 * @return name of the source the item shows
+	 */
+	public String getSourceName()
+	{
+		return sourceName;
+	}
+	
+	/**
+	 * @return number of matches to skip during search
+	 */
+	public int getSearchOffset()
+	{
+		return searchOffset;
+	}
+	
+	/**
+	 * @return numeric ID of the scene item the request was last sent with, or -1 if it hasn't been looked up yet
+	 */
+	public int getSceneItemId()
+	{
+		return sceneItemId;
+	}
+	
+	/**
+	 * @return true once the numeric ID of the scene item is known
+	 */
+	public boolean isResolved()
+	{
+		return sceneItemId != -1;
+	}
+	
+	/**
+	 * Sets the numeric ID of the scene item. Called by the controller before every send, so a request sent again uses the item's current ID.
+	 * 
+	 * @param sceneItemId numeric ID of the scene item
+	 */
+	public void resolve(int sceneItemId)
+	{
+		this.sceneItemId = sceneItemId;
+	}
+	
+	@Override
+	public void applyJSON(JsonObject json)
+	{
+		json.addProperty("sceneName", sceneName);
+		json.addProperty("sceneItemId", sceneItemId);
+		super.applyJSON(json);
+	}
+}
@@ -0,0 +1,252 @@
+package io.github.freshsupasulley.lwjobs.transport;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Transport backed by the JDK's built-in <code>java.net.http.WebSocket</code>. Much lighter than Jetty, as it doesn't start a client or thread pool of its own.
+ * <p>
+ * Listener callbacks run on the executor of the underlying {@link HttpClient}. Use {@link #withVirtualThreads()} to run them on virtual threads.
+ * </p>
+ * 
+ * <pre>
+ * OBSController controller = new OBSController(JdkTransport.withVirtualThreads()).connect("ws://localhost:4455");
+ * </pre>
+ */
+public class JdkTransport implements OBSTransport {
+	
+	private final HttpClient client;
+	private final ExecutorService ownedExecutor;
+	private int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+	
+	private volatile WebSocket webSocket;
+	private volatile Listener listener;
+	
+	// The JDK only allows one outstanding send at a time, so sends are chained one after the other
+	private CompletableFuture<?> lastSend = CompletableFuture.completedFuture(null);
+	
+	/**
+	 * Creates a transport using the HttpClient's default executor.
+	 */
+	public JdkTransport()
+	{
+		this(HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build(), null);
+	}
+	
+	/**
+	 * Creates a transport using an existing HttpClient. The client is not shut down with the transport.
+	 * 
+	 * @param client HTTP client to open WebSockets with
+	 */
+	public JdkTransport(HttpClient client)
+	{
+		this(client, null);
+	}
+	
+	private JdkTransport(HttpClient client, ExecutorService ownedExecutor)
+	{
+		this.client = client;
+		this.ownedExecutor = ownedExecutor;
+	}
+	
+	/**
+	 * Creates a transport that runs its callbacks on virtual threads.
+	 * 
+	 * @return new transport
+	 */
+	public static JdkTransport withVirtualThreads()
+	{
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		return new JdkTransport(HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).executor(executor).build(), executor);
+	}
+	
+	/**
+	 * Sets the size limit of inbound messages. Messages over the limit close the connection. Defaults to {@link OBSTransport#DEFAULT_MAX_MESSAGE_SIZE}.
+	 * 
+	 * @param maxMessageSize max size of a message in bytes (or characters for text)
+	 * @return this, for chaining
+	 */
+	public JdkTransport maxMessageSize(int maxMessageSize)
+	{
+		this.maxMessageSize = maxMessageSize;
+		return this;
+	}
+	
+	@Override
+	public CompletableFuture<Void> connect(URI address, String subprotocol, OBSTransportListener listener)
+	{
+		return client.newWebSocketBuilder()
+				.subprotocols(subprotocol)
+				.buildAsync(address, this.listener = new Listener(listener))
+				.thenAccept(webSocket -> {});
+	}
+	
+	@Override
+	public CompletableFuture<Void> sendText(String message)
+	{
+		return send(webSocket -> webSocket.sendText(message, true));
+	}
+	
+	@Override
+	public CompletableFuture<Void> sendBinary(ByteBuffer message)
+	{
+		return send(webSocket -> webSocket.sendBinary(message, true));
+	}
+	
+	private synchronized CompletableFuture<Void> send(Function<WebSocket, CompletableFuture<WebSocket>> send)
+	{
+		WebSocket webSocket = this.webSocket;
+		
+		if(webSocket == null)
+		{
+			return CompletableFuture.failedFuture(new IOException("Not connected"));
+		}
+		
+		// Wait for the previous send whether or not it succeeded
+		CompletableFuture<Void> future = lastSend.handle((ignored, error) -> null).thenCompose(ignored -> send.apply(webSocket)).thenAccept(ignored -> {});
+		lastSend = future;
+		return future;
+	}
+	
+	@Override
+	public boolean isOpen()
+	{
+		WebSocket webSocket = this.webSocket;
+		return webSocket != null && !webSocket.isOutputClosed() && !webSocket.isInputClosed();
+	}
+	
+	@Override
+	public void close()
+	{
+		WebSocket webSocket = this.webSocket;
+		
+		if(webSocket != null && !webSocket.isOutputClosed())
+		{
+			webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "");
+		}
+	}
+	
+	@Override
+	public void shutdown()
+	{
+		Listener listener = this.listener;
+		
+		if(listener != null)
+		{
+			listener.abort();
+		}
+		
+		if(ownedExecutor != null)
+		{
+			ownedExecutor.shutdownNow();
+		}
+	}
+	
+	private class Listener implements WebSocket.Listener {
+		
+		private final OBSTransportListener listener;
+		
+		// Messages can arrive in parts
+		private final MessageAssembler assembler;
+		
+		private volatile boolean open;
+		
+		private Listener(OBSTransportListener listener)
+		{
+			this.listener = listener;
+			this.assembler = new MessageAssembler(listener, maxMessageSize);
+		}
+		
+		@Override
+		public void onOpen(WebSocket webSocket)
+		{
+			JdkTransport.this.webSocket = webSocket;
+			open = true;
+			listener.onOpen();
+			webSocket.request(1);
+		}
+		
+		@Override
+		public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last)
+		{
+			try {
+				assembler.text(data, last);
+			} catch(IOException e) {
+				tooLarge(webSocket, e);
+				return null;
+			}
+			
+			webSocket.request(1);
+			return null;
+		}
+		
+		@Override
+		public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last)
+		{
+			try {
+				assembler.binary(data, last);
+			} catch(IOException e) {
+				tooLarge(webSocket, e);
+				return null;
+			}
+			
+			webSocket.request(1);
+			return null;
+		}
+		
+		private void tooLarge(WebSocket webSocket, IOException e)
+		{
+			listener.onError(e);
+			webSocket.sendClose(1009, "Message too large");
+			// Keep reading so the close handshake can finish
+			webSocket.request(1);
+		}
+		
+		@Override
+		public synchronized CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason)
+		{
+			if(open)
+			{
+				open = false;
+				listener.onClose(statusCode, reason);
+			}
+			
+			return null;
+		}
+		
+		/**
+		 * Closes the connection right away. The JDK stops calling the listener after aborting, so the close is reported here instead.
+		 */
+		private synchronized void abort()
+		{
+			if(open)
+			{
+				open = false;
+				webSocket.abort();
+				listener.onClose(1001, "Transport shut down");
+			}
+		}
+		
+		@Override
+		public synchronized void onError(WebSocket webSocket, Throwable error)
+		{
+			listener.onError(error);
+			
+			// Unlike Jetty, the JDK doesn't follow errors with a close
+			if(open)
+			{
+				open = false;
+				listener.onClose(1006, String.valueOf(error.getMessage()));
+			}
+		}
+	}
+}
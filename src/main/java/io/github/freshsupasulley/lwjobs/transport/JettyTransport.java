@@ -0,0 +1,295 @@
+package io.github.freshsupasulley.lwjobs.transport;
+
+import io.github.freshsupasulley.lwjobs.OBSController;
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WebSocketPartialListener;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport backed by Jetty's WebSocket client. This is the default transport.
+ * <p>
+ * Messages are received in parts and put back together in reusable buffers, so large responses don't turn into one huge string each time.
+ * </p>
+ */
+public class JettyTransport implements OBSTransport {
+	
+	private final WebSocketClient client;
+	private final boolean ownsClient;
+	private volatile Session session;
+	private int maxMessageSize;
+	
+	/**
+	 * Creates a transport with its own Jetty client.
+	 */
+	public JettyTransport()
+	{
+		this(newClient(), true);
+		maxMessageSize(DEFAULT_MAX_MESSAGE_SIZE);
+	}
+	
+	/**
+	 * Creates a transport using an existing Jetty client, so many connections can share its threads. The client is started if it isn't already, and
+	 * is not stopped with the transport.
+	 * 
+	 * @param client Jetty client to open WebSockets with
+	 */
+	public JettyTransport(WebSocketClient client)
+	{
+		this(client, false);
+		this.maxMessageSize = clientLimit();
+	}
+	
+	private JettyTransport(WebSocketClient client, boolean ownsClient)
+	{
+		this.client = client;
+		this.ownsClient = ownsClient;
+	}
+	
+	/**
+	 * Creates a Jetty client set up the way this transport expects, for sharing between transports with {@link #JettyTransport(WebSocketClient)}.
+	 * 
+	 * @return new client, not started yet
+	 */
+	public static WebSocketClient newClient()
+	{
+		WebSocketClient client = new WebSocketClient();
+		client.setStopTimeout(1000);
+		client.getPolicy().setMaxTextMessageSize(DEFAULT_MAX_MESSAGE_SIZE);
+		client.getPolicy().setMaxBinaryMessageSize(DEFAULT_MAX_MESSAGE_SIZE);
+		return client;
+	}
+	
+	/**
+	 * Sets the size limit of inbound messages. Messages over the limit close the connection. Defaults to {@link OBSTransport#DEFAULT_MAX_MESSAGE_SIZE}.
+	 * <p>
+	 * A transport with its own client sets the limit on the client. A transport {@link #JettyTransport(WebSocketClient) sharing a client} can only
+	 * lower the limit for itself, since raising it on the client would change it for every other transport using that client. Raise a shared
+	 * client's limit through its policy before handing it out.
+	 * </p>
+	 * 
+	 * @param maxMessageSize max size of a message in bytes (or characters for text)
+	 * @return this, for chaining
+	 * @throws IllegalArgumentException if the client is shared and its limit is lower
+	 */
+	public JettyTransport maxMessageSize(int maxMessageSize)
+	{
+		if(ownsClient)
+		{
+			client.getPolicy().setMaxTextMessageSize(maxMessageSize);
+			client.getPolicy().setMaxBinaryMessageSize(maxMessageSize);
+		}
+		else if(maxMessageSize > clientLimit())
+		{
+			throw new IllegalArgumentException("Shared Jetty client only allows messages up to " + clientLimit() + " bytes");
+		}
+		
+		this.maxMessageSize = maxMessageSize;
+		return this;
+	}
+	
+	private int clientLimit()
+	{
+		return Math.min(limit(client.getPolicy().getMaxTextMessageSize()), limit(client.getPolicy().getMaxBinaryMessageSize()));
+	}
+	
+	// Jetty doesn't check sizes of 0 or less
+	private static int limit(int size)
+	{
+		return size > 0 ? size : Integer.MAX_VALUE;
+	}
+	
+	@Override
+	public CompletableFuture<Void> connect(URI address, String subprotocol, OBSTransportListener listener)
+	{
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		
+		try {
+			ClientUpgradeRequest request = new ClientUpgradeRequest();
+			request.setSubProtocols(subprotocol);
+			
+			client.start();
+			client.connect(new Listener(listener, future), address, request);
+		} catch(Exception e) {
+			future.completeExceptionally(e);
+		}
+		
+		return future;
+	}
+	
+	@Override
+	public CompletableFuture<Void> sendText(String message)
+	{
+		Session session = this.session;
+		
+		if(session == null)
+		{
+			return CompletableFuture.failedFuture(new IOException("Not connected"));
+		}
+		
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		session.getRemote().sendString(message, new FutureCallback(future));
+		return future;
+	}
+	
+	@Override
+	public CompletableFuture<Void> sendBinary(ByteBuffer message)
+	{
+		Session session = this.session;
+		
+		if(session == null)
+		{
+			return CompletableFuture.failedFuture(new IOException("Not connected"));
+		}
+		
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		session.getRemote().sendBytes(message, new FutureCallback(future));
+		return future;
+	}
+	
+	@Override
+	public void flush()
+	{
+		Session session = this.session;
+		
+		if(session == null)
+		{
+			return;
+		}
+		
+		try {
+			session.getRemote().flush();
+		} catch(IOException e) {
+			OBSController.LOG.debug("Failed to flush WebSocket", e);
+		}
+	}
+	
+	@Override
+	public boolean isOpen()
+	{
+		Session session = this.session;
+		return session != null && session.isOpen();
+	}
+	
+	@Override
+	public void close()
+	{
+		Session session = this.session;
+		
+		if(session != null && session.isOpen())
+		{
+			session.close();
+		}
+	}
+	
+	@Override
+	public void shutdown()
+	{
+		// Other transports may still be using it
+		if(!ownsClient)
+		{
+			close();
+			return;
+		}
+		
+		try {
+			client.stop();
+		} catch(Exception e) {
+			OBSController.LOG.error("Failed to stop WebSocket client", e);
+		}
+	}
+	
+	private class Listener implements WebSocketPartialListener {
+		
+		private final OBSTransportListener listener;
+		private final CompletableFuture<Void> onOpen;
+		private final MessageAssembler assembler;
+		
+		private Listener(OBSTransportListener listener, CompletableFuture<Void> onOpen)
+		{
+			this.listener = listener;
+			this.onOpen = onOpen;
+			this.assembler = new MessageAssembler(listener, maxMessageSize);
+		}
+		
+		@Override
+		public void onWebSocketConnect(Session session)
+		{
+			// Messages are written out together when the controller flushes
+			session.getRemote().setBatchMode(BatchMode.ON);
+			JettyTransport.this.session = session;
+			onOpen.complete(null);
+			listener.onOpen();
+		}
+		
+		@Override
+		public void onWebSocketPartialText(String payload, boolean fin)
+		{
+			try {
+				assembler.text(payload, fin);
+			} catch(IOException e) {
+				tooLarge(e);
+			}
+		}
+		
+		@Override
+		public void onWebSocketPartialBinary(ByteBuffer payload, boolean fin)
+		{
+			try {
+				assembler.binary(payload, fin);
+			} catch(IOException e) {
+				tooLarge(e);
+			}
+		}
+		
+		private void tooLarge(IOException e)
+		{
+			listener.onError(e);
+			session.close(StatusCode.MESSAGE_TOO_LARGE, e.getMessage());
+		}
+		
+		@Override
+		public void onWebSocketClose(int statusCode, String reason)
+		{
+			onOpen.completeExceptionally(new IOException("Connection closed: (" + statusCode + ") - " + reason));
+			listener.onClose(statusCode, reason);
+		}
+		
+		@Override
+		public void onWebSocketError(Throwable cause)
+		{
+			onOpen.completeExceptionally(cause);
+			listener.onError(cause);
+		}
+	}
+	
+	private static class FutureCallback implements WriteCallback {
+		
+		private final CompletableFuture<Void> future;
+		
+		private FutureCallback(CompletableFuture<Void> future)
+		{
+			this.future = future;
+		}
+		
+		@Override
+		public void writeFailed(Throwable cause)
+		{
+			future.completeExceptionally(cause);
+		}
+		
+		@Override
+		public void writeSuccess()
+		{
+			future.complete(null);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package io.github.freshsupasulley.lwjobs.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Puts messages that arrive in parts back together before handing them to the listener.
+ * <p>
+ * Parts are copied into buffers that are reused from one message to the next, so large messages don't each allocate a new giant string or array.
+ * Messages that arrive in one part are passed straight through without copying. Buffered messages are only valid until the listener returns.
+ * </p>
+ * <p>
+ * A buffer that grew past {@link #RETAINED_CAPACITY} for one message is let go afterwards, so a single large screenshot doesn't keep its size
+ * around for the rest of the connection.
+ * </p>
+ */
+class MessageAssembler {
+	
+	/**
+	 * Largest buffer kept between messages.
+	 */
+	static final int RETAINED_CAPACITY = 1024 * 1024;
+	
+	private final OBSTransportListener listener;
+	private final int maxMessageSize;
+	
+	private StringBuilder text = new StringBuilder();
+	private byte[] binary = new byte[0];
+	private int binaryLength;
+	
+	MessageAssembler(OBSTransportListener listener, int maxMessageSize)
+	{
+		this.listener = listener;
+		this.maxMessageSize = maxMessageSize;
+	}
+	
+	/**
+	 * Adds part of a text message.
+	 * 
+	 * @param part the part
+	 * @param last true if this is the last part of the message
+	 * @throws IOException if the message grew past the max message size
+	 */
+	void text(CharSequence part, boolean last) throws IOException
+	{
+		// Common case, nothing to put together
+		if(last && text.length() == 0)
+		{
+			listener.onText(part);
+			return;
+		}
+		
+		if((long) text.length() + part.length() > maxMessageSize)
+		{
+			resetText();
+			throw new IOException("Text message exceeds the max message size of " + maxMessageSize);
+		}
+		
+		text.append(part);
+		
+		if(last)
+		{
+			try {
+				listener.onText(text);
+			} finally {
+				resetText();
+			}
+		}
+	}
+	
+	private void resetText()
+	{
+		if(text.capacity() > RETAINED_CAPACITY)
+		{
+			text = new StringBuilder();
+		}
+		else
+		{
+			text.setLength(0);
+		}
+	}
+	
+	/**
+	 * Adds part of a binary message.
+	 * 
+	 * @param part the part
+	 * @param last true if this is the last part of the message
+	 * @throws IOException if the message grew past the max message size
+	 */
+	void binary(ByteBuffer part, boolean last) throws IOException
+	{
+		// Common case, nothing to put together
+		if(last && binaryLength == 0 && part.hasArray())
+		{
+			listener.onBinary(part.array(), part.arrayOffset() + part.position(), part.remaining());
+			return;
+		}
+		
+		int length = binaryLength + part.remaining();
+		
+		if(length > maxMessageSize || length < 0)
+		{
+			resetBinary();
+			throw new IOException("Binary message exceeds the max message size of " + maxMessageSize);
+		}
+		
+		if(length > binary.length)
+		{
+			binary = Arrays.copyOf(binary, Math.min(maxMessageSize, Math.max(length, binary.length * 2)));
+		}
+		
+		part.get(binary, binaryLength, part.remaining());
+		binaryLength = length;
+		
+		if(last)
+		{
+			try {
+				listener.onBinary(binary, 0, binaryLength);
+			} finally {
+				resetBinary();
+			}
+		}
+	}
+	
+	private void resetBinary()
+	{
+		binaryLength = 0;
+		
+		if(binary.length > RETAINED_CAPACITY)
+		{
+			binary = new byte[0];
+		}
+	}
+}
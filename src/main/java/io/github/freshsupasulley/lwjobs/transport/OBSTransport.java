@@ -0,0 +1,67 @@
+package io.github.freshsupasulley.lwjobs.transport;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Carries WebSocket messages between the controller and OBS. A transport holds one connection at a time, but can connect again after it closes.
+ * <p>
+ * The library comes with {@link JettyTransport} (default) and {@link JdkTransport}, which uses the JDK's built-in <code>java.net.http.WebSocket</code>.
+ * </p>
+ * 
+ * @see io.github.freshsupasulley.lwjobs.OBSController#OBSController(OBSTransport)
+ */
+public interface OBSTransport {
+	
+	/**
+	 * Default size limit of inbound messages. Large enough for screenshots and big scene collections.
+	 */
+	int DEFAULT_MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+	
+	/**
+	 * Opens a WebSocket connection.
+	 * 
+	 * @param address     URI address (ex. ws://localhost:4455)
+	 * @param subprotocol WebSocket subprotocol to negotiate
+	 * @param listener    listener for everything that happens on the connection
+	 * @return future completed once the connection is open, or completed exceptionally if it couldn't be opened
+	 */
+	CompletableFuture<Void> connect(URI address, String subprotocol, OBSTransportListener listener);
+	
+	/**
+	 * Sends a text message. Safe to call from any thread.
+	 * 
+	 * @param message the message
+	 * @return future completed once the message is written
+	 */
+	CompletableFuture<Void> sendText(String message);
+	
+	/**
+	 * Sends a binary message. Safe to call from any thread.
+	 * 
+	 * @param message the message
+	 * @return future completed once the message is written
+	 */
+	CompletableFuture<Void> sendBinary(ByteBuffer message);
+	
+	/**
+	 * Called by the controller after writing a burst of messages. Transports that hold on to outgoing messages to write them together should write them out here.
+	 */
+	default void flush() {}
+	
+	/**
+	 * @return true if the connection is open
+	 */
+	boolean isOpen();
+	
+	/**
+	 * Closes the current connection, if any. The transport can connect again afterwards.
+	 */
+	void close();
+	
+	/**
+	 * Closes the current connection and releases any threads and resources held by this transport.
+	 */
+	void shutdown();
+}
@@ -0,0 +1,49 @@
+package io.github.freshsupasulley.lwjobs.transport;
+
+/**
+ * Receives everything that happens on a transport's connection. Implemented by the controller.
+ * <p>
+ * Transports must call these methods one at a time and in the order messages arrived.
+ * </p>
+ */
+public interface OBSTransportListener {
+	
+	/**
+	 * Called once the WebSocket connection is open.
+	 */
+	void onOpen();
+	
+	/**
+	 * Called with every complete text message.
+	 * <p>
+	 * Large messages may be handed over in a buffer that's reused for the next message, so the message must not be kept after this method returns.
+	 * </p>
+	 * 
+	 * @param message the message
+	 */
+	void onText(CharSequence message);
+	
+	/**
+	 * Called with every complete binary message. Like text messages, the buffer must not be kept after this method returns.
+	 * 
+	 * @param payload buffer holding the message
+	 * @param offset  offset of the message in the buffer
+	 * @param length  length of the message
+	 */
+	void onBinary(byte[] payload, int offset, int length);
+	
+	/**
+	 * Called once the connection is closed, whether it was open or failed to open.
+	 * 
+	 * @param statusCode WebSocket close code
+	 * @param reason     possibly empty reason
+	 */
+	void onClose(int statusCode, String reason);
+	
+	/**
+	 * Called when the connection fails.
+	 * 
+	 * @param cause the error
+	 */
+	void onError(Throwable cause);
+}
@@ -0,0 +1,48 @@
+package io.github.freshsupasulley.lwjobs;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executor;
+
+class CallbackContextTest {
+	
+	@Test
+	void closingANestedContextKeepsTheOuterOne()
+	{
+		Executor outerLane = Runnable::run, innerLane = Runnable::run;
+		
+		try(CallbackContext outer = CallbackContext.getInstance(outerLane)) {
+			try(CallbackContext inner = CallbackContext.getInstance(innerLane)) {
+				assertSame(innerLane, CallbackContext.getLane());
+			}
+			
+			assertTrue(CallbackContext.isCallbackContext());
+			assertSame(outerLane, CallbackContext.getLane());
+		}
+		
+		assertFalse(CallbackContext.isCallbackContext());
+		assertNull(CallbackContext.getLane());
+	}
+	
+	@Test
+	void closingAnInnerContextWithoutALaneKeepsTheOuterLane()
+	{
+		Executor lane = Runnable::run;
+		
+		try(CallbackContext outer = CallbackContext.getInstance(lane)) {
+			try(CallbackContext inner = CallbackContext.getInstance()) {
+				assertTrue(CallbackContext.isCallbackContext());
+			}
+			
+			assertTrue(CallbackContext.isCallbackContext());
+			assertSame(lane, CallbackContext.getLane());
+		}
+		
+		assertFalse(CallbackContext.isCallbackContext());
+	}
+}
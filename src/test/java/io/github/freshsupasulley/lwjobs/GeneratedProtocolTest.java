@@ -0,0 +1,148 @@
+package io.github.freshsupasulley.lwjobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import io.github.freshsupasulley.lwjobs.protocol.GetCurrentSceneTransitionCursorRequest;
+import io.github.freshsupasulley.lwjobs.protocol.GetMediaInputStatusRequest;
+import io.github.freshsupasulley.lwjobs.protocol.GetSceneListRequest;
+import io.github.freshsupasulley.lwjobs.protocol.GetStatsRequest;
+import io.github.freshsupasulley.lwjobs.protocol.SceneItemEnableStateChangedEvent;
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+class GeneratedProtocolTest {
+	
+	// Responses as obs-websocket 5.x sends them, with keys in its alphabetical order
+	private static final String SCENE_LIST = "{\"d\":{\"requestId\":\"f819dcf0\",\"requestStatus\":{\"code\":100,\"result\":true},\"requestType\":\"GetSceneList\",\"responseData\":{\"currentPreviewSceneName\":null,\"currentPreviewSceneUuid\":null,\"currentProgramSceneName\":\"Gameplay\",\"currentProgramSceneUuid\":\"5f0c1bde-2c3a-4d1e-9b57-0a9e0a6f1c11\",\"scenes\":[{\"sceneIndex\":0,\"sceneName\":\"BRB\",\"sceneUuid\":\"b2e3f4a5-6c7d-4e8f-9a01-2b3c4d5e6f70\"},{\"sceneIndex\":1,\"sceneName\":\"Gameplay\",\"sceneUuid\":\"5f0c1bde-2c3a-4d1e-9b57-0a9e0a6f1c11\"}]}},\"op\":7}";
+	private static final String STATS = "{\"d\":{\"requestId\":\"2\",\"requestStatus\":{\"code\":100,\"result\":true},\"requestType\":\"GetStats\",\"responseData\":{\"activeFps\":60.0000024000001,\"availableDiskSpace\":412034.59765625,\"averageFrameRenderTime\":0.872301,\"cpuUsage\":3.2468750000000002,\"memoryUsage\":612.74609375,\"outputSkippedFrames\":0,\"outputTotalFrames\":5184000012,\"renderSkippedFrames\":3,\"renderTotalFrames\":5184000307,\"webSocketSessionIncomingMessages\":41,\"webSocketSessionOutgoingMessages\":40}},\"op\":7}";
+	private static final String MEDIA_PLAYING = "{\"d\":{\"requestId\":\"3\",\"requestStatus\":{\"code\":100,\"result\":true},\"requestType\":\"GetMediaInputStatus\",\"responseData\":{\"mediaCursor\":4521876,\"mediaDuration\":7260032,\"mediaState\":\"OBS_MEDIA_STATE_PLAYING\"}},\"op\":7}";
+	private static final String MEDIA_STOPPED = "{\"d\":{\"requestId\":\"4\",\"requestStatus\":{\"code\":100,\"result\":true},\"requestType\":\"GetMediaInputStatus\",\"responseData\":{\"mediaCursor\":null,\"mediaDuration\":null,\"mediaState\":\"OBS_MEDIA_STATE_STOPPED\"}},\"op\":7}";
+	private static final String TRANSITION_CURSOR = "{\"d\":{\"requestId\":\"5\",\"requestStatus\":{\"code\":100,\"result\":true},\"requestType\":\"GetCurrentSceneTransitionCursor\",\"responseData\":{\"transitionCursor\":0.4166666567325592}},\"op\":7}";
+	private static final String ENABLE_STATE_CHANGED = "{\"d\":{\"eventData\":{\"sceneItemEnabled\":true,\"sceneItemId\":7,\"sceneName\":\"Gameplay\",\"sceneUuid\":\"5f0c1bde-2c3a-4d1e-9b57-0a9e0a6f1c11\"},\"eventIntent\":128,\"eventType\":\"SceneItemEnableStateChanged\"},\"op\":5}";
+	
+	/**
+	 * Fills one request from the parsed responseData and the other straight from the message.
+	 */
+	private static <T extends OBSRequest> void accept(String message, T tree, T streamed) throws IOException
+	{
+		Envelope envelope = Envelope.read(message);
+		assertTrue(streamed.isStreaming());
+		
+		tree.accept(envelope.getCode(), envelope.getObject("responseData"));
+		
+		try(JsonReader reader = envelope.readerAt("responseData")) {
+			streamed.accept(envelope.getCode(), reader);
+		}
+		
+		assertEquals(100, tree.getCode());
+		assertEquals(100, streamed.getCode());
+	}
+	
+	@Test
+	void sceneListReadsTheSameBothWays() throws IOException
+	{
+		GetSceneListRequest tree = new GetSceneListRequest(), streamed = new GetSceneListRequest();
+		accept(SCENE_LIST, tree, streamed);
+		
+		for(GetSceneListRequest request : new GetSceneListRequest[] {tree, streamed})
+		{
+			assertEquals("Gameplay", request.getCurrentProgramSceneName());
+			assertNull(request.getCurrentPreviewSceneName());
+			assertEquals(2, request.getScenes().length);
+		}
+		
+		assertArrayEquals(tree.getScenes(), streamed.getScenes());
+	}
+	
+	@Test
+	void statsKeepFrameCountsPastIntRange() throws IOException
+	{
+		GetStatsRequest tree = new GetStatsRequest(), streamed = new GetStatsRequest();
+		accept(STATS, tree, streamed);
+		
+		for(GetStatsRequest request : new GetStatsRequest[] {tree, streamed})
+		{
+			assertEquals(60.0000024000001, request.getActiveFps());
+			assertEquals(3.2468750000000002, request.getCpuUsage());
+			assertEquals(5184000307L, request.getRenderTotalFrames());
+			assertEquals(5184000012L, request.getOutputTotalFrames());
+			assertEquals(41, request.getWebSocketSessionIncomingMessages());
+		}
+	}
+	
+	@Test
+	void mediaCursorIsNullWhileStopped() throws IOException
+	{
+		GetMediaInputStatusRequest tree = new GetMediaInputStatusRequest(), streamed = new GetMediaInputStatusRequest();
+		accept(MEDIA_PLAYING, tree, streamed);
+		
+		for(GetMediaInputStatusRequest request : new GetMediaInputStatusRequest[] {tree, streamed})
+		{
+			assertEquals(Long.valueOf(4521876), request.getMediaCursor());
+			assertEquals(Long.valueOf(7260032), request.getMediaDuration());
+		}
+		
+		tree = new GetMediaInputStatusRequest();
+		streamed = new GetMediaInputStatusRequest();
+		accept(MEDIA_STOPPED, tree, streamed);
+		
+		for(GetMediaInputStatusRequest request : new GetMediaInputStatusRequest[] {tree, streamed})
+		{
+			assertNull(request.getMediaCursor());
+			assertNull(request.getMediaDuration());
+			assertEquals("OBS_MEDIA_STATE_STOPPED", request.getMediaState());
+		}
+	}
+	
+	@Test
+	void transitionCursorIsAFraction() throws IOException
+	{
+		GetCurrentSceneTransitionCursorRequest tree = new GetCurrentSceneTransitionCursorRequest(), streamed = new GetCurrentSceneTransitionCursorRequest();
+		accept(TRANSITION_CURSOR, tree, streamed);
+		
+		assertEquals(0.4166666567325592, tree.getTransitionCursor());
+		assertEquals(0.4166666567325592, streamed.getTransitionCursor());
+	}
+	
+	@Test
+	void eventReadsTheSameBothWays() throws IOException
+	{
+		Envelope envelope = Envelope.read(ENABLE_STATE_CHANGED);
+		ExposedEvent tree = new ExposedEvent(), streamed = new ExposedEvent();
+		
+		tree.parse(envelope.getObject("eventData"));
+		
+		try(JsonReader reader = envelope.readerAt("eventData")) {
+			streamed.read(reader);
+		}
+		
+		for(ExposedEvent event : new ExposedEvent[] {tree, streamed})
+		{
+			assertEquals("Gameplay", event.getSceneName());
+			assertEquals("5f0c1bde-2c3a-4d1e-9b57-0a9e0a6f1c11", event.getSceneUuid());
+			assertEquals(7, event.getSceneItemId());
+			assertTrue(event.isSceneItemEnabled());
+		}
+	}
+	
+	// The event parsers are protected, this exposes them
+	private static class ExposedEvent extends SceneItemEnableStateChangedEvent {
+		
+		private void parse(JsonObject eventData)
+		{
+			parseResponse(eventData);
+		}
+		
+		private void read(JsonReader eventData) throws IOException
+		{
+			readEvent(eventData);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package io.github.freshsupasulley.lwjobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+class LatencyHistogramTest {
+	
+	@Test
+	void smallValuesGetABucketEach()
+	{
+		for(int value = 0; value < LatencyHistogram.SUB_BUCKETS; value++)
+		{
+			assertEquals(value, LatencyHistogram.bucketOf(value));
+			assertEquals(value, LatencyHistogram.highestOf(value));
+		}
+	}
+	
+	@Test
+	void bucketsMeetWithoutGapsOrOverlaps()
+	{
+		int last = LatencyHistogram.bucketOf(Long.MAX_VALUE);
+		assertTrue(last < LatencyHistogram.BUCKETS);
+		assertEquals(Long.MAX_VALUE, LatencyHistogram.highestOf(last));
+		
+		for(int bucket = 0; bucket < last; bucket++)
+		{
+			long highest = LatencyHistogram.highestOf(bucket);
+			
+			assertEquals(bucket, LatencyHistogram.bucketOf(highest), "highest value of bucket " + bucket);
+			assertEquals(bucket + 1, LatencyHistogram.bucketOf(highest + 1), "value after bucket " + bucket);
+		}
+	}
+	
+	@Test
+	void valuesAreKeptWithinAnEighth()
+	{
+		Random random = new Random(42);
+		
+		for(int i = 0; i < 100_000; i++)
+		{
+			// Spread over every power of two, not just the top few
+			long value = random.nextLong() >>> (1 + random.nextInt(63));
+			long highest = LatencyHistogram.highestOf(LatencyHistogram.bucketOf(value));
+			
+			assertTrue(highest >= value && highest - value <= value / LatencyHistogram.SUB_BUCKETS, value + " was put in a bucket up to " + highest);
+		}
+	}
+	
+	@Test
+	void percentilesComeFromTheBuckets()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		
+		for(int micros = 1; micros <= 1000; micros++)
+		{
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+		}
+		
+		LatencySnapshot snapshot = histogram.snapshot();
+		long median = TimeUnit.MICROSECONDS.toNanos(500);
+		
+		assertEquals(1000, snapshot.getCount());
+		assertTrue(snapshot.getP50Nanos() >= median && snapshot.getP50Nanos() <= median + median / 8, "p50 was " + snapshot.getP50Nanos());
+		
+		// The top bucket reaches past the longest value, which is reported instead
+		assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), snapshot.getPercentileNanos(100));
+		assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), snapshot.getMaxNanos());
+	}
+	
+	@Test
+	void negativeDurationsCountAsZero()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		
+		LatencySnapshot snapshot = histogram.snapshot();
+		assertEquals(1, snapshot.getCount());
+		assertEquals(0, snapshot.getMaxNanos());
+		assertEquals(0, snapshot.getP99Nanos());
+	}
+	
+	@Test
+	void emptySnapshotReportsZero()
+	{
+		assertEquals(0, new LatencyHistogram().snapshot().getP999Nanos());
+	}
+}
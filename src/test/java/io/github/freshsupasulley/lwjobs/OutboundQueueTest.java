@@ -0,0 +1,209 @@
+package io.github.freshsupasulley.lwjobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.freshsupasulley.lwjobs.transport.OBSTransport;
+import io.github.freshsupasulley.lwjobs.transport.OBSTransportListener;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+class OutboundQueueTest {
+	
+	private final HeldTransport transport = new HeldTransport();
+	private final OutboundQueue queue = new OutboundQueue(transport, new ControllerMetrics());
+	
+	@Test
+	void blockWaitsUntilThereIsRoom() throws Exception
+	{
+		queue.setLimit(10, BackpressurePolicy.BLOCK);
+		queue.offer("12345678", null);
+		
+		CountDownLatch queued = new CountDownLatch(1);
+		Thread.ofVirtual().start(() -> {
+			queue.offer("abcdefgh", null);
+			queued.countDown();
+		});
+		
+		assertFalse(queued.await(200, TimeUnit.MILLISECONDS), "second message should wait for the first to be written");
+		
+		transport.awaitSent(1).complete(null);
+		assertTrue(queued.await(2, TimeUnit.SECONDS));
+		assertEquals("abcdefgh", transport.awaitText(2));
+	}
+	
+	@Test
+	void failFastRejectsRightAway()
+	{
+		queue.setLimit(10, BackpressurePolicy.FAIL_FAST);
+		queue.offer("12345678", null);
+		
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		queue.offer("abcdefgh", failure::set);
+		
+		assertTrue(failure.get() instanceof IllegalStateException);
+		assertEquals(8, queue.getPendingBytes());
+	}
+	
+	@Test
+	void dropOldestFailsTheOldestUnwrittenMessage() throws Exception
+	{
+		queue.setLimit(10, BackpressurePolicy.DROP_OLDEST);
+		
+		// Holds the writer inside the first write, so the next message stays queued
+		transport.stall = new CountDownLatch(1);
+		queue.offer("1234", null);
+		transport.awaitStalled();
+		
+		AtomicReference<Throwable> dropped = new AtomicReference<Throwable>();
+		queue.offer("abcd", dropped::set);
+		assertEquals(1, queue.getDepth());
+		
+		AtomicReference<Throwable> kept = new AtomicReference<Throwable>();
+		queue.offer("wxyz", kept::set);
+		
+		assertTrue(dropped.get() instanceof IllegalStateException);
+		assertNull(kept.get());
+		
+		transport.stall.countDown();
+		transport.awaitSent(1).complete(null);
+		assertEquals("wxyz", transport.awaitText(2));
+	}
+	
+	@Test
+	void urgentMessagesSkipTheLimit()
+	{
+		queue.setLimit(10, BackpressurePolicy.FAIL_FAST);
+		queue.offer("12345678", null);
+		
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		queue.offer("abcdefgh", true, failure::set);
+		
+		assertNull(failure.get());
+		assertEquals(16, queue.getPendingBytes());
+	}
+	
+	@Test
+	void readerNeverWaits() throws Exception
+	{
+		queue.setLimit(10, BackpressurePolicy.BLOCK);
+		queue.offer("12345678", null);
+		
+		long start = System.nanoTime();
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		OutboundQueue.reading(() -> queue.offer("abcdefgh", failure::set));
+		
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+		assertNull(failure.get());
+		assertEquals("abcdefgh", transport.awaitText(2));
+	}
+	
+	@Test
+	void oversizedMessageGoesOutAlone() throws Exception
+	{
+		queue.setLimit(4, BackpressurePolicy.FAIL_FAST);
+		
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		queue.offer("much longer than the limit", failure::set);
+		
+		assertNull(failure.get());
+		assertEquals("much longer than the limit", transport.awaitText(1));
+		
+		transport.awaitSent(1).complete(null);
+		assertEquals(0, queue.getPendingBytes());
+	}
+	
+	/**
+	 * Keeps every write pending until the test completes it, so messages keep counting against the limit.
+	 */
+	private static class HeldTransport implements OBSTransport {
+		
+		private final List<String> texts = new CopyOnWriteArrayList<String>();
+		private final List<CompletableFuture<Void>> writes = new CopyOnWriteArrayList<CompletableFuture<Void>>();
+		private final CountDownLatch stalled = new CountDownLatch(1);
+		private volatile CountDownLatch stall;
+		
+		@Override
+		public CompletableFuture<Void> connect(URI address, String subprotocol, OBSTransportListener listener)
+		{
+			return CompletableFuture.completedFuture(null);
+		}
+		
+		@Override
+		public CompletableFuture<Void> sendText(String message)
+		{
+			if(stall != null)
+			{
+				stalled.countDown();
+				
+				try {
+					stall.await();
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			
+			CompletableFuture<Void> write = new CompletableFuture<Void>();
+			writes.add(write);
+			texts.add(message);
+			return write;
+		}
+		
+		@Override
+		public CompletableFuture<Void> sendBinary(ByteBuffer message)
+		{
+			return CompletableFuture.failedFuture(new UnsupportedOperationException());
+		}
+		
+		@Override
+		public boolean isOpen()
+		{
+			return true;
+		}
+		
+		@Override
+		public void close() {}
+		
+		@Override
+		public void shutdown() {}
+		
+		void awaitStalled() throws InterruptedException
+		{
+			assertTrue(stalled.await(2, TimeUnit.SECONDS));
+		}
+		
+		CompletableFuture<Void> awaitSent(int count) throws InterruptedException
+		{
+			awaitCount(count);
+			return writes.get(count - 1);
+		}
+		
+		String awaitText(int count) throws InterruptedException
+		{
+			awaitCount(count);
+			return texts.get(count - 1);
+		}
+		
+		private void awaitCount(int count) throws InterruptedException
+		{
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+			
+			while(texts.size() < count && System.nanoTime() < deadline)
+			{
+				Thread.sleep(5);
+			}
+			
+			assertTrue(texts.size() >= count, "expected " + count + " messages to be written");
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package io.github.freshsupasulley.lwjobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+class PendingTableTest {
+	
+	// Every stripe starts out with 16 slots
+	private static final int STRIPES = 16, INITIAL_CAPACITY = 16;
+	
+	private final PendingTable<String> table = new PendingTable<String>();
+	
+	/**
+	 * Finds keys that land in the same stripe and start probing from the same slot, so they end up in one chain.
+	 */
+	private static long[] collidingKeys(int count, int homeSlot)
+	{
+		long[] keys = new long[count];
+		int found = 0;
+		
+		for(long key = 1; found < count; key++)
+		{
+			int hash = PendingTable.hash(key);
+			
+			if((hash & (STRIPES - 1)) == 0 && ((hash >>> 4) & (INITIAL_CAPACITY - 1)) == homeSlot)
+			{
+				keys[found++] = key;
+			}
+		}
+		
+		return keys;
+	}
+	
+	@Test
+	void removingFromTheMiddleOfAChainKeepsTheRestReachable()
+	{
+		long[] keys = collidingKeys(5, 3);
+		
+		for(long key : keys)
+		{
+			table.put(key, "v" + key);
+		}
+		
+		assertEquals("v" + keys[1], table.remove(keys[1]));
+		assertNull(table.get(keys[1]));
+		
+		for(int i = 0; i < keys.length; i++)
+		{
+			if(i != 1)
+			{
+				assertEquals("v" + keys[i], table.get(keys[i]));
+			}
+		}
+		
+		// Removing the head shifts the rest of the chain back again
+		assertEquals("v" + keys[0], table.remove(keys[0]));
+		assertEquals("v" + keys[4], table.get(keys[4]));
+		assertEquals(3, table.size());
+	}
+	
+	@Test
+	void chainsWrapAroundTheEndOfTheStripe()
+	{
+		// Starts in the last slot, so the rest of the chain continues from slot 0
+		long[] keys = collidingKeys(4, INITIAL_CAPACITY - 1);
+		long[] neighbors = collidingKeys(1, 0);
+		
+		for(long key : keys)
+		{
+			table.put(key, "v" + key);
+		}
+		
+		// Belongs in slot 0, which the wrapped chain already took
+		table.put(neighbors[0], "neighbor");
+		
+		assertEquals("v" + keys[0], table.remove(keys[0]));
+		
+		for(int i = 1; i < keys.length; i++)
+		{
+			assertEquals("v" + keys[i], table.get(keys[i]));
+		}
+		
+		assertEquals("neighbor", table.get(neighbors[0]));
+		assertEquals("neighbor", table.remove(neighbors[0]));
+		assertEquals("v" + keys[3], table.remove(keys[3]));
+		assertEquals(2, table.size());
+	}
+	
+	@Test
+	void putReplacesTheValueUnderAKey()
+	{
+		table.put(7, "first");
+		table.put(7, "second");
+		
+		assertEquals("second", table.get(7));
+		assertEquals(1, table.size());
+	}
+	
+	@Test
+	void shrinksBackDownAfterABurst()
+	{
+		int initial = table.capacity();
+		
+		for(long key = 0; key < 10_000; key++)
+		{
+			table.put(key, "v");
+		}
+		
+		assertTrue(table.capacity() > initial);
+		
+		for(long key = 0; key < 10_000; key++)
+		{
+			if(key % 1000 != 0)
+			{
+				table.remove(key);
+			}
+		}
+		
+		assertEquals(10, table.size());
+		assertTrue(table.capacity() <= initial * 2, "expected the table to shrink, but it has " + table.capacity() + " slots");
+		
+		for(long key = 0; key < 10_000; key += 1000)
+		{
+			assertEquals("v", table.get(key));
+		}
+	}
+	
+	@Test
+	void drainEmptiesTheTable()
+	{
+		for(long key = 0; key < 100; key++)
+		{
+			table.put(key, "v" + key);
+		}
+		
+		Map<Long, String> drained = new HashMap<Long, String>();
+		table.drain(drained::put);
+		
+		assertEquals(100, drained.size());
+		assertEquals("v42", drained.get(42L));
+		assertEquals(0, table.size());
+		assertNull(table.get(42));
+	}
+	
+	@Test
+	void matchesAHashMapUnderRandomUse()
+	{
+		Map<Long, String> expected = new HashMap<Long, String>();
+		Random random = new Random(42);
+		
+		for(int i = 0; i < 200_000; i++)
+		{
+			long key = random.nextInt(2000);
+			
+			switch(random.nextInt(3))
+			{
+				case 0:
+				{
+					table.put(key, "v" + i);
+					expected.put(key, "v" + i);
+					break;
+				}
+				case 1:
+				{
+					assertEquals(expected.remove(key), table.remove(key));
+					break;
+				}
+				default:
+				{
+					assertEquals(expected.get(key), table.get(key));
+					break;
+				}
+			}
+		}
+		
+		assertEquals(expected.size(), table.size());
+	}
+}
@@ -0,0 +1,113 @@
+package io.github.freshsupasulley.lwjobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.github.freshsupasulley.lwjobs.impl.SetSceneItemEnabled;
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+import org.junit.jupiter.api.Test;
+
+class PreparedRequestTest {
+	
+	private static final String TRICKY = "quote \" backslash \\ newline \n tab \t bell \u0007 unicode é中";
+	
+	private static PreparedRequest<SetSceneItemEnabled> toggle()
+	{
+		// Writing the message never touches the controller
+		return new PreparedRequest<SetSceneItemEnabled>(null, () -> new SetSceneItemEnabled("Gameplay", 7, true), "sceneName", "sceneItemEnabled");
+	}
+	
+	private static JsonObject expected(String requestID, String sceneName, boolean enabled)
+	{
+		JsonObject requestData = new JsonObject();
+		requestData.addProperty("sceneName", sceneName);
+		requestData.addProperty("sceneItemId", 7);
+		requestData.addProperty("sceneItemEnabled", enabled);
+		
+		JsonObject data = new JsonObject();
+		data.addProperty("requestType", "SetSceneItemEnabled");
+		data.addProperty("requestId", requestID);
+		data.add("requestData", requestData);
+		
+		JsonObject json = new JsonObject();
+		json.addProperty("op", 6);
+		json.add("d", data);
+		return json;
+	}
+	
+	@Test
+	void textFillsInTheRequestIdAndParameters()
+	{
+		PreparedRequest<SetSceneItemEnabled> prepared = toggle();
+		
+		assertEquals(expected("1a", "Live", false), JsonParser.parseString(prepared.writeText("1a", new Object[] {"Live", false})));
+		
+		// The reused buffer doesn't leak anything from the last send
+		assertEquals(expected("zz9", TRICKY, true), JsonParser.parseString(prepared.writeText("zz9", new Object[] {TRICKY, true})));
+	}
+	
+	@Test
+	void binaryFillsInTheRequestIdAndParameters()
+	{
+		PreparedRequest<SetSceneItemEnabled> prepared = toggle();
+		
+		byte[] first = prepared.writeBinary("1a", new Object[] {"Live", false});
+		byte[] second = prepared.writeBinary("zz9", new Object[] {TRICKY, true});
+		
+		assertEquals(expected("1a", "Live", false), MessagePackCodec.decode(first, 0, first.length));
+		assertEquals(expected("zz9", TRICKY, true), MessagePackCodec.decode(second, 0, second.length));
+	}
+	
+	@Test
+	void valuesOfEveryTypeMatchGson()
+	{
+		PreparedRequest<ValueRequest> prepared = new PreparedRequest<ValueRequest>(null, ValueRequest::new, "value");
+		
+		JsonArray array = new JsonArray();
+		array.add(1.5);
+		array.add("two");
+		
+		Object[] values = {null, 42, 1L << 40, 2.25, true, array, TRICKY};
+		
+		for(Object value : values)
+		{
+			JsonObject json = JsonParser.parseString(prepared.writeText("1", new Object[] {value})).getAsJsonObject();
+			assertEquals(new Gson().toJsonTree(value), json.getAsJsonObject("d").getAsJsonObject("requestData").get("value"));
+		}
+	}
+	
+	@Test
+	void unsupportedValuesAreRejected()
+	{
+		PreparedRequest<ValueRequest> prepared = new PreparedRequest<ValueRequest>(null, ValueRequest::new, "value");
+		assertThrows(IllegalArgumentException.class, () -> prepared.writeText("1", new Object[] {new Object()}));
+	}
+	
+	@Test
+	void unknownParametersAreRejected()
+	{
+		assertThrows(IllegalArgumentException.class, () -> new PreparedRequest<SetSceneItemEnabled>(null, () -> new SetSceneItemEnabled("Gameplay", 7, true), "sceneItemVisible"));
+	}
+	
+	private static class ValueRequest extends OBSRequest {
+		
+		@Override
+		protected void parseResponse(JsonObject responseData) {}
+		
+		@Override
+		public String getRequestType()
+		{
+			return "SetValue";
+		}
+		
+		@Override
+		public void applyJSON(JsonObject json)
+		{
+			json.addProperty("value", 0);
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package io.github.freshsupasulley.lwjobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.freshsupasulley.lwjobs.requests.EmptyRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+class RequestSchedulerTest {
+	
+	private final List<OBSBuiltRequest<?>> sent = new CopyOnWriteArrayList<OBSBuiltRequest<?>>();
+	private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+	private final RequestScheduler scheduler = new RequestScheduler(sent::add, timer);
+	
+	@AfterEach
+	void shutdown()
+	{
+		timer.shutdownNow();
+	}
+	
+	private static OBSBuiltRequest<EmptyRequest> request(RequestPriority priority)
+	{
+		OBSBuiltRequest<EmptyRequest> request = new OBSBuiltRequest<EmptyRequest>(new EmptyRequest("GetVersion"), null, null);
+		request.priority = priority;
+		return request;
+	}
+	
+	private OBSBuiltRequest<EmptyRequest> submit(RequestPriority priority)
+	{
+		OBSBuiltRequest<EmptyRequest> request = request(priority);
+		scheduler.submit(request);
+		return request;
+	}
+	
+	private void awaitSent(int count) throws InterruptedException
+	{
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+		
+		while(sent.size() < count && System.nanoTime() < deadline)
+		{
+			Thread.sleep(5);
+		}
+		
+		assertEquals(count, sent.size());
+	}
+	
+	@Test
+	void unlimitedRequestsGoStraightOutButCountAsInFlight()
+	{
+		OBSBuiltRequest<EmptyRequest> first = submit(RequestPriority.NORMAL);
+		submit(RequestPriority.BACKGROUND);
+		
+		assertEquals(2, sent.size());
+		assertEquals(2, scheduler.getInFlight());
+		
+		// Releasing twice only frees one slot
+		scheduler.release(first);
+		scheduler.release(first);
+		assertEquals(1, scheduler.getInFlight());
+	}
+	
+	@Test
+	void capSetWhileRequestsAreOutstandingCountsThem() throws Exception
+	{
+		OBSBuiltRequest<EmptyRequest> first = submit(RequestPriority.NORMAL);
+		OBSBuiltRequest<EmptyRequest> second = submit(RequestPriority.NORMAL);
+		submit(RequestPriority.NORMAL);
+		
+		scheduler.setMaxInFlight(2);
+		submit(RequestPriority.NORMAL);
+		assertEquals(3, sent.size());
+		assertEquals(1, scheduler.getQueued());
+		
+		// Still at the cap after one answer
+		scheduler.release(first);
+		Thread.sleep(100);
+		assertEquals(3, sent.size());
+		
+		scheduler.release(second);
+		awaitSent(4);
+		assertEquals(2, scheduler.getInFlight());
+	}
+	
+	@Test
+	void realtimeRequestsSkipTheCap()
+	{
+		scheduler.setMaxInFlight(1);
+		submit(RequestPriority.NORMAL);
+		submit(RequestPriority.NORMAL);
+		submit(RequestPriority.REALTIME);
+		
+		assertEquals(2, sent.size());
+		assertEquals(RequestPriority.REALTIME, sent.get(1).priority);
+	}
+	
+	@Test
+	void higherPrioritiesGoFirst() throws Exception
+	{
+		scheduler.setMaxInFlight(1);
+		OBSBuiltRequest<EmptyRequest> first = submit(RequestPriority.NORMAL);
+		submit(RequestPriority.BACKGROUND);
+		submit(RequestPriority.NORMAL);
+		
+		scheduler.release(first);
+		awaitSent(2);
+		assertEquals(RequestPriority.NORMAL, sent.get(1).priority);
+		
+		scheduler.release(sent.get(1));
+		awaitSent(3);
+		assertEquals(RequestPriority.BACKGROUND, sent.get(2).priority);
+	}
+	
+	@Test
+	void removingTheCapSendsWhatWasQueued() throws Exception
+	{
+		scheduler.setMaxInFlight(1);
+		submit(RequestPriority.NORMAL);
+		submit(RequestPriority.NORMAL);
+		submit(RequestPriority.NORMAL);
+		assertEquals(1, sent.size());
+		
+		scheduler.setMaxInFlight(0);
+		awaitSent(3);
+		assertEquals(0, scheduler.getQueued());
+		assertEquals(3, scheduler.getInFlight());
+	}
+	
+	@Test
+	void rateLimitSpacesRequestsOut() throws Exception
+	{
+		// One token to start with, then one every 50 ms
+		scheduler.setRateLimit(RequestPriority.NORMAL, 20, 1);
+		
+		long start = System.nanoTime();
+		
+		for(int i = 0; i < 4; i++)
+		{
+			submit(RequestPriority.NORMAL);
+		}
+		
+		assertEquals(1, sent.size());
+		awaitSent(4);
+		
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue(elapsed >= 140, "4 requests at 20 per second took " + elapsed + "ms");
+	}
+	
+	@Test
+	void requestsDoneWhileQueuedAreSkipped() throws Exception
+	{
+		scheduler.setMaxInFlight(1);
+		OBSBuiltRequest<EmptyRequest> first = submit(RequestPriority.NORMAL);
+		OBSBuiltRequest<EmptyRequest> cancelled = submit(RequestPriority.NORMAL);
+		submit(RequestPriority.NORMAL);
+		
+		cancelled.cancel(false);
+		scheduler.release(first);
+		
+		awaitSent(2);
+		assertTrue(sent.get(1) != cancelled);
+		assertEquals(0, scheduler.getQueued());
+	}
+}
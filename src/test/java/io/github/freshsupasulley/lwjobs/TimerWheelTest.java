@@ -0,0 +1,150 @@
+package io.github.freshsupasulley.lwjobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class TimerWheelTest {
+	
+	private final AtomicLong now = new AtomicLong(1_000_000);
+	private final List<String> expired = new CopyOnWriteArrayList<String>();
+	private final ManualTicker ticker = new ManualTicker();
+	
+	// 10 ms ticks and 8 buckets, so one round of the wheel is 80 ms
+	private final TimerWheel<String> wheel = new TimerWheel<String>(ticker, expired::add, 10, TimeUnit.MILLISECONDS, 8, now::get);
+	
+	@AfterEach
+	void shutdown()
+	{
+		ticker.shutdownNow();
+	}
+	
+	/**
+	 * Moves the clock forward and runs the tick that would have fired.
+	 */
+	private void advance(long millis)
+	{
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+		ticker.tick();
+	}
+	
+	@Test
+	void expiresOnTheTickOfItsDeadline()
+	{
+		wheel.schedule("a", 25, TimeUnit.MILLISECONDS);
+		
+		advance(20);
+		assertTrue(expired.isEmpty());
+		
+		advance(10);
+		assertEquals(List.of("a"), expired);
+		assertEquals(0, wheel.size());
+	}
+	
+	@Test
+	void deadlinesPastOneRoundWaitForTheirRound()
+	{
+		wheel.schedule("late", 250, TimeUnit.MILLISECONDS);
+		wheel.schedule("early", 30, TimeUnit.MILLISECONDS);
+		
+		advance(30);
+		assertEquals(List.of("early"), expired);
+		
+		// Passes the late deadline's bucket twice before its round comes up
+		advance(210);
+		assertEquals(List.of("early"), expired);
+		
+		advance(10);
+		assertEquals(List.of("early", "late"), expired);
+	}
+	
+	@Test
+	void cancelledTimeoutsNeverExpire()
+	{
+		TimerWheel.Timeout<String> timeout = wheel.schedule("cancelled", 20, TimeUnit.MILLISECONDS);
+		wheel.schedule("kept", 20, TimeUnit.MILLISECONDS);
+		timeout.cancel();
+		
+		advance(100);
+		assertEquals(List.of("kept"), expired);
+		assertEquals(0, wheel.size());
+	}
+	
+	@Test
+	void stopsTickingWhileEmpty()
+	{
+		wheel.schedule("a", 10, TimeUnit.MILLISECONDS);
+		assertTrue(ticker.isRunning());
+		
+		advance(10);
+		assertFalse(ticker.isRunning());
+	}
+	
+	@Test
+	void restartsFromTheCurrentTickAfterIdling()
+	{
+		wheel.schedule("a", 10, TimeUnit.MILLISECONDS);
+		advance(10);
+		assertFalse(ticker.isRunning());
+		
+		// A year of 10 ms ticks would take far longer than this to replay one by one
+		now.addAndGet(TimeUnit.DAYS.toNanos(365));
+		wheel.schedule("b", 30, TimeUnit.MILLISECONDS);
+		
+		long start = System.nanoTime();
+		ticker.tick();
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "restarting replayed the ticks missed while idle");
+		assertEquals(List.of("a"), expired);
+		
+		advance(20);
+		assertEquals(List.of("a"), expired);
+		
+		advance(10);
+		assertEquals(List.of("a", "b"), expired);
+	}
+	
+	/**
+	 * Keeps the wheel's periodic tick instead of running it, so the test decides when time passes.
+	 */
+	private static class ManualTicker extends ScheduledThreadPoolExecutor {
+		
+		private Runnable tick;
+		private ScheduledFuture<?> future;
+		
+		private ManualTicker()
+		{
+			super(1);
+		}
+		
+		@Override
+		public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit)
+		{
+			tick = command;
+			future = schedule(() -> {}, 1, TimeUnit.DAYS);
+			return future;
+		}
+		
+		boolean isRunning()
+		{
+			return future != null && !future.isCancelled();
+		}
+		
+		void tick()
+		{
+			if(isRunning())
+			{
+				tick.run();
+			}
+		}
+	}
+}
@@ -3,12 +3,101 @@
  */
 package io.github.freshsupasulley.lwjobs.test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.github.freshsupasulley.lwjobs.FailedRequestException;
 import io.github.freshsupasulley.lwjobs.OBSController;
+import io.github.freshsupasulley.lwjobs.OBSStateCache;
+import io.github.freshsupasulley.lwjobs.ReconnectPolicy;
+import io.github.freshsupasulley.lwjobs.events.EventDelivery;
+import io.github.freshsupasulley.lwjobs.events.EventSubscription;
+import io.github.freshsupasulley.lwjobs.impl.CurrentProgramSceneChangedEvent;
 import io.github.freshsupasulley.lwjobs.impl.GetSceneListRequest;
+import io.github.freshsupasulley.lwjobs.impl.SceneItemRemovedEvent;
+import io.github.freshsupasulley.lwjobs.impl.SetSceneItemEnabled;
+import io.github.freshsupasulley.lwjobs.impl.SetSceneItemEnabledByName;
+import io.github.freshsupasulley.lwjobs.mock.MockOBSServer;
+import io.github.freshsupasulley.lwjobs.mock.MockResponse;
+import io.github.freshsupasulley.lwjobs.requests.OBSRequest;
+import org.eclipse.jetty.websocket.api.WebSocketException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 class LibraryTest {
 	
+	private static final JsonObject SCENE_LIST = JsonParser.parseString("{\"currentProgramSceneName\":\"Live\",\"scenes\":[{\"sceneIndex\":0,\"sceneName\":\"Live\"},{\"sceneIndex\":1,\"sceneName\":\"BRB\"}]}").getAsJsonObject();
+	
+	private MockOBSServer server;
+	private OBSController controller;
+	
+	@BeforeEach
+	void startServer() throws Exception
+	{
+		server = new MockOBSServer().password("secret").start();
+		server.handle("GetSceneList", requestData -> MockResponse.success(SCENE_LIST));
+		server.handle("SetSceneItemEnabled", requestData -> requestData.get("sceneItemId").getAsInt() == 99 ? MockResponse.failure(MockResponse.RESOURCE_NOT_FOUND, "No scene item") : null);
+	}
+	
+	@AfterEach
+	void stopServer()
+	{
+		if(controller != null)
+		{
+			controller.disconnect();
+		}
+		
+		server.close();
+	}
+	
+	private OBSController connect()
+	{
+		return controller = new OBSController().connect(server.getAddress(), "secret");
+	}
+	
+	/**
+	 * Answers GetSceneItemId with whatever the ID is set to, and keeps the IDs SetSceneItemEnabled was sent with.
+	 */
+	private void trackSceneItemIds(AtomicInteger sceneItemId, List<Integer> sent)
+	{
+		server.handle("GetSceneItemId", requestData -> {
+			JsonObject responseData = new JsonObject();
+			responseData.addProperty("sceneItemId", sceneItemId.get());
+			return MockResponse.success(responseData);
+		});
+		
+		server.handle("SetSceneItemEnabled", requestData -> {
+			sent.add(requestData.get("sceneItemId").getAsInt());
+			return null;
+		});
+	}
+	
+	/**
+	 * Sends an event once the controller has subscribed to its category, which happens in the background after a listener is added.
+	 */
+	private void emitOnceSubscribed(String eventType, EventSubscription subscription, JsonObject eventData) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + 5000;
+		
+		while(server.emit(eventType, subscription, eventData) == 0 && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(10);
+		}
+	}
+	
 	@Test
 	void someLibraryMethodReturnsTrue()
 	{
@@ -18,4 +107,227 @@ class LibraryTest {
 //		var response = c.build(new GetSceneListRequest()).complete();
 //		System.out.println("CURRENT SCENE: " + response.getCurrentScene());
 	}
+	
+	@Test
+	void wrongPasswordIsRejected()
+	{
+		assertThrows(WebSocketException.class, () -> new OBSController().connect(server.getAddress(), "wrong"));
+		assertEquals(0, server.getConnectionCount());
+	}
+	
+	@Test
+	void requestsAreAnswered()
+	{
+		GetSceneListRequest sceneList = connect().build(new GetSceneListRequest()).complete();
+		
+		assertEquals("Live", sceneList.getCurrentScene());
+		assertEquals("BRB", sceneList.getScenes()[1]);
+		assertEquals(1, server.getRequestCount("GetSceneList"));
+	}
+	
+	@Test
+	void failuresCarryTheirCode()
+	{
+		FailedRequestException e = assertThrows(FailedRequestException.class, () -> connect().build(new SetSceneItemEnabled("Live", 99, true)).complete());
+		assertEquals(MockResponse.RESOURCE_NOT_FOUND, e.getCode());
+	}
+	
+	@Test
+	void batchesAreAnswered()
+	{
+		List<OBSRequest> results = connect().batch().add(new SetSceneItemEnabled("Live", 1, true)).add(new GetSceneListRequest()).complete();
+		
+		assertEquals(2, results.size());
+		assertEquals("Live", ((GetSceneListRequest) results.get(1)).getCurrentScene());
+	}
+	
+	@Test
+	void eventsReachListeners() throws Exception
+	{
+		CountDownLatch received = new CountDownLatch(20);
+		connect().addListener(CurrentProgramSceneChangedEvent::new, event -> received.countDown());
+		
+		JsonObject eventData = new JsonObject();
+		eventData.addProperty("sceneName", "BRB");
+		
+		// Subscribing to a new category reidentifies in the background
+		long deadline = System.currentTimeMillis() + 5000;
+		
+		while(server.emit("CurrentProgramSceneChanged", EventSubscription.SCENES, eventData) == 0 && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(10);
+		}
+		
+		server.emitAtRate("CurrentProgramSceneChanged", EventSubscription.SCENES, () -> eventData, 1000);
+		assertTrue(received.await(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	void onlyInlineListenersCantWaitOnRequests() throws Exception
+	{
+		CompletableFuture<String> ordered = new CompletableFuture<String>();
+		CompletableFuture<Throwable> inline = new CompletableFuture<Throwable>();
+		
+		connect().addListener(CurrentProgramSceneChangedEvent::new, EventDelivery.ORDERED, null, event -> ordered.complete(controller.build(new GetSceneListRequest()).complete().getCurrentScene()));
+		controller.addListener(CurrentProgramSceneChangedEvent::new, EventDelivery.INLINE, null, event -> {
+			try {
+				controller.build(new GetSceneListRequest()).complete();
+				inline.complete(null);
+			} catch(IllegalStateException e) {
+				inline.complete(e);
+			}
+		});
+		
+		JsonObject eventData = new JsonObject();
+		eventData.addProperty("sceneName", "BRB");
+		emitOnceSubscribed("CurrentProgramSceneChanged", EventSubscription.SCENES, eventData);
+		
+		// Off the reader thread, so waiting is fine
+		assertEquals("Live", ordered.get(5, TimeUnit.SECONDS));
+		assertTrue(inline.get(5, TimeUnit.SECONDS) instanceof IllegalStateException);
+	}
+	
+	@Test
+	void unregisteringAnEventKeepsCachedSceneItemIdsUpToDate() throws Exception
+	{
+		AtomicInteger sceneItemId = new AtomicInteger(1);
+		List<Integer> sent = new CopyOnWriteArrayList<Integer>();
+		trackSceneItemIds(sceneItemId, sent);
+		
+		AtomicInteger removed = new AtomicInteger();
+		connect().addListener(SceneItemRemovedEvent::new, EventDelivery.INLINE, null, event -> removed.incrementAndGet());
+		controller.build(new SetSceneItemEnabledByName("Live", "Webcam", true)).complete();
+		
+		// Takes the listener added above, but not the one invalidating cached IDs
+		controller.unregisterEvent("SceneItemRemoved");
+		
+		// The source was removed and added again under a new ID
+		sceneItemId.set(2);
+		
+		JsonObject eventData = new JsonObject();
+		eventData.addProperty("sceneName", "Live");
+		eventData.addProperty("sourceName", "Webcam");
+		eventData.addProperty("sceneItemId", 1);
+		emitOnceSubscribed("SceneItemRemoved", EventSubscription.SCENE_ITEMS, eventData);
+		
+		// Answered after the event, so it's been handled by then
+		controller.build(new GetSceneListRequest()).complete();
+		controller.build(new SetSceneItemEnabledByName("Live", "Webcam", false)).complete();
+		
+		assertEquals(List.of(1, 2), sent);
+		assertEquals(0, removed.get());
+	}
+	
+	@Test
+	void batchedRequestsForgetSceneItemIdsThatAreGone()
+	{
+		AtomicInteger sceneItemId = new AtomicInteger(1);
+		List<Integer> sent = new CopyOnWriteArrayList<Integer>();
+		trackSceneItemIds(sceneItemId, sent);
+		
+		connect().build(new SetSceneItemEnabledByName("Live", "Webcam", true)).complete();
+		
+		// The source was removed and added again under a new ID, and the event never arrived
+		sceneItemId.set(2);
+		server.handle("SetSceneItemEnabled", requestData -> {
+			sent.add(requestData.get("sceneItemId").getAsInt());
+			return requestData.get("sceneItemId").getAsInt() == 1 ? MockResponse.failure(MockResponse.RESOURCE_NOT_FOUND, "No scene item") : null;
+		});
+		
+		List<OBSRequest> results = controller.batch().add(new SetSceneItemEnabledByName("Live", "Webcam", false)).complete();
+		assertNull(results.get(0));
+		
+		controller.build(new SetSceneItemEnabledByName("Live", "Webcam", false)).complete();
+		assertEquals(List.of(1, 1, 2), sent);
+	}
+	
+	@Test
+	void droppedRequestsTimeOut()
+	{
+		connect();
+		server.dropRate(1);
+		
+		assertThrows(FailedRequestException.class, () -> controller.build(new GetSceneListRequest()).timeout(200, TimeUnit.MILLISECONDS).complete());
+		assertEquals(1, server.getDroppedCount());
+	}
+	
+	@Test
+	void stateCacheFollowsSceneRenames() throws Exception
+	{
+		JsonObject output = JsonParser.parseString("{\"outputActive\":false}").getAsJsonObject();
+		server.handle("GetRecordStatus", requestData -> MockResponse.success(output));
+		server.handle("GetStreamStatus", requestData -> MockResponse.success(output));
+		server.handle("GetSceneItemList", requestData -> MockResponse.success(JsonParser.parseString("{\"sceneItems\":[{\"sceneItemId\":1,\"sourceName\":\"Webcam\",\"sceneItemEnabled\":true}]}").getAsJsonObject()));
+		
+		OBSStateCache cache = new OBSStateCache(connect());
+		cache.whenSynced().get(5, TimeUnit.SECONDS);
+		
+		JsonObject eventData = new JsonObject();
+		eventData.addProperty("oldSceneName", "Live");
+		eventData.addProperty("sceneName", "Gameplay");
+		emitOnceSubscribed("SceneNameChanged", EventSubscription.SCENES, eventData);
+		
+		// Answered after the event, so it's been handled by then
+		controller.build(new GetSceneListRequest()).complete();
+		
+		assertEquals("Gameplay", cache.getCurrentScene());
+		assertEquals(List.of("Gameplay", "BRB"), cache.getScenes());
+		assertEquals(Boolean.TRUE, cache.isSceneItemEnabled("Gameplay", 1));
+		assertNull(cache.isSceneItemEnabled("Live", 1));
+		assertTrue(cache.isLive());
+	}
+	
+	@Test
+	void stateCacheSyncFailsWhenTheConnectionDrops()
+	{
+		connect();
+		server.dropRate(1);
+		OBSStateCache cache = new OBSStateCache(controller);
+		server.disconnectAll(1011, "Injected disconnect");
+		
+		// Nothing reconnects, so the sync that was dropped is the last one
+		ExecutionException e = assertThrows(ExecutionException.class, () -> cache.whenSynced().get(5, TimeUnit.SECONDS));
+		assertTrue(e.getCause() instanceof IllegalStateException);
+		assertEquals(OBSStateCache.Consistency.STALE, cache.getConsistency());
+	}
+	
+	@Test
+	void stateCacheSyncFailsWhenClosed()
+	{
+		connect();
+		server.dropRate(1);
+		OBSStateCache cache = new OBSStateCache(controller);
+		cache.close();
+		
+		ExecutionException e = assertThrows(ExecutionException.class, () -> cache.whenSynced().get(5, TimeUnit.SECONDS));
+		assertTrue(e.getCause() instanceof IllegalStateException);
+	}
+	
+	@Test
+	void reconnectsAfterDisconnect() throws Exception
+	{
+		CountDownLatch reconnected = new CountDownLatch(1);
+		connect().useReconnectPolicy(ReconnectPolicy.exponential().initialDelay(50, TimeUnit.MILLISECONDS)).registerReconnect(reconnected::countDown);
+		server.disconnectAll(1011, "Injected disconnect");
+		
+		assertTrue(reconnected.await(5, TimeUnit.SECONDS));
+		assertEquals("Live", controller.build(new GetSceneListRequest()).complete().getCurrentScene());
+	}
+	
+	@Test
+	void handlesManyRequests()
+	{
+		connect();
+		server.latency(0, 2, TimeUnit.MILLISECONDS);
+		
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[5000];
+		
+		for(int i = 0; i < futures.length; i++)
+		{
+			futures[i] = controller.build(new SetSceneItemEnabled("Live", 1, (i & 1) == 0)).submit();
+		}
+		
+		CompletableFuture.allOf(futures).join();
+		assertEquals(futures.length, server.getRequestCount("SetSceneItemEnabled"));
+	}
 }